@@ -0,0 +1,14 @@
+package com.ecommerce.project.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts catalog invalidations to every node running the application.
+ * Listeners also receive the events published by their own node.
+ */
+public interface CacheInvalidationBus {
+
+    void publish(CatalogChangeEvent event);
+
+    void subscribe(Consumer<CatalogChangeEvent> listener);
+}
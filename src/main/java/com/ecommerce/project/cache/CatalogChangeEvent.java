@@ -0,0 +1,19 @@
+package com.ecommerce.project.cache;
+
+import java.util.Set;
+
+/**
+ * Describes a catalog write so that every node can evict the same L1 entries.
+ * Carries just enough of the product to decide which lists it can appear in;
+ * searchTerms are the terms the product is indexed under after the change.
+ */
+public record CatalogChangeEvent(
+        String originNodeId,
+        Type type,
+        String productId,
+        String categoryId,
+        Set<String> searchTerms,
+        Set<String> changedFields
+) {
+    public enum Type { CREATED, UPDATED, DELETED, CATEGORY_RENAMED }
+}
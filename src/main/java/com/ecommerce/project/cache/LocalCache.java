@@ -0,0 +1,283 @@
+package com.ecommerce.project.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-process cache with a per-entry TTL and tag based invalidation.
+ *
+ * Entries are kept in access order, so once maxSize is reached the least recently
+ * used entry is evicted. Every entry can carry tags (for example the ids of the
+ * products it contains) which lets writers evict exactly the entries holding the
+ * changed data instead of clearing the whole cache.
+ */
+public class LocalCache<K, V> {
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final Map<String, Set<K>> tagIndex = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    // Bumped on every invalidation. A load that started before an invalidation
+    // must not put its (possibly stale) result back into the cache.
+    private long generation;
+
+    public LocalCache(String name, int maxSize, Duration ttl) {
+        this(name, maxSize, ttl, System::nanoTime);
+    }
+
+    LocalCache(String name, int maxSize, Duration ttl, LongSupplier nanoClock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be greater than 0");
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the cached value or loads, tags and caches it.
+     * The loader runs outside the cache lock, so concurrent misses on the same key may load twice.
+     */
+    public V get(K key, Supplier<V> loader, Function<? super V, ? extends Collection<String>> tagsOf) {
+        long startGeneration;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (!isExpired(entry)) {
+                    hits.increment();
+                    return entry.value;
+                }
+                removeEntry(key, entry);
+                evictions.increment();
+            }
+            misses.increment();
+            startGeneration = generation;
+        }
+
+        V value = loader.get();
+        if (value != null) {
+            Collection<String> tags = tagsOf != null ? tagsOf.apply(value) : List.of();
+            synchronized (this) {
+                if (generation == startGeneration) {
+                    putInternal(key, value, tags);
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the cached values of the keys and loads all missing ones with a single loader call.
+     * Keys the loader returns no value for are left out of the result and are not cached.
+     */
+    public Map<K, V> getAll(Collection<K> keys, Function<? super Set<K>, ? extends Map<K, V>> loader,
+                            Function<? super V, ? extends Collection<String>> tagsOf) {
+        Map<K, V> found = new HashMap<>();
+        Set<K> missing = new LinkedHashSet<>();
+        long startGeneration;
+        synchronized (this) {
+            for (K key : keys) {
+                Entry<V> entry = entries.get(key);
+                if (entry != null && !isExpired(entry)) {
+                    hits.increment();
+                    found.put(key, entry.value);
+                    continue;
+                }
+                if (entry != null) {
+                    removeEntry(key, entry);
+                    evictions.increment();
+                }
+                if (missing.add(key)) {
+                    misses.increment();
+                }
+            }
+            startGeneration = generation;
+        }
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        Map<K, V> loaded = new HashMap<>();
+        Map<K, Collection<String>> tags = new HashMap<>();
+        loader.apply(missing).forEach((key, value) -> {
+            if (value != null && missing.contains(key)) {
+                loaded.put(key, value);
+                tags.put(key, tagsOf != null ? tagsOf.apply(value) : List.of());
+            }
+        });
+        synchronized (this) {
+            if (generation == startGeneration) {
+                loaded.forEach((key, value) -> putInternal(key, value, tags.get(key)));
+            }
+        }
+        found.putAll(loaded);
+        return found;
+    }
+
+    public synchronized V getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (isExpired(entry)) {
+            removeEntry(key, entry);
+            evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value, Collection<String> tags) {
+        putInternal(key, value, tags);
+    }
+
+    public synchronized void invalidate(K key) {
+        Entry<V> entry = entries.get(key);
+        generation++;
+        if (entry != null) {
+            removeEntry(key, entry);
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Evicts every entry carrying the given tag.
+     * @return number of entries evicted
+     */
+    public synchronized int invalidateTag(String tag) {
+        generation++;
+        Set<K> keys = tagIndex.get(tag);
+        if (keys == null) {
+            return 0;
+        }
+        List<K> toRemove = new ArrayList<>(keys);
+        for (K key : toRemove) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                removeEntry(key, entry);
+                invalidations.increment();
+            }
+        }
+        return toRemove.size();
+    }
+
+    /**
+     * Evicts every entry whose key matches the predicate.
+     * @return number of entries evicted
+     */
+    public synchronized int invalidateKeys(Predicate<? super K> predicate) {
+        generation++;
+        int removed = 0;
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<K, Entry<V>> e = it.next();
+            if (predicate.test(e.getKey())) {
+                it.remove();
+                untag(e.getKey(), e.getValue());
+                invalidations.increment();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        invalidations.add(entries.size());
+        entries.clear();
+        tagIndex.clear();
+    }
+
+    /**
+     * Current invalidation generation; changes whenever anything is invalidated.
+     */
+    synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), size());
+    }
+
+    private void putInternal(K key, V value, Collection<String> tags) {
+        Entry<V> previous = entries.remove(key);
+        if (previous != null) {
+            untag(key, previous);
+        }
+
+        Set<String> tagSet = tags == null || tags.isEmpty() ? Set.of() : new HashSet<>(tags);
+        entries.put(key, new Entry<>(value, nanoClock.getAsLong() + ttlNanos, tagSet));
+        for (String tag : tagSet) {
+            tagIndex.computeIfAbsent(tag, t -> new HashSet<>()).add(key);
+        }
+
+        while (entries.size() > maxSize) {
+            Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+            Map.Entry<K, Entry<V>> eldest = it.next();
+            it.remove();
+            untag(eldest.getKey(), eldest.getValue());
+            evictions.increment();
+        }
+    }
+
+    private void removeEntry(K key, Entry<V> entry) {
+        entries.remove(key);
+        untag(key, entry);
+    }
+
+    private void untag(K key, Entry<V> entry) {
+        for (String tag : entry.tags) {
+            Set<K> keys = tagIndex.get(tag);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    tagIndex.remove(tag);
+                }
+            }
+        }
+    }
+
+    private boolean isExpired(Entry<V> entry) {
+        return nanoClock.getAsLong() - entry.expiresAtNanos >= 0;
+    }
+
+    private record Entry<V>(V value, long expiresAtNanos, Set<String> tags) {}
+
+    public record CacheStats(long hits, long misses, long evictions, long invalidations, int size) {}
+}
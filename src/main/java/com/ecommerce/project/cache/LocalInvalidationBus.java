@@ -0,0 +1,34 @@
+package com.ecommerce.project.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-JVM invalidation transport. Used when the shared Redis tier is disabled
+ * (single node) and as a stand-in for Redis pub/sub when several cache nodes
+ * share one JVM, e.g. in tests.
+ */
+@Slf4j
+public class LocalInvalidationBus implements CacheInvalidationBus {
+
+    private final List<Consumer<CatalogChangeEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(CatalogChangeEvent event) {
+        for (Consumer<CatalogChangeEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (Exception e) {
+                log.error("Cache invalidation listener failed for product {}: {}", event.productId(), e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<CatalogChangeEvent> listener) {
+        listeners.add(listener);
+    }
+}
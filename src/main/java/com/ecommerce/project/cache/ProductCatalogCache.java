@@ -0,0 +1,475 @@
+package com.ecommerce.project.cache;
+
+import com.ecommerce.project.dto.ProductResponseDTO;
+import com.ecommerce.project.entity.Product;
+import com.ecommerce.project.search.SearchTokenizer;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Two-tier cache for the product catalog read paths.
+ *
+ * L1 is an on-heap {@link LocalCache} per region (single products, category
+ * listings, search results and paged listings). L2 is an optional shared tier
+ * (Redis) consulted on an L1 miss. List and page entries are tagged with the ids
+ * of the products they contain, so a write only evicts the entries that actually
+ * hold the product. Writes are broadcast as {@link CatalogChangeEvent}s so every
+ * node evicts the same L1 entries.
+ */
+@Component
+@Slf4j
+public class ProductCatalogCache implements MeterBinder {
+
+    static final String PRODUCT_TAG = "product:";
+    static final String SORT_TAG = "sort:";
+
+    private static final String PRODUCT_REGION = "product";
+    private static final String CATEGORY_REGION = "productsByCategory";
+    private static final String SEARCH_REGION = "productsBySearch";
+    private static final String PAGE_REGION = "productsPage";
+    private static final String SNAPSHOT_REGION = "productSnapshot";
+
+    private static final Set<String> SEARCHABLE_FIELDS = Set.of("name", "description", "color", "categoryId");
+
+    private final CacheInvalidationBus invalidationBus;
+    private final SharedCacheTier sharedTier;
+    private final ObjectMapper objectMapper;
+
+    @Value("${catalog.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${catalog.cache.node-id:}")
+    private String nodeId;
+
+    @Value("${catalog.cache.product.max-size:10000}")
+    private int productMaxSize;
+
+    @Value("${catalog.cache.product.ttl-minutes:120}")
+    private long productTtlMinutes;
+
+    @Value("${catalog.cache.category.max-size:500}")
+    private int categoryMaxSize;
+
+    @Value("${catalog.cache.category.ttl-minutes:60}")
+    private long categoryTtlMinutes;
+
+    @Value("${catalog.cache.search.max-size:2000}")
+    private int searchMaxSize;
+
+    @Value("${catalog.cache.search.ttl-minutes:30}")
+    private long searchTtlMinutes;
+
+    @Value("${catalog.cache.page.max-size:1000}")
+    private int pageMaxSize;
+
+    @Value("${catalog.cache.page.ttl-minutes:60}")
+    private long pageTtlMinutes;
+
+    @Value("${catalog.cache.snapshot.max-size:10000}")
+    private int snapshotMaxSize;
+
+    @Value("${catalog.cache.snapshot.ttl-seconds:30}")
+    private long snapshotTtlSeconds;
+
+    @Value("${catalog.cache.l2.ttl-minutes:10}")
+    private long l2TtlMinutes;
+
+    @Value("${catalog.cache.l2.double-delete-delay-ms:500}")
+    private long doubleDeleteDelayMs;
+
+    private LocalCache<String, ProductResponseDTO> products;
+    private LocalCache<String, List<ProductResponseDTO>> categories;
+    private LocalCache<String, List<ProductResponseDTO>> searches;
+    private LocalCache<PageKey, PageSnapshot> pages;
+    private LocalCache<String, ProductResponseDTO> snapshots;
+
+    private JavaType productType;
+    private JavaType productListType;
+    private JavaType pageType;
+
+    private ScheduledExecutorService doubleDeleteScheduler;
+
+    private final LongAdder l2Hits = new LongAdder();
+    private final LongAdder l2Misses = new LongAdder();
+    private final LongAdder invalidationsPublished = new LongAdder();
+    private final LongAdder invalidationsReceived = new LongAdder();
+
+    public ProductCatalogCache(CacheInvalidationBus invalidationBus,
+                               @Nullable SharedCacheTier sharedTier,
+                               ObjectMapper objectMapper) {
+        this.invalidationBus = invalidationBus;
+        this.sharedTier = sharedTier;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    void init() {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = UUID.randomUUID().toString();
+        }
+        products = new LocalCache<>(PRODUCT_REGION, productMaxSize, Duration.ofMinutes(productTtlMinutes));
+        categories = new LocalCache<>(CATEGORY_REGION, categoryMaxSize, Duration.ofMinutes(categoryTtlMinutes));
+        searches = new LocalCache<>(SEARCH_REGION, searchMaxSize, Duration.ofMinutes(searchTtlMinutes));
+        pages = new LocalCache<>(PAGE_REGION, pageMaxSize, Duration.ofMinutes(pageTtlMinutes));
+        snapshots = new LocalCache<>(SNAPSHOT_REGION, snapshotMaxSize, Duration.ofSeconds(snapshotTtlSeconds));
+
+        productType = objectMapper.constructType(ProductResponseDTO.class);
+        productListType = objectMapper.getTypeFactory().constructCollectionType(List.class, ProductResponseDTO.class);
+        pageType = objectMapper.constructType(PageSnapshot.class);
+
+        if (sharedTier != null) {
+            doubleDeleteScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "CatalogCacheL2-");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        invalidationBus.subscribe(this::onRemoteChange);
+        log.info("Product catalog cache initialized (enabled: {}, L2: {}, node: {})",
+                enabled, sharedTier != null, nodeId);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (doubleDeleteScheduler != null) {
+            doubleDeleteScheduler.shutdownNow();
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public ProductResponseDTO getProduct(String id, Supplier<ProductResponseDTO> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        return twoTier(products, PRODUCT_REGION, id, id, productType, loader, p -> List.of(PRODUCT_TAG + p.id()));
+    }
+
+    public List<ProductResponseDTO> getProductsByCategory(String categoryId, Supplier<List<ProductResponseDTO>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        return twoTier(categories, CATEGORY_REGION, categoryId, categoryId, productListType, loader,
+                ProductCatalogCache::productTags);
+    }
+
+    public List<ProductResponseDTO> searchProducts(String keyword, Supplier<List<ProductResponseDTO>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        String key = normalizeKeyword(keyword);
+        return twoTier(searches, SEARCH_REGION, key, key, productListType, loader, ProductCatalogCache::productTags);
+    }
+
+    public Page<ProductResponseDTO> getProductsPage(Pageable pageable, Supplier<Page<ProductResponseDTO>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        PageKey key = PageKey.of(pageable);
+        PageSnapshot snapshot = twoTier(pages, PAGE_REGION, key, key.asString(), pageType,
+                () -> PageSnapshot.of(loader.get()),
+                s -> pageTags(s, pageable.getSort()));
+        return new PageImpl<>(snapshot.content(), pageable, snapshot.totalElements());
+    }
+
+    /**
+     * Products by id for views that show current prices and stock, such as the
+     * cart. Stock changes are only published when a product sells out or comes
+     * back, so these are kept apart from the product region for a few seconds
+     * and in L1 only. All ids not cached are loaded with one loader call.
+     * @return the products found, by id
+     */
+    public Map<String, ProductResponseDTO> getProductSnapshots(Collection<String> ids,
+                                                               Function<Set<String>, List<ProductResponseDTO>> loader) {
+        if (!enabled) {
+            return byId(loader.apply(new HashSet<>(ids)));
+        }
+        return snapshots.getAll(ids, missing -> byId(loader.apply(missing)), p -> List.of(PRODUCT_TAG + p.id()));
+    }
+
+    public void onProductCreated(Product created, Set<String> searchTerms) {
+        publish(new CatalogChangeEvent(nodeId, CatalogChangeEvent.Type.CREATED,
+                created.getId(), created.getCategoryId(), searchTerms, Set.of()));
+    }
+
+    public void onProductUpdated(Product before, Product after, Set<String> searchTerms) {
+        // The old category listing is found through the product tag, so only the new category is sent
+        publish(new CatalogChangeEvent(nodeId, CatalogChangeEvent.Type.UPDATED,
+                after.getId(), after.getCategoryId(), searchTerms, changedFields(before, after)));
+    }
+
+    public void onStockChanged(Product product, Set<String> searchTerms) {
+        publish(new CatalogChangeEvent(nodeId, CatalogChangeEvent.Type.UPDATED,
+                product.getId(), product.getCategoryId(), searchTerms, Set.of("stockQuantity")));
+    }
+
+    public void onProductDeleted(Product deleted) {
+        publish(new CatalogChangeEvent(nodeId, CatalogChangeEvent.Type.DELETED,
+                deleted.getId(), deleted.getCategoryId(), Set.of(), Set.of()));
+    }
+
+    public void onCategoryRenamed(String categoryId) {
+        publish(new CatalogChangeEvent(nodeId, CatalogChangeEvent.Type.CATEGORY_RENAMED,
+                null, categoryId, Set.of(), Set.of()));
+    }
+
+    public List<LocalCache.CacheStats> stats() {
+        return List.of(products.stats(), categories.stats(), searches.stats(), pages.stats(), snapshots.stats());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (LocalCache<?, ?> cache : List.of(products, categories, searches, pages, snapshots)) {
+            FunctionCounter.builder("catalog.cache.hits", cache, c -> c.stats().hits())
+                    .tag("region", cache.getName()).register(registry);
+            FunctionCounter.builder("catalog.cache.misses", cache, c -> c.stats().misses())
+                    .tag("region", cache.getName()).register(registry);
+            FunctionCounter.builder("catalog.cache.evictions", cache, c -> c.stats().evictions())
+                    .tag("region", cache.getName()).register(registry);
+            FunctionCounter.builder("catalog.cache.invalidations", cache, c -> c.stats().invalidations())
+                    .tag("region", cache.getName()).register(registry);
+            Gauge.builder("catalog.cache.size", cache, LocalCache::size)
+                    .tag("region", cache.getName()).register(registry);
+        }
+        FunctionCounter.builder("catalog.cache.l2.hits", l2Hits, LongAdder::sum).register(registry);
+        FunctionCounter.builder("catalog.cache.l2.misses", l2Misses, LongAdder::sum).register(registry);
+        FunctionCounter.builder("catalog.cache.invalidation.published", invalidationsPublished, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("catalog.cache.invalidation.received", invalidationsReceived, LongAdder::sum)
+                .register(registry);
+    }
+
+    private <K, V> V twoTier(LocalCache<K, V> l1, String region, K key, String l2Key, JavaType type,
+                             Supplier<V> loader, Function<? super V, ? extends Collection<String>> tagsOf) {
+        if (sharedTier == null) {
+            return l1.get(key, loader, tagsOf);
+        }
+        return l1.get(key, () -> {
+            V cached = readShared(region, l2Key, type);
+            if (cached != null) {
+                l2Hits.increment();
+                return cached;
+            }
+            l2Misses.increment();
+
+            long generation = l1.generation();
+            V value = loader.get();
+            if (value != null && l1.generation() == generation) {
+                writeShared(region, l2Key, value, tagsOf.apply(value));
+            }
+            return value;
+        }, tagsOf);
+    }
+
+    private <V> V readShared(String region, String key, JavaType type) {
+        String json = sharedTier.get(region, key);
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (Exception e) {
+            log.warn("Discarding unreadable L2 entry {}:{} - {}", region, key, e.getMessage());
+            sharedTier.evict(region, key);
+            return null;
+        }
+    }
+
+    private void writeShared(String region, String key, Object value, Collection<String> tags) {
+        try {
+            sharedTier.put(region, key, objectMapper.writeValueAsString(value), tags, Duration.ofMinutes(l2TtlMinutes));
+        } catch (Exception e) {
+            log.warn("Failed to write L2 entry {}:{} - {}", region, key, e.getMessage());
+        }
+    }
+
+    /**
+     * Writer side: evict L1 and L2, then tell the other nodes. The L2 eviction is
+     * repeated after a short delay to catch a concurrent reader on another node
+     * that loaded the old document and wrote it back to L2 just after the first eviction.
+     * The event is published even with the cache disabled, other listeners (the
+     * search index) rely on it.
+     */
+    private void publish(CatalogChangeEvent event) {
+        if (enabled) {
+            applyLocal(event);
+            if (sharedTier != null) {
+                applyShared(event);
+                doubleDeleteScheduler.schedule(() -> applyShared(event), doubleDeleteDelayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        invalidationBus.publish(event);
+        invalidationsPublished.increment();
+    }
+
+    private void onRemoteChange(CatalogChangeEvent event) {
+        if (!enabled || nodeId.equals(event.originNodeId())) {
+            return;
+        }
+        invalidationsReceived.increment();
+        applyLocal(event);
+    }
+
+    /**
+     * Creates and deletes change the totals of every page, so pages are cleared.
+     * Updates evict the product, listings and pages containing it, the listing of
+     * its (possibly new) category, searches it now matches and pages sorted by a
+     * field whose value changed, since the product may have moved between pages.
+     */
+    private void applyLocal(CatalogChangeEvent event) {
+        String tag = PRODUCT_TAG + event.productId();
+        switch (event.type()) {
+            case CREATED -> {
+                categories.invalidate(event.categoryId());
+                searches.invalidateKeys(keyword -> matchesSearch(keyword, event.searchTerms()));
+                pages.invalidateAll();
+            }
+            case UPDATED -> {
+                products.invalidate(event.productId());
+                snapshots.invalidate(event.productId());
+                categories.invalidateTag(tag);
+                categories.invalidate(event.categoryId());
+                searches.invalidateTag(tag);
+                searches.invalidateKeys(keyword -> matchesSearch(keyword, event.searchTerms()));
+                pages.invalidateTag(tag);
+                for (String field : event.changedFields()) {
+                    pages.invalidateTag(SORT_TAG + field);
+                }
+            }
+            case DELETED -> {
+                products.invalidate(event.productId());
+                snapshots.invalidate(event.productId());
+                categories.invalidateTag(tag);
+                searches.invalidateTag(tag);
+                pages.invalidateAll();
+            }
+            case CATEGORY_RENAMED -> searches.invalidateAll();
+        }
+    }
+
+    // Search keys are not enumerable in L2, so searches rely on tags there plus the shorter L2 TTL
+    private void applyShared(CatalogChangeEvent event) {
+        String tag = PRODUCT_TAG + event.productId();
+        switch (event.type()) {
+            case CREATED -> {
+                sharedTier.evict(CATEGORY_REGION, event.categoryId());
+                sharedTier.clear(SEARCH_REGION);
+                sharedTier.clear(PAGE_REGION);
+            }
+            case UPDATED -> {
+                sharedTier.evict(PRODUCT_REGION, event.productId());
+                sharedTier.evictTag(CATEGORY_REGION, tag);
+                sharedTier.evict(CATEGORY_REGION, event.categoryId());
+                sharedTier.evictTag(SEARCH_REGION, tag);
+                if (event.changedFields().stream().anyMatch(SEARCHABLE_FIELDS::contains)) {
+                    sharedTier.clear(SEARCH_REGION);
+                }
+                sharedTier.evictTag(PAGE_REGION, tag);
+                for (String field : event.changedFields()) {
+                    sharedTier.evictTag(PAGE_REGION, SORT_TAG + field);
+                }
+            }
+            case DELETED -> {
+                sharedTier.evict(PRODUCT_REGION, event.productId());
+                sharedTier.evictTag(CATEGORY_REGION, tag);
+                sharedTier.evictTag(SEARCH_REGION, tag);
+                sharedTier.clear(PAGE_REGION);
+            }
+            case CATEGORY_RENAMED -> sharedTier.clear(SEARCH_REGION);
+        }
+    }
+
+    static String normalizeKeyword(String keyword) {
+        return keyword.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Same matching rules as the product search index
+    static boolean matchesSearch(String normalizedKeyword, Set<String> searchTerms) {
+        return SearchTokenizer.matches(SearchTokenizer.tokenize(normalizedKeyword), searchTerms);
+    }
+
+    static Set<String> changedFields(Product before, Product after) {
+        Set<String> changed = new HashSet<>();
+        if (!Objects.equals(before.getName(), after.getName())) changed.add("name");
+        if (!Objects.equals(before.getDescription(), after.getDescription())) changed.add("description");
+        if (!Objects.equals(before.getCategoryId(), after.getCategoryId())) changed.add("categoryId");
+        if (Double.compare(before.getPrice(), after.getPrice()) != 0) changed.add("price");
+        if (before.getStockQuantity() != after.getStockQuantity()) changed.add("stockQuantity");
+        if (!Objects.equals(before.getImageUrls(), after.getImageUrls())) changed.add("imageUrls");
+        if (before.getSize() != after.getSize()) changed.add("size");
+        if (!Objects.equals(before.getColor(), after.getColor())) changed.add("color");
+        return changed;
+    }
+
+    private static Map<String, ProductResponseDTO> byId(List<ProductResponseDTO> products) {
+        Map<String, ProductResponseDTO> byId = new HashMap<>();
+        products.forEach(p -> byId.put(p.id(), p));
+        return byId;
+    }
+
+    private static List<String> productTags(List<ProductResponseDTO> products) {
+        List<String> tags = new ArrayList<>(products.size());
+        for (ProductResponseDTO p : products) {
+            tags.add(PRODUCT_TAG + p.id());
+        }
+        return tags;
+    }
+
+    private static List<String> pageTags(PageSnapshot snapshot, Sort sort) {
+        List<String> tags = productTags(snapshot.content());
+        for (Sort.Order order : sort) {
+            tags.add(SORT_TAG + order.getProperty());
+        }
+        return tags;
+    }
+
+    record PageKey(int page, int size, String sort) {
+        static PageKey of(Pageable pageable) {
+            return new PageKey(pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort().toString());
+        }
+
+        String asString() {
+            return page + "-" + size + "-" + sort;
+        }
+    }
+
+    public record PageSnapshot(List<ProductResponseDTO> content, long totalElements) {
+        static PageSnapshot of(Page<ProductResponseDTO> page) {
+            return new PageSnapshot(page.getContent(), page.getTotalElements());
+        }
+    }
+}
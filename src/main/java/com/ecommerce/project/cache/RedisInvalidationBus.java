@@ -0,0 +1,53 @@
+package com.ecommerce.project.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts catalog invalidations over Redis pub/sub so every node evicts its L1.
+ */
+@Slf4j
+public class RedisInvalidationBus implements CacheInvalidationBus {
+
+    static final String CHANNEL = "catalog:invalidation";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectMapper objectMapper;
+
+    public RedisInvalidationBus(StringRedisTemplate redisTemplate,
+                                RedisMessageListenerContainer listenerContainer,
+                                ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void publish(CatalogChangeEvent event) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, objectMapper.writeValueAsString(event));
+        } catch (Exception e) {
+            // Other nodes fall back to the L1 TTL for this product
+            log.error("Failed to publish cache invalidation for product {}: {}", event.productId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<CatalogChangeEvent> listener) {
+        listenerContainer.addMessageListener((message, pattern) -> {
+            try {
+                String body = new String(message.getBody(), StandardCharsets.UTF_8);
+                listener.accept(objectMapper.readValue(body, CatalogChangeEvent.class));
+            } catch (Exception e) {
+                log.error("Failed to apply cache invalidation message: {}", e.getMessage(), e);
+            }
+        }, new ChannelTopic(CHANNEL));
+    }
+}
@@ -0,0 +1,113 @@
+package com.ecommerce.project.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Redis backed L2 tier.
+ *
+ * Key layout per region:
+ *   catalog:{region}:v:{key}    cached JSON value
+ *   catalog:{region}:tag:{tag}  set of value keys carrying the tag
+ *   catalog:{region}:keys       set of all value keys (used by clear)
+ *
+ * Redis failures are logged and treated as misses; the L1 tier and MongoDB keep serving.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class RedisSharedCacheTier implements SharedCacheTier {
+
+    private static final String PREFIX = "catalog:";
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Override
+    public String get(String region, String key) {
+        try {
+            return redisTemplate.opsForValue().get(valueKey(region, key));
+        } catch (Exception e) {
+            log.warn("L2 cache read failed for {}:{} - {}", region, key, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String region, String key, String value, Collection<String> tags, Duration ttl) {
+        String valueKey = valueKey(region, key);
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    ops.opsForValue().set(valueKey, value, ttl);
+                    for (String tag : tags) {
+                        String tagKey = tagKey(region, tag);
+                        ops.opsForSet().add(tagKey, valueKey);
+                        ops.expire(tagKey, ttl);
+                    }
+                    ops.opsForSet().add(keysKey(region), valueKey);
+                    ops.expire(keysKey(region), ttl);
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            log.warn("L2 cache write failed for {}:{} - {}", region, key, e.getMessage());
+        }
+    }
+
+    @Override
+    public void evict(String region, String key) {
+        try {
+            redisTemplate.delete(valueKey(region, key));
+        } catch (Exception e) {
+            log.warn("L2 cache evict failed for {}:{} - {}", region, key, e.getMessage());
+        }
+    }
+
+    @Override
+    public void evictTag(String region, String tag) {
+        deleteMembersOf(tagKey(region, tag));
+    }
+
+    @Override
+    public void clear(String region) {
+        deleteMembersOf(keysKey(region));
+    }
+
+    private void deleteMembersOf(String setKey) {
+        try {
+            Set<String> members = redisTemplate.opsForSet().members(setKey);
+            List<String> toDelete = new ArrayList<>();
+            if (members != null) {
+                toDelete.addAll(members);
+            }
+            toDelete.add(setKey);
+            redisTemplate.delete(toDelete);
+        } catch (Exception e) {
+            log.warn("L2 cache bulk evict failed for {} - {}", setKey, e.getMessage());
+        }
+    }
+
+    private static String valueKey(String region, String key) {
+        return PREFIX + region + ":v:" + key;
+    }
+
+    private static String tagKey(String region, String tag) {
+        return PREFIX + region + ":tag:" + tag;
+    }
+
+    private static String keysKey(String region) {
+        return PREFIX + region + ":keys";
+    }
+}
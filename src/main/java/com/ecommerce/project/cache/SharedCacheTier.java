@@ -0,0 +1,21 @@
+package com.ecommerce.project.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * Shared (L2) cache tier used by every node. Values are stored as serialized
+ * JSON; tags work like in {@link LocalCache} so writes can evict precisely.
+ */
+public interface SharedCacheTier {
+
+    String get(String region, String key);
+
+    void put(String region, String key, String value, Collection<String> tags, Duration ttl);
+
+    void evict(String region, String key);
+
+    void evictTag(String region, String tag);
+
+    void clear(String region);
+}
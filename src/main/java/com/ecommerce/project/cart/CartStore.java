@@ -0,0 +1,38 @@
+package com.ecommerce.project.cart;
+
+import com.ecommerce.project.entity.CartItem;
+
+import java.util.List;
+
+/**
+ * Where cart items are kept. Items keep an id of their own whichever way they
+ * are stored, so they can be changed or removed by id alone.
+ */
+public interface CartStore {
+
+    /**
+     * @param created whether the product was not in the cart before
+     */
+    record Added(CartItem item, boolean created) {}
+
+    /**
+     * Puts quantity more of the product in the user's cart, adding it if it is not there yet.
+     */
+    Added add(String userId, String productId, int quantity);
+
+    /**
+     * @return the item with its new quantity, or null if there is no item with that id
+     */
+    CartItem setQuantity(String cartItemId, int quantity);
+
+    /**
+     * @return the item with its new quantity, or null if the product is not in the user's cart
+     */
+    CartItem setQuantity(String userId, String productId, int quantity);
+
+    void remove(String cartItemId);
+
+    List<CartItem> items(String userId);
+
+    void clear(String userId);
+}
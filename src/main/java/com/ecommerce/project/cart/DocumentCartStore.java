@@ -0,0 +1,189 @@
+package com.ecommerce.project.cart;
+
+import com.ecommerce.project.entity.CartItem;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * One document per user in user_carts: {_id: userId, items: [{id, productId,
+ * quantity, addedAt}]}. Every change is a single update on the server:
+ * quantities are set through array filters, items are taken out with $pull
+ * and a cart is read by _id. Adding a product is one upserting pipeline
+ * update that raises the quantity of the product's item if it is in the cart
+ * and appends a new item otherwise, so two adds of the same product never
+ * end up as two items.
+ *
+ * Items left in the carts collection by the per-item mode are folded in when
+ * the application is ready, a batch at a time, and then deleted; see
+ * {@link #migrate()}.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentCartStore implements CartStore {
+
+    public static final String COLLECTION = "user_carts";
+
+    private static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+    private static final FindAndModifyOptions UPSERT = FindAndModifyOptions.options().upsert(true).returnNew(true);
+
+    private final MongoTemplate mongoTemplate;
+    private final int migrationBatchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ready() {
+        try {
+            long migrated = migrate();
+            if (migrated > 0) {
+                log.info("Moved {} cart items into per-user carts", migrated);
+            }
+        } catch (Exception e) {
+            log.warn("Cart migration stopped, it will carry on at the next start: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Moves the items in the carts collection into their user's cart document,
+     * in batches of one unordered bulk write followed by a delete of the batch.
+     * An item keeps its id and is skipped if its cart already holds that id, so
+     * a migration cut short, or run by several nodes at once, never counts an
+     * item twice. Items written by nodes still on the per-item mode after this
+     * has run are picked up at the next start.
+     *
+     * During a mixed rollout a change that such a node makes to an item between
+     * the find of its batch and the delete is lost: the cart keeps the quantity
+     * that was read, and the delete takes the changed item with it. That covers
+     * quantities set on an item and adds of a product already in the cart,
+     * which raise the item's quantity in place.
+     * @return the number of items moved
+     */
+    public long migrate() {
+        long moved = 0;
+        while (true) {
+            List<CartItem> batch = mongoTemplate.find(new Query().limit(migrationBatchSize), CartItem.class);
+            if (batch.isEmpty()) {
+                return moved;
+            }
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+            for (CartItem item : batch) {
+                Date addedAt = item.getAddedAt() != null
+                        ? Date.from(item.getAddedAt().atZone(ZoneId.systemDefault()).toInstant()) : new Date();
+                bulk.upsert(cart(item.getUserId()),
+                        merge(item(item.getId(), item.getProductId(), item.getQuantity(), addedAt)));
+            }
+            bulk.execute();
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(batch.stream().map(CartItem::getId).toList())),
+                    CartItem.class);
+            moved += batch.size();
+        }
+    }
+
+    @Override
+    public Added add(String userId, String productId, int quantity) {
+        Document item = item(new ObjectId().toHexString(), productId, quantity, new Date());
+        // the server retries an upsert on _id that loses the race to insert the cart
+        Document cart = mongoTemplate.findAndModify(cart(userId), merge(item), UPSERT, Document.class, COLLECTION);
+        Document added = find(cart, "productId", productId);
+        return new Added(cartItem(userId, added), item.get("id").equals(added.get("id")));
+    }
+
+    @Override
+    public CartItem setQuantity(String cartItemId, int quantity) {
+        Document cart = mongoTemplate.findAndModify(Query.query(Criteria.where("items.id").is(cartItemId)),
+                new Update().set("items.$[i].quantity", quantity).filterArray(Criteria.where("i.id").is(cartItemId)),
+                RETURN_NEW, Document.class, COLLECTION);
+        return cart == null ? null : cartItem(cart.getString("_id"), find(cart, "id", cartItemId));
+    }
+
+    @Override
+    public CartItem setQuantity(String userId, String productId, int quantity) {
+        Document cart = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(userId).and("items.productId").is(productId)),
+                new Update().set("items.$[i].quantity", quantity).filterArray(Criteria.where("i.productId").is(productId)),
+                RETURN_NEW, Document.class, COLLECTION);
+        return cart == null ? null : cartItem(userId, find(cart, "productId", productId));
+    }
+
+    @Override
+    public void remove(String cartItemId) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("items.id").is(cartItemId)),
+                new Update().pull("items", new Document("id", cartItemId)), COLLECTION);
+    }
+
+    @Override
+    public List<CartItem> items(String userId) {
+        Document cart = mongoTemplate.findById(userId, Document.class, COLLECTION);
+        if (cart == null) {
+            return List.of();
+        }
+        return cart.getList("items", Document.class, List.of()).stream().map(item -> cartItem(userId, item)).toList();
+    }
+
+    @Override
+    public void clear(String userId) {
+        mongoTemplate.remove(cart(userId), COLLECTION);
+    }
+
+    private static Query cart(String userId) {
+        return Query.query(Criteria.where("_id").is(userId));
+    }
+
+    private static Document item(String id, String productId, int quantity, Date addedAt) {
+        return new Document("id", id).append("productId", productId).append("quantity", quantity).append("addedAt", addedAt);
+    }
+
+    /**
+     * Leaves the cart as it is if it already holds an item with this item's id,
+     * adds the quantity to the item of the same product if there is one, and
+     * appends the item otherwise.
+     */
+    private static AggregationUpdate merge(Document item) {
+        Document items = new Document("$ifNull", List.of("$items", List.of()));
+        Document ids = new Document("$ifNull", List.of("$items.id", List.of()));
+        Document productIds = new Document("$ifNull", List.of("$items.productId", List.of()));
+        Object productId = new Document("$literal", item.get("productId"));
+
+        Document increased = new Document("$map", new Document("input", items).append("as", "i")
+                .append("in", new Document("$cond", List.of(
+                        new Document("$eq", List.of("$$i.productId", productId)),
+                        new Document("$mergeObjects", List.of("$$i", new Document("quantity",
+                                new Document("$add", List.of("$$i.quantity", item.get("quantity")))))),
+                        "$$i"))));
+        Document appended = new Document("$concatArrays", List.of(items, new Document("$literal", List.of(item))));
+        Document merged = new Document("$cond", List.of(
+                new Document("$in", List.of(new Document("$literal", item.get("id")), ids)),
+                items,
+                new Document("$cond", List.of(new Document("$in", List.of(productId, productIds)), increased, appended))));
+
+        AggregationOperation set = context -> new Document("$set", new Document("items", merged));
+        return AggregationUpdate.from(List.of(set));
+    }
+
+    private static Document find(Document cart, String field, Object value) {
+        return cart.getList("items", Document.class, List.of()).stream()
+                .filter(item -> value.equals(item.get(field)))
+                .findFirst().orElseThrow();
+    }
+
+    private static CartItem cartItem(String userId, Document item) {
+        Date addedAt = item.getDate("addedAt");
+        return new CartItem(item.getString("id"), userId, item.getString("productId"), item.getInteger("quantity"),
+                addedAt == null ? null : LocalDateTime.ofInstant(addedAt.toInstant(), ZoneId.systemDefault()));
+    }
+}
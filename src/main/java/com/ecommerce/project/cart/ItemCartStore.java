@@ -0,0 +1,63 @@
+package com.ecommerce.project.cart;
+
+import com.ecommerce.project.entity.CartItem;
+import com.ecommerce.project.repository.CartRepository;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One document per item in the carts collection. Adding a product reads the
+ * item before saving it, and a cart is read with a query on userId.
+ */
+@RequiredArgsConstructor
+public class ItemCartStore implements CartStore {
+
+    private final CartRepository cartRepository;
+
+    @Override
+    public Added add(String userId, String productId, int quantity) {
+        CartItem existing = cartRepository.findByUserIdAndProductId(userId, productId).orElse(null);
+        if (existing != null) {
+            existing.setQuantity(existing.getQuantity() + quantity);
+            return new Added(cartRepository.save(existing), false);
+        }
+
+        CartItem cartItem = new CartItem();
+        cartItem.setUserId(userId);
+        cartItem.setProductId(productId);
+        cartItem.setQuantity(quantity);
+        return new Added(cartRepository.save(cartItem), true);
+    }
+
+    @Override
+    public CartItem setQuantity(String cartItemId, int quantity) {
+        return cartRepository.findById(cartItemId).map(item -> {
+            item.setQuantity(quantity);
+            return cartRepository.save(item);
+        }).orElse(null);
+    }
+
+    @Override
+    public CartItem setQuantity(String userId, String productId, int quantity) {
+        return cartRepository.findByUserIdAndProductId(userId, productId).map(item -> {
+            item.setQuantity(quantity);
+            return cartRepository.save(item);
+        }).orElse(null);
+    }
+
+    @Override
+    public void remove(String cartItemId) {
+        cartRepository.deleteById(cartItemId);
+    }
+
+    @Override
+    public List<CartItem> items(String userId) {
+        return cartRepository.findByUserId(userId);
+    }
+
+    @Override
+    public void clear(String userId) {
+        cartRepository.deleteByUserId(userId);
+    }
+}
@@ -1,112 +1,56 @@
 package com.ecommerce.project.config;
 
-/*
- * REDIS CACHING DISABLED
- * 
- * This configuration has been commented out to remove Redis dependency.
- * The application will work without caching - all data will be fetched from MongoDB.
- * 
- * To re-enable Redis caching:
- * 1. Uncomment this entire file
- * 2. Uncomment Redis dependencies in pom.xml
- * 3. Uncomment Redis configuration in application.properties
- * 4. Uncomment cache annotations in ProductServiceImpl.java
- */
-
-/*
-import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.ecommerce.project.cache.CacheInvalidationBus;
+import com.ecommerce.project.cache.LocalInvalidationBus;
+import com.ecommerce.project.cache.RedisInvalidationBus;
+import com.ecommerce.project.cache.RedisSharedCacheTier;
+import com.ecommerce.project.cache.SharedCacheTier;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.data.redis.cache.RedisCacheConfiguration;
-import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
-import org.springframework.data.redis.serializer.RedisSerializationContext;
-import org.springframework.data.redis.serializer.StringRedisSerializer;
-
-import java.time.Duration;
-import java.util.HashMap;
-import java.util.Map;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
+/**
+ * Wiring for the two-tier product catalog cache.
+ *
+ * Without Redis (catalog.cache.l2.enabled=false, the default) each node only has
+ * its on-heap L1 and invalidations stay inside the JVM. With Redis enabled the
+ * shared L2 tier and the pub/sub invalidation channel are added so that all
+ * nodes behind the load balancer evict the same entries after a write.
+ */
 @Configuration
-@EnableCaching
 public class CacheConfig {
 
     @Bean
-    public ObjectMapper redisObjectMapper() {
-        ObjectMapper mapper = new ObjectMapper();
-        
-        // Register JavaTimeModule for LocalDateTime and other Java 8 time types
-        mapper.registerModule(new JavaTimeModule());
-        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        
-        // Enable polymorphic type handling for proper deserialization
-        mapper.activateDefaultTyping(
-                BasicPolymorphicTypeValidator.builder()
-                        .allowIfBaseType(Object.class)
-                        .build(),
-                ObjectMapper.DefaultTyping.NON_FINAL,
-                JsonTypeInfo.As.PROPERTY
-        );
-        
-        return mapper;
+    @ConditionalOnProperty(name = "catalog.cache.l2.enabled", havingValue = "false", matchIfMissing = true)
+    public CacheInvalidationBus localInvalidationBus() {
+        return new LocalInvalidationBus();
     }
 
-    @Bean
-    public RedisCacheConfiguration defaultCacheConfiguration(ObjectMapper redisObjectMapper) {
-        return RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofHours(1))
-                .serializeKeysWith(
-                        RedisSerializationContext.SerializationPair.fromSerializer(
-                                new StringRedisSerializer()
-                        )
-                )
-                .serializeValuesWith(
-                        RedisSerializationContext.SerializationPair.fromSerializer(
-                                new GenericJackson2JsonRedisSerializer(redisObjectMapper)
-                        )
-                )
-                .disableCachingNullValues();
-    }
+    @Configuration
+    @ConditionalOnProperty(name = "catalog.cache.l2.enabled", havingValue = "true")
+    static class SharedTierConfig {
 
-    @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory, 
-                                     RedisCacheConfiguration defaultCacheConfiguration) {
-        
-        // Custom TTL configurations for different caches
-        Map<String, RedisCacheConfiguration> cacheConfigurations = new HashMap<>();
-        
-        // Single product cache - 2 hours
-        cacheConfigurations.put("product", 
-                defaultCacheConfiguration.entryTtl(Duration.ofHours(2)));
-        
-        // All products list - 30 minutes (changes frequently)
-        cacheConfigurations.put("productsAll", 
-                defaultCacheConfiguration.entryTtl(Duration.ofMinutes(30)));
-        
-        // Paginated products - 1 hour
-        cacheConfigurations.put("productsPage", 
-                defaultCacheConfiguration.entryTtl(Duration.ofHours(1)));
-        
-        // Products by category - 1 hour
-        cacheConfigurations.put("productsByCategory", 
-                defaultCacheConfiguration.entryTtl(Duration.ofHours(1)));
-        
-        // Search results - 30 minutes
-        cacheConfigurations.put("productsBySearch", 
-                defaultCacheConfiguration.entryTtl(Duration.ofMinutes(30)));
-        
-        return RedisCacheManager.builder(connectionFactory)
-                .cacheDefaults(defaultCacheConfiguration)
-                .withInitialCacheConfigurations(cacheConfigurations)
-                .transactionAware()
-                .build();
+        @Bean
+        public SharedCacheTier sharedCacheTier(StringRedisTemplate stringRedisTemplate) {
+            return new RedisSharedCacheTier(stringRedisTemplate);
+        }
+
+        @Bean
+        public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory) {
+            RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(connectionFactory);
+            return container;
+        }
+
+        @Bean
+        public CacheInvalidationBus redisInvalidationBus(StringRedisTemplate stringRedisTemplate,
+                                                         RedisMessageListenerContainer cacheInvalidationListenerContainer,
+                                                         ObjectMapper objectMapper) {
+            return new RedisInvalidationBus(stringRedisTemplate, cacheInvalidationListenerContainer, objectMapper);
+        }
     }
 }
-*/
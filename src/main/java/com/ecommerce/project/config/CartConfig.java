@@ -0,0 +1,36 @@
+package com.ecommerce.project.config;
+
+import com.ecommerce.project.cart.CartStore;
+import com.ecommerce.project.cart.DocumentCartStore;
+import com.ecommerce.project.cart.ItemCartStore;
+import com.ecommerce.project.repository.CartRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * Where carts are kept.
+ *
+ * By default every cart item is a document of its own in the carts
+ * collection. With cart.storage=document each user's cart is one document
+ * with its items embedded, changed with single atomic updates, and the items
+ * still in the carts collection are moved over at startup.
+ */
+@Configuration
+public class CartConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "cart.storage", havingValue = "items", matchIfMissing = true)
+    public CartStore itemCartStore(CartRepository cartRepository) {
+        return new ItemCartStore(cartRepository);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "cart.storage", havingValue = "document")
+    public CartStore documentCartStore(MongoTemplate mongoTemplate,
+                                       @Value("${cart.migration.batch-size:500}") int migrationBatchSize) {
+        return new DocumentCartStore(mongoTemplate, migrationBatchSize);
+    }
+}
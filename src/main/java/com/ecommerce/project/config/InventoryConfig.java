@@ -0,0 +1,44 @@
+package com.ecommerce.project.config;
+
+import com.ecommerce.project.inventory.HotSkuInventoryStore;
+import com.ecommerce.project.inventory.InventoryStore;
+import com.ecommerce.project.inventory.MongoInventoryStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Where order placement takes stock from.
+ *
+ * By default every order decrements Product.stockQuantity directly. With
+ * inventory.hot-sku.enabled=true the products listed in
+ * inventory.hot-sku.product-ids are sold from in-memory counters instead,
+ * which keeps a launch of a single product from turning its document into a
+ * write hotspot.
+ */
+@Configuration
+public class InventoryConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "inventory.hot-sku.enabled", havingValue = "false", matchIfMissing = true)
+    public InventoryStore mongoInventoryStore(MongoTemplate mongoTemplate) {
+        return new MongoInventoryStore(mongoTemplate);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "inventory.hot-sku.enabled", havingValue = "true")
+    public InventoryStore hotSkuInventoryStore(MongoTemplate mongoTemplate,
+                                               @Value("${inventory.hot-sku.product-ids:}") Set<String> productIds,
+                                               @Value("${inventory.hot-sku.block-size:200}") int blockSize,
+                                               @Value("${inventory.hot-sku.stripes:16}") int stripes,
+                                               @Value("${inventory.hot-sku.journal-linger-ms:2}") long journalLingerMs,
+                                               @Value("${inventory.hot-sku.stale-after-minutes:5}") long staleAfterMinutes) {
+        return HotSkuInventoryStore.create(new MongoInventoryStore(mongoTemplate), mongoTemplate, productIds,
+                blockSize, stripes, journalLingerMs, Duration.ofMinutes(staleAfterMinutes));
+    }
+}
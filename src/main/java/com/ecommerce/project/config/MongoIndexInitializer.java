@@ -0,0 +1,106 @@
+package com.ecommerce.project.config;
+
+import com.ecommerce.project.cart.DocumentCartStore;
+import com.ecommerce.project.entity.IdempotencyRecord;
+import com.ecommerce.project.entity.InventoryEscrow;
+import com.ecommerce.project.entity.Invoice;
+import com.ecommerce.project.entity.Order;
+import com.ecommerce.project.entity.OutboxMessage;
+import com.ecommerce.project.entity.QueuedEmail;
+import com.ecommerce.project.entity.ReminderSchedule;
+import com.ecommerce.project.entity.Review;
+import com.ecommerce.project.entity.StockReservation;
+import com.ecommerce.project.reminder.MongoReminderStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Creates the indexes the application relies on. Index creation from mapping
+ * annotations is turned off, so every index is declared here.
+ *
+ * This runs once all singletons exist but before the web server and the
+ * schedulers start, so no request or background job runs without the unique
+ * indexes. Startup fails if a unique index cannot be created, since the code
+ * relies on it to reject duplicates; a missing lookup index only costs speed
+ * and is logged. Names are those the indexes were first created with, as
+ * Mongo rejects an index that exists under another name.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MongoIndexInitializer implements SmartInitializingSingleton {
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoReminderStore reminderStore;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        // keyset pagination seeks on (sort key, _id) of the default listings
+        lookup(Order.class, new Index().on("orderDate", Sort.Direction.DESC).on("_id", Sort.Direction.DESC)
+                .named("orderDate_id"));
+        lookup(Order.class, new Index().on("userId", Sort.Direction.ASC).on("orderDate", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC).named("userId_orderDate_id"));
+        lookup(Review.class, new Index().on("productId", Sort.Direction.ASC).on("createdAt", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC).named("productId_createdAt_id"));
+
+        lookup(StockReservation.class, new Index().on("status", Sort.Direction.ASC).on("expiresAt", Sort.Direction.ASC)
+                .named("status_expiresAt"));
+        unique(StockReservation.class, new Index().on("orderId", Sort.Direction.ASC).named("orderId").unique());
+
+        // a claim racing the first journal write must not open a second account for the same product
+        unique(InventoryEscrow.class, new Index().on("runId", Sort.Direction.ASC).on("productId", Sort.Direction.ASC)
+                .named("runId_productId").unique());
+        lookup(InventoryEscrow.class, new Index().on("closed", Sort.Direction.ASC).on("heartbeat", Sort.Direction.ASC)
+                .named("closed_heartbeat"));
+
+        // one invoice per order, even when two nodes generate it at once
+        unique(Invoice.class, new Index().on("orderId", Sort.Direction.ASC).named("orderId").unique());
+
+        lookup(IdempotencyRecord.class, new Index().on("expiresAt", Sort.Direction.ASC).expire(Duration.ZERO));
+
+        lookup(OutboxMessage.class, new Index().on("status", Sort.Direction.ASC).on("nextAttemptAt", Sort.Direction.ASC)
+                .named("status_nextAttemptAt"));
+
+        lookup(QueuedEmail.class, new Index().on("nextAttemptAt", Sort.Direction.ASC));
+        lookup(QueuedEmail.class, new Index().on("claimedBy", Sort.Direction.ASC));
+
+        lookup(ReminderSchedule.class, new Index().on("status", Sort.Direction.ASC).on("shard", Sort.Direction.ASC)
+                .on("scheduledAt", Sort.Direction.ASC).named("status_shard_scheduledAt"));
+        reminderStore.prepareUniquePendingIndex();
+        unique(ReminderSchedule.class, new Index().on("userId", Sort.Direction.ASC).on("type", Sort.Direction.ASC)
+                .named("userId_type_pending").unique()
+                .partial(PartialIndexFilter.of(Criteria.where("status").is(ReminderSchedule.ReminderStatus.PENDING.name()))));
+
+        lookup(DocumentCartStore.COLLECTION, new Index().on("items.id", Sort.Direction.ASC).named("items_id"));
+    }
+
+    private void unique(Class<?> type, Index index) {
+        try {
+            mongoTemplate.indexOps(type).createIndex(index);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not create the unique index " + index.getIndexKeys().toJson()
+                    + " of " + mongoTemplate.getCollectionName(type) + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void lookup(Class<?> type, Index index) {
+        lookup(mongoTemplate.getCollectionName(type), index);
+    }
+
+    private void lookup(String collection, Index index) {
+        try {
+            mongoTemplate.indexOps(collection).createIndex(index);
+        } catch (Exception e) {
+            log.warn("Could not create the index {} of {}: {}", index.getIndexKeys().toJson(), collection, e.getMessage());
+        }
+    }
+}
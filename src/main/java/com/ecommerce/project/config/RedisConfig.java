@@ -1,36 +1,27 @@
 package com.ecommerce.project.config;
 
-/*
- * REDIS CONFIGURATION DISABLED
- * 
- * This configuration has been commented out to remove Redis dependency.
- * The application will work without Redis caching.
- * 
- * To re-enable Redis:
- * 1. Uncomment this entire file
- * 2. Uncomment Redis dependencies in pom.xml
- * 3. Uncomment Redis configuration in application.properties
- * 4. Uncomment CacheConfig.java
- * 5. Uncomment cache annotations in service classes
- */
-
-/*
 import io.lettuce.core.ClientOptions;
 import io.lettuce.core.SocketOptions;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
-import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.data.redis.core.StringRedisTemplate;
 
 import java.time.Duration;
 
+/**
+ * Redis connection used by the shared (L2) catalog cache tier and its
+ * invalidation channel. Only active when catalog.cache.l2.enabled=true;
+ * Redis auto-configuration is excluded in application.properties so the
+ * application starts without Redis otherwise.
+ */
 @Configuration
+@ConditionalOnProperty(name = "catalog.cache.l2.enabled", havingValue = "true")
 public class RedisConfig {
 
     @Value("${spring.data.redis.host}")
@@ -65,9 +56,10 @@ public class RedisConfig {
                 .socketOptions(socketOptions)
                 .build();
 
+        // Cache reads sit on the request path, so fail fast and fall back to MongoDB
         LettuceClientConfiguration.LettuceClientConfigurationBuilder clientConfigBuilder = 
                 LettuceClientConfiguration.builder()
-                        .commandTimeout(Duration.ofSeconds(60))
+                        .commandTimeout(Duration.ofSeconds(2))
                         .clientOptions(clientOptions);
 
         if (sslEnabled) {
@@ -80,21 +72,7 @@ public class RedisConfig {
     }
 
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
-        RedisTemplate<String, Object> template = new RedisTemplate<>();
-        template.setConnectionFactory(connectionFactory);
-        
-        // Use String serializer for keys
-        template.setKeySerializer(new StringRedisSerializer());
-        template.setHashKeySerializer(new StringRedisSerializer());
-        
-        // Use JSON serializer for values
-        GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
-        template.setValueSerializer(jsonSerializer);
-        template.setHashValueSerializer(jsonSerializer);
-        
-        template.afterPropertiesSet();
-        return template;
+    public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory connectionFactory) {
+        return new StringRedisTemplate(connectionFactory);
     }
 }
-*/
@@ -1,5 +1,6 @@
 package com.ecommerce.project.controller;
 
+import com.ecommerce.project.dto.CartViewDTO;
 import com.ecommerce.project.entity.CartItem;
 import com.ecommerce.project.service.CartService;
 import lombok.RequiredArgsConstructor;
@@ -36,6 +37,11 @@ public class CartController {
         return ResponseEntity.ok(cartService.getUserCart(userId));
     }
 
+    @GetMapping("/{userId}/view")
+    public ResponseEntity<CartViewDTO> getCartView(@PathVariable String userId) {
+        return ResponseEntity.ok(cartService.getCartView(userId));
+    }
+
     @DeleteMapping("/{userId}/clear")
     public ResponseEntity<Void> clear(@PathVariable String userId) {
         cartService.clearCart(userId);
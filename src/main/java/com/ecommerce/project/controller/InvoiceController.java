@@ -1,17 +1,31 @@
 package com.ecommerce.project.controller;
 
 import com.ecommerce.project.entity.Invoice;
+import com.ecommerce.project.entity.InvoiceBatchRun;
+import com.ecommerce.project.exception.BadRequestException;
+import com.ecommerce.project.invoice.InvoiceBatchJob;
+import com.ecommerce.project.invoice.InvoicePdfCache;
+import com.ecommerce.project.invoice.InvoiceZipExport;
 import com.ecommerce.project.service.InvoiceService;
+import com.ecommerce.project.streaming.JsonStreamResponses;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayOutputStream;
-import java.util.List;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.LocalDate;
 
 @RestController
 @RequestMapping("/api/invoices")
@@ -19,6 +33,10 @@ import java.util.List;
 public class InvoiceController {
 
     private final InvoiceService invoiceService;
+    private final JsonStreamResponses streamResponses;
+    private final InvoiceBatchJob invoiceBatchJob;
+    private final InvoiceZipExport invoiceZipExport;
+    private final InvoicePdfCache invoicePdfCache;
 
     @GetMapping("/order/{orderId}")
     public ResponseEntity<Invoice> getInvoiceByOrderId(@PathVariable String orderId) {
@@ -35,35 +53,98 @@ public class InvoiceController {
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<Invoice>> getAllInvoices() {
-        List<Invoice> invoices = invoiceService.getAllInvoices();
-        return ResponseEntity.ok(invoices);
+    public ResponseEntity<StreamingResponseBody> getAllInvoices(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return streamResponses.stream(invoiceService::streamAllInvoices, accept);
     }
 
     @GetMapping("/{invoiceId}/download")
-    public ResponseEntity<byte[]> downloadInvoice(@PathVariable String invoiceId) {
-        byte[] pdfData = invoiceService.downloadInvoicePdf(invoiceId);
+    public ResponseEntity<?> downloadInvoice(@PathVariable String invoiceId, HttpServletRequest request)
+            throws IOException {
         Invoice invoice = invoiceService.getInvoiceById(invoiceId);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_PDF);
         headers.setContentDispositionFormData("attachment", invoice.getInvoiceNumber() + ".pdf");
-        headers.setContentLength(pdfData.length);
 
-        return new ResponseEntity<>(pdfData, headers, HttpStatus.OK);
+        Path pdf = invoicePdfCache.resolve(invoice);
+        FileChannel channel = null;
+        if (pdf != null) {
+            try {
+                // an open file stays readable if the cache evicts it meanwhile
+                channel = FileChannel.open(pdf);
+            } catch (NoSuchFileException e) {
+                // evicted since it was resolved; served from R2 below
+            }
+        }
+        if (channel == null) {
+            byte[] pdfData = invoiceService.downloadInvoicePdf(invoiceId);
+            headers.setContentLength(pdfData.length);
+            return new ResponseEntity<>(pdfData, headers, HttpStatus.OK);
+        }
+
+        long size;
+        try {
+            size = channel.size();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        headers.setContentLength(size);
+        if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            // Tomcat writes the file to the socket itself once the headers are out. It was
+            // just used, so the whole cache would have to turn over for it to be evicted first.
+            channel.close();
+            request.setAttribute("org.apache.tomcat.sendfile.filename", pdf.toAbsolutePath().toString());
+            request.setAttribute("org.apache.tomcat.sendfile.start", 0L);
+            request.setAttribute("org.apache.tomcat.sendfile.end", size);
+            return new ResponseEntity<>(headers, HttpStatus.OK);
+        }
+        FileChannel file = channel;
+        StreamingResponseBody body = out -> {
+            try (file) {
+                WritableByteChannel target = Channels.newChannel(out);
+                for (long sent = 0; sent < size; ) {
+                    sent += file.transferTo(sent, size - sent, target);
+                }
+            }
+        };
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
     }
 
     @GetMapping("/download-all")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<byte[]> downloadAllInvoices() {
-        ByteArrayOutputStream zipStream = invoiceService.downloadAllInvoicesZip();
-        byte[] zipData = zipStream.toByteArray();
+    public ResponseEntity<StreamingResponseBody> downloadAllInvoices(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String userId) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new BadRequestException("from must not be after to");
+        }
+        StreamingResponseBody zip = out -> invoiceZipExport.write(from, to, userId, out);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
         headers.setContentDispositionFormData("attachment", "all-invoices.zip");
-        headers.setContentLength(zipData.length);
 
-        return new ResponseEntity<>(zipData, headers, HttpStatus.OK);
+        return new ResponseEntity<>(zip, headers, HttpStatus.OK);
+    }
+
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<InvoiceBatchRun> startBatch() {
+        return ResponseEntity.accepted().body(invoiceBatchJob.start());
+    }
+
+    @PostMapping("/batch/{runId}/resume")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<InvoiceBatchRun> resumeBatch(@PathVariable String runId) {
+        return ResponseEntity.accepted().body(invoiceBatchJob.resume(runId));
+    }
+
+    @GetMapping("/batch/{runId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<InvoiceBatchRun> getBatch(@PathVariable String runId) {
+        return ResponseEntity.ok(invoiceBatchJob.getRun(runId));
     }
 }
@@ -3,14 +3,20 @@ package com.ecommerce.project.controller;
 import com.ecommerce.project.dto.OrderRequestDTO;
 import com.ecommerce.project.dto.OrderResponseDTO;
 import com.ecommerce.project.entity.Order;
+import com.ecommerce.project.idempotency.IdempotencyService;
+import com.ecommerce.project.pagination.CursorRequest;
+import com.ecommerce.project.security.UserPrincipal;
 import com.ecommerce.project.service.OrderService;
+import com.ecommerce.project.streaming.JsonStreamResponses;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -22,11 +28,19 @@ import java.util.Map;
 public class OrderController {
 
     private final OrderService orderService;
+    private final JsonStreamResponses streamResponses;
+    private final IdempotencyService idempotencyService;
 
     @PostMapping
-    public ResponseEntity<OrderResponseDTO> placeOrder(@RequestBody OrderRequestDTO dto) {
-        OrderResponseDTO created = orderService.createOrder(dto);
-        return ResponseEntity.status(201).body(created);
+    public ResponseEntity<OrderResponseDTO> placeOrder(
+            @RequestBody OrderRequestDTO dto,
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("orders", userPrincipal.getId(), idempotencyKey, dto,
+                OrderResponseDTO.class, () -> {
+                    OrderResponseDTO created = orderService.createOrder(dto);
+                    return ResponseEntity.status(201).body(created);
+                });
     }
 
     @GetMapping("/user/{userId}")
@@ -34,9 +48,15 @@ public class OrderController {
             @PathVariable String userId,
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
             @RequestParam(required = false, defaultValue = "orderDate") String sortBy,
             @RequestParam(required = false, defaultValue = "DESC") String sortDirection) {
         
+        // Keyset pagination when a cursor is passed (blank for the first page)
+        if (cursor != null) {
+            return ResponseEntity.ok(orderService.getUserOrders(userId, CursorRequest.of(sortBy, sortDirection, size, cursor)));
+        }
+
         // Handle pagination if page and size are provided
         if (page != null && size != null) {
             Sort.Direction direction = sortDirection.equalsIgnoreCase("DESC") ? Sort.Direction.DESC : Sort.Direction.ASC;
@@ -72,9 +92,16 @@ public class OrderController {
     public ResponseEntity<?> allOrders(
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
             @RequestParam(required = false, defaultValue = "orderDate") String sortBy,
-            @RequestParam(required = false, defaultValue = "DESC") String sortDirection) {
+            @RequestParam(required = false, defaultValue = "DESC") String sortDirection,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         
+        // Keyset pagination when a cursor is passed (blank for the first page)
+        if (cursor != null) {
+            return ResponseEntity.ok(orderService.getAllOrders(CursorRequest.of(sortBy, sortDirection, size, cursor)));
+        }
+
         // Handle pagination if page and size are provided
         if (page != null && size != null) {
             Sort.Direction direction = sortDirection.equalsIgnoreCase("DESC") ? Sort.Direction.DESC : Sort.Direction.ASC;
@@ -83,7 +110,7 @@ public class OrderController {
             return ResponseEntity.ok(orderPage);
         }
         
-        // Default: return all orders without pagination
-        return ResponseEntity.ok(orderService.getAllOrders());
+        // Default: stream all orders without pagination (JSON array, or NDJSON if accepted)
+        return streamResponses.stream(orderService::streamAllOrders, accept);
     }
 }
@@ -4,10 +4,18 @@ import com.ecommerce.project.dto.RazorpayOrderRequestDTO;
 import com.ecommerce.project.dto.RazorpayOrderResponseDTO;
 import com.ecommerce.project.dto.RazorpayPaymentVerificationDTO;
 import com.ecommerce.project.entity.Payment;
+import com.ecommerce.project.idempotency.IdempotencyService;
+import com.ecommerce.project.security.UserPrincipal;
+import com.ecommerce.project.service.PaymentService;
 import com.ecommerce.project.service.RazorpayService;
+import com.ecommerce.project.streaming.JsonStreamResponses;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Map;
 
@@ -17,11 +25,27 @@ import java.util.Map;
 public class PaymentController {
 
     private final RazorpayService razorpayService;
+    private final PaymentService paymentService;
+    private final JsonStreamResponses streamResponses;
+    private final IdempotencyService idempotencyService;
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> getAllPayments(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return streamResponses.stream(paymentService::streamAllPayments, accept);
+    }
 
     @PostMapping("/razorpay/create")
-    public ResponseEntity<RazorpayOrderResponseDTO> createRazorpayOrder(@RequestBody RazorpayOrderRequestDTO dto) {
-        RazorpayOrderResponseDTO response = razorpayService.createRazorpayOrder(dto);
-        return ResponseEntity.ok(response);
+    public ResponseEntity<RazorpayOrderResponseDTO> createRazorpayOrder(
+            @RequestBody RazorpayOrderRequestDTO dto,
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("razorpay-orders", userPrincipal.getId(), idempotencyKey, dto,
+                RazorpayOrderResponseDTO.class, () -> {
+                    RazorpayOrderResponseDTO response = razorpayService.createRazorpayOrder(dto);
+                    return ResponseEntity.ok(response);
+                });
     }
 
     @PostMapping("/razorpay/verify")
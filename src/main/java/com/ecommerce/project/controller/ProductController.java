@@ -1,15 +1,21 @@
 package com.ecommerce.project.controller;
 
+import com.ecommerce.project.dto.ProductFilterResponseDTO;
 import com.ecommerce.project.dto.ProductRequestDTO;
 import com.ecommerce.project.dto.ProductResponseDTO;
+import com.ecommerce.project.dto.ProductSuggestionDTO;
 import com.ecommerce.project.entity.Product;
+import com.ecommerce.project.pagination.CursorRequest;
+import com.ecommerce.project.search.ProductFilter;
 import com.ecommerce.project.service.ProductService;
+import com.ecommerce.project.streaming.JsonStreamResponses;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -17,6 +23,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/products")
@@ -25,6 +32,7 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final JsonStreamResponses streamResponses;
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @PreAuthorize("hasRole('ADMIN')")
@@ -87,6 +95,32 @@ public class ProductController {
         return ResponseEntity.noContent().build();
     }
 
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestionDTO>> suggest(
+            @RequestParam String q,
+            @RequestParam(required = false, defaultValue = "10") int limit) {
+        return ResponseEntity.ok(productService.suggestProducts(q, limit));
+    }
+
+    @GetMapping("/filter")
+    public ResponseEntity<ProductFilterResponseDTO> filter(
+            @RequestParam(required = false) Set<String> categories,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) Set<Product.Size> sizes,
+            @RequestParam(required = false) Set<String> colors,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(required = false, defaultValue = "0") int page,
+            @RequestParam(required = false, defaultValue = "20") int size,
+            @RequestParam(required = false, defaultValue = "id") String sortBy,
+            @RequestParam(required = false, defaultValue = "ASC") String sortDirection) {
+
+        ProductFilter filter = new ProductFilter(categories, minPrice, maxPrice, sizes, colors, inStock);
+        Sort.Direction direction = sortDirection.equalsIgnoreCase("DESC") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
+        return ResponseEntity.ok(productService.filterProducts(filter, pageable));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ProductResponseDTO> get(@PathVariable String id) {
         return ResponseEntity.ok(productService.getProduct(id));
@@ -98,8 +132,10 @@ public class ProductController {
             @RequestParam(required = false) String q,
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
             @RequestParam(required = false, defaultValue = "id") String sortBy,
-            @RequestParam(required = false, defaultValue = "ASC") String sortDirection) {
+            @RequestParam(required = false, defaultValue = "ASC") String sortDirection,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         
         // Handle search and category filtering (non-paginated)
         if (q != null && !q.isBlank()) {
@@ -109,6 +145,11 @@ public class ProductController {
             return ResponseEntity.ok(productService.getProductsByCategory(category));
         }
         
+        // Keyset pagination when a cursor is passed (blank for the first page)
+        if (cursor != null) {
+            return ResponseEntity.ok(productService.getAllProducts(CursorRequest.of(sortBy, sortDirection, size, cursor)));
+        }
+
         // Handle pagination if page and size are provided
         if (page != null && size != null) {
             Sort.Direction direction = sortDirection.equalsIgnoreCase("DESC") ? Sort.Direction.DESC : Sort.Direction.ASC;
@@ -117,7 +158,7 @@ public class ProductController {
             return ResponseEntity.ok(productPage);
         }
         
-        // Default: return all products without pagination
-        return ResponseEntity.ok(productService.getAllProducts());
+        // Default: stream all products without pagination (JSON array, or NDJSON if accepted)
+        return streamResponses.stream(productService::streamAllProducts, accept);
     }
 }
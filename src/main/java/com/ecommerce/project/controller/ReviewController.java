@@ -3,6 +3,7 @@ package com.ecommerce.project.controller;
 import com.ecommerce.project.dto.ReviewRequestDTO;
 import com.ecommerce.project.dto.ReviewResponseDTO;
 import com.ecommerce.project.entity.Review;
+import com.ecommerce.project.pagination.CursorRequest;
 import com.ecommerce.project.service.ReviewService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -31,9 +32,15 @@ public class ReviewController {
             @PathVariable String productId,
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
             @RequestParam(required = false, defaultValue = "createdAt") String sortBy,
             @RequestParam(required = false, defaultValue = "DESC") String sortDirection) {
         
+        // Keyset pagination when a cursor is passed (blank for the first page)
+        if (cursor != null) {
+            return ResponseEntity.ok(reviewService.getProductReviews(productId, CursorRequest.of(sortBy, sortDirection, size, cursor)));
+        }
+
         // Handle pagination if page and size are provided
         if (page != null && size != null) {
             Sort.Direction direction = sortDirection.equalsIgnoreCase("DESC") ? Sort.Direction.DESC : Sort.Direction.ASC;
@@ -2,12 +2,15 @@ package com.ecommerce.project.controller;
 
 import com.ecommerce.project.dto.UserUpdateDTO;
 import com.ecommerce.project.entity.User;
+import com.ecommerce.project.pagination.CursorRequest;
 import com.ecommerce.project.service.UserService;
+import com.ecommerce.project.streaming.JsonStreamResponses;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,14 +20,22 @@ import org.springframework.web.bind.annotation.*;
 public class UserController {
 
     private final UserService userService;
+    private final JsonStreamResponses streamResponses;
 
     @GetMapping
     public ResponseEntity<?> getAllUsers(
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
             @RequestParam(required = false, defaultValue = "id") String sortBy,
-            @RequestParam(required = false, defaultValue = "ASC") String sortDirection) {
+            @RequestParam(required = false, defaultValue = "ASC") String sortDirection,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         
+        // Keyset pagination when a cursor is passed (blank for the first page)
+        if (cursor != null) {
+            return ResponseEntity.ok(userService.getAllUsers(CursorRequest.of(sortBy, sortDirection, size, cursor)));
+        }
+
         // Handle pagination if page and size are provided
         if (page != null && size != null) {
             Sort.Direction direction = sortDirection.equalsIgnoreCase("DESC") ? Sort.Direction.DESC : Sort.Direction.ASC;
@@ -33,8 +44,8 @@ public class UserController {
             return ResponseEntity.ok(userPage);
         }
         
-        // Default: return all users without pagination
-        return ResponseEntity.ok(userService.getAllUsers());
+        // Default: stream all users without pagination (JSON array, or NDJSON if accepted)
+        return streamResponses.stream(userService::streamAllUsers, accept);
     }
 
     @GetMapping("/{id}")
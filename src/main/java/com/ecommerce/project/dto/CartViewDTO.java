@@ -0,0 +1,35 @@
+package com.ecommerce.project.dto;
+
+import java.util.List;
+
+/**
+ * A user's cart priced on the server, with the products it holds. Prices
+ * include tax, as on invoices: subtotal and taxAmount split the total at
+ * invoice.tax.rate. Items whose product no longer exists are listed as
+ * UNAVAILABLE and left out of the totals.
+ */
+public record CartViewDTO(
+        String userId,
+        List<Line> items,
+        int itemCount,
+        double subtotal,
+        double taxAmount,
+        double totalAmount,
+        List<String> warnings
+) {
+
+    public enum StockStatus { IN_STOCK, INSUFFICIENT_STOCK, OUT_OF_STOCK, UNAVAILABLE }
+
+    /**
+     * @param product null when the product no longer exists
+     */
+    public record Line(
+            String cartItemId,
+            String productId,
+            ProductResponseDTO product,
+            int quantity,
+            double unitPrice,
+            double lineTotal,
+            StockStatus stockStatus
+    ) {}
+}
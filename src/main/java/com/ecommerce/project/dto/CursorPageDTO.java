@@ -0,0 +1,19 @@
+package com.ecommerce.project.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated listing. Pass nextCursor back as the cursor
+ * parameter to get the following page; it is null on the last page.
+ */
+public record CursorPageDTO<T>(
+        List<T> content,
+        int size,
+        boolean hasNext,
+        String nextCursor
+) {
+    public <R> CursorPageDTO<R> map(Function<? super T, ? extends R> mapper) {
+        return new CursorPageDTO<>(content.stream().<R>map(mapper).toList(), size, hasNext, nextCursor);
+    }
+}
@@ -0,0 +1,14 @@
+package com.ecommerce.project.dto;
+
+import org.springframework.data.domain.Page;
+
+import java.util.Map;
+
+/**
+ * One page of filtered products plus, per attribute, the number of products
+ * each value would match given the other active filters.
+ */
+public record ProductFilterResponseDTO(
+        Page<ProductResponseDTO> products,
+        Map<String, Map<String, Long>> facets
+) {}
@@ -0,0 +1,7 @@
+package com.ecommerce.project.dto;
+
+public record ProductSuggestionDTO(
+        String text,
+        String type,
+        long weight
+) {}
@@ -0,0 +1,49 @@
+package com.ecommerce.project.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * The outcome of a request sent with an Idempotency-Key. While the first
+ * execution runs the record is IN_PROGRESS and locked by that execution; once
+ * it finishes the response is kept until expiresAt so that retries of the same
+ * key get it back instead of running the request again.
+ */
+@Document(collection = "idempotency_keys")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    // operation, caller and client key
+    @Id
+    private String id;
+
+    private String requestHash;
+
+    private Status status = Status.IN_PROGRESS;
+
+    // the execution holding the key and until when; an expired lock can be taken over
+    private String owner;
+
+    private Instant lockedUntil;
+
+    private Integer statusCode;
+
+    private String responseBody;
+
+    private Instant createdAt = Instant.now();
+
+    // TTL index created by MongoIndexInitializer
+    private Instant expiresAt;
+
+    public enum Status {
+        IN_PROGRESS,
+        COMPLETED
+    }
+}
@@ -0,0 +1,40 @@
+package com.ecommerce.project.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Journal of the stock one application instance holds in memory for a hot
+ * product: units claimed from Product.stockQuantity, units sold from them and
+ * units handed back. claimed - sold - returned is what the instance still holds
+ * and is returned to the product if the instance disappears.
+ */
+@Document(collection = "inventory_escrow")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryEscrow {
+
+    @Id
+    private String id;
+
+    // The account: one run of one instance, numbered per new account it opens for the product
+    private String runId;
+
+    private String productId;
+
+    private long claimed;
+
+    private long sold;
+
+    private long returned;
+
+    private boolean closed;
+
+    private Instant heartbeat;
+}
@@ -21,7 +21,7 @@ public class Invoice {
     @Indexed(unique = true)
     private String invoiceNumber;
 
-    @Indexed
+    @Indexed(unique = true)
     private String orderId;
 
     @Indexed
@@ -38,6 +38,7 @@ public class Invoice {
     private LocalDateTime generatedAt;
 
     private String pdfPath; // Path to stored PDF in R2/S3
+    private String pdfSha256; // Name of the PDF in the local InvoicePdfCache
 
     private boolean emailedToCustomer = false;
     private boolean emailedToAdmin = false;
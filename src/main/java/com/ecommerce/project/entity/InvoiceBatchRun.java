@@ -0,0 +1,60 @@
+package com.ecommerce.project.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Progress of a batch run generating the missing invoices of delivered orders.
+ * Orders are processed in id order and lastOrderId is checkpointed after each
+ * chunk, so a stopped run resumes where it left off.
+ */
+@Document(collection = "invoice_batch_runs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceBatchRun {
+
+    @Id
+    private String id;
+
+    private Status status = Status.RUNNING;
+
+    // last order of the last completed chunk
+    private String lastOrderId;
+
+    private long scanned;
+
+    // orders that already had an invoice
+    private long skipped;
+
+    private long generated;
+
+    private long failed;
+
+    // the first failures, to retry them by hand
+    private List<String> failedOrderIds = new ArrayList<>();
+
+    // of the latest attempt
+    private double invoicesPerSecond;
+
+    private String error;
+
+    private Instant startedAt = Instant.now();
+
+    private Instant updatedAt;
+
+    private Instant finishedAt;
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -0,0 +1,72 @@
+package com.ecommerce.project.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * A side effect of an order change (an email, an invoice) waiting to be carried
+ * out by the outbox relay. Messages are deleted once handled; those that kept
+ * failing stay behind as DEAD for inspection.
+ */
+@Document(collection = "outbox")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxMessage {
+
+    @Id
+    private String id;
+
+    private Type type;
+
+    private String orderId;
+
+    private Status status = Status.PENDING;
+
+    private int attempts;
+
+    // also serves as the claim: a relay pushes it out by its lease while handling the message
+    private Instant nextAttemptAt = Instant.now();
+
+    private String claimedBy;
+
+    private String lastError;
+
+    private Instant createdAt = Instant.now();
+
+    public OutboxMessage(Type type, String orderId) {
+        this.type = type;
+        this.orderId = orderId;
+    }
+
+    public enum Type {
+        ORDER_CONFIRMATION,
+        ORDER_NOTIFICATION,
+        INVOICE,
+        /**
+         * @deprecated one message per invoice email, written before both emails went out
+         * with the invoice. Relayed as INVOICE and rewritten to it when the relay starts.
+         */
+        @Deprecated
+        INVOICE_TO_CUSTOMER,
+        /**
+         * @deprecated see {@link #INVOICE_TO_CUSTOMER}
+         */
+        @Deprecated
+        INVOICE_TO_ADMIN;
+
+        public boolean isInvoice() {
+            return this == INVOICE || this == INVOICE_TO_CUSTOMER || this == INVOICE_TO_ADMIN;
+        }
+    }
+
+    public enum Status {
+        PENDING,
+        DEAD
+    }
+}
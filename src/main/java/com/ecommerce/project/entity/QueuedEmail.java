@@ -0,0 +1,79 @@
+package com.ecommerce.project.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * An email waiting in the email queue to be sent by the email dispatcher.
+ * Sent emails are deleted; those that could not be delivered are moved to the
+ * email_dead_letters collection.
+ */
+@Document(collection = "email_queue")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueuedEmail {
+
+    @Id
+    private String id;
+
+    private String from;
+
+    private String to;
+
+    // rate limits apply per recipient domain
+    private String domain;
+
+    private String subject;
+
+    private String text;
+
+    // optional HTML alternative to the text
+    private String html;
+
+    private List<Attachment> attachments = new ArrayList<>();
+
+    private int attempts;
+
+    // also serves as the claim: a dispatcher pushes it out by its lease while sending
+    private Instant nextAttemptAt = Instant.now();
+
+    private String claimedBy;
+
+    private String lastError;
+
+    private Instant createdAt = Instant.now();
+
+    // set when moved to the dead letters
+    private Instant deadAt;
+
+    public QueuedEmail(String from, String to, String subject, String text) {
+        this.from = from;
+        this.to = to;
+        this.domain = to.substring(to.lastIndexOf('@') + 1).toLowerCase(Locale.ROOT);
+        this.subject = subject;
+        this.text = text;
+    }
+
+    public QueuedEmail attach(String name, String contentType, byte[] data) {
+        attachments.add(new Attachment(name, contentType, data));
+        return this;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Attachment {
+        private String name;
+        private String contentType;
+        private byte[] data;
+    }
+}
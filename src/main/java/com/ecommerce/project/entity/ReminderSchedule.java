@@ -8,6 +8,8 @@ import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 @Document(collection = "reminder_schedules")
 @Data
@@ -21,7 +23,10 @@ public class ReminderSchedule {
     @Indexed
     private String userId;
 
-    @Indexed
+    // the products of the reminder: everything the user added while it was pending
+    private List<String> productIds = new ArrayList<>();
+
+    // reminders scheduled before they were coalesced have one product, here
     private String productId;
 
     private ReminderType type; // CART or WISHLIST
@@ -32,6 +37,17 @@ public class ReminderSchedule {
 
     private Instant sentAt;
 
+    // failed sends so far; a failed reminder is pushed back and given up on as FAILED after max-attempts
+    private int attempts;
+
+    // hash of userId over the reminder shards; nodes send the reminders of the shards they lease
+    private Integer shard;
+
+    // set while SENDING: the node sending it and until when it may
+    private String claimedBy;
+
+    private Instant claimedUntil;
+
     private Instant createdAt = Instant.now();
 
     public enum ReminderType {
@@ -41,7 +57,9 @@ public class ReminderSchedule {
 
     public enum ReminderStatus {
         PENDING,
+        SENDING,
         SENT,
-        CANCELLED
+        CANCELLED,
+        FAILED
     }
 }
@@ -0,0 +1,53 @@
+package com.ecommerce.project.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Stock taken from products for one order. HELD reservations are returned to
+ * stock when the order is cancelled or stays unpaid past expiresAt; COMMITTED
+ * ones belong to paid or fulfilled orders and are only returned on cancellation.
+ */
+@Document(collection = "stock_reservations")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservation {
+
+    @Id
+    private String id;
+
+    private String orderId;
+
+    private String userId;
+
+    private List<Line> lines;
+
+    private Status status = Status.HELD;
+
+    private Instant expiresAt;
+
+    private Instant createdAt = Instant.now();
+
+    public enum Status {
+        HELD,
+        COMMITTED,
+        RELEASED
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+
+        private String productId;
+
+        private int quantity;
+    }
+}
@@ -0,0 +1,291 @@
+package com.ecommerce.project.idempotency;
+
+import com.ecommerce.project.cache.LocalCache;
+import com.ecommerce.project.entity.IdempotencyRecord;
+import com.ecommerce.project.exception.BadRequestException;
+import com.ecommerce.project.exception.DuplicateResourceException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per Idempotency-Key and answers retries with the
+ * stored response.
+ *
+ * Keys are scoped by operation and caller. The first request with a key claims
+ * it in the {@link IdempotencyStore}; a retry arriving while it runs waits for
+ * it instead of running the request again: on the same node it joins the
+ * running execution, on another node it polls the store. Finished responses
+ * are also kept in a local cache so most replays do not read Mongo.
+ *
+ * Reusing a key for a different request (by hash of the request body) is
+ * rejected. A failed execution frees the key, so the client can retry it.
+ *
+ * The claim is a lock of lock-timeout-seconds, renewed every third of it while
+ * the request runs, so a slow request keeps its key however long it takes. The
+ * lock only runs out when the node stops renewing it, i.e. when it died; a
+ * retry can then run the request again.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyService implements MeterBinder {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long POLL_INTERVAL_MS = 100;
+    private static final String STILL_RUNNING = "A request with this " + HEADER + " is still being processed";
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+
+    @Value("${idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${idempotency.lock-timeout-seconds:60}")
+    private long lockTimeoutSeconds;
+
+    @Value("${idempotency.wait-timeout-ms:15000}")
+    private long waitTimeoutMs;
+
+    @Value("${idempotency.local-cache.max-size:10000}")
+    private int localCacheMaxSize;
+
+    private final Map<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+    private LocalCache<String, StoredResponse> completed;
+    private ScheduledExecutorService lockRenewer;
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    record StoredResponse(String requestHash, int statusCode, String body) {}
+
+    @PostConstruct
+    void init() {
+        completed = new LocalCache<>("idempotency", localCacheMaxSize, Duration.ofHours(ttlHours));
+        lockRenewer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "IdempotencyLockRenewer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        // requests still running lose their keys once the locks run out
+        lockRenewer.shutdownNow();
+    }
+
+    /**
+     * @param callerId who sent the request, so that clients cannot collide on keys
+     * @param key      the Idempotency-Key header; without one the action simply runs
+     * @param request  the request body, compared across retries of the same key
+     */
+    public <T> ResponseEntity<T> execute(String operation, String callerId, String key, Object request,
+                                         Class<T> responseType, Supplier<ResponseEntity<T>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException(HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        String id = operation + ":" + callerId + ":" + key;
+        String requestHash = hash(request);
+
+        StoredResponse done = completed.getIfPresent(id);
+        if (done != null) {
+            replayed.increment();
+            return replay(done, requestHash, responseType);
+        }
+
+        CompletableFuture<StoredResponse> execution = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(id, execution);
+        if (running != null) {
+            coalesced.increment();
+            return replay(await(running), requestHash, responseType);
+        }
+        try {
+            return executeOnce(id, requestHash, responseType, action, execution);
+        } catch (RuntimeException e) {
+            execution.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, execution);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("idempotency.requests", executed, LongAdder::sum)
+                .tag("outcome", "executed").register(registry);
+        FunctionCounter.builder("idempotency.requests", replayed, LongAdder::sum)
+                .tag("outcome", "replayed").register(registry);
+        FunctionCounter.builder("idempotency.requests", coalesced, LongAdder::sum)
+                .tag("outcome", "coalesced").register(registry);
+        FunctionCounter.builder("idempotency.requests", rejected, LongAdder::sum)
+                .tag("outcome", "rejected").register(registry);
+    }
+
+    private <T> ResponseEntity<T> executeOnce(String id, String requestHash, Class<T> responseType,
+                                              Supplier<ResponseEntity<T>> action,
+                                              CompletableFuture<StoredResponse> execution) {
+        String owner = UUID.randomUUID().toString();
+        long deadline = System.currentTimeMillis() + waitTimeoutMs;
+        IdempotencyRecord existing;
+        while ((existing = store.claim(id, requestHash, owner,
+                Instant.now().plusSeconds(lockTimeoutSeconds), Instant.now().plus(Duration.ofHours(ttlHours)))) != null) {
+            if (existing.getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                StoredResponse stored = new StoredResponse(
+                        existing.getRequestHash(), existing.getStatusCode(), existing.getResponseBody());
+                remember(id, stored, execution);
+                replayed.increment();
+                return replay(stored, requestHash, responseType);
+            }
+            if (!requestHash.equals(existing.getRequestHash())) {
+                throw mismatch();
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new DuplicateResourceException(STILL_RUNNING);
+            }
+            pause();
+        }
+
+        ResponseEntity<T> response;
+        long renewEveryMs = Math.max(1, TimeUnit.SECONDS.toMillis(lockTimeoutSeconds) / 3);
+        ScheduledFuture<?> renewal = lockRenewer.scheduleAtFixedRate(() -> renew(id, owner),
+                renewEveryMs, renewEveryMs, TimeUnit.MILLISECONDS);
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            renewal.cancel(false);
+            try {
+                store.abandon(id, owner);
+            } catch (RuntimeException abandonFailure) {
+                log.error("Failed to free idempotency key {}", id, abandonFailure);
+            }
+            throw e;
+        } finally {
+            renewal.cancel(false);
+        }
+        executed.increment();
+        StoredResponse stored = new StoredResponse(requestHash, response.getStatusCode().value(), toJson(response.getBody()));
+        try {
+            store.complete(id, owner, stored.statusCode(), stored.body());
+        } catch (RuntimeException e) {
+            // the request succeeded; only retries that reach another node after the lock expires could repeat it
+            log.error("Failed to store the response for idempotency key {}", id, e);
+        }
+        remember(id, stored, execution);
+        return response;
+    }
+
+    private void renew(String id, String owner) {
+        try {
+            if (!store.renew(id, owner, Instant.now().plusSeconds(lockTimeoutSeconds))) {
+                log.warn("Idempotency key {} is no longer held by its running request", id);
+            }
+        } catch (RuntimeException e) {
+            // tried again at the next renewal, well before the lock runs out
+            log.warn("Failed to renew the lock of idempotency key {}: {}", id, e.getMessage());
+        }
+    }
+
+    private void remember(String id, StoredResponse stored, CompletableFuture<StoredResponse> execution) {
+        completed.put(id, stored, List.of());
+        execution.complete(stored);
+    }
+
+    private <T> ResponseEntity<T> replay(StoredResponse stored, String requestHash, Class<T> responseType) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw mismatch();
+        }
+        try {
+            T body = stored.body() == null ? null : objectMapper.readValue(stored.body(), responseType);
+            return ResponseEntity.status(stored.statusCode()).header(REPLAYED_HEADER, "true").body(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response cannot be read as " + responseType.getSimpleName(), e);
+        }
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> running) {
+        try {
+            return running.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new DuplicateResourceException(STILL_RUNNING);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a duplicate request", e);
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(POLL_INTERVAL_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a duplicate request", e);
+        }
+    }
+
+    private BadRequestException mismatch() {
+        rejected.increment();
+        return new BadRequestException(HEADER + " was already used for a different request");
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to hash request", e);
+        }
+    }
+
+    private String toJson(Object body) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize response", e);
+        }
+    }
+}
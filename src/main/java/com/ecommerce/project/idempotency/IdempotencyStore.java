@@ -0,0 +1,34 @@
+package com.ecommerce.project.idempotency;
+
+import com.ecommerce.project.entity.IdempotencyRecord;
+
+import java.time.Instant;
+
+/**
+ * Durable, cluster-wide record of idempotency keys.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Claims the key for one execution: either it was unused, or it is still in
+     * progress for the same request but its previous owner's lock ran out.
+     * @return null if the caller now owns the key, otherwise its current record
+     */
+    IdempotencyRecord claim(String id, String requestHash, String owner, Instant lockedUntil, Instant expiresAt);
+
+    /**
+     * Extends the owner's lock while its execution is still running.
+     * @return false if the key is no longer the owner's
+     */
+    boolean renew(String id, String owner, Instant lockedUntil);
+
+    /**
+     * Stores the response of the owner's execution; later claims get it back.
+     */
+    void complete(String id, String owner, int statusCode, String responseBody);
+
+    /**
+     * Frees a key whose execution failed so that a retry can run it again.
+     */
+    void abandon(String id, String owner);
+}
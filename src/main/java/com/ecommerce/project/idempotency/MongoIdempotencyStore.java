@@ -0,0 +1,95 @@
+package com.ecommerce.project.idempotency;
+
+import com.ecommerce.project.entity.IdempotencyRecord;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Keeps idempotency keys in the idempotency_keys collection. The document id is
+ * the key itself, so the unique _id index decides which of several nodes
+ * receiving the same key runs the request.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MongoIdempotencyStore implements IdempotencyStore {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public IdempotencyRecord claim(String id, String requestHash, String owner, Instant lockedUntil, Instant expiresAt) {
+        while (true) {
+            IdempotencyRecord record = new IdempotencyRecord();
+            record.setId(id);
+            record.setRequestHash(requestHash);
+            record.setOwner(owner);
+            record.setLockedUntil(lockedUntil);
+            record.setExpiresAt(expiresAt);
+            try {
+                mongoTemplate.insert(record);
+                return null;
+            } catch (DuplicateKeyException e) {
+                // taken; take it over if its owner stopped before finishing
+            }
+
+            IdempotencyRecord takenOver = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("_id").is(id)
+                            .and("status").is(IdempotencyRecord.Status.IN_PROGRESS)
+                            .and("requestHash").is(requestHash)
+                            .and("lockedUntil").lt(Instant.now())),
+                    new Update().set("owner", owner).set("lockedUntil", lockedUntil),
+                    FindAndModifyOptions.options().returnNew(true),
+                    IdempotencyRecord.class);
+            if (takenOver != null) {
+                log.warn("Took over idempotency key {} from an execution that did not finish", id);
+                return null;
+            }
+
+            IdempotencyRecord current = mongoTemplate.findById(id, IdempotencyRecord.class);
+            if (current != null) {
+                return current;
+            }
+            // abandoned or expired in the meantime, try again
+        }
+    }
+
+    @Override
+    public boolean renew(String id, String owner, Instant lockedUntil) {
+        return mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(id)
+                        .and("owner").is(owner)
+                        .and("status").is(IdempotencyRecord.Status.IN_PROGRESS)),
+                Update.update("lockedUntil", lockedUntil),
+                IdempotencyRecord.class).getMatchedCount() > 0;
+    }
+
+    @Override
+    public void complete(String id, String owner, int statusCode, String responseBody) {
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(id).and("owner").is(owner)),
+                new Update()
+                        .set("status", IdempotencyRecord.Status.COMPLETED)
+                        .set("statusCode", statusCode)
+                        .set("responseBody", responseBody)
+                        .unset("lockedUntil"),
+                IdempotencyRecord.class);
+    }
+
+    @Override
+    public void abandon(String id, String owner) {
+        mongoTemplate.remove(
+                Query.query(Criteria.where("_id").is(id)
+                        .and("owner").is(owner)
+                        .and("status").is(IdempotencyRecord.Status.IN_PROGRESS)),
+                IdempotencyRecord.class);
+    }
+}
@@ -0,0 +1,241 @@
+package com.ecommerce.project.inventory;
+
+import com.ecommerce.project.entity.InventoryEscrow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Durable record of the stock this instance holds for hot products, kept in
+ * one {@link InventoryEscrow} document per product and account. An account is
+ * what the instance holds of one product; it starts a new one when another
+ * instance closed the previous one.
+ *
+ * Sales are group-committed: concurrent callers add to the pending batch and
+ * wait, a single writer thread turns the batch into one $inc per account and
+ * completes everyone at once. A sale is acknowledged only after its batch is
+ * written, so a crash cannot lose one.
+ *
+ * Every write is conditioned on the account being open. An instance that
+ * stalled long enough for another one to close its accounts and return their
+ * units therefore cannot sell those units again: the write fails with
+ * {@link AccountClosedException}, and the instance drops what it held under
+ * the account instead of selling it.
+ */
+@Slf4j
+class EscrowJournal {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final String runId;
+    private final AtomicInteger accounts = new AtomicInteger();
+    private final long lingerMs;
+    private final Object lock = new Object();
+
+    // Guarded by lock
+    private Batch pending = new Batch();
+    private boolean running = true;
+
+    // an account id is stored as the document's runId
+    private record Key(String account, String productId) {}
+
+    private static final class Batch {
+        final Map<Key, Long> sold = new HashMap<>();
+        final Set<Key> closed = new HashSet<>();
+        final CompletableFuture<Void> written = new CompletableFuture<>();
+    }
+
+    /**
+     * The account was closed by another instance, which returned its unsold units to the product.
+     */
+    static final class AccountClosedException extends IllegalStateException {
+        private final String account;
+
+        AccountClosedException(String account, String productId) {
+            super("Escrow account " + account + " of product " + productId + " was closed by another instance");
+            this.account = account;
+        }
+
+        String account() {
+            return account;
+        }
+    }
+
+    EscrowJournal(MongoTemplate mongoTemplate, String runId, long lingerMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.runId = runId;
+        this.lingerMs = lingerMs;
+        Thread writer = new Thread(this::writeLoop, "InventoryJournalWriter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * A new account id of this run.
+     */
+    String newAccount() {
+        return runId + "." + accounts.incrementAndGet();
+    }
+
+    /**
+     * Records claimed units before they are handed out.
+     * @throws AccountClosedException if the account was closed
+     */
+    void claimed(String account, String productId, long quantity) {
+        try {
+            mongoTemplate.upsert(open(account, productId),
+                    new Update().inc("claimed", quantity).set("heartbeat", Instant.now()).setOnInsert("closed", false),
+                    InventoryEscrow.class);
+        } catch (DuplicateKeyException e) {
+            // the upsert found the account closed and tried to insert it again
+            throw new AccountClosedException(account, productId);
+        }
+    }
+
+    /**
+     * Blocks until the sale (negative for units given back by a cancellation) is durable.
+     * @throws AccountClosedException if the account was closed
+     */
+    void sold(String account, String productId, long quantity) {
+        Key key = new Key(account, productId);
+        Batch batch;
+        synchronized (lock) {
+            pending.sold.merge(key, quantity, Long::sum);
+            batch = pending;
+            lock.notifyAll();
+        }
+        try {
+            batch.written.get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException("Inventory journal write failed for product " + productId, e);
+        }
+        if (batch.closed.contains(key)) {
+            throw new AccountClosedException(account, productId);
+        }
+    }
+
+    /**
+     * Records units handed back to the product and closes the account.
+     * @return false if the account was already closed, in which case the units must not be handed back
+     */
+    boolean returned(String account, String productId, long quantity) {
+        return mongoTemplate.updateFirst(open(account, productId),
+                new Update().inc("returned", quantity).set("closed", true).set("heartbeat", Instant.now()),
+                InventoryEscrow.class).getMatchedCount() > 0;
+    }
+
+    /**
+     * Keeps the open accounts alive.
+     * @return those of the accounts that were closed by another instance
+     */
+    Set<String> heartbeat(Collection<String> accounts) {
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("runId").in(accounts).and("closed").is(false)),
+                Update.update("heartbeat", Instant.now()),
+                InventoryEscrow.class);
+        Query closed = Query.query(Criteria.where("runId").in(accounts).and("closed").is(true));
+        closed.fields().include("runId");
+        return mongoTemplate.find(closed, InventoryEscrow.class).stream()
+                .map(InventoryEscrow::getRunId)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Closes accounts of instances that stopped heartbeating.
+     * @return the closed accounts, whose unsold units the caller must return
+     */
+    List<InventoryEscrow> closeStale(Instant cutoff) {
+        List<InventoryEscrow> candidates = mongoTemplate.find(
+                Query.query(Criteria.where("closed").is(false).and("heartbeat").lt(cutoff)), InventoryEscrow.class);
+        return candidates.stream()
+                .map(candidate -> mongoTemplate.findAndModify(
+                        Query.query(Criteria.where("_id").is(candidate.getId()).and("closed").is(false)
+                                .and("heartbeat").lt(cutoff)),
+                        Update.update("closed", true),
+                        InventoryEscrow.class))
+                .filter(closed -> closed != null)
+                .toList();
+    }
+
+    void stop() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+    }
+
+    private static Query open(String account, String productId) {
+        return Query.query(Criteria.where("runId").is(account).and("productId").is(productId).and("closed").is(false));
+    }
+
+    private void writeLoop() {
+        while (true) {
+            Batch batch;
+            synchronized (lock) {
+                while (running && pending.sold.isEmpty()) {
+                    waitQuietly(0);
+                }
+                if (pending.sold.isEmpty()) {
+                    return;
+                }
+                // Let concurrent sales join the batch
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                long remaining;
+                while (running && (remaining = deadline - System.nanoTime()) > 0) {
+                    waitQuietly(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+                }
+                batch = pending;
+                pending = new Batch();
+            }
+            List<Key> keys = new ArrayList<>(batch.sold.keySet());
+            try {
+                BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, InventoryEscrow.class);
+                Instant now = Instant.now();
+                for (Key key : keys) {
+                    ops.upsert(open(key.account(), key.productId()),
+                            new Update().inc("sold", batch.sold.get(key)).set("heartbeat", now).setOnInsert("closed", false));
+                }
+                try {
+                    ops.execute();
+                } catch (BulkOperationException e) {
+                    // an upsert finding its account closed tries to insert it again
+                    if (e.getErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY)) {
+                        throw e;
+                    }
+                    e.getErrors().forEach(error -> batch.closed.add(keys.get(error.getIndex())));
+                }
+                batch.written.complete(null);
+            } catch (Exception e) {
+                log.error("Failed to write inventory journal batch of {} products", batch.sold.size(), e);
+                batch.written.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void waitQuietly(long millis) {
+        try {
+            lock.wait(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.ecommerce.project.inventory;
+
+import com.ecommerce.project.entity.InventoryEscrow;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves flagged hot products from memory and everything else from the wrapped store.
+ *
+ * A hot product's units are claimed from Product.stockQuantity in blocks (one
+ * conditional decrement per block instead of per order) and sold from a
+ * {@link StripedStock}. Each sale is acknowledged once the {@link EscrowJournal}
+ * has durably recorded it, which batches the sales of all concurrent buyers
+ * into one write. On shutdown the unsold units go back to the product; if the
+ * instance dies instead, another instance returns them once the journal
+ * heartbeat goes stale. An instance that was only stalled finds its account
+ * closed at its next journal write or heartbeat, drops the units it held under
+ * it (they were returned already) and claims a new block under a new account.
+ *
+ * Product.stockQuantity is therefore lower than the sellable stock by what the
+ * instances hold (at most a block each), which errs on the side of not overselling.
+ */
+@Slf4j
+public class HotSkuInventoryStore implements InventoryStore {
+
+    private final InventoryStore productStore;
+    private final EscrowJournal journal;
+    private final int blockSize;
+    private final Duration staleAfter;
+    private final Map<String, HotProduct> hotProducts = new ConcurrentHashMap<>();
+
+    private static final class HotProduct {
+        final String productId;
+        final StripedStock stock;
+        // Product.stockQuantity after this instance's last claim
+        volatile int productStock;
+        // the escrow account the units in stock are held under; changed only while holding the monitor
+        volatile String account;
+
+        HotProduct(String productId, int stripes, String account) {
+            this.productId = productId;
+            this.stock = new StripedStock(stripes);
+            this.account = account;
+        }
+    }
+
+    /**
+     * @param productStore where claimed blocks come from and unsold units go back to
+     */
+    public static HotSkuInventoryStore create(InventoryStore productStore, MongoTemplate mongoTemplate,
+                                              Set<String> hotProductIds, int blockSize, int stripes,
+                                              long journalLingerMs, Duration staleAfter) {
+        EscrowJournal journal = new EscrowJournal(mongoTemplate, UUID.randomUUID().toString(), journalLingerMs);
+        return new HotSkuInventoryStore(productStore, journal, hotProductIds, blockSize, stripes, staleAfter);
+    }
+
+    HotSkuInventoryStore(InventoryStore productStore, EscrowJournal journal, Set<String> hotProductIds,
+                         int blockSize, int stripes, Duration staleAfter) {
+        this.productStore = productStore;
+        this.journal = journal;
+        this.blockSize = blockSize;
+        this.staleAfter = staleAfter;
+        for (String productId : hotProductIds) {
+            hotProducts.put(productId, new HotProduct(productId, stripes, journal.newAccount()));
+        }
+        log.info("Hot SKU inventory enabled for {} products (block size {}, {} stripes)",
+                hotProducts.size(), blockSize, stripes);
+    }
+
+    @Override
+    public int take(String productId, int quantity) {
+        HotProduct hot = hotProducts.get(productId);
+        if (hot == null) {
+            return productStore.take(productId, quantity);
+        }
+        while (true) {
+            String account = hot.account;
+            try {
+                if (!hot.stock.tryTake(quantity) && !refill(hot, quantity)) {
+                    return -1;
+                }
+                try {
+                    journal.sold(account, productId, quantity);
+                } catch (EscrowJournal.AccountClosedException e) {
+                    // the units taken were returned to the product with the account
+                    throw e;
+                } catch (RuntimeException e) {
+                    hot.stock.add(quantity);
+                    throw e;
+                }
+                return remaining(hot);
+            } catch (EscrowJournal.AccountClosedException e) {
+                fence(hot, e.account());
+            }
+        }
+    }
+
+    @Override
+    public int giveBack(String productId, int quantity) {
+        HotProduct hot = hotProducts.get(productId);
+        if (hot == null) {
+            return productStore.giveBack(productId, quantity);
+        }
+        while (true) {
+            try {
+                journal.sold(hot.account, productId, -quantity);
+                hot.stock.add(quantity);
+                return remaining(hot);
+            } catch (EscrowJournal.AccountClosedException e) {
+                fence(hot, e.account());
+            }
+        }
+    }
+
+    /**
+     * Keeps this instance's accounts alive and returns the units held by instances that stopped.
+     */
+    @Scheduled(fixedDelayString = "${inventory.hot-sku.heartbeat-interval-ms:30000}")
+    public void maintainEscrow() {
+        try {
+            Set<String> closed = journal.heartbeat(hotProducts.values().stream().map(hot -> hot.account).toList());
+            for (HotProduct hot : hotProducts.values()) {
+                String account = hot.account;
+                if (closed.contains(account)) {
+                    fence(hot, account);
+                }
+            }
+            for (InventoryEscrow stale : journal.closeStale(Instant.now().minus(staleAfter))) {
+                long unsold = stale.getClaimed() - stale.getSold() - stale.getReturned();
+                if (unsold > 0) {
+                    productStore.giveBack(stale.getProductId(), (int) unsold);
+                }
+                log.warn("Returned {} units of product {} held by stopped instance {}",
+                        unsold, stale.getProductId(), stale.getRunId());
+            }
+        } catch (Exception e) {
+            log.error("Failed to maintain inventory escrow", e);
+        }
+    }
+
+    @PreDestroy
+    public void returnEscrow() {
+        for (HotProduct hot : hotProducts.values()) {
+            synchronized (hot) {
+                long unsold = hot.stock.drain();
+                // closing the account first keeps a sweep that closed it already from returning the units twice
+                if (journal.returned(hot.account, hot.productId, unsold) && unsold > 0) {
+                    productStore.giveBack(hot.productId, (int) unsold);
+                    log.info("Returned {} unsold units of hot product {}", unsold, hot.productId);
+                }
+            }
+        }
+        journal.stop();
+    }
+
+    // Slow path: consolidate fragmented stripes, then claim another block from the product
+    private boolean refill(HotProduct hot, int quantity) {
+        synchronized (hot) {
+            if (hot.stock.tryTake(quantity)) {
+                return true;
+            }
+            long local = hot.stock.drain();
+            if (local >= quantity) {
+                hot.stock.spread(local - quantity);
+                return true;
+            }
+            int needed = quantity - (int) local;
+            int claim = Math.max(needed, blockSize);
+            int left = productStore.take(hot.productId, claim);
+            if (left < 0 && claim > needed) {
+                claim = needed;
+                left = productStore.take(hot.productId, claim);
+            }
+            if (left < 0) {
+                hot.stock.spread(local);
+                return false;
+            }
+            try {
+                journal.claimed(hot.account, hot.productId, claim);
+            } catch (EscrowJournal.AccountClosedException e) {
+                // the local units were returned to the product with the account
+                productStore.giveBack(hot.productId, claim);
+                throw e;
+            } catch (RuntimeException e) {
+                productStore.giveBack(hot.productId, claim);
+                hot.stock.spread(local);
+                throw e;
+            }
+            hot.productStock = left;
+            hot.stock.spread(local + claim - quantity);
+            return true;
+        }
+    }
+
+    /**
+     * Another instance closed the account and returned its unsold units to the
+     * product, so the units held under it are dropped rather than sold, and
+     * later sales go to a new account. Sales of the dropped units still in
+     * flight fail against the closed account.
+     */
+    private void fence(HotProduct hot, String closedAccount) {
+        synchronized (hot) {
+            if (!hot.account.equals(closedAccount)) {
+                // fenced already by another caller
+                return;
+            }
+            long dropped = hot.stock.drain();
+            hot.account = journal.newAccount();
+            log.warn("Escrow account {} of hot product {} was closed by another instance; dropped the {} units held under it",
+                    closedAccount, hot.productId, dropped);
+        }
+    }
+
+    private int remaining(HotProduct hot) {
+        return (int) Math.min(Integer.MAX_VALUE, hot.stock.sum() + hot.productStock);
+    }
+}
@@ -0,0 +1,21 @@
+package com.ecommerce.project.inventory;
+
+/**
+ * Atomic stock counters. Implementations must never let a count go negative
+ * and must not read-modify-write: concurrent takes on one product are decided
+ * by the store, not by the caller.
+ */
+public interface InventoryStore {
+
+    /**
+     * Takes quantity units if at least that many are available.
+     * @return the stock left afterwards, or -1 if the product is unknown or has too little stock
+     */
+    int take(String productId, int quantity);
+
+    /**
+     * Puts quantity units back.
+     * @return the stock afterwards, or -1 if the product no longer exists
+     */
+    int giveBack(String productId, int quantity);
+}
@@ -0,0 +1,39 @@
+package com.ecommerce.project.inventory;
+
+import com.ecommerce.project.entity.Product;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Stock kept in Product.stockQuantity. Each change is a single conditional
+ * findAndModify ({_id, stockQuantity >= n} with $inc), so the check and the
+ * decrement happen atomically on the server and no lock is held in between.
+ */
+@RequiredArgsConstructor
+public class MongoInventoryStore implements InventoryStore {
+
+    private static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public int take(String productId, int quantity) {
+        Query query = new Query(Criteria.where("_id").is(productId).and("stockQuantity").gte(quantity));
+        return apply(query, -quantity);
+    }
+
+    @Override
+    public int giveBack(String productId, int quantity) {
+        return apply(new Query(Criteria.where("_id").is(productId)), quantity);
+    }
+
+    private int apply(Query query, int delta) {
+        query.fields().include("stockQuantity");
+        Product updated = mongoTemplate.findAndModify(query, new Update().inc("stockQuantity", delta), RETURN_NEW, Product.class);
+        return updated != null ? updated.getStockQuantity() : -1;
+    }
+}
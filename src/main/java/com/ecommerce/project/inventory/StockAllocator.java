@@ -0,0 +1,60 @@
+package com.ecommerce.project.inventory;
+
+import com.ecommerce.project.entity.StockReservation;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * All-or-nothing stock moves for the lines of one order.
+ *
+ * Lines are taken one conditional decrement at a time; when one cannot be
+ * satisfied the lines already taken are given back. No lock is held across
+ * lines, so two orders for the same products never wait on each other, at the
+ * cost of another buyer briefly seeing stock that is about to be returned.
+ */
+@Slf4j
+class StockAllocator {
+
+    private final InventoryStore store;
+    private final Consumer<String> onAvailabilityChanged;
+
+    /**
+     * @param onAvailabilityChanged called with a product id whenever its stock reaches or leaves zero
+     */
+    StockAllocator(InventoryStore store, Consumer<String> onAvailabilityChanged) {
+        this.store = store;
+        this.onAvailabilityChanged = onAvailabilityChanged;
+    }
+
+    /**
+     * @return null if every line was taken, otherwise the product that could not be
+     *         satisfied (nothing is taken then)
+     */
+    String takeAll(List<StockReservation.Line> lines) {
+        for (int i = 0; i < lines.size(); i++) {
+            StockReservation.Line line = lines.get(i);
+            int left = store.take(line.getProductId(), line.getQuantity());
+            if (left < 0) {
+                giveBackAll(lines.subList(0, i));
+                return line.getProductId();
+            }
+            if (left == 0) {
+                onAvailabilityChanged.accept(line.getProductId());
+            }
+        }
+        return null;
+    }
+
+    void giveBackAll(List<StockReservation.Line> lines) {
+        for (StockReservation.Line line : lines) {
+            int stock = store.giveBack(line.getProductId(), line.getQuantity());
+            if (stock < 0) {
+                log.warn("Could not return {} units of deleted product {}", line.getQuantity(), line.getProductId());
+            } else if (stock == line.getQuantity()) {
+                onAvailabilityChanged.accept(line.getProductId());
+            }
+        }
+    }
+}
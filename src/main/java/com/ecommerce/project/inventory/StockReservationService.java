@@ -0,0 +1,230 @@
+package com.ecommerce.project.inventory;
+
+import com.ecommerce.project.cache.ProductCatalogCache;
+import com.ecommerce.project.entity.Order;
+import com.ecommerce.project.entity.Payment;
+import com.ecommerce.project.entity.StockReservation;
+import com.ecommerce.project.exception.BadRequestException;
+import com.ecommerce.project.exception.ResourceNotFoundException;
+import com.ecommerce.project.repository.PaymentRepository;
+import com.ecommerce.project.repository.ProductRepository;
+import com.ecommerce.project.repository.StockReservationRepository;
+import com.ecommerce.project.search.ProductSearchEngine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Takes stock for orders when they are placed and gives it back when they are
+ * cancelled or left unpaid. Cash on delivery orders are paid only when they
+ * are delivered, so they never expire: their stock stays taken until the
+ * order is cancelled.
+ *
+ * Each order line is taken with one conditional decrement in the
+ * {@link InventoryStore} and a multi-item order gets all its stock or none
+ * (see {@link StockAllocator}). The reservation document is written after the
+ * stock is taken: a crash in between leaves stock under-counted (never
+ * oversold) until an admin corrects it.
+ *
+ * Releasing first moves the reservation to RELEASED with a conditional update,
+ * so a cancellation racing with the expiry sweep (possibly on another node)
+ * returns the stock once.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockReservationService implements MeterBinder {
+
+    private final InventoryStore inventoryStore;
+    private final StockReservationRepository reservationRepository;
+    private final PaymentRepository paymentRepository;
+    private final ProductRepository productRepository;
+    private final MongoTemplate mongoTemplate;
+    private final ProductSearchEngine searchEngine;
+    private final ProductCatalogCache catalogCache;
+
+    private final LongAdder reserved = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    @Value("${inventory.reservation.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    private StockAllocator allocator;
+
+    @PostConstruct
+    void init() {
+        allocator = new StockAllocator(inventoryStore, this::onAvailabilityChanged);
+    }
+
+    /**
+     * Takes the stock for every item of the order.
+     * @throws BadRequestException if any product has too little stock; nothing is taken then
+     */
+    public StockReservation reserve(String orderId, String userId, List<Order.OrderItem> items) {
+        List<StockReservation.Line> lines = toLines(items);
+        String unavailable = allocator.takeAll(lines);
+        if (unavailable != null) {
+            rejected.increment();
+            if (!productRepository.existsById(unavailable)) {
+                throw new ResourceNotFoundException("Product", "id", unavailable);
+            }
+            throw new BadRequestException("Insufficient stock for product " + unavailable);
+        }
+
+        StockReservation reservation = new StockReservation();
+        reservation.setOrderId(orderId);
+        reservation.setUserId(userId);
+        reservation.setLines(lines);
+        reservation.setExpiresAt(Instant.now().plus(Duration.ofMinutes(ttlMinutes)));
+        try {
+            reservation = reservationRepository.insert(reservation);
+        } catch (RuntimeException e) {
+            allocator.giveBackAll(lines);
+            throw e;
+        }
+        reserved.increment();
+        log.info("Reserved stock for order {}: {} products", orderId, lines.size());
+        return reservation;
+    }
+
+    /**
+     * Marks the order's stock as sold (paid or being fulfilled); it no longer expires.
+     */
+    public void commit(String orderId) {
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("orderId").is(orderId).and("status").is(StockReservation.Status.HELD)),
+                Update.update("status", StockReservation.Status.COMMITTED),
+                StockReservation.class);
+    }
+
+    /**
+     * Returns the order's stock, whether held or committed.
+     * @return false if there was nothing to release (no reservation, or already released)
+     */
+    public boolean release(String orderId) {
+        return release(orderId, List.of(StockReservation.Status.HELD, StockReservation.Status.COMMITTED));
+    }
+
+    /**
+     * Releases reservations that stayed unpaid past their expiry and cancels their
+     * orders. A reservation whose payment completed meanwhile, or whose order is
+     * paid cash on delivery, is committed instead.
+     */
+    @Scheduled(fixedDelayString = "${inventory.reservation.sweep-interval-ms:60000}")
+    public void expireReservations() {
+        List<StockReservation> due;
+        try {
+            due = reservationRepository.findTop500ByStatusAndExpiresAtBefore(StockReservation.Status.HELD, Instant.now());
+        } catch (Exception e) {
+            log.error("Failed to load expired stock reservations", e);
+            return;
+        }
+        // One order that cannot be handled must not hold up the others
+        for (StockReservation reservation : due) {
+            try {
+                expire(reservation.getOrderId());
+            } catch (Exception e) {
+                log.error("Failed to expire the stock reservation of order {}", reservation.getOrderId(), e);
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("inventory.reservations", reserved, LongAdder::sum)
+                .tag("outcome", "reserved").register(registry);
+        FunctionCounter.builder("inventory.reservations", rejected, LongAdder::sum)
+                .tag("outcome", "rejected").register(registry);
+        FunctionCounter.builder("inventory.reservations", released, LongAdder::sum)
+                .tag("outcome", "released").register(registry);
+        FunctionCounter.builder("inventory.reservations", expired, LongAdder::sum)
+                .tag("outcome", "expired").register(registry);
+    }
+
+    // Merges repeated products and orders lines by product id
+    static List<StockReservation.Line> toLines(List<Order.OrderItem> items) {
+        if (items == null) {
+            return List.of();
+        }
+        Map<String, Integer> quantities = new TreeMap<>();
+        for (Order.OrderItem item : items) {
+            if (item.getProductId() == null || item.getQuantity() <= 0) {
+                throw new BadRequestException("Each order item needs a product and a positive quantity");
+            }
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        List<StockReservation.Line> lines = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> lines.add(new StockReservation.Line(productId, quantity)));
+        return lines;
+    }
+
+    private boolean release(String orderId, List<StockReservation.Status> from) {
+        StockReservation reservation = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("orderId").is(orderId).and("status").in(from)),
+                Update.update("status", StockReservation.Status.RELEASED),
+                StockReservation.class);
+        if (reservation == null) {
+            return false;
+        }
+        allocator.giveBackAll(reservation.getLines());
+        released.increment();
+        log.info("Released stock reserved for order {}", orderId);
+        return true;
+    }
+
+    private void expire(String orderId) {
+        if (isPaid(orderId) || isCashOnDelivery(orderId)) {
+            commit(orderId);
+        } else if (release(orderId, List.of(StockReservation.Status.HELD))) {
+            expired.increment();
+            mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(orderId).and("status").is(Order.Status.pending)),
+                    Update.update("status", Order.Status.cancelled),
+                    Order.class);
+            log.info("Reservation for unpaid order {} expired, stock released and order cancelled", orderId);
+        }
+    }
+
+    private boolean isPaid(String orderId) {
+        return paymentRepository.existsByOrderIdAndPaymentStatus(orderId, Payment.PaymentStatus.completed);
+    }
+
+    private boolean isCashOnDelivery(String orderId) {
+        return paymentRepository.existsByOrderIdAndPaymentMethod(orderId, Payment.PaymentMethod.cod);
+    }
+
+    /**
+     * The in-stock facet and cached listings only care whether a product can be
+     * bought, so they are refreshed when stock reaches or leaves zero rather
+     * than on every sale of a busy product. Exact counts in cached product
+     * responses may lag by up to the cache TTL.
+     */
+    private void onAvailabilityChanged(String productId) {
+        try {
+            productRepository.findById(productId)
+                    .ifPresent(product -> catalogCache.onStockChanged(product, searchEngine.index(product)));
+        } catch (Exception e) {
+            log.warn("Failed to refresh availability of product {}: {}", productId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.ecommerce.project.inventory;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Units of one product held in memory, split over several independently
+ * updated counters so that concurrent buyers rarely touch the same cache line.
+ *
+ * A take succeeds only through a compare-and-set that keeps its stripe
+ * non-negative, so the total can never go below zero. Units may end up spread
+ * so thinly that no single stripe can serve a larger order even though the
+ * total could; {@link #tryTake} then fails and the caller can
+ * {@link #drain()} and re-add the units to consolidate them.
+ */
+final class StripedStock {
+
+    // One stripe per 64-byte cache line
+    private static final int PAD = 8;
+
+    private final int stripes;
+    private final AtomicLongArray cells;
+
+    StripedStock(int stripes) {
+        this.stripes = Math.max(1, stripes);
+        this.cells = new AtomicLongArray(this.stripes * PAD);
+    }
+
+    boolean tryTake(int quantity) {
+        int start = probe();
+        for (int i = 0; i < stripes; i++) {
+            int cell = ((start + i) % stripes) * PAD;
+            long available = cells.get(cell);
+            while (available >= quantity) {
+                if (cells.compareAndSet(cell, available, available - quantity)) {
+                    return true;
+                }
+                available = cells.get(cell);
+            }
+        }
+        return false;
+    }
+
+    void add(long quantity) {
+        cells.addAndGet(probe() * PAD, quantity);
+    }
+
+    /**
+     * Adds units evenly over all stripes.
+     */
+    void spread(long quantity) {
+        long share = quantity / stripes;
+        for (int i = 0; i < stripes; i++) {
+            cells.addAndGet(i * PAD, i == 0 ? share + quantity % stripes : share);
+        }
+    }
+
+    /**
+     * Moment-in-time total; concurrent takes may make it stale immediately.
+     */
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(i * PAD);
+        }
+        return sum;
+    }
+
+    /**
+     * Removes and returns every unit.
+     */
+    long drain() {
+        long drained = 0;
+        for (int i = 0; i < stripes; i++) {
+            drained += cells.getAndSet(i * PAD, 0);
+        }
+        return drained;
+    }
+
+    private int probe() {
+        long id = Thread.currentThread().threadId();
+        return Math.floorMod((id ^ (id >>> 16)) * 0x9E3779B9L, stripes);
+    }
+}
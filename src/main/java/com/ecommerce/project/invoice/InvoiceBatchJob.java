@@ -0,0 +1,372 @@
+package com.ecommerce.project.invoice;
+
+import com.ecommerce.project.entity.Invoice;
+import com.ecommerce.project.entity.InvoiceBatchRun;
+import com.ecommerce.project.entity.Order;
+import com.ecommerce.project.entity.User;
+import com.ecommerce.project.exception.BadRequestException;
+import com.ecommerce.project.exception.ResourceNotFoundException;
+import com.ecommerce.project.repository.InvoiceBatchRunRepository;
+import com.ecommerce.project.repository.InvoiceRepository;
+import com.ecommerce.project.repository.OrderRepository;
+import com.ecommerce.project.repository.UserRepository;
+import com.ecommerce.project.service.InvoiceService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Generates the missing invoices of all delivered orders, for backfills and
+ * end-of-day runs. No emails are sent.
+ *
+ * Delivered orders are streamed in id order and handled in chunks: one query
+ * finds which orders of a chunk already have an invoice, their users are
+ * loaded with another, PDFs are rendered on a bounded pool and uploaded on a
+ * second one, and the chunk's invoices are inserted together. While a chunk
+ * uploads, the next one renders. After each chunk the run's progress is
+ * checkpointed, so a run that stopped (a failure, a restart) can be resumed.
+ * Orders whose invoice failed are listed on the run and left behind; a new
+ * run picks them up since it only generates what is missing.
+ *
+ * An order can still get its invoice elsewhere between the lookup and the
+ * insert (the outbox relay, or a user downloading it). The insert is
+ * unordered, and an invoice rejected by the unique orderId index is counted
+ * as skipped while the rest of the chunk goes in; its uploaded PDF is left
+ * unreferenced.
+ *
+ * One run at a time across all nodes: a run holds a lease in
+ * invoice_batch_leases, {_id, owner, runId, leaseUntil}, taken with a
+ * findAndModify conditioned on the lease having run out and renewed in the
+ * background while the run goes on. A run whose lease was taken over (it
+ * could not renew it in time) stops at its next checkpoint without saving,
+ * as the run may be going on elsewhere.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InvoiceBatchJob {
+
+    private static final int MAX_RECORDED_FAILURES = 1000;
+    private static final int DUPLICATE_KEY = 11000;
+    private static final String LEASES = "invoice_batch_leases";
+    private static final String LEASE_ID = "invoice-batch";
+
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final InvoiceBatchRunRepository runRepository;
+    private final InvoiceService invoiceService;
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${invoice.batch.chunk-size:200}")
+    private int chunkSize;
+
+    // 0 uses one thread per core
+    @Value("${invoice.batch.render-threads:0}")
+    private int renderThreads;
+
+    @Value("${invoice.batch.upload-threads:8}")
+    private int uploadThreads;
+
+    // renewed every third of it while a run goes on
+    @Value("${invoice.batch.lease-seconds:120}")
+    private long leaseSeconds;
+
+    private ExecutorService coordinator;
+    private ExecutorService renderPool;
+    private ExecutorService uploadPool;
+    private ScheduledExecutorService leaseRenewer;
+
+    private record Rendered(Invoice invoice, byte[] pdf) {}
+
+    private record Chunk(String lastOrderId, int scanned, int skipped,
+                         List<String> orderIds, List<CompletableFuture<Invoice>> invoices) {}
+
+    private static final class Lease {
+        private final String owner = UUID.randomUUID().toString();
+        private volatile boolean lost;
+        private ScheduledFuture<?> renewal;
+    }
+
+    @PostConstruct
+    void init() {
+        int renderers = renderThreads > 0 ? renderThreads : Runtime.getRuntime().availableProcessors();
+        coordinator = Executors.newSingleThreadExecutor(threads("InvoiceBatch"));
+        renderPool = Executors.newFixedThreadPool(renderers, threads("InvoiceBatchRender"));
+        uploadPool = Executors.newFixedThreadPool(uploadThreads, threads("InvoiceBatchUpload"));
+        leaseRenewer = Executors.newSingleThreadScheduledExecutor(threads("InvoiceBatchLease"));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // a run stopped here resumes from its last checkpoint
+        coordinator.shutdownNow();
+        renderPool.shutdownNow();
+        uploadPool.shutdownNow();
+        leaseRenewer.shutdownNow();
+    }
+
+    public InvoiceBatchRun start() {
+        InvoiceBatchRun run = new InvoiceBatchRun();
+        return launch(run);
+    }
+
+    /**
+     * Continues a run after its last checkpoint.
+     */
+    public InvoiceBatchRun resume(String runId) {
+        InvoiceBatchRun run = getRun(runId);
+        if (run.getStatus() == InvoiceBatchRun.Status.COMPLETED) {
+            throw new BadRequestException("Invoice batch run " + runId + " has already completed");
+        }
+        return launch(run);
+    }
+
+    public InvoiceBatchRun getRun(String runId) {
+        return runRepository.findById(runId)
+                .orElseThrow(() -> new ResourceNotFoundException("InvoiceBatchRun", "id", runId));
+    }
+
+    private InvoiceBatchRun launch(InvoiceBatchRun run) {
+        Lease lease = new Lease();
+        if (!acquire(lease, run.getId())) {
+            Document held = mongoTemplate.findById(LEASE_ID, Document.class, LEASES);
+            throw new BadRequestException("An invoice batch run is already running: "
+                    + (held == null ? "unknown" : held.getString("runId")));
+        }
+        try {
+            run.setStatus(InvoiceBatchRun.Status.RUNNING);
+            run.setError(null);
+            run.setFinishedAt(null);
+            run.setUpdatedAt(Instant.now());
+            InvoiceBatchRun saved = runRepository.save(run);
+            // a new run gets its id only now
+            renew(lease, saved.getId());
+            long every = Math.max(1, leaseSeconds / 3);
+            lease.renewal = leaseRenewer.scheduleAtFixedRate(() -> renew(lease, saved.getId()), every, every, TimeUnit.SECONDS);
+            coordinator.execute(() -> {
+                try {
+                    execute(saved, lease);
+                } finally {
+                    release(lease);
+                }
+            });
+            return saved;
+        } catch (RuntimeException e) {
+            release(lease);
+            throw e;
+        }
+    }
+
+    private boolean acquire(Lease lease, String runId) {
+        Instant now = Instant.now();
+        try {
+            Document held = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("_id").is(LEASE_ID).and("leaseUntil").lte(Date.from(now))),
+                    new Update().set("owner", lease.owner).set("runId", runId)
+                            .set("leaseUntil", Date.from(now.plusSeconds(leaseSeconds))),
+                    FindAndModifyOptions.options().upsert(true).returnNew(true),
+                    Document.class, LEASES);
+            return held != null;
+        } catch (DuplicateKeyException e) {
+            // held by a running run: the upsert tried to insert a second lease
+            return false;
+        }
+    }
+
+    private void renew(Lease lease, String runId) {
+        try {
+            long renewed = mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(LEASE_ID).and("owner").is(lease.owner)),
+                    new Update().set("runId", runId).set("leaseUntil", Date.from(Instant.now().plusSeconds(leaseSeconds))),
+                    LEASES).getMatchedCount();
+            if (renewed == 0) {
+                lease.lost = true;
+                if (lease.renewal != null) {
+                    lease.renewal.cancel(false);
+                }
+            }
+        } catch (Exception e) {
+            // tried again at the next renewal, well before the lease runs out
+            log.warn("Failed to renew the lease of invoice batch run {}: {}", runId, e.getMessage());
+        }
+    }
+
+    private void release(Lease lease) {
+        if (lease.renewal != null) {
+            lease.renewal.cancel(false);
+        }
+        try {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(LEASE_ID).and("owner").is(lease.owner)), LEASES);
+        } catch (Exception e) {
+            // the lease runs out by itself
+            log.warn("Failed to release the invoice batch lease: {}", e.getMessage());
+        }
+    }
+
+    private void execute(InvoiceBatchRun run, Lease lease) {
+        log.info("Invoice batch run {} started after order {}", run.getId(), run.getLastOrderId());
+        long started = System.nanoTime();
+        long generatedBefore = run.getGenerated();
+        try (Stream<Order> delivered = run.getLastOrderId() == null
+                ? orderRepository.streamByStatusOrderByIdAsc(Order.Status.delivered)
+                : orderRepository.streamByStatusAndIdGreaterThanOrderByIdAsc(Order.Status.delivered, run.getLastOrderId())) {
+            Iterator<Order> orders = delivered.iterator();
+            Chunk pending = null;
+            while (orders.hasNext()) {
+                Chunk chunk = submit(next(orders));
+                if (pending != null) {
+                    checkpoint(run, lease, pending, started, generatedBefore);
+                }
+                pending = chunk;
+            }
+            if (pending != null) {
+                checkpoint(run, lease, pending, started, generatedBefore);
+            }
+            run.setStatus(InvoiceBatchRun.Status.COMPLETED);
+            log.info("Invoice batch run {} completed: {} scanned, {} skipped, {} generated, {} failed ({} invoices/s)",
+                    run.getId(), run.getScanned(), run.getSkipped(), run.getGenerated(), run.getFailed(),
+                    String.format("%.1f", run.getInvoicesPerSecond()));
+        } catch (Exception e) {
+            if (lease.lost) {
+                log.warn("Invoice batch run {} lost its lease after order {} and stopped", run.getId(), run.getLastOrderId());
+                return;
+            }
+            run.setStatus(InvoiceBatchRun.Status.FAILED);
+            run.setError(e.getMessage());
+            log.error("Invoice batch run {} stopped after order {}", run.getId(), run.getLastOrderId(), e);
+        }
+        run.setFinishedAt(Instant.now());
+        run.setUpdatedAt(Instant.now());
+        runRepository.save(run);
+    }
+
+    private List<Order> next(Iterator<Order> orders) {
+        List<Order> chunk = new ArrayList<>(chunkSize);
+        while (chunk.size() < chunkSize && orders.hasNext()) {
+            chunk.add(orders.next());
+        }
+        return chunk;
+    }
+
+    // Starts rendering and uploading the chunk's missing invoices
+    private Chunk submit(List<Order> chunk) {
+        List<String> ids = chunk.stream().map(Order::getId).toList();
+        Set<String> invoiced = invoiceRepository.findOrderIdsByOrderIdIn(ids).stream()
+                .map(Invoice::getOrderId)
+                .collect(Collectors.toSet());
+        List<Order> missing = chunk.stream().filter(order -> !invoiced.contains(order.getId())).toList();
+        Set<String> userIds = missing.stream().map(Order::getUserId).collect(Collectors.toSet());
+        Map<String, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<CompletableFuture<Invoice>> invoices = new ArrayList<>(missing.size());
+        for (Order order : missing) {
+            invoices.add(CompletableFuture
+                    .supplyAsync(() -> render(order, users.get(order.getUserId())), renderPool)
+                    .thenApplyAsync(rendered -> {
+                        invoiceService.uploadInvoicePdf(rendered.invoice(), rendered.pdf());
+                        return rendered.invoice();
+                    }, uploadPool));
+        }
+        return new Chunk(ids.get(ids.size() - 1), chunk.size(), chunk.size() - missing.size(),
+                missing.stream().map(Order::getId).toList(), invoices);
+    }
+
+    private Rendered render(Order order, User user) {
+        if (user == null) {
+            throw new ResourceNotFoundException("User", "id", order.getUserId());
+        }
+        Invoice invoice = invoiceService.newInvoice(order, user);
+        return new Rendered(invoice, invoiceService.renderInvoicePdf(order, user, invoice));
+    }
+
+    // Waits for the chunk, inserts its invoices and records the progress
+    private void checkpoint(InvoiceBatchRun run, Lease lease, Chunk chunk, long started, long generatedBefore) {
+        List<Invoice> done = new ArrayList<>(chunk.invoices().size());
+        for (int i = 0; i < chunk.invoices().size(); i++) {
+            try {
+                done.add(chunk.invoices().get(i).join());
+            } catch (CompletionException e) {
+                String orderId = chunk.orderIds().get(i);
+                run.setFailed(run.getFailed() + 1);
+                if (run.getFailedOrderIds().size() < MAX_RECORDED_FAILURES) {
+                    run.getFailedOrderIds().add(orderId);
+                }
+                log.warn("Invoice batch run {} could not generate the invoice of order {}: {}",
+                        run.getId(), orderId, e.getCause().getMessage());
+            }
+        }
+        if (lease.lost) {
+            throw new IllegalStateException("Invoice batch run " + run.getId() + " lost its lease");
+        }
+        int inserted = done.isEmpty() ? 0 : insert(run, done);
+
+        run.setLastOrderId(chunk.lastOrderId());
+        run.setScanned(run.getScanned() + chunk.scanned());
+        run.setSkipped(run.getSkipped() + chunk.skipped() + done.size() - inserted);
+        run.setGenerated(run.getGenerated() + inserted);
+        double seconds = (System.nanoTime() - started) / 1e9;
+        run.setInvoicesPerSecond(seconds > 0 ? (run.getGenerated() - generatedBefore) / seconds : 0);
+        run.setUpdatedAt(Instant.now());
+        runRepository.save(run);
+        log.info("Invoice batch run {}: {} scanned, {} generated, {} invoices/s",
+                run.getId(), run.getScanned(), run.getGenerated(), String.format("%.1f", run.getInvoicesPerSecond()));
+    }
+
+    // Inserts what it can, skipping the orders invoiced since the chunk was looked up
+    private int insert(InvoiceBatchRun run, List<Invoice> invoices) {
+        try {
+            return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Invoice.class)
+                    .insert(invoices).execute().getInsertedCount();
+        } catch (BulkOperationException e) {
+            if (e.getErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY)) {
+                throw e;
+            }
+            log.info("Invoice batch run {}: {} orders were invoiced elsewhere meanwhile", run.getId(), e.getErrors().size());
+            return e.getResult().getInsertedCount();
+        }
+    }
+
+    private static ThreadFactory threads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
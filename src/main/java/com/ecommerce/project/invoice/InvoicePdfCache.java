@@ -0,0 +1,214 @@
+package com.ecommerce.project.invoice;
+
+import com.ecommerce.project.entity.Invoice;
+import com.ecommerce.project.service.StorageService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Local disk copies of invoice PDFs, named by the SHA-256 of their content.
+ *
+ * Generated PDFs are written here as they are uploaded, and downloads of
+ * other invoices are copied here on first access, so repeated downloads and
+ * re-sent emails do not go back to R2. Since a file's name is its content
+ * hash, files are never updated in place and a copy can be trusted without
+ * revalidation. The least recently used files are deleted once the cache
+ * grows past max-size-mb; 0 disables it.
+ *
+ * Eviction does not wait for readers, so a path returned by resolve() can be
+ * gone by the time it is read. Readers open it right away, and on a
+ * NoSuchFileException they read the PDF from R2 instead.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InvoicePdfCache {
+
+    private final StorageService storageService;
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${invoice.pdf-cache.dir:${java.io.tmpdir}/invoice-pdf-cache}")
+    private Path dir;
+
+    @Value("${invoice.pdf-cache.max-size-mb:512}")
+    private long maxSizeMb;
+
+    // content hash -> file size, in access order
+    private final LinkedHashMap<String, Long> files = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    @PostConstruct
+    void init() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        Files.createDirectories(dir);
+        try (Stream<Path> existing = Files.walk(dir)) {
+            List<Path> pdfs = existing.filter(p -> p.toString().endsWith(".pdf"))
+                    .sorted(Comparator.comparing(InvoicePdfCache::lastModified))
+                    .toList();
+            for (Path pdf : pdfs) {
+                String name = pdf.getFileName().toString();
+                track(name.substring(0, name.length() - ".pdf".length()), Files.size(pdf));
+            }
+        }
+        log.info("Invoice PDF cache at {}: {} files, {} KB", dir, files.size(), totalBytes / 1024);
+    }
+
+    public boolean isEnabled() {
+        return maxSizeMb > 0;
+    }
+
+    /**
+     * Keeps a copy of a PDF just rendered.
+     * @return its content hash, or null when the cache is disabled
+     */
+    public String put(byte[] pdf) {
+        if (!isEnabled()) {
+            return null;
+        }
+        String hash = sha256(pdf);
+        Path target = path(hash);
+        try {
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                Path temp = Files.createTempFile(dir, "pdf", ".tmp");
+                Files.write(temp, pdf);
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            track(hash, pdf.length);
+            return hash;
+        } catch (IOException e) {
+            // the PDF is in R2 either way
+            log.warn("Failed to cache invoice PDF: {}", e.getMessage());
+            return hash;
+        }
+    }
+
+    /**
+     * The local copy of the invoice's PDF, fetched from R2 first if needed.
+     * It may be evicted before it is read; see the class comment.
+     * @return null when the cache is disabled
+     */
+    public Path resolve(Invoice invoice) {
+        if (!isEnabled()) {
+            return null;
+        }
+        String hash = invoice.getPdfSha256();
+        if (hash != null) {
+            Path cached = path(hash);
+            if (touch(hash) && Files.exists(cached)) {
+                return cached;
+            }
+        }
+        try {
+            Path fetched = fetch(invoice);
+            if (hash == null) {
+                // invoices generated before the cache existed: remember the hash for next time
+                String name = fetched.getFileName().toString();
+                invoice.setPdfSha256(name.substring(0, name.length() - ".pdf".length()));
+                mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(invoice.getId())),
+                        Update.update("pdfSha256", invoice.getPdfSha256()), Invoice.class);
+            }
+            return fetched;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to fetch invoice " + invoice.getInvoiceNumber(), e);
+        }
+    }
+
+    // Streams the PDF from R2 to disk, hashing it on the way
+    private Path fetch(Invoice invoice) throws IOException {
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, "pdf", ".tmp");
+        try {
+            MessageDigest digest = newDigest();
+            long size;
+            try (InputStream in = storageService.openStream(invoice.getPdfPath());
+                 OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                size = in.transferTo(out);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = path(hash);
+            Files.createDirectories(target.getParent());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            track(hash, size);
+            return target;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path path(String hash) {
+        return dir.resolve(hash.substring(0, 2)).resolve(hash + ".pdf");
+    }
+
+    private synchronized boolean touch(String hash) {
+        return files.get(hash) != null;
+    }
+
+    private synchronized void track(String hash, long size) {
+        Long previous = files.put(hash, size);
+        if (previous == null) {
+            totalBytes += size;
+        }
+        long maxBytes = maxSizeMb * 1024 * 1024;
+        var eldest = files.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            if (entry.getKey().equals(hash)) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(path(entry.getKey()));
+            } catch (IOException e) {
+                log.warn("Failed to evict cached invoice PDF {}: {}", entry.getKey(), e.getMessage());
+            }
+            totalBytes -= entry.getValue();
+            eldest.remove();
+        }
+    }
+
+    private static String sha256(byte[] data) {
+        return HexFormat.of().formatHex(newDigest().digest(data));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.ecommerce.project.invoice;
+
+import com.ecommerce.project.entity.Invoice;
+import com.ecommerce.project.entity.Order;
+import com.ecommerce.project.entity.User;
+import com.ecommerce.project.repository.InvoiceRepository;
+import com.ecommerce.project.service.EmailService;
+import com.ecommerce.project.service.InvoiceService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * Generates and emails invoices in three stages, each on its own small pool:
+ * render (Jasper, CPU bound), upload (R2 and Mongo) and email (SMTP).
+ *
+ * A slow stage therefore does not hold threads of the others, and the PDF
+ * rendered in the first stage is handed to the email stage in memory instead
+ * of being downloaded again. At most max-in-flight invoices are in the
+ * pipeline; {@link #submit} waits for room up to submit-timeout-ms and then
+ * rejects, which pushes back on whoever is feeding it.
+ *
+ * Every stage skips work already done for the order (an existing invoice,
+ * emails already sent), so a failed invoice can simply be submitted again.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InvoicePipeline implements MeterBinder {
+
+    private final InvoiceService invoiceService;
+    private final InvoiceRepository invoiceRepository;
+    private final EmailService emailService;
+
+    @Value("${invoice.pipeline.render-threads:2}")
+    private int renderThreads;
+
+    @Value("${invoice.pipeline.upload-threads:4}")
+    private int uploadThreads;
+
+    @Value("${invoice.pipeline.email-threads:2}")
+    private int emailThreads;
+
+    @Value("${invoice.pipeline.max-in-flight:32}")
+    private int maxInFlight;
+
+    @Value("${invoice.pipeline.submit-timeout-ms:30000}")
+    private long submitTimeoutMs;
+
+    private Stage render;
+    private Stage upload;
+    private Stage email;
+    private Semaphore room;
+
+    private final LongAdder rejected = new LongAdder();
+
+    private static final class InvoiceJob {
+        final Order order;
+        final User user;
+        Invoice invoice;
+        byte[] pdf;
+        boolean stored;
+
+        InvoiceJob(Order order, User user) {
+            this.order = order;
+            this.user = user;
+        }
+    }
+
+    private static final class Stage {
+        final String name;
+        final ThreadPoolExecutor executor;
+        final LongAdder completed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+
+        Stage(String name, int threads) {
+            this.name = name;
+            AtomicInteger count = new AtomicInteger();
+            // queue length is bounded by the pipeline's max-in-flight
+            this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                        Thread t = new Thread(r, "Invoice" + name + "-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+        }
+
+        CompletableFuture<InvoiceJob> then(CompletableFuture<InvoiceJob> input, UnaryOperator<InvoiceJob> work) {
+            return input.thenApplyAsync(job -> {
+                long start = System.nanoTime();
+                try {
+                    InvoiceJob result = work.apply(job);
+                    completed.increment();
+                    return result;
+                } catch (RuntimeException e) {
+                    failed.increment();
+                    throw e;
+                } finally {
+                    nanos.add(System.nanoTime() - start);
+                }
+            }, executor);
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        render = new Stage("Render", renderThreads);
+        upload = new Stage("Upload", uploadThreads);
+        email = new Stage("Email", emailThreads);
+        room = new Semaphore(maxInFlight);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        for (Stage stage : stages()) {
+            stage.executor.shutdown();
+        }
+        for (Stage stage : stages()) {
+            stage.executor.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Starts generating and emailing the order's invoice.
+     * @throws RejectedExecutionException if the pipeline stayed full for submit-timeout-ms
+     */
+    public CompletableFuture<Invoice> submit(Order order, User user) {
+        return submit(order, user, submitTimeoutMs);
+    }
+
+    /**
+     * Same as {@link #submit(Order, User)}, waiting for room no longer than maxWaitMs.
+     */
+    public CompletableFuture<Invoice> submit(Order order, User user, long maxWaitMs) {
+        try {
+            if (!room.tryAcquire(Math.min(maxWaitMs, submitTimeoutMs), TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new RejectedExecutionException("Invoice pipeline is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for the invoice pipeline", e);
+        }
+        CompletableFuture<InvoiceJob> job = CompletableFuture.completedFuture(new InvoiceJob(order, user));
+        return email.then(upload.then(render.then(job, this::render), this::upload), this::email)
+                .whenComplete((done, error) -> room.release())
+                .thenApply(done -> done.invoice);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Stage stage : stages()) {
+            String name = stage.name.toLowerCase();
+            FunctionTimer.builder("invoice.pipeline.stage", stage, s -> s.completed.sum() + s.failed.sum(),
+                            s -> s.nanos.sum(), TimeUnit.NANOSECONDS)
+                    .tag("stage", name).register(registry);
+            FunctionCounter.builder("invoice.pipeline.stage.failures", stage, s -> s.failed.sum())
+                    .tag("stage", name).register(registry);
+            Gauge.builder("invoice.pipeline.stage.queued", stage, s -> s.executor.getQueue().size())
+                    .tag("stage", name).register(registry);
+        }
+        Gauge.builder("invoice.pipeline.in-flight", this, p -> maxInFlight - p.room.availablePermits())
+                .register(registry);
+        FunctionCounter.builder("invoice.pipeline.rejected", rejected, LongAdder::sum).register(registry);
+    }
+
+    private List<Stage> stages() {
+        return List.of(render, upload, email);
+    }
+
+    private InvoiceJob render(InvoiceJob job) {
+        Invoice existing = invoiceRepository.findByOrderId(job.order.getId()).orElse(null);
+        if (existing != null) {
+            job.invoice = existing;
+            job.stored = true;
+            return job;
+        }
+        job.invoice = invoiceService.newInvoice(job.order, job.user);
+        job.pdf = invoiceService.renderInvoicePdf(job.order, job.user, job.invoice);
+        return job;
+    }
+
+    private InvoiceJob upload(InvoiceJob job) {
+        if (!job.stored) {
+            Invoice stored = invoiceService.storeInvoice(job.invoice, job.pdf);
+            if (!stored.getInvoiceNumber().equals(job.invoice.getInvoiceNumber())) {
+                // another node stored the order's invoice first; that one is emailed
+                job.pdf = invoiceService.downloadInvoicePdf(stored.getId());
+            }
+            job.invoice = stored;
+            job.stored = true;
+        } else if (!job.invoice.isEmailedToCustomer() || !job.invoice.isEmailedToAdmin()) {
+            // a retry of an invoice generated earlier
+            job.pdf = invoiceService.downloadInvoicePdf(job.invoice.getId());
+        }
+        return job;
+    }
+
+    private InvoiceJob email(InvoiceJob job) {
+        Invoice invoice = job.invoice;
+        if (!invoice.isEmailedToCustomer()) {
+            emailService.sendInvoiceToCustomer(invoice, job.user, job.pdf);
+            invoice.setEmailedToCustomer(true);
+            job.invoice = invoice = invoiceRepository.save(invoice);
+        }
+        if (!invoice.isEmailedToAdmin()) {
+            emailService.sendInvoiceToAdmin(invoice, job.user, job.pdf);
+            invoice.setEmailedToAdmin(true);
+            job.invoice = invoiceRepository.save(invoice);
+        }
+        log.info("Invoice {} generated and emailed for order {}", invoice.getInvoiceNumber(), job.order.getId());
+        return job;
+    }
+}
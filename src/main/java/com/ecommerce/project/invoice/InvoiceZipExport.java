@@ -0,0 +1,172 @@
+package com.ecommerce.project.invoice;
+
+import com.ecommerce.project.entity.Invoice;
+import com.ecommerce.project.service.StorageService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes invoice PDFs as a ZIP archive straight to a response stream.
+ *
+ * Invoices are read from a Mongo cursor and each PDF is piped from its R2
+ * stream into the archive, so memory use does not grow with the export. To
+ * hide R2's per-request latency, the next few PDFs (prefetch) are already
+ * being requested while the current one is written; entries stay in cursor
+ * order.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InvoiceZipExport {
+
+    private final MongoTemplate mongoTemplate;
+    private final StorageService storageService;
+
+    @Value("${invoice.export.prefetch:8}")
+    private int prefetch;
+
+    private ExecutorService opener;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger count = new AtomicInteger();
+        opener = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "InvoiceExport-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        opener.shutdownNow();
+    }
+
+    /**
+     * @param from   first invoice date to include, or null
+     * @param to     last invoice date to include, or null
+     * @param userId only this customer's invoices, or null for all
+     */
+    public void write(LocalDate from, LocalDate to, String userId, OutputStream out) throws IOException {
+        Criteria criteria = new Criteria();
+        if (from != null || to != null) {
+            Criteria date = Criteria.where("invoiceDate");
+            if (from != null) {
+                date.gte(from.atStartOfDay());
+            }
+            if (to != null) {
+                date.lt(to.plusDays(1).atStartOfDay());
+            }
+            criteria.andOperator(date);
+        }
+        if (userId != null) {
+            criteria.and("userId").is(userId);
+        }
+        Query query = Query.query(criteria).with(Sort.by("invoiceDate", "_id"));
+
+        try (Stream<Invoice> invoices = mongoTemplate.stream(query, Invoice.class)) {
+            int written = write(invoices.iterator(), invoice -> storageService.openStream(invoice.getPdfPath()),
+                    out, prefetch, opener);
+            log.info("Exported {} invoices (from {}, to {}, user {})", written, from, to, userId);
+        }
+    }
+
+    /**
+     * @return the number of PDFs written; invoices whose PDF cannot be read are left out
+     */
+    static int write(Iterator<Invoice> invoices, Function<Invoice, InputStream> open, OutputStream out,
+                     int prefetch, ExecutorService opener) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        // PDFs are compressed already
+        zip.setLevel(Deflater.BEST_SPEED);
+        ArrayDeque<Pending> window = new ArrayDeque<>(prefetch);
+        Set<String> names = new HashSet<>();
+        int written = 0;
+        try {
+            while (true) {
+                while (window.size() < prefetch && invoices.hasNext()) {
+                    Invoice invoice = invoices.next();
+                    window.add(new Pending(invoice, CompletableFuture.supplyAsync(() -> open.apply(invoice), opener)));
+                }
+                Pending next = window.poll();
+                if (next == null) {
+                    break;
+                }
+                InputStream pdf = next.await();
+                if (pdf == null) {
+                    continue;
+                }
+                try (pdf) {
+                    String name = next.invoice().getInvoiceNumber() + ".pdf";
+                    if (!names.add(name)) {
+                        name = next.invoice().getInvoiceNumber() + "-" + next.invoice().getId() + ".pdf";
+                    }
+                    zip.putNextEntry(new ZipEntry(name));
+                    pdf.transferTo(zip);
+                    zip.closeEntry();
+                    written++;
+                }
+            }
+            zip.finish();
+            zip.flush();
+            return written;
+        } finally {
+            // the client went away or a write failed: close what was opened ahead
+            for (Pending pending : window) {
+                pending.discard();
+            }
+        }
+    }
+
+    private record Pending(Invoice invoice, CompletableFuture<InputStream> stream) {
+
+        InputStream await() throws IOException {
+            try {
+                return stream.get();
+            } catch (ExecutionException e) {
+                log.error("Failed to add invoice to zip: {}", invoice.getInvoiceNumber(), e.getCause());
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while exporting invoices", e);
+            }
+        }
+
+        void discard() {
+            stream.thenAccept(pdf -> {
+                try {
+                    pdf.close();
+                } catch (IOException ignored) {
+                    // nothing left to clean up
+                }
+            });
+        }
+    }
+}
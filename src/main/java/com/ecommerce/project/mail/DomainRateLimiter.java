@@ -0,0 +1,52 @@
+package com.ecommerce.project.mail;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket per recipient domain, so a burst of emails to one provider
+ * stays within what it accepts before it starts deferring or rejecting us.
+ * Limits are per node.
+ */
+class DomainRateLimiter {
+
+    private final double perSecond;
+    private final double burst;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    DomainRateLimiter(double perSecond, int burst) {
+        this.perSecond = perSecond;
+        this.burst = Math.max(1, burst);
+    }
+
+    /**
+     * Takes a token for the domain if one is available.
+     * @return 0 if taken, otherwise the nanoseconds until one will be
+     */
+    long tryAcquire(String domain) {
+        return buckets.computeIfAbsent(domain, d -> new Bucket(burst, System.nanoTime())).tryAcquire();
+    }
+
+    private final class Bucket {
+
+        private double tokens;
+        private long refilledAt;
+
+        Bucket(double tokens, long refilledAt) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+
+        synchronized long tryAcquire() {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - refilledAt) * perSecond / TimeUnit.SECONDS.toNanos(1));
+            refilledAt = now;
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / perSecond * TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+}
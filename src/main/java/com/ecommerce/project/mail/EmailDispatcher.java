@@ -0,0 +1,333 @@
+package com.ecommerce.project.mail;
+
+import com.ecommerce.project.entity.QueuedEmail;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends the emails of the {@link EmailQueue}.
+ *
+ * A few workers each claim a batch of due emails and send them one after the
+ * other over an SMTP connection they keep open, so the connection and TLS
+ * handshake are paid once per worker rather than once per email; a worker
+ * closes its connection after idle-close-seconds without work. Each recipient
+ * domain has a rate limit; emails over it are put back until the domain has
+ * room, without counting as an attempt. Failed emails are retried with
+ * exponential backoff and moved to the dead letters after max-attempts, or
+ * right away when the server rejects them permanently (5xx).
+ *
+ * A worker sends its batch only until lease-margin-seconds before the lease
+ * runs out and puts the rest back, so another node never claims an email the
+ * worker is still about to send. Delivery is at least once: a node stopping
+ * between sending an email and removing it from the queue sends it again once
+ * its lease runs out.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EmailDispatcher implements MeterBinder {
+
+    private static final Duration MAX_RETRY_DELAY = Duration.ofHours(1);
+
+    private final EmailQueue queue;
+    private final JavaMailSender mailSender;
+
+    @Value("${email.dispatch.workers:2}")
+    private int workers;
+
+    @Value("${email.dispatch.batch-size:50}")
+    private int batchSize;
+
+    @Value("${email.dispatch.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${email.dispatch.lease-seconds:120}")
+    private long leaseSeconds;
+
+    // a worker stops sending a batch this long before its lease runs out
+    @Value("${email.dispatch.lease-margin-seconds:30}")
+    private long leaseMarginSeconds;
+
+    @Value("${email.dispatch.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${email.dispatch.retry-delay-seconds:30}")
+    private long retryDelaySeconds;
+
+    @Value("${email.dispatch.idle-close-seconds:30}")
+    private long idleCloseSeconds;
+
+    @Value("${email.dispatch.domain-rate-per-second:10}")
+    private double domainRatePerSecond;
+
+    @Value("${email.dispatch.domain-burst:20}")
+    private int domainBurst;
+
+    private DomainRateLimiter rateLimiter;
+    private ExecutorService workerPool;
+    private volatile boolean running;
+
+    private final AtomicLong depth = new AtomicLong();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder sendNanos = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder postponed = new LongAdder();
+    private final LongAdder dead = new LongAdder();
+    private final LongAdder connections = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        rateLimiter = new DomainRateLimiter(domainRatePerSecond, domainBurst);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        AtomicInteger count = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "EmailDispatch-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            workerPool.execute(new Worker());
+        }
+        log.info("Email dispatcher started with {} workers", workers);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (workerPool != null) {
+            workerPool.shutdown();
+            if (!workerPool.awaitTermination(30, TimeUnit.SECONDS)) {
+                workerPool.shutdownNow();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${email.dispatch.depth-refresh-ms:10000}")
+    public void refreshDepth() {
+        try {
+            depth.set(queue.countPending());
+        } catch (Exception e) {
+            log.warn("Failed to count queued emails: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("email.queue.depth", depth, AtomicLong::get).register(registry);
+        FunctionTimer.builder("email.send", this, d -> d.sent.sum(), d -> d.sendNanos.sum(), TimeUnit.NANOSECONDS)
+                .register(registry);
+        FunctionCounter.builder("email.messages", retried, LongAdder::sum)
+                .tag("outcome", "retried").register(registry);
+        FunctionCounter.builder("email.messages", postponed, LongAdder::sum)
+                .tag("outcome", "rate-limited").register(registry);
+        FunctionCounter.builder("email.messages", dead, LongAdder::sum)
+                .tag("outcome", "dead").register(registry);
+        FunctionCounter.builder("email.smtp.connections", connections, LongAdder::sum).register(registry);
+    }
+
+    private final class Worker implements Runnable {
+
+        private Transport transport;
+        private long lastUsed;
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    boolean more;
+                    try {
+                        more = dispatchBatch(this);
+                    } catch (Exception e) {
+                        log.error("Email dispatch failed", e);
+                        more = false;
+                    }
+                    if (!more) {
+                        if (transport != null && System.nanoTime() - lastUsed > TimeUnit.SECONDS.toNanos(idleCloseSeconds)) {
+                            close();
+                        }
+                        Thread.sleep(pollIntervalMs);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                close();
+            }
+        }
+
+        void send(MimeMessage message) throws MessagingException {
+            if (!(mailSender instanceof JavaMailSenderImpl sender)) {
+                mailSender.send(message);
+                return;
+            }
+            boolean reused = transport != null;
+            if (!reused) {
+                connect(sender);
+            }
+            try {
+                transport.sendMessage(message, message.getAllRecipients());
+            } catch (SendFailedException e) {
+                throw e;
+            } catch (MessagingException e) {
+                if (!reused) {
+                    close();
+                    throw e;
+                }
+                // the server may have dropped a connection we kept open
+                close();
+                connect(sender);
+                transport.sendMessage(message, message.getAllRecipients());
+            } finally {
+                lastUsed = System.nanoTime();
+            }
+        }
+
+        private void connect(JavaMailSenderImpl sender) throws MessagingException {
+            transport = sender.getSession().getTransport(sender.getProtocol() != null ? sender.getProtocol() : "smtp");
+            transport.connect(sender.getHost(), sender.getPort(), sender.getUsername(), sender.getPassword());
+            connections.increment();
+        }
+
+        void close() {
+            if (transport != null) {
+                try {
+                    transport.close();
+                } catch (MessagingException e) {
+                    log.debug("Failed to close SMTP connection: {}", e.getMessage());
+                }
+                transport = null;
+            }
+        }
+    }
+
+    /**
+     * @return whether to claim the next batch right away: the batch was full and
+     *         some of it went out. A full batch that was all rate-limited or failed
+     *         waits for the poll interval, rather than being claimed again in a loop.
+     */
+    private boolean dispatchBatch(Worker worker) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(leaseSeconds - leaseMarginSeconds);
+        Instant leaseUntil = Instant.now().plusSeconds(leaseSeconds);
+        List<QueuedEmail> batch = queue.claim(batchSize, leaseUntil, UUID.randomUUID().toString());
+        List<String> done = new ArrayList<>(batch.size());
+        for (QueuedEmail email : batch) {
+            if (System.nanoTime() - deadline >= 0) {
+                // released without counting as an attempt, to be claimed again right away
+                queue.reschedule(email, Instant.now());
+                continue;
+            }
+            long wait = rateLimiter.tryAcquire(email.getDomain());
+            if (wait > 0) {
+                postponed.increment();
+                queue.reschedule(email, Instant.now().plusNanos(wait));
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                worker.send(toMimeMessage(email));
+                sendNanos.add(System.nanoTime() - start);
+                sent.increment();
+                done.add(email.getId());
+            } catch (Exception e) {
+                fail(email, e);
+            }
+        }
+        queue.remove(done);
+        return batch.size() == batchSize && !done.isEmpty();
+    }
+
+    private MimeMessage toMimeMessage(QueuedEmail email) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        boolean multipart = !email.getAttachments().isEmpty() || email.getHtml() != null;
+        MimeMessageHelper helper = new MimeMessageHelper(message, multipart, "UTF-8");
+        helper.setFrom(email.getFrom());
+        helper.setTo(email.getTo());
+        helper.setSubject(email.getSubject());
+        if (email.getHtml() != null) {
+            helper.setText(email.getText(), email.getHtml());
+        } else {
+            helper.setText(email.getText());
+        }
+        for (QueuedEmail.Attachment attachment : email.getAttachments()) {
+            helper.addAttachment(attachment.getName(), new ByteArrayResource(attachment.getData()),
+                    attachment.getContentType());
+        }
+        message.setSentDate(new Date());
+        message.saveChanges();
+        return message;
+    }
+
+    private void fail(QueuedEmail email, Exception error) {
+        email.setAttempts(email.getAttempts() + 1);
+        email.setLastError(String.valueOf(error.getMessage()));
+        if (permanent(error) || email.getAttempts() >= maxAttempts) {
+            dead.increment();
+            log.error("Giving up on email '{}' to {} after {} attempts", email.getSubject(), email.getTo(),
+                    email.getAttempts(), error);
+            queue.deadLetter(email);
+        } else {
+            retried.increment();
+            log.warn("Failed to send email '{}' to {} (attempt {}): {}", email.getSubject(), email.getTo(),
+                    email.getAttempts(), error.getMessage());
+            queue.reschedule(email, Instant.now().plus(retryDelay(email.getAttempts())));
+        }
+    }
+
+    // A 5xx reply to the recipient or the message will not change on retry
+    private static boolean permanent(Throwable error) {
+        for (Throwable e = error; e != null; ) {
+            int code = e instanceof SMTPAddressFailedException address ? address.getReturnCode()
+                    : e instanceof SMTPSendFailedException send ? send.getReturnCode() : 0;
+            if (code >= 500) {
+                return true;
+            }
+            e = e instanceof MessagingException messaging && messaging.getNextException() != null
+                    ? messaging.getNextException() : (e.getCause() != e ? e.getCause() : null);
+        }
+        return false;
+    }
+
+    private Duration retryDelay(int attempts) {
+        Duration delay = Duration.ofSeconds(retryDelaySeconds).multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : delay;
+    }
+}
@@ -0,0 +1,42 @@
+package com.ecommerce.project.mail;
+
+import com.ecommerce.project.entity.QueuedEmail;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Persistent queue of outgoing emails. Emails are claimed by setting their
+ * nextAttemptAt to the end of a lease, so an email claimed by a dispatcher
+ * that stops is claimed again once the lease runs out.
+ */
+public interface EmailQueue {
+
+    /**
+     * Adds an email. An email given an id is added only if no email with that id is queued.
+     */
+    void add(QueuedEmail email);
+
+    /**
+     * Claims up to limit emails that are due, oldest first.
+     * @param claim marks the emails as taken by this call; stored as claimedBy
+     */
+    List<QueuedEmail> claim(int limit, Instant leaseUntil, String claim);
+
+    /**
+     * Removes sent emails.
+     */
+    void remove(List<String> ids);
+
+    /**
+     * Releases a claimed email to be tried again at the given time; attempts and lastError are taken from the email.
+     */
+    void reschedule(QueuedEmail email, Instant nextAttemptAt);
+
+    /**
+     * Moves an email that cannot be delivered to the dead letters.
+     */
+    void deadLetter(QueuedEmail email);
+
+    long countPending();
+}
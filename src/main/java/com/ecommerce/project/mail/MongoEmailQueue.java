@@ -0,0 +1,89 @@
+package com.ecommerce.project.mail;
+
+import com.ecommerce.project.entity.QueuedEmail;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Keeps the queue in the email_queue collection and dead letters in
+ * email_dead_letters. Claims work like the outbox relay's: one query finds due
+ * ids, one update takes those still due, one query reads back what was taken.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MongoEmailQueue implements EmailQueue {
+
+    static final String DEAD_LETTERS = "email_dead_letters";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void add(QueuedEmail email) {
+        try {
+            mongoTemplate.insert(email);
+        } catch (DuplicateKeyException e) {
+            log.info("Email {} is already queued", email.getId());
+        }
+    }
+
+    @Override
+    public List<QueuedEmail> claim(int limit, Instant leaseUntil, String claim) {
+        Instant now = Instant.now();
+        Query due = Query.query(Criteria.where("nextAttemptAt").lte(now))
+                .with(Sort.by("nextAttemptAt"))
+                .limit(limit);
+        due.fields().include("_id");
+        List<String> ids = mongoTemplate.find(due, QueuedEmail.class).stream().map(QueuedEmail::getId).toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        // the nextAttemptAt condition makes each email go to one dispatcher only
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(ids).and("nextAttemptAt").lte(now)),
+                new Update().set("claimedBy", claim).set("nextAttemptAt", leaseUntil),
+                QueuedEmail.class);
+        return mongoTemplate.find(Query.query(Criteria.where("claimedBy").is(claim)), QueuedEmail.class);
+    }
+
+    @Override
+    public void remove(List<String> ids) {
+        if (!ids.isEmpty()) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), QueuedEmail.class);
+        }
+    }
+
+    @Override
+    public void reschedule(QueuedEmail email, Instant nextAttemptAt) {
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(email.getId()).and("claimedBy").is(email.getClaimedBy())),
+                new Update().set("nextAttemptAt", nextAttemptAt)
+                        .set("attempts", email.getAttempts())
+                        .set("lastError", email.getLastError())
+                        .unset("claimedBy"),
+                QueuedEmail.class);
+    }
+
+    @Override
+    public void deadLetter(QueuedEmail email) {
+        email.setClaimedBy(null);
+        email.setDeadAt(Instant.now());
+        mongoTemplate.save(email, DEAD_LETTERS);
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(email.getId())), QueuedEmail.class);
+    }
+
+    @Override
+    public long countPending() {
+        return mongoTemplate.count(new Query(), QueuedEmail.class);
+    }
+}
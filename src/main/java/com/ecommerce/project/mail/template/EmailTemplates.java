@@ -0,0 +1,59 @@
+package com.ecommerce.project.mail.template;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The email templates under templates/email, compiled at startup. A template
+ * named x has a text part x.txt and optionally an HTML part x.html.
+ */
+@Component
+@Slf4j
+public class EmailTemplates {
+
+    private static final String LOCATION = "classpath*:templates/email/";
+
+    private final Map<String, Template> text = new HashMap<>();
+    private final Map<String, Template> html = new HashMap<>();
+
+    public record Rendered(String text, String html) {}
+
+    @PostConstruct
+    void load() throws IOException {
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        for (Resource resource : resolver.getResources(LOCATION + "*.txt")) {
+            compile(resource, false, text);
+        }
+        for (Resource resource : resolver.getResources(LOCATION + "*.html")) {
+            compile(resource, true, html);
+        }
+        log.info("Compiled {} email templates ({} with an HTML part)", text.size(), html.size());
+    }
+
+    private static void compile(Resource resource, boolean isHtml, Map<String, Template> into) throws IOException {
+        String file = resource.getFilename();
+        String name = file.substring(0, file.lastIndexOf('.'));
+        String source = resource.getContentAsString(StandardCharsets.UTF_8);
+        into.put(name, Template.compile(file, source, isHtml));
+    }
+
+    /**
+     * Renders both parts of a template; html is null if the template has none.
+     */
+    public Rendered render(String name, Map<String, ?> model) {
+        Template textPart = text.get(name);
+        if (textPart == null) {
+            throw new IllegalArgumentException("No email template " + name);
+        }
+        Template htmlPart = html.get(name);
+        return new Rendered(textPart.render(model), htmlPart != null ? htmlPart.render(model) : null);
+    }
+}
@@ -0,0 +1,342 @@
+package com.ecommerce.project.mail.template;
+
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An email template, parsed once into a tree of text, value and section nodes.
+ *
+ * The syntax is a small subset of Mustache:
+ * <ul>
+ *   <li>{@code {{name}}} inserts a value, HTML-escaped in HTML templates;
+ *       {@code {{&name}}} inserts it as is. Dotted names look into nested maps.</li>
+ *   <li>{@code {{total|money}}}, {@code |date} and {@code |datetime} format
+ *       numbers as 2 decimals and dates as dd-MM-yyyy [HH:mm:ss].</li>
+ *   <li>{@code {{#name}}...{{/name}}} renders its content once per element of a
+ *       collection (with the element's keys in scope and {@code {{@number}}} its
+ *       1-based position), or once if the value is any other non-null, non-false
+ *       value; {@code {{^name}}...{{/name}}} renders it if the value is missing,
+ *       false or empty.</li>
+ *   <li>{@code {{! comment }}}</li>
+ * </ul>
+ * A section or comment tag alone on its line removes the whole line.
+ *
+ * Models are maps from names to strings, numbers, booleans, temporals, maps
+ * and collections of maps. Rendering appends to a per-thread buffer that is
+ * reused from one render to the next.
+ */
+public final class Template {
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private static final ThreadLocal<Buffer> BUFFERS = ThreadLocal.withInitial(Buffer::new);
+
+    private final String name;
+    private final boolean html;
+    private final List<Node> nodes;
+
+    private sealed interface Node permits Text, Value, Section {}
+
+    private record Text(String text) implements Node {}
+
+    private record Value(String[] path, Format format, boolean escape) implements Node {}
+
+    private record Section(String[] path, boolean inverted, List<Node> children) implements Node {}
+
+    private enum Format { NONE, MONEY, DATE, DATE_TIME }
+
+    private static final class Buffer {
+        StringBuilder out = new StringBuilder(4096);
+        boolean inUse;
+    }
+
+    private Template(String name, boolean html, List<Node> nodes) {
+        this.name = name;
+        this.html = html;
+        this.nodes = nodes;
+    }
+
+    /**
+     * @param html whether values are HTML-escaped
+     * @throws IllegalArgumentException if the source is malformed
+     */
+    public static Template compile(String name, String source, boolean html) {
+        Parser parser = new Parser(name, source);
+        List<Node> nodes = parser.parse(null);
+        return new Template(name, html, List.copyOf(nodes));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String render(Map<String, ?> model) {
+        Buffer buffer = BUFFERS.get();
+        if (buffer.inUse) {
+            // rendering from within a render: use a buffer of its own
+            StringBuilder out = new StringBuilder(1024);
+            render(model, out);
+            return out.toString();
+        }
+        buffer.inUse = true;
+        try {
+            StringBuilder out = buffer.out;
+            out.setLength(0);
+            render(model, out);
+            String result = out.toString();
+            if (out.capacity() > MAX_RETAINED_BUFFER) {
+                buffer.out = new StringBuilder(4096);
+            }
+            return result;
+        } finally {
+            buffer.inUse = false;
+        }
+    }
+
+    public void render(Map<String, ?> model, StringBuilder out) {
+        Scope scope = new Scope();
+        scope.push(model, 0);
+        render(nodes, scope, out);
+    }
+
+    private void render(List<Node> nodes, Scope scope, StringBuilder out) {
+        for (Node node : nodes) {
+            switch (node) {
+                case Text text -> out.append(text.text());
+                case Value value -> write(scope.lookup(value.path()), value, out);
+                case Section section -> renderSection(section, scope, out);
+            }
+        }
+    }
+
+    private void renderSection(Section section, Scope scope, StringBuilder out) {
+        Object value = scope.lookup(section.path());
+        boolean empty = value == null || Boolean.FALSE.equals(value)
+                || (value instanceof Collection<?> c && c.isEmpty())
+                || (value instanceof String s && s.isEmpty());
+        if (section.inverted()) {
+            if (empty) {
+                render(section.children(), scope, out);
+            }
+            return;
+        }
+        if (empty) {
+            return;
+        }
+        if (value instanceof Collection<?> elements) {
+            int number = 0;
+            for (Object element : elements) {
+                scope.push(element, ++number);
+                render(section.children(), scope, out);
+                scope.pop();
+            }
+        } else {
+            scope.push(value, scope.number());
+            render(section.children(), scope, out);
+            scope.pop();
+        }
+    }
+
+    private void write(Object value, Value node, StringBuilder out) {
+        if (value == null) {
+            return;
+        }
+        switch (node.format()) {
+            case MONEY -> appendMoney(((Number) value).doubleValue(), out);
+            case DATE -> DATE.formatTo((TemporalAccessor) value, out);
+            case DATE_TIME -> DATE_TIME.formatTo((TemporalAccessor) value, out);
+            case NONE -> {
+                String text = value.toString();
+                if (html && node.escape()) {
+                    appendEscaped(text, out);
+                } else {
+                    out.append(text);
+                }
+            }
+        }
+    }
+
+    // Same result as String.format("%.2f") in an English locale, without the Formatter
+    static void appendMoney(double amount, StringBuilder out) {
+        long cents = Math.round(Math.abs(amount) * 100);
+        if (amount < 0 && cents != 0) {
+            out.append('-');
+        }
+        out.append(cents / 100).append('.');
+        long fraction = cents % 100;
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+
+    private static void appendEscaped(String text, StringBuilder out) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&' -> out.append("&amp;");
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+
+    // The values in scope, innermost section last
+    private static final class Scope {
+
+        private Object[] frames = new Object[8];
+        private int[] numbers = new int[8];
+        private int depth;
+
+        void push(Object frame, int number) {
+            if (depth == frames.length) {
+                frames = Arrays.copyOf(frames, depth * 2);
+                numbers = Arrays.copyOf(numbers, depth * 2);
+            }
+            frames[depth] = frame;
+            numbers[depth++] = number;
+        }
+
+        void pop() {
+            frames[--depth] = null;
+        }
+
+        int number() {
+            return numbers[depth - 1];
+        }
+
+        Object lookup(String[] path) {
+            if (path.length == 1 && path[0].equals("@number")) {
+                return numbers[depth - 1];
+            }
+            if (path.length == 1 && path[0].equals(".")) {
+                return frames[depth - 1];
+            }
+            for (int i = depth - 1; i >= 0; i--) {
+                if (frames[i] instanceof Map<?, ?> map && map.containsKey(path[0])) {
+                    Object value = map.get(path[0]);
+                    for (int p = 1; p < path.length && value != null; p++) {
+                        value = value instanceof Map<?, ?> nested ? nested.get(path[p]) : null;
+                    }
+                    return value;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class Parser {
+
+        private final String name;
+        private final String source;
+        private int pos;
+
+        Parser(String name, String source) {
+            this.name = name;
+            this.source = source;
+        }
+
+        // Parses up to the closing tag of the given section, or to the end
+        List<Node> parse(String closing) {
+            List<Node> nodes = new ArrayList<>();
+            StringBuilder text = new StringBuilder();
+            while (pos < source.length()) {
+                int open = source.indexOf("{{", pos);
+                if (open < 0) {
+                    text.append(source, pos, source.length());
+                    pos = source.length();
+                    break;
+                }
+                boolean triple = source.startsWith("{{{", open);
+                int close = source.indexOf(triple ? "}}}" : "}}", open);
+                if (close < 0) {
+                    throw error("unclosed tag", open);
+                }
+                int end = close + (triple ? 3 : 2);
+                String tag = source.substring(open + (triple ? 3 : 2), close).trim();
+                char kind = triple ? '&' : tag.isEmpty() ? ' ' : tag.charAt(0);
+                if (kind == '#' || kind == '^' || kind == '/' || kind == '!') {
+                    int lineStart = source.lastIndexOf('\n', open - 1) + 1;
+                    int lineEnd = source.indexOf('\n', end);
+                    lineEnd = lineEnd < 0 ? source.length() : lineEnd + 1;
+                    if (source.substring(lineStart, open).isBlank() && source.substring(end, lineEnd).isBlank()
+                            && lineStart >= pos) {
+                        // standalone: drop the line
+                        text.append(source, pos, lineStart);
+                        end = lineEnd;
+                    } else {
+                        text.append(source, pos, open);
+                    }
+                } else {
+                    text.append(source, pos, open);
+                }
+                pos = end;
+                if (!text.isEmpty()) {
+                    nodes.add(new Text(text.toString()));
+                    text.setLength(0);
+                }
+                switch (kind) {
+                    case '!' -> { }
+                    case '#', '^' -> {
+                        String section = tag.substring(1).trim();
+                        nodes.add(new Section(section.split("\\."), kind == '^', List.copyOf(parse(section))));
+                    }
+                    case '/' -> {
+                        String section = tag.substring(1).trim();
+                        if (!section.equals(closing)) {
+                            throw error("unexpected {{/" + section + "}}", open);
+                        }
+                        return nodes;
+                    }
+                    case '&' -> nodes.add(value(triple ? tag : tag.substring(1).trim(), false, open));
+                    default -> nodes.add(value(tag, true, open));
+                }
+            }
+            if (closing != null) {
+                throw error("missing {{/" + closing + "}}", pos);
+            }
+            if (!text.isEmpty()) {
+                nodes.add(new Text(text.toString()));
+            }
+            return nodes;
+        }
+
+        private Value value(String tag, boolean escape, int at) {
+            int bar = tag.indexOf('|');
+            String path = bar < 0 ? tag : tag.substring(0, bar).trim();
+            if (path.isEmpty()) {
+                throw error("empty tag", at);
+            }
+            Format format = Format.NONE;
+            if (bar >= 0) {
+                format = switch (tag.substring(bar + 1).trim()) {
+                    case "money" -> Format.MONEY;
+                    case "date" -> Format.DATE;
+                    case "datetime" -> Format.DATE_TIME;
+                    default -> throw error("unknown format in {{" + tag + "}}", at);
+                };
+            }
+            return new Value(path.equals(".") ? new String[] {"."} : path.split("\\."), format, escape);
+        }
+
+        private IllegalArgumentException error(String message, int at) {
+            int line = 1;
+            for (int i = 0; i < at && i < source.length(); i++) {
+                if (source.charAt(i) == '\n') {
+                    line++;
+                }
+            }
+            return new IllegalArgumentException("Template " + name + ", line " + line + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.ecommerce.project.outbox;
+
+import com.ecommerce.project.entity.OutboxMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the messages in the outbox collection. A claim takes three round
+ * trips: one query finds due ids, one update takes those still due, and one
+ * query reads back, among those ids, the ones this claim took.
+ */
+@Component
+@RequiredArgsConstructor
+public class MongoOutboxStore implements OutboxStore {
+
+    // by name, so only the enum itself refers to the deprecated constants
+    private static final List<String> LEGACY_INVOICE_TYPES = List.of("INVOICE_TO_CUSTOMER", "INVOICE_TO_ADMIN");
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<OutboxMessage> claim(int limit, Instant leaseUntil, String claim) {
+        Instant now = Instant.now();
+        Query due = Query.query(Criteria.where("status").is(OutboxMessage.Status.PENDING)
+                        .and("nextAttemptAt").lte(now))
+                .with(Sort.by("nextAttemptAt"))
+                .limit(limit);
+        due.fields().include("_id");
+        List<String> ids = mongoTemplate.find(due, OutboxMessage.class).stream().map(OutboxMessage::getId).toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        // the nextAttemptAt condition makes each message go to one relay only
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(ids)
+                        .and("status").is(OutboxMessage.Status.PENDING)
+                        .and("nextAttemptAt").lte(now)),
+                new Update().set("claimedBy", claim).set("nextAttemptAt", leaseUntil),
+                OutboxMessage.class);
+        return mongoTemplate.find(Query.query(Criteria.where("_id").in(ids).and("claimedBy").is(claim)),
+                OutboxMessage.class);
+    }
+
+    @Override
+    public void remove(List<String> ids) {
+        if (!ids.isEmpty()) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), OutboxMessage.class);
+        }
+    }
+
+    @Override
+    public void reschedule(OutboxMessage message, Instant nextAttemptAt) {
+        mongoTemplate.updateFirst(claimed(message),
+                new Update().set("nextAttemptAt", nextAttemptAt)
+                        .set("attempts", message.getAttempts())
+                        .set("lastError", message.getLastError())
+                        .unset("claimedBy"),
+                OutboxMessage.class);
+    }
+
+    @Override
+    public void markDead(OutboxMessage message) {
+        mongoTemplate.updateFirst(claimed(message),
+                new Update().set("status", OutboxMessage.Status.DEAD)
+                        .set("attempts", message.getAttempts())
+                        .set("lastError", message.getLastError())
+                        .unset("claimedBy"),
+                OutboxMessage.class);
+    }
+
+    @Override
+    public int migrateLegacyInvoiceMessages() {
+        List<OutboxMessage> legacy = mongoTemplate.find(Query.query(Criteria.where("type").in(LEGACY_INVOICE_TYPES)
+                .and("status").is(OutboxMessage.Status.PENDING)), OutboxMessage.class);
+        Set<String> orderIds = new HashSet<>();
+        for (OutboxMessage message : legacy) {
+            Query query = Query.query(Criteria.where("_id").is(message.getId()).and("type").is(message.getType()));
+            if (orderIds.add(message.getOrderId())) {
+                mongoTemplate.updateFirst(query, Update.update("type", OutboxMessage.Type.INVOICE), OutboxMessage.class);
+            } else {
+                mongoTemplate.remove(query, OutboxMessage.class);
+            }
+        }
+        return legacy.size();
+    }
+
+    private static Query claimed(OutboxMessage message) {
+        return Query.query(Criteria.where("_id").is(message.getId()).and("claimedBy").is(message.getClaimedBy()));
+    }
+}
@@ -0,0 +1,52 @@
+package com.ecommerce.project.outbox;
+
+import com.ecommerce.project.entity.OutboxMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records the side effects of an order change for the {@link OutboxRelay}.
+ *
+ * Without multi-document transactions the messages are written before the
+ * order change they belong to, in one insert. If the order write then fails
+ * the messages are discarded; if the node dies in between, the relay finds the
+ * order not in the expected state and drops them once they are old enough.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class Outbox {
+
+    private final MongoTemplate mongoTemplate;
+
+    public List<OutboxMessage> add(String orderId, OutboxMessage.Type... types) {
+        List<OutboxMessage> messages = Arrays.stream(types)
+                .map(type -> new OutboxMessage(type, orderId))
+                .toList();
+        return List.copyOf(mongoTemplate.insertAll(messages));
+    }
+
+    /**
+     * Removes messages whose order change did not happen.
+     */
+    public void discard(List<OutboxMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        try {
+            mongoTemplate.remove(
+                    Query.query(Criteria.where("_id").in(messages.stream().map(OutboxMessage::getId).toList())),
+                    OutboxMessage.class);
+        } catch (Exception e) {
+            // the relay drops them later
+            log.warn("Failed to discard outbox messages: {}", e.getMessage());
+        }
+    }
+}
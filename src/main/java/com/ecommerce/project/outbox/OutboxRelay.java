@@ -0,0 +1,278 @@
+package com.ecommerce.project.outbox;
+
+import com.ecommerce.project.entity.Order;
+import com.ecommerce.project.entity.OutboxMessage;
+import com.ecommerce.project.entity.User;
+import com.ecommerce.project.exception.ResourceNotFoundException;
+import com.ecommerce.project.invoice.InvoicePipeline;
+import com.ecommerce.project.repository.OrderRepository;
+import com.ecommerce.project.repository.UserRepository;
+import com.ecommerce.project.service.EmailService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Carries out the side effects recorded in the {@link Outbox}.
+ *
+ * Due messages are claimed from the {@link OutboxStore} a batch at a time by
+ * pushing their nextAttemptAt out by a lease, so several nodes can relay side by side and the messages of
+ * a node that dies are picked up again once the lease runs out. The orders and
+ * users of a batch are loaded with one query each, and invoices are handed to
+ * the {@link InvoicePipeline} so that a batch's invoices are generated side by
+ * side. Handled messages are deleted together; failed ones are retried with
+ * exponential backoff and end up DEAD after max-attempts, while messages the
+ * full pipeline turned away simply come back later.
+ *
+ * The relay runs on a thread of its own, since a batch can wait on the
+ * pipeline for a long time. Messages are only started, and invoices only
+ * waited for, while the claim has lease-margin-seconds left; the rest of the
+ * batch is handed back, so another node never takes over messages still being
+ * handled here.
+ *
+ * Delivery is at least once: a node dying between sending an email and
+ * deleting its message sends it again.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRelay implements MeterBinder {
+
+    private static final Duration MAX_RETRY_DELAY = Duration.ofHours(1);
+
+    private final OutboxStore store;
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final EmailService emailService;
+    private final InvoicePipeline invoicePipeline;
+
+    @Value("${outbox.relay.batch-size:100}")
+    private int batchSize;
+
+    @Value("${outbox.relay.lease-seconds:120}")
+    private long leaseSeconds;
+
+    @Value("${outbox.relay.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${outbox.relay.retry-delay-seconds:10}")
+    private long retryDelaySeconds;
+
+    @Value("${outbox.relay.orphan-after-seconds:300}")
+    private long orphanAfterSeconds;
+
+    @Value("${outbox.relay.interval-ms:1000}")
+    private long intervalMs;
+
+    @Value("${outbox.relay.lease-margin-seconds:15}")
+    private long leaseMarginSeconds;
+
+    private ScheduledExecutorService timer;
+
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder dead = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private record Dispatch(OutboxMessage message, CompletableFuture<Boolean> outcome) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        try {
+            int migrated = store.migrateLegacyInvoiceMessages();
+            if (migrated > 0) {
+                log.info("Rewrote {} outbox messages of the old invoice types", migrated);
+            }
+        } catch (Exception e) {
+            // they are still relayed as INVOICE, only a pair of them may render the invoice twice
+            log.warn("Could not rewrite the old invoice outbox messages: {}", e.getMessage());
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "OutboxRelay");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleWithFixedDelay(this::relay, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (timer != null) {
+            // claimed messages not handled yet are relayed again after the lease
+            timer.shutdownNow();
+        }
+    }
+
+    public void relay() {
+        try {
+            int claimed;
+            do {
+                claimed = relayBatch();
+            } while (claimed == batchSize);
+        } catch (Exception e) {
+            log.error("Outbox relay failed", e);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("outbox.messages", dispatched, LongAdder::sum)
+                .tag("outcome", "dispatched").register(registry);
+        FunctionCounter.builder("outbox.messages", retried, LongAdder::sum)
+                .tag("outcome", "retried").register(registry);
+        FunctionCounter.builder("outbox.messages", dead, LongAdder::sum)
+                .tag("outcome", "dead").register(registry);
+        FunctionCounter.builder("outbox.messages", dropped, LongAdder::sum)
+                .tag("outcome", "dropped").register(registry);
+    }
+
+    private int relayBatch() {
+        // work on the batch stops lease-margin-seconds before its lease runs out
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(0, leaseSeconds - leaseMarginSeconds));
+        List<OutboxMessage> batch = claimBatch();
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        Set<String> orderIds = batch.stream().map(OutboxMessage::getOrderId).collect(Collectors.toSet());
+        Map<String, Order> orders = orderRepository.findAllById(orderIds).stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+        Set<String> userIds = orders.values().stream().map(Order::getUserId).collect(Collectors.toSet());
+        Map<String, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<Dispatch> dispatches = new ArrayList<>(batch.size());
+        for (OutboxMessage message : batch) {
+            CompletableFuture<Boolean> outcome;
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMs <= 0) {
+                // handed back for the next round rather than run past the lease
+                postpone(message);
+                continue;
+            }
+            try {
+                outcome = dispatch(message, orders.get(message.getOrderId()), users, remainingMs);
+            } catch (Exception e) {
+                outcome = CompletableFuture.failedFuture(e);
+            }
+            dispatches.add(new Dispatch(message, outcome));
+        }
+
+        // Invoices run in the pipeline meanwhile; wait for them within the claim's lease
+        List<String> finished = new ArrayList<>();
+        for (Dispatch dispatch : dispatches) {
+            OutboxMessage message = dispatch.message();
+            try {
+                if (dispatch.outcome().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    finished.add(message.getId());
+                } else {
+                    postpone(message);
+                }
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RejectedExecutionException) {
+                    postpone(message);
+                } else {
+                    fail(message, e.getCause());
+                }
+            } catch (TimeoutException e) {
+                // left claimed; it is retried when the lease runs out and skips what was done
+                log.warn("Outbox message {} ({}) for order {} still running after the lease",
+                        message.getId(), message.getType(), message.getOrderId());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        store.remove(finished);
+        return batch.size();
+    }
+
+    private List<OutboxMessage> claimBatch() {
+        return store.claim(batchSize, Instant.now().plusSeconds(leaseSeconds), UUID.randomUUID().toString());
+    }
+
+    /**
+     * @return completes with false if the order change the message belongs to is not visible yet
+     */
+    private CompletableFuture<Boolean> dispatch(OutboxMessage message, Order order, Map<String, User> users,
+                                                long maxWaitMs) {
+        boolean invoiceMessage = message.getType().isInvoice();
+        if (order == null || (invoiceMessage && order.getStatus() != Order.Status.delivered)) {
+            if (message.getCreatedAt().isBefore(Instant.now().minusSeconds(orphanAfterSeconds))) {
+                dropped.increment();
+                log.warn("Dropping outbox message {} ({}) for order {}: the order change never happened",
+                        message.getId(), message.getType(), message.getOrderId());
+                return CompletableFuture.completedFuture(true);
+            }
+            return CompletableFuture.completedFuture(false);
+        }
+        User user = users.get(order.getUserId());
+        if (user == null) {
+            throw new ResourceNotFoundException("User", "id", order.getUserId());
+        }
+
+        if (invoiceMessage) {
+            return invoicePipeline.submit(order, user, maxWaitMs).thenApply(invoice -> {
+                dispatched.increment();
+                return true;
+            });
+        }
+        switch (message.getType()) {
+            case ORDER_CONFIRMATION -> emailService.sendOrderConfirmationToCustomer(order, user);
+            case ORDER_NOTIFICATION -> emailService.sendOrderNotificationToAdmin(order, user);
+            default -> throw new IllegalStateException("Unexpected outbox message type " + message.getType());
+        }
+        dispatched.increment();
+        return CompletableFuture.completedFuture(true);
+    }
+
+    private void postpone(OutboxMessage message) {
+        store.reschedule(message, Instant.now().plusSeconds(retryDelaySeconds));
+    }
+
+    private void fail(OutboxMessage message, Throwable error) {
+        int attempts = message.getAttempts() + 1;
+        message.setAttempts(attempts);
+        message.setLastError(String.valueOf(error.getMessage()));
+        if (attempts >= maxAttempts) {
+            dead.increment();
+            log.error("Outbox message {} ({}) for order {} failed {} times, giving up",
+                    message.getId(), message.getType(), message.getOrderId(), attempts, error);
+            store.markDead(message);
+        } else {
+            retried.increment();
+            log.warn("Outbox message {} ({}) for order {} failed (attempt {}): {}",
+                    message.getId(), message.getType(), message.getOrderId(), attempts, error.getMessage());
+            store.reschedule(message, Instant.now().plus(retryDelay(attempts)));
+        }
+    }
+
+    private Duration retryDelay(int attempts) {
+        Duration delay = Duration.ofSeconds(retryDelaySeconds).multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : delay;
+    }
+}
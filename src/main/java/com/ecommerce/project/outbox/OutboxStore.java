@@ -0,0 +1,44 @@
+package com.ecommerce.project.outbox;
+
+import com.ecommerce.project.entity.OutboxMessage;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Outbox messages as the relay handles them. Messages are claimed by setting
+ * their nextAttemptAt to the end of a lease, so a message claimed by a relay
+ * that stops is claimed again once the lease runs out. Changes to a claimed
+ * message only apply while its claim still holds.
+ */
+public interface OutboxStore {
+
+    /**
+     * Claims up to limit pending messages that are due, oldest first.
+     * @param claim marks the messages as taken by this call; stored as claimedBy
+     */
+    List<OutboxMessage> claim(int limit, Instant leaseUntil, String claim);
+
+    /**
+     * Removes handled messages.
+     */
+    void remove(List<String> ids);
+
+    /**
+     * Releases a claimed message to be tried again at the given time; attempts and lastError are taken from the message.
+     */
+    void reschedule(OutboxMessage message, Instant nextAttemptAt);
+
+    /**
+     * Leaves a claimed message DEAD for inspection; attempts and lastError are taken from the message.
+     */
+    void markDead(OutboxMessage message);
+
+    /**
+     * Messages written before invoices became one message come as a pair per order,
+     * one per email. The first of each pair becomes an INVOICE message and the other
+     * is deleted; the pipeline sends whichever of the two emails is still missing.
+     * @return the number of messages rewritten or deleted
+     */
+    int migrateLegacyInvoiceMessages();
+}
@@ -0,0 +1,15 @@
+package com.ecommerce.project.pagination;
+
+import org.springframework.data.domain.Sort;
+
+/**
+ * A keyset page request: sort field and direction, page size and the opaque
+ * cursor returned with the previous page (blank for the first page).
+ */
+public record CursorRequest(String sortBy, Sort.Direction direction, int size, String cursor) {
+
+    public static CursorRequest of(String sortBy, String sortDirection, Integer size, String cursor) {
+        Sort.Direction direction = sortDirection.equalsIgnoreCase("DESC") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return new CursorRequest(sortBy, direction, size != null ? size : 20, cursor);
+    }
+}
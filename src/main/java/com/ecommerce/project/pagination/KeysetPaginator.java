@@ -0,0 +1,135 @@
+package com.ecommerce.project.pagination;
+
+import com.ecommerce.project.dto.CursorPageDTO;
+import com.ecommerce.project.exception.BadRequestException;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Keyset ("seek") pagination over a Mongo collection.
+ *
+ * Pages are ordered by the requested field with _id as tie breaker. Instead of
+ * skipping N documents, the next page starts right after the (sort value, _id)
+ * of the last document of the previous page, which an index on (field, _id)
+ * resolves directly, so page 1000 costs the same as page 1. No total count is
+ * computed; one extra document is read to know whether another page exists.
+ *
+ * The cursor handed to clients is the Base64 of the extended JSON of that
+ * position (keeping BSON types such as dates and ObjectIds) plus the sort it
+ * belongs to.
+ */
+@Component
+@RequiredArgsConstructor
+public class KeysetPaginator {
+
+    private static final JsonWriterSettings CURSOR_JSON = JsonWriterSettings.builder()
+            .outputMode(JsonMode.EXTENDED)
+            .build();
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * @param filter optional criteria restricting the listing, e.g. a user id
+     */
+    public <T> CursorPageDTO<T> page(Class<T> type, Criteria filter, CursorRequest request) {
+        if (request.size() < 1) {
+            throw new BadRequestException("Page size must be at least 1");
+        }
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(type);
+        MongoPersistentProperty property = entity.getPersistentProperty(request.sortBy());
+        if (property == null) {
+            throw new BadRequestException("Cannot sort by " + request.sortBy());
+        }
+        String sortField = property.isIdProperty() ? "_id" : property.getFieldName();
+        Sort.Direction direction = request.direction();
+
+        Query query = new Query();
+        if (filter != null) {
+            query.addCriteria(filter);
+        }
+        if (request.cursor() != null && !request.cursor().isBlank()) {
+            Document position = decode(request.cursor());
+            if (!sameSort(position, sortField, direction)) {
+                throw new BadRequestException("Cursor does not belong to this sort order");
+            }
+            query.addCriteria(seek(sortField, direction, position.get("v"), position.get("i")));
+        }
+        Sort sort = sortField.equals("_id")
+                ? Sort.by(direction, "_id")
+                : Sort.by(direction, sortField).and(Sort.by(direction, "_id"));
+        query.with(sort).limit(request.size() + 1);
+
+        List<T> rows = mongoTemplate.find(query, type);
+        boolean hasNext = rows.size() > request.size();
+        List<T> content = hasNext ? rows.subList(0, request.size()) : rows;
+        String nextCursor = hasNext ? encode(sortField, direction, content.get(content.size() - 1)) : null;
+        return new CursorPageDTO<>(List.copyOf(content), request.size(), hasNext, nextCursor);
+    }
+
+    private String encode(String sortField, Sort.Direction direction, Object last) {
+        Document stored = new Document();
+        mongoTemplate.getConverter().write(last, stored);
+        return encodeCursor(sortField, direction, stored.get(sortField), stored.get("_id"));
+    }
+
+    static String encodeCursor(String sortField, Sort.Direction direction, Object value, Object id) {
+        Document position = new Document("f", sortField)
+                .append("d", direction.name())
+                .append("v", value)
+                .append("i", id);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(position.toJson(CURSOR_JSON).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Document decode(String cursor) {
+        try {
+            return Document.parse(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Everything strictly after (value, id) in the given order. Mongo sorts
+     * null/missing values first, so they need their own branches.
+     */
+    static Criteria seek(String sortField, Sort.Direction direction, Object value, Object id) {
+        boolean ascending = direction.isAscending();
+        if (sortField.equals("_id")) {
+            return ascending ? Criteria.where("_id").gt(id) : Criteria.where("_id").lt(id);
+        }
+        Criteria sameValue = ascending
+                ? Criteria.where(sortField).is(value).and("_id").gt(id)
+                : Criteria.where(sortField).is(value).and("_id").lt(id);
+        if (value == null) {
+            return ascending
+                    ? new Criteria().orOperator(Criteria.where(sortField).ne(null), sameValue)
+                    : sameValue;
+        }
+        if (ascending) {
+            return new Criteria().orOperator(Criteria.where(sortField).gt(value), sameValue);
+        }
+        return new Criteria().orOperator(Criteria.where(sortField).lt(value), sameValue,
+                Criteria.where(sortField).is(null));
+    }
+
+    static boolean sameSort(Document position, String sortField, Sort.Direction direction) {
+        return Objects.equals(position.getString("f"), sortField)
+                && Objects.equals(position.getString("d"), direction.name());
+    }
+}
@@ -0,0 +1,274 @@
+package com.ecommerce.project.reminder;
+
+import com.ecommerce.project.entity.ReminderSchedule;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps reminders in reminder_schedules, shard leases in reminder_shards, one
+ * document per leased shard: {_id: shard, owner, leaseUntil}, and node
+ * heartbeats in reminder_nodes: {_id: node, aliveUntil}. A lease is
+ * taken with a findAndModify conditioned on the lease being free, expired or
+ * the node's own, so two nodes never hold the same shard. Reminders are
+ * scheduled with upserts against a unique index on pending (userId, type), so
+ * concurrent cart adds end up in the same reminder.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MongoReminderStore implements ReminderStore {
+
+    static final String SHARDS = "reminder_shards";
+    static final String NODES = "reminder_nodes";
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Scheduling relies on the unique index for one pending reminder per user and
+     * type. Before it is built, reminders of the single product layout are moved
+     * to productIds and duplicate pending reminders are merged.
+     */
+    public void prepareUniquePendingIndex() {
+        long moved = migrateProductIds();
+        int merged = mergeDuplicatePending();
+        if (moved > 0 || merged > 0) {
+            log.info("Moved {} reminders to productIds and merged {} duplicate pending reminders", moved, merged);
+        }
+    }
+
+    /**
+     * Folds the productId of reminders scheduled before they were coalesced into productIds.
+     * @return the number of reminders changed
+     */
+    long migrateProductIds() {
+        AggregationOperation set = context -> new Document("$set", new Document("productIds", new Document("$setUnion",
+                List.of(new Document("$ifNull", List.of("$productIds", List.of())), List.of("$productId")))));
+        AggregationOperation unset = context -> new Document("$unset", "productId");
+        return mongoTemplate.updateMulti(Query.query(Criteria.where("productId").ne(null)),
+                AggregationUpdate.from(List.of(set, unset)), ReminderSchedule.class).getModifiedCount();
+    }
+
+    /**
+     * Merges the pending reminders of a user and type into the one due first,
+     * which takes the products of the others; the others are deleted.
+     * @return the number of reminders deleted
+     */
+    int mergeDuplicatePending() {
+        Aggregation duplicates = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("status").is(ReminderSchedule.ReminderStatus.PENDING.name())),
+                Aggregation.group("userId", "type").push("_id").as("ids").count().as("count"),
+                Aggregation.match(Criteria.where("count").gt(1)));
+        int merged = 0;
+        for (Document group : mongoTemplate.aggregate(duplicates, ReminderSchedule.class, Document.class)) {
+            List<ReminderSchedule> reminders = mongoTemplate.find(Query.query(Criteria.where("_id").in(group.getList("ids", Object.class))
+                            .and("status").is(ReminderSchedule.ReminderStatus.PENDING))
+                    .with(Sort.by("scheduledAt", "_id")), ReminderSchedule.class);
+            if (reminders.size() < 2) {
+                continue;
+            }
+            List<ReminderSchedule> others = reminders.subList(1, reminders.size());
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(reminders.get(0).getId())),
+                    new Update().addToSet("productIds")
+                            .each(others.stream().flatMap(r -> r.getProductIds().stream()).distinct().toArray()),
+                    ReminderSchedule.class);
+            merged += (int) mongoTemplate.remove(Query.query(Criteria.where("_id").in(others.stream().map(ReminderSchedule::getId).toList())
+                    .and("status").is(ReminderSchedule.ReminderStatus.PENDING)), ReminderSchedule.class).getDeletedCount();
+        }
+        return merged;
+    }
+
+    @Override
+    public ReminderSchedule schedule(String userId, String productId, ReminderSchedule.ReminderType type, int shard,
+                                     Instant scheduledAt, Instant coalesceSince) {
+        Criteria pending = Criteria.where("userId").is(userId).and("type").is(type)
+                .and("status").is(ReminderSchedule.ReminderStatus.PENDING);
+        while (true) {
+            ReminderSchedule recent = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("createdAt").gte(coalesceSince).andOperator(pending)),
+                    new Update().addToSet("productIds", productId).max("scheduledAt", scheduledAt),
+                    FindAndModifyOptions.options().returnNew(true), ReminderSchedule.class);
+            if (recent != null) {
+                return recent;
+            }
+            try {
+                return mongoTemplate.findAndModify(Query.query(pending),
+                        new Update().addToSet("productIds", productId)
+                                .setOnInsert("shard", shard)
+                                .setOnInsert("scheduledAt", scheduledAt)
+                                .setOnInsert("createdAt", Instant.now()),
+                        FindAndModifyOptions.options().upsert(true).returnNew(true), ReminderSchedule.class);
+            } catch (DuplicateKeyException e) {
+                // another request created it first; add to that one
+            }
+        }
+    }
+
+    @Override
+    public void unschedule(String userId, String productId, ReminderSchedule.ReminderType type) {
+        Criteria pending = Criteria.where("userId").is(userId).and("type").is(type)
+                .and("status").is(ReminderSchedule.ReminderStatus.PENDING);
+        mongoTemplate.updateFirst(Query.query(pending), new Update().pull("productIds", productId),
+                ReminderSchedule.class);
+        // a reminder written by a node still on the single product layout
+        mongoTemplate.updateFirst(Query.query(Criteria.where("productId").is(productId).andOperator(pending)),
+                new Update().unset("productId"), ReminderSchedule.class);
+        mongoTemplate.remove(Query.query(new Criteria().andOperator(pending, Criteria.where("productId").isNull(),
+                new Criteria().orOperator(Criteria.where("productIds").size(0), Criteria.where("productIds").exists(false)))),
+                ReminderSchedule.class);
+    }
+
+    @Override
+    public List<ReminderSchedule> findDue(Set<Integer> shards, Instant dueBy, Instant now) {
+        if (shards.isEmpty()) {
+            return List.of();
+        }
+        List<Integer> owned = new ArrayList<>(shards);
+        if (shards.contains(0)) {
+            // reminders scheduled before they had a shard
+            owned.add(null);
+        }
+        Query due = Query.query(new Criteria().orOperator(
+                Criteria.where("status").is(ReminderSchedule.ReminderStatus.PENDING)
+                        .and("shard").in(owned).and("scheduledAt").lte(dueBy),
+                // claimed by a node that stopped before finishing
+                Criteria.where("status").is(ReminderSchedule.ReminderStatus.SENDING)
+                        .and("shard").in(owned).and("claimedUntil").lt(now)));
+        due.fields().include("_id").include("userId").include("scheduledAt");
+        return mongoTemplate.find(due, ReminderSchedule.class);
+    }
+
+    @Override
+    public List<ReminderSchedule> claim(Collection<String> ids, String claim, Instant now, Instant leaseUntil) {
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(ids).orOperator(
+                        // not pushed back since it was loaded
+                        Criteria.where("status").is(ReminderSchedule.ReminderStatus.PENDING).and("scheduledAt").lte(now),
+                        Criteria.where("status").is(ReminderSchedule.ReminderStatus.SENDING)
+                                .and("claimedUntil").lt(now))),
+                new Update().set("status", ReminderSchedule.ReminderStatus.SENDING)
+                        .set("claimedBy", claim)
+                        .set("claimedUntil", leaseUntil),
+                ReminderSchedule.class);
+        return mongoTemplate.find(Query.query(Criteria.where("_id").in(ids).and("claimedBy").is(claim)),
+                ReminderSchedule.class);
+    }
+
+    @Override
+    public void complete(String claim, Map<String, ReminderSchedule.ReminderStatus> statuses, Instant sentAt) {
+        if (statuses.isEmpty()) {
+            return;
+        }
+        Map<ReminderSchedule.ReminderStatus, List<String>> byStatus = new EnumMap<>(ReminderSchedule.ReminderStatus.class);
+        statuses.forEach((id, status) -> byStatus.computeIfAbsent(status, s -> new ArrayList<>()).add(id));
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ReminderSchedule.class);
+        byStatus.forEach((status, ids) -> {
+            Update update = new Update().set("status", status).unset("claimedBy").unset("claimedUntil");
+            if (status == ReminderSchedule.ReminderStatus.SENT) {
+                update.set("sentAt", sentAt);
+            }
+            bulk.updateMulti(Query.query(Criteria.where("_id").in(ids).and("claimedBy").is(claim)), update);
+        });
+        bulk.execute();
+    }
+
+    @Override
+    public void reschedule(String claim, List<ReminderSchedule> reminders) {
+        for (ReminderSchedule reminder : reminders) {
+            Query claimed = Query.query(Criteria.where("_id").is(reminder.getId()).and("claimedBy").is(claim));
+            while (true) {
+                try {
+                    mongoTemplate.updateFirst(claimed, new Update()
+                            .set("status", ReminderSchedule.ReminderStatus.PENDING)
+                            .set("scheduledAt", reminder.getScheduledAt())
+                            .set("attempts", reminder.getAttempts())
+                            .unset("claimedBy").unset("claimedUntil"), ReminderSchedule.class);
+                    break;
+                } catch (DuplicateKeyException e) {
+                    // the user added a product while this one was being sent
+                    List<String> productIds = new ArrayList<>(reminder.getProductIds());
+                    if (reminder.getProductId() != null) {
+                        productIds.add(reminder.getProductId());
+                    }
+                    Criteria pending = Criteria.where("userId").is(reminder.getUserId()).and("type").is(reminder.getType())
+                            .and("status").is(ReminderSchedule.ReminderStatus.PENDING);
+                    if (mongoTemplate.updateFirst(Query.query(pending),
+                            new Update().addToSet("productIds").each(productIds.toArray()),
+                            ReminderSchedule.class).getMatchedCount() > 0) {
+                        mongoTemplate.updateFirst(claimed, new Update()
+                                .set("status", ReminderSchedule.ReminderStatus.CANCELLED)
+                                .unset("claimedBy").unset("claimedUntil"), ReminderSchedule.class);
+                        break;
+                    }
+                    // claimed since; try again to put this one back
+                }
+            }
+        }
+    }
+
+    @Override
+    public Set<String> heartbeat(String node, Instant now, Instant aliveUntil) {
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(node)),
+                Update.update("aliveUntil", Date.from(aliveUntil)), NODES);
+        mongoTemplate.remove(Query.query(Criteria.where("aliveUntil").lte(now)), NODES);
+        Set<String> nodes = new HashSet<>();
+        mongoTemplate.find(new Query(), Document.class, NODES).forEach(alive -> nodes.add(alive.getString("_id")));
+        nodes.add(node);
+        return nodes;
+    }
+
+    @Override
+    public Map<Integer, String> shardOwners(Instant now) {
+        Map<Integer, String> owners = new HashMap<>();
+        for (Document lease : mongoTemplate.find(Query.query(Criteria.where("leaseUntil").gt(now)),
+                Document.class, SHARDS)) {
+            owners.put(lease.getInteger("_id"), lease.getString("owner"));
+        }
+        return owners;
+    }
+
+    @Override
+    public boolean leaseShard(int shard, String node, Instant now, Instant leaseUntil) {
+        try {
+            Document lease = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("_id").is(shard).orOperator(
+                            Criteria.where("owner").is(node),
+                            Criteria.where("leaseUntil").lte(now))),
+                    new Update().set("owner", node).set("leaseUntil", Date.from(leaseUntil)),
+                    FindAndModifyOptions.options().upsert(true).returnNew(true),
+                    Document.class, SHARDS);
+            return lease != null;
+        } catch (DuplicateKeyException e) {
+            // held by another node: the upsert tried to insert a second lease
+            return false;
+        }
+    }
+
+    @Override
+    public void releaseShard(int shard, String node) {
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(shard).and("owner").is(node)), SHARDS);
+    }
+}
@@ -0,0 +1,88 @@
+package com.ecommerce.project.reminder;
+
+import com.ecommerce.project.entity.ReminderSchedule;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reminder documents and the leases on reminder shards.
+ *
+ * Reminders are split into shards by a hash of their userId, and each shard is
+ * leased to one node at a time, which is the only node loading its reminders.
+ * Nodes heartbeat so that one without shards yet counts when sharing them out.
+ * A reminder is still claimed on its own before it is sent (PENDING to
+ * SENDING with a lease), so a shard changing hands never sends a reminder
+ * twice.
+ */
+public interface ReminderStore {
+
+    /**
+     * Adds a product to the user's pending reminder of the type, creating the
+     * reminder if there is none, in one upsert; a unique index on pending
+     * (userId, type) keeps it to one reminder per user and type. A reminder
+     * created at or after coalesceSince is pushed back to scheduledAt, so it
+     * goes out once the user stops adding; an older one keeps its time.
+     * @return the reminder as it is now
+     */
+    ReminderSchedule schedule(String userId, String productId, ReminderSchedule.ReminderType type, int shard,
+                              Instant scheduledAt, Instant coalesceSince);
+
+    /**
+     * Takes a product off the user's pending reminder of the type, deleting the reminder if it was the last.
+     */
+    void unschedule(String userId, String productId, ReminderSchedule.ReminderType type);
+
+    /**
+     * Ids, userIds and scheduledAt of the reminders of the given shards that are pending
+     * and due by the given time, or sending with a lease that ran out.
+     */
+    List<ReminderSchedule> findDue(Set<Integer> shards, Instant dueBy, Instant now);
+
+    /**
+     * Claims the given reminders that are pending and due, or sending with a lease that ran out.
+     * @param claim marks the reminders as taken by this call; stored as claimedBy
+     * @return the reminders claimed
+     */
+    List<ReminderSchedule> claim(Collection<String> ids, String claim, Instant now, Instant leaseUntil);
+
+    /**
+     * Moves reminders still held by the claim to their new status and drops the claim, in one round trip.
+     * @param sentAt set on the reminders moved to SENT
+     */
+    void complete(String claim, Map<String, ReminderSchedule.ReminderStatus> statuses, Instant sentAt);
+
+    /**
+     * Puts reminders still held by the claim back to PENDING, to be sent again at
+     * their scheduledAt; attempts are taken from the reminders. There is only one
+     * pending reminder per user and type, so a reminder whose user has started a
+     * new one while it was being sent has its products added to that one instead
+     * and is cancelled.
+     */
+    void reschedule(String claim, List<ReminderSchedule> reminders);
+
+    /**
+     * Records that the node is alive until the given time.
+     * @return the nodes alive now, this one included
+     */
+    Set<String> heartbeat(String node, Instant now, Instant aliveUntil);
+
+    /**
+     * The owner of each shard whose lease has not run out.
+     */
+    Map<Integer, String> shardOwners(Instant now);
+
+    /**
+     * Takes or renews the lease on a shard, if it is free, expired or already the node's.
+     * @return whether the node holds the lease
+     */
+    boolean leaseShard(int shard, String node, Instant now, Instant leaseUntil);
+
+    /**
+     * Gives up a shard held by the node.
+     */
+    void releaseShard(int shard, String node);
+}
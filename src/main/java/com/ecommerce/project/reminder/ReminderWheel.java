@@ -0,0 +1,386 @@
+package com.ecommerce.project.reminder;
+
+import com.ecommerce.project.entity.Product;
+import com.ecommerce.project.entity.ReminderSchedule;
+import com.ecommerce.project.entity.User;
+import com.ecommerce.project.repository.ProductRepository;
+import com.ecommerce.project.repository.UserRepository;
+import com.ecommerce.project.service.EmailService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Sends cart and wishlist reminders close to their scheduledAt.
+ *
+ * Reminders are split into shards by a hash of their userId, and each node
+ * leases an even share of the shards: as many as the shard count divided by
+ * the live nodes, rounded up. A node gives back shards beyond its
+ * share when another node joins, and picks up the shards of a node that
+ * stopped once their leases run out, so the work follows the number of nodes.
+ *
+ * Reminders of the node's shards due within the wheel's horizon (an hour with
+ * the defaults) are held in a {@link TimingWheel} and expire within a tick of
+ * their time. The wheel is refilled from Mongo every refill-interval with one
+ * query over (status, shard, scheduledAt) that reads only ids, users and times;
+ * reminders scheduled on this node are added right away. Nothing lives only in
+ * memory, so a restart just refills the wheel, overdue reminders included.
+ *
+ * Due reminders are handled in batches of batch-size. A batch is claimed by
+ * moving it from PENDING to SENDING with a lease, so each reminder is sent
+ * once even while a shard changes hands; its users and products are loaded
+ * with one query each, a user with several reminders in the batch gets one
+ * digest email, and the new statuses are written in one bulk write. Emails
+ * are queued under an id derived from the reminders, which are then marked
+ * SENT. If a node stops in between, the reminder is claimed again once
+ * the lease runs out, and the email id keeps a second copy out of the queue
+ * as long as the first has not been sent yet. Reminders whose email could not
+ * be queued go back to PENDING with exponential backoff, and are marked FAILED
+ * after max-attempts.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReminderWheel implements MeterBinder {
+
+    private static final Duration MAX_RETRY_DELAY = Duration.ofHours(1);
+
+    private final ReminderStore store;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final EmailService emailService;
+
+    @Value("${reminder.wheel.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${reminder.wheel.slots:60}")
+    private int slots;
+
+    @Value("${reminder.wheel.levels:2}")
+    private int levels;
+
+    @Value("${reminder.wheel.refill-interval-ms:60000}")
+    private long refillIntervalMs;
+
+    @Value("${reminder.wheel.lease-seconds:120}")
+    private long leaseSeconds;
+
+    @Value("${reminder.wheel.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${reminder.wheel.retry-delay-seconds:60}")
+    private long retryDelaySeconds;
+
+    @Value("${reminder.wheel.batch-size:500}")
+    private int batchSize;
+
+    @Value("${reminder.wheel.shards:64}")
+    private int shards;
+
+    @Value("${reminder.wheel.shard-lease-seconds:180}")
+    private long shardLeaseSeconds;
+
+    private final String node = UUID.randomUUID().toString();
+    private TimingWheel<String> wheel;
+    // reminders in the wheel, so a refill does not add them twice
+    private final Map<String, Held> held = new HashMap<>();
+    private volatile Set<Integer> ownedShards = Set.of();
+    private ScheduledExecutorService timer;
+
+    private record Held(String userId, long deadline) {}
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dead = new LongAdder();
+
+    @PostConstruct
+    synchronized void init() {
+        wheel = new TimingWheel<>(tickMs, slots, levels, System.currentTimeMillis());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ReminderWheel");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleWithFixedDelay(this::refill, 0, refillIntervalMs, TimeUnit.MILLISECONDS);
+        timer.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (timer != null) {
+            // claimed reminders not sent yet are claimed again after the lease
+            timer.shutdownNow();
+        }
+        for (int shard : ownedShards) {
+            try {
+                store.releaseShard(shard, node);
+            } catch (Exception e) {
+                log.debug("Failed to release reminder shard {}: {}", shard, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The shard of a user's reminders.
+     */
+    public int shardOf(String userId) {
+        return Math.floorMod(userId.hashCode(), shards);
+    }
+
+    /**
+     * Adds a reminder just scheduled on this node, if its shard is this node's
+     * and it is due within the horizon.
+     */
+    public synchronized void offer(ReminderSchedule reminder) {
+        if (reminder.getId() != null && reminder.getShard() != null && ownedShards.contains(reminder.getShard())) {
+            hold(reminder);
+        }
+    }
+
+    // Adds a reminder not in the wheel yet, or again if it was pushed back; the earlier entry is skipped when it expires
+    private boolean hold(ReminderSchedule reminder) {
+        long deadline = reminder.getScheduledAt().toEpochMilli();
+        Held current = held.get(reminder.getId());
+        if ((current == null || current.deadline() < deadline) && wheel.add(reminder.getId(), deadline)) {
+            held.put(reminder.getId(), new Held(reminder.getUserId(), deadline));
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("reminder.wheel.size", this, w -> w.heldCount()).register(registry);
+        Gauge.builder("reminder.shards.owned", this, w -> w.ownedShards.size()).register(registry);
+        FunctionCounter.builder("reminder.fired", sent, LongAdder::sum)
+                .tag("outcome", "sent").register(registry);
+        FunctionCounter.builder("reminder.fired", cancelled, LongAdder::sum)
+                .tag("outcome", "cancelled").register(registry);
+        FunctionCounter.builder("reminder.fired", failed, LongAdder::sum)
+                .tag("outcome", "failed").register(registry);
+        FunctionCounter.builder("reminder.fired", dead, LongAdder::sum)
+                .tag("outcome", "dead").register(registry);
+    }
+
+    private synchronized int heldCount() {
+        return held.size();
+    }
+
+    void refill() {
+        try {
+            Instant now = Instant.now();
+            ownedShards = rebalance(now);
+            long horizon;
+            synchronized (this) {
+                horizon = wheel.horizon();
+            }
+            List<ReminderSchedule> due = store.findDue(ownedShards, Instant.ofEpochMilli(horizon), now);
+            int added = 0;
+            synchronized (this) {
+                for (ReminderSchedule reminder : due) {
+                    if (hold(reminder)) {
+                        added++;
+                    }
+                }
+            }
+            if (added > 0) {
+                log.info("Added {} reminders due by {} to the wheel", added, Instant.ofEpochMilli(horizon));
+            }
+        } catch (Exception e) {
+            log.error("Failed to refill the reminder wheel", e);
+        }
+    }
+
+    // Renews this node's shards, gives back those beyond its share and takes free ones up to it
+    private Set<Integer> rebalance(Instant now) {
+        Instant leaseUntil = now.plusSeconds(shardLeaseSeconds);
+        Set<String> nodes = store.heartbeat(node, now, leaseUntil);
+        Map<Integer, String> owners = store.shardOwners(now);
+        int share = (shards + nodes.size() - 1) / nodes.size();
+
+        TreeSet<Integer> mine = new TreeSet<>();
+        owners.forEach((shard, owner) -> {
+            if (owner.equals(node) && shard < shards) {
+                mine.add(shard);
+            }
+        });
+        while (mine.size() > share) {
+            store.releaseShard(mine.pollLast(), node);
+        }
+        mine.removeIf(shard -> !store.leaseShard(shard, node, now, leaseUntil));
+        for (int shard = 0; shard < shards && mine.size() < share; shard++) {
+            if (!owners.containsKey(shard) && store.leaseShard(shard, node, now, leaseUntil)) {
+                mine.add(shard);
+            }
+        }
+        if (!mine.equals(ownedShards)) {
+            log.info("Sending reminders of {} of {} shards across {} nodes", mine.size(), shards, nodes.size());
+        }
+        return Set.copyOf(mine);
+    }
+
+    void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            List<String> expired = new ArrayList<>();
+            Map<String, String> userIds = new HashMap<>();
+            synchronized (this) {
+                for (String id : wheel.advance(now)) {
+                    Held reminder = held.get(id);
+                    if (reminder == null || reminder.deadline() > now) {
+                        // an earlier entry of a reminder that was pushed back
+                        continue;
+                    }
+                    held.remove(id);
+                    expired.add(id);
+                    userIds.put(id, reminder.userId());
+                }
+            }
+            if (expired.size() > batchSize) {
+                // keeps a user's reminders in one batch, so they make one digest
+                expired.sort(Comparator.comparing(userIds::get, Comparator.nullsFirst(Comparator.naturalOrder())));
+            }
+            for (int from = 0; from < expired.size(); from += batchSize) {
+                fire(expired.subList(from, Math.min(from + batchSize, expired.size())));
+            }
+        } catch (Exception e) {
+            // the reminders are still PENDING (or SENDING with a lease) and come back with a refill
+            log.error("Failed to send due reminders", e);
+        }
+    }
+
+    private void fire(List<String> ids) {
+        Instant now = Instant.now();
+        String claim = node + ":" + UUID.randomUUID();
+        List<ReminderSchedule> claimed = store.claim(ids, claim, now, now.plusSeconds(leaseSeconds));
+        if (claimed.isEmpty()) {
+            // cancelled, or sent by another node
+            return;
+        }
+
+        Map<String, User> users = userRepository.findAllById(
+                        claimed.stream().map(ReminderSchedule::getUserId).collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        Map<String, Product> products = productRepository.findAllById(
+                        claimed.stream().flatMap(r -> productIds(r).stream()).collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        Map<String, ReminderSchedule.ReminderStatus> statuses = new HashMap<>();
+        Map<String, List<ReminderSchedule>> byUser = new LinkedHashMap<>();
+        for (ReminderSchedule reminder : claimed) {
+            if (!users.containsKey(reminder.getUserId())
+                    || productIds(reminder).stream().noneMatch(products::containsKey)) {
+                log.warn("User or Product not found for reminder: {}", reminder.getId());
+                statuses.put(reminder.getId(), ReminderSchedule.ReminderStatus.CANCELLED);
+            } else {
+                byUser.computeIfAbsent(reminder.getUserId(), id -> new ArrayList<>()).add(reminder);
+            }
+        }
+        int emails = 0;
+        List<ReminderSchedule> retries = new ArrayList<>();
+        for (List<ReminderSchedule> reminders : byUser.values()) {
+            try {
+                send(users.get(reminders.get(0).getUserId()), reminders, products);
+                reminders.forEach(reminder -> statuses.put(reminder.getId(), ReminderSchedule.ReminderStatus.SENT));
+                emails++;
+            } catch (Exception e) {
+                failed.add(reminders.size());
+                log.error("Failed to send reminders: {}", reminders.stream().map(ReminderSchedule::getId).toList(), e);
+                for (ReminderSchedule reminder : reminders) {
+                    reminder.setAttempts(reminder.getAttempts() + 1);
+                    if (reminder.getAttempts() >= maxAttempts) {
+                        dead.increment();
+                        log.error("Giving up on reminder {} after {} attempts", reminder.getId(), reminder.getAttempts());
+                        statuses.put(reminder.getId(), ReminderSchedule.ReminderStatus.FAILED);
+                    } else {
+                        // back to PENDING; a refill picks it up once it is due again
+                        reminder.setScheduledAt(Instant.now().plus(retryDelay(reminder.getAttempts())));
+                        retries.add(reminder);
+                    }
+                }
+            }
+        }
+        store.complete(claim, statuses, Instant.now());
+        if (!retries.isEmpty()) {
+            store.reschedule(claim, retries);
+        }
+
+        long sentNow = statuses.values().stream().filter(s -> s == ReminderSchedule.ReminderStatus.SENT).count();
+        sent.add(sentNow);
+        cancelled.add(statuses.values().stream().filter(s -> s == ReminderSchedule.ReminderStatus.CANCELLED).count());
+        if (sentNow > 0) {
+            log.info("Sent {} reminders in {} emails", sentNow, emails);
+        }
+    }
+
+    // One email for a single product, or one digest of the user's products in the batch
+    private void send(User user, List<ReminderSchedule> reminders, Map<String, Product> products) {
+        List<Product> cart = new ArrayList<>();
+        List<Product> wishlist = new ArrayList<>();
+        for (ReminderSchedule reminder : reminders) {
+            for (String productId : productIds(reminder)) {
+                // products deleted since they were added are left out
+                Product product = products.get(productId);
+                if (product != null) {
+                    (reminder.getType() == ReminderSchedule.ReminderType.CART ? cart : wishlist).add(product);
+                }
+            }
+        }
+        if (cart.size() + wishlist.size() > 1) {
+            String digestId = reminders.stream().map(ReminderSchedule::getId).min(String::compareTo).orElseThrow();
+            emailService.sendReminderDigestEmail(user, cart, wishlist, digestId);
+        } else if (!cart.isEmpty()) {
+            emailService.sendCartReminderEmail(user, cart.get(0), reminders.get(0).getId());
+        } else {
+            emailService.sendWishlistReminderEmail(user, wishlist.get(0), reminders.get(0).getId());
+        }
+    }
+
+    private Duration retryDelay(int attempts) {
+        Duration delay = Duration.ofSeconds(retryDelaySeconds).multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : delay;
+    }
+
+    // A reminder written by a node still on the single product layout may have products in both fields
+    private static List<String> productIds(ReminderSchedule reminder) {
+        String productId = reminder.getProductId();
+        if (productId == null || reminder.getProductIds().contains(productId)) {
+            return reminder.getProductIds();
+        }
+        List<String> productIds = new ArrayList<>(reminder.getProductIds());
+        productIds.add(productId);
+        return productIds;
+    }
+}
@@ -0,0 +1,113 @@
+package com.ecommerce.project.reminder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hierarchical timing wheel: levels of slots, each slot of a level covering
+ * as much time as the whole level below it. An entry goes into the lowest
+ * level whose span reaches its deadline; when time reaches a higher-level
+ * slot its entries move down a level, until they expire from level 0. Adding
+ * and expiring an entry is O(1) whatever the number of entries, and the wheel
+ * only holds deadlines up to tick * slots^levels ahead.
+ *
+ * Entries expire at most one tick late. Not thread safe.
+ */
+public class TimingWheel<T> {
+
+    private final long[] ticks;
+    private final int slots;
+    private final List<List<Entry<T>>>[] levels;
+    // start of the level 0 slot not expired yet
+    private long current;
+    private int size;
+
+    private record Entry<T>(T item, long deadline) {}
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int slots, int levels, long startMillis) {
+        if (tickMillis <= 0 || slots < 2 || levels < 1) {
+            throw new IllegalArgumentException("tickMillis must be positive, slots at least 2 and levels at least 1");
+        }
+        this.slots = slots;
+        this.ticks = new long[levels];
+        this.levels = new List[levels];
+        long tick = tickMillis;
+        for (int level = 0; level < levels; level++) {
+            ticks[level] = tick;
+            this.levels[level] = new ArrayList<>(slots);
+            for (int slot = 0; slot < slots; slot++) {
+                this.levels[level].add(new ArrayList<>());
+            }
+            tick = Math.multiplyExact(tick, slots);
+        }
+        current = startMillis - Math.floorMod(startMillis, tickMillis);
+    }
+
+    /**
+     * The latest deadline the wheel accepts right now.
+     */
+    public long horizon() {
+        int top = ticks.length - 1;
+        return (Math.floorDiv(current, ticks[top]) + slots) * ticks[top] - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds an entry; a deadline already past expires on the next advance.
+     * @return false if the deadline is beyond the horizon
+     */
+    public boolean add(T item, long deadlineMillis) {
+        if (!place(new Entry<>(item, Math.max(deadlineMillis, current)))) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Moves time forward to now.
+     * @return the entries whose deadline has passed, in deadline order per slot
+     */
+    public List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        while (current + ticks[0] <= nowMillis) {
+            List<Entry<T>> slot = levels[0].get(slotOf(0, current));
+            for (Entry<T> entry : slot) {
+                expired.add(entry.item());
+            }
+            size -= slot.size();
+            slot.clear();
+            current += ticks[0];
+            // entering a new slot of a higher level: move its entries down, top level first
+            for (int level = ticks.length - 1; level > 0; level--) {
+                if (Math.floorMod(current, ticks[level]) == 0) {
+                    List<Entry<T>> cascading = levels[level].get(slotOf(level, current));
+                    List<Entry<T>> moving = new ArrayList<>(cascading);
+                    cascading.clear();
+                    for (Entry<T> entry : moving) {
+                        place(entry);
+                    }
+                }
+            }
+        }
+        return expired;
+    }
+
+    private boolean place(Entry<T> entry) {
+        for (int level = 0; level < ticks.length; level++) {
+            if (Math.floorDiv(entry.deadline(), ticks[level]) - Math.floorDiv(current, ticks[level]) < slots) {
+                levels[level].get(slotOf(level, entry.deadline())).add(entry);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int slotOf(int level, long time) {
+        return (int) Math.floorMod(Math.floorDiv(time, ticks[level]), (long) slots);
+    }
+}
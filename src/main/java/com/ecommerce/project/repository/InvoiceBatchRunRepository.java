@@ -0,0 +1,9 @@
+package com.ecommerce.project.repository;
+
+import com.ecommerce.project.entity.InvoiceBatchRun;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface InvoiceBatchRunRepository extends MongoRepository<InvoiceBatchRun, String> {
+}
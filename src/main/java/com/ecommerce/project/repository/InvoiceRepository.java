@@ -2,19 +2,27 @@ package com.ecommerce.project.repository;
 
 import com.ecommerce.project.entity.Invoice;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface InvoiceRepository extends MongoRepository<Invoice, String> {
     
     Optional<Invoice> findByOrderId(String orderId);
+
+    @Query(value = "{ 'orderId': { $in: ?0 } }", fields = "{ 'orderId': 1 }")
+    List<Invoice> findOrderIdsByOrderIdIn(Collection<String> orderIds);
     
     Optional<Invoice> findByInvoiceNumber(String invoiceNumber);
     
     List<Invoice> findByUserId(String userId);
     
     List<Invoice> findAllByOrderByInvoiceDateDesc();
+
+    Stream<Invoice> streamAllByOrderByInvoiceDateDesc();
 }
@@ -7,6 +7,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends MongoRepository<Order, String> {
@@ -20,4 +21,10 @@ public interface OrderRepository extends MongoRepository<Order, String> {
     List<Order> findByStatus(Order.Status status);
 
     List<Order> findByUserIdAndStatus(String userId, Order.Status status);
+
+    Stream<Order> streamAllBy();
+
+    Stream<Order> streamByStatusOrderByIdAsc(Order.Status status);
+
+    Stream<Order> streamByStatusAndIdGreaterThanOrderByIdAsc(Order.Status status, String id);
 }
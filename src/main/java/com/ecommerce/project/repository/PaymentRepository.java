@@ -5,13 +5,21 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PaymentRepository extends MongoRepository<Payment, String> {
 
     Optional<Payment> findByOrderId(String orderId);
 
+    // Retried payment creations can leave several payments for one order
+    boolean existsByOrderIdAndPaymentStatus(String orderId, Payment.PaymentStatus paymentStatus);
+
+    boolean existsByOrderIdAndPaymentMethod(String orderId, Payment.PaymentMethod paymentMethod);
+
     Optional<Payment> findByTransactionId(String transactionId);
 
     Optional<Payment> findByRazorpayOrderId(String razorpayOrderId);
+
+    Stream<Payment> streamAllBy();
 }
@@ -5,6 +5,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends MongoRepository<Product, String> {
@@ -14,4 +15,6 @@ public interface ProductRepository extends MongoRepository<Product, String> {
     List<Product> findByNameContainingIgnoreCase(String name);
 
     List<Product> findByPriceBetween(double minPrice, double maxPrice);
+
+    Stream<Product> streamAllBy();
 }
@@ -0,0 +1,17 @@
+package com.ecommerce.project.repository;
+
+import com.ecommerce.project.entity.StockReservation;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockReservationRepository extends MongoRepository<StockReservation, String> {
+
+    Optional<StockReservation> findByOrderId(String orderId);
+
+    List<StockReservation> findTop500ByStatusAndExpiresAtBefore(StockReservation.Status status, Instant expiresAt);
+}
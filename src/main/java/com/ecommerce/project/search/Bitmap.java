@@ -0,0 +1,133 @@
+package com.ecommerce.project.search;
+
+import java.util.Arrays;
+
+/**
+ * Growable bitmap over product ordinals.
+ *
+ * Unlike {@link java.util.BitSet} it can count an intersection without
+ * materialising it, which is what every facet count is.
+ */
+final class Bitmap {
+
+    private long[] words;
+
+    Bitmap() {
+        this(64);
+    }
+
+    Bitmap(int bits) {
+        words = new long[Math.max(1, (bits + 63) >>> 6)];
+    }
+
+    private Bitmap(long[] words) {
+        this.words = words;
+    }
+
+    void set(int bit) {
+        int word = bit >>> 6;
+        if (word >= words.length) {
+            words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+        }
+        words[word] |= 1L << bit;
+    }
+
+    void clear(int bit) {
+        int word = bit >>> 6;
+        if (word < words.length) {
+            words[word] &= ~(1L << bit);
+        }
+    }
+
+    boolean get(int bit) {
+        int word = bit >>> 6;
+        return word < words.length && (words[word] & (1L << bit)) != 0;
+    }
+
+    boolean isEmpty() {
+        for (long w : words) {
+            if (w != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int cardinality() {
+        int count = 0;
+        for (long w : words) {
+            count += Long.bitCount(w);
+        }
+        return count;
+    }
+
+    Bitmap copy() {
+        return new Bitmap(words.clone());
+    }
+
+    /**
+     * In-place intersection; a null argument means "no restriction".
+     */
+    Bitmap and(Bitmap other) {
+        if (other == null) {
+            return this;
+        }
+        int common = Math.min(words.length, other.words.length);
+        for (int i = 0; i < common; i++) {
+            words[i] &= other.words[i];
+        }
+        Arrays.fill(words, common, words.length, 0L);
+        return this;
+    }
+
+    Bitmap andNot(Bitmap other) {
+        int common = Math.min(words.length, other.words.length);
+        for (int i = 0; i < common; i++) {
+            words[i] &= ~other.words[i];
+        }
+        return this;
+    }
+
+    Bitmap or(Bitmap other) {
+        if (other.words.length > words.length) {
+            words = Arrays.copyOf(words, other.words.length);
+        }
+        for (int i = 0; i < other.words.length; i++) {
+            words[i] |= other.words[i];
+        }
+        return this;
+    }
+
+    static int andCount(Bitmap a, Bitmap b) {
+        int common = Math.min(a.words.length, b.words.length);
+        int count = 0;
+        for (int i = 0; i < common; i++) {
+            count += Long.bitCount(a.words[i] & b.words[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Index of the next set bit at or after from, or -1.
+     */
+    int nextSetBit(int from) {
+        int word = from >>> 6;
+        if (word >= words.length) {
+            return -1;
+        }
+        long w = words[word] & (-1L << from);
+        while (true) {
+            if (w != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(w);
+            }
+            if (++word == words.length) {
+                return -1;
+            }
+            w = words[word];
+        }
+    }
+
+    long sizeInBytes() {
+        return 16L + words.length * 8L;
+    }
+}
@@ -0,0 +1,365 @@
+package com.ecommerce.project.search;
+
+import com.ecommerce.project.entity.Product;
+
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Bitmap index over the filterable product attributes.
+ *
+ * Every attribute value (category id, size, color, price bucket, in stock) owns
+ * a {@link Bitmap} of product ordinals. Filtering ORs the bitmaps of the chosen
+ * values per attribute and ANDs the attributes. Facet counts follow the usual
+ * multi-select rule: the counts of an attribute are computed with every filter
+ * except its own applied, so each count is a single intersection popcount.
+ */
+public class ProductFacetIndex {
+
+    public static final String CATEGORY = "category";
+    public static final String SIZE = "size";
+    public static final String COLOR = "color";
+    public static final String PRICE = "price";
+    public static final String IN_STOCK = "inStock";
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final double[] priceBounds;
+    private final Bitmap[] byPriceBucket;
+    private final Map<String, Bitmap> byCategory = new HashMap<>();
+    private final Map<String, Bitmap> byColor = new HashMap<>();
+    private final Map<Product.Size, Bitmap> bySize = new EnumMap<>(Product.Size.class);
+    private final Bitmap inStock = new Bitmap();
+    private final Bitmap live = new Bitmap();
+
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private int nextOrdinal;
+
+    // Indexed by ordinal; kept for removal and for sorting the result page
+    private String[] productIds = new String[1024];
+    private String[] names = new String[1024];
+    private String[] categoryIds = new String[1024];
+    private String[] colors = new String[1024];
+    private Product.Size[] sizes = new Product.Size[1024];
+    private double[] prices = new double[1024];
+    private long[] createdAt = new long[1024];
+
+    public record FacetResult(List<String> productIds, long totalElements, Map<String, Map<String, Long>> facets) {}
+
+    /**
+     * @param priceBounds ascending upper bounds of the price buckets; the last bucket is open ended
+     */
+    public ProductFacetIndex(double[] priceBounds) {
+        this.priceBounds = priceBounds.clone();
+        Arrays.sort(this.priceBounds);
+        this.byPriceBucket = new Bitmap[this.priceBounds.length + 1];
+        for (int i = 0; i < byPriceBucket.length; i++) {
+            byPriceBucket[i] = new Bitmap();
+        }
+    }
+
+    public void upsert(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(product.getId());
+            int ordinal = allocate(product.getId());
+            names[ordinal] = product.getName() == null ? "" : product.getName().toLowerCase(Locale.ROOT);
+            categoryIds[ordinal] = product.getCategoryId();
+            colors[ordinal] = normalizeColor(product.getColor());
+            sizes[ordinal] = product.getSize();
+            prices[ordinal] = product.getPrice();
+            createdAt[ordinal] = product.getCreatedAt() == null ? 0
+                    : product.getCreatedAt().toEpochSecond(ZoneOffset.UTC);
+
+            live.set(ordinal);
+            byPriceBucket[priceBucket(product.getPrice())].set(ordinal);
+            if (categoryIds[ordinal] != null) {
+                byCategory.computeIfAbsent(categoryIds[ordinal], k -> new Bitmap(nextOrdinal)).set(ordinal);
+            }
+            if (colors[ordinal] != null) {
+                byColor.computeIfAbsent(colors[ordinal], k -> new Bitmap(nextOrdinal)).set(ordinal);
+            }
+            if (sizes[ordinal] != null) {
+                bySize.computeIfAbsent(sizes[ordinal], k -> new Bitmap(nextOrdinal)).set(ordinal);
+            }
+            if (product.getStockQuantity() > 0) {
+                inStock.set(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Matching product ids for one page (in the requested order), the total
+     * number of matches and the facet counts for the filter.
+     */
+    public FacetResult filter(ProductFilter filter, long offset, int limit, String sortBy, boolean descending) {
+        lock.readLock().lock();
+        try {
+            Bitmap categoryMask = union(byCategory, filter.categories());
+            Bitmap sizeMask = union(bySize, filter.sizes());
+            Bitmap colorMask = union(byColor, normalizeColors(filter.colors()));
+            Bitmap priceMask = priceMask(filter.minPrice(), filter.maxPrice());
+            Bitmap stockMask = stockMask(filter.inStock());
+
+            Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+            facets.put(CATEGORY, counts(byCategory, matching(null, sizeMask, colorMask, priceMask, stockMask)));
+            facets.put(SIZE, counts(bySize, matching(categoryMask, null, colorMask, priceMask, stockMask)));
+            facets.put(COLOR, counts(byColor, matching(categoryMask, sizeMask, null, priceMask, stockMask)));
+            facets.put(PRICE, priceCounts(matching(categoryMask, sizeMask, colorMask, null, stockMask)));
+            Bitmap withoutStock = matching(categoryMask, sizeMask, colorMask, priceMask, null);
+            int inStockCount = Bitmap.andCount(withoutStock, inStock);
+            facets.put(IN_STOCK, Map.of("true", (long) inStockCount,
+                    "false", (long) withoutStock.cardinality() - inStockCount));
+
+            Bitmap result = matching(categoryMask, sizeMask, colorMask, priceMask, stockMask);
+            return new FacetResult(page(result, offset, limit, sortBy, descending), result.cardinality(), facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Heap held by the bitmaps, for the facet memory metric.
+     */
+    public long bitmapBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = live.sizeInBytes() + inStock.sizeInBytes();
+            for (Bitmap b : byPriceBucket) {
+                bytes += b.sizeInBytes();
+            }
+            for (Map<?, Bitmap> facet : List.of(byCategory, byColor, bySize)) {
+                for (Bitmap b : facet.values()) {
+                    bytes += b.sizeInBytes();
+                }
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Bitmap matching(Bitmap... masks) {
+        Bitmap result = live.copy();
+        for (Bitmap mask : masks) {
+            result.and(mask);
+        }
+        return result;
+    }
+
+    private static <K> Bitmap union(Map<K, Bitmap> facet, Set<K> values) {
+        if (values.isEmpty()) {
+            return null;
+        }
+        Bitmap union = new Bitmap();
+        for (K value : values) {
+            Bitmap bitmap = facet.get(value);
+            if (bitmap != null) {
+                union.or(bitmap);
+            }
+        }
+        return union;
+    }
+
+    /**
+     * ORs the buckets that lie wholly inside the range. Only the (at most two)
+     * buckets the range cuts through are checked product by product, so a
+     * range on bucket bounds, as sent by the price facet, is pure bitmap work.
+     */
+    private Bitmap priceMask(Double min, Double max) {
+        if (min == null && max == null) {
+            return null;
+        }
+        double lo = min == null ? Double.NEGATIVE_INFINITY : min;
+        double hi = max == null ? Double.POSITIVE_INFINITY : max;
+        Bitmap mask = new Bitmap(nextOrdinal);
+        for (int bucket = priceBucket(lo); bucket <= priceBucket(hi); bucket++) {
+            double from = bucket == 0 ? Double.NEGATIVE_INFINITY : priceBounds[bucket - 1];
+            double to = bucket == priceBounds.length ? Double.POSITIVE_INFINITY : priceBounds[bucket];
+            Bitmap inBucket = byPriceBucket[bucket];
+            if (from >= lo && to <= hi) {
+                mask.or(inBucket);
+                continue;
+            }
+            for (int ordinal = inBucket.nextSetBit(0); ordinal >= 0; ordinal = inBucket.nextSetBit(ordinal + 1)) {
+                if (prices[ordinal] >= lo && prices[ordinal] <= hi) {
+                    mask.set(ordinal);
+                }
+            }
+        }
+        return mask;
+    }
+
+    private Bitmap stockMask(Boolean wanted) {
+        if (wanted == null) {
+            return null;
+        }
+        return wanted ? inStock : live.copy().andNot(inStock);
+    }
+
+    private static <K> Map<String, Long> counts(Map<K, Bitmap> facet, Bitmap base) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        facet.entrySet().stream()
+                .map(e -> Map.entry(e.getKey().toString(), (long) Bitmap.andCount(base, e.getValue())))
+                .filter(e -> e.getValue() > 0)
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .forEach(e -> counts.put(e.getKey(), e.getValue()));
+        return counts;
+    }
+
+    private Map<String, Long> priceCounts(Bitmap base) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < byPriceBucket.length; i++) {
+            counts.put(priceBucketLabel(i), (long) Bitmap.andCount(base, byPriceBucket[i]));
+        }
+        return counts;
+    }
+
+    private String priceBucketLabel(int bucket) {
+        String from = bucket == 0 ? "0" : format(priceBounds[bucket - 1]);
+        return bucket == priceBounds.length ? from + "+" : from + "-" + format(priceBounds[bucket]);
+    }
+
+    private static String format(double bound) {
+        return bound == Math.rint(bound) ? Long.toString((long) bound) : Double.toString(bound);
+    }
+
+    // Bucket i holds prices in [bounds[i-1], bounds[i])
+    private int priceBucket(double price) {
+        int i = Arrays.binarySearch(priceBounds, price);
+        return i >= 0 ? i + 1 : -i - 1;
+    }
+
+    // Keeps only the first offset + limit matches in a bounded heap instead of sorting all of them
+    private List<String> page(Bitmap result, long offset, int limit, String sortBy, boolean descending) {
+        if (limit <= 0 || offset >= Integer.MAX_VALUE) {
+            return List.of();
+        }
+        int keep = (int) Math.min(Integer.MAX_VALUE - 1L, offset + limit);
+        Comparator<Integer> order = comparator(sortBy);
+        if (descending) {
+            order = order.reversed();
+        }
+        order = order.thenComparing(o -> productIds[o]);
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.min(keep, 1024) + 1, order.reversed());
+        for (int ordinal = result.nextSetBit(0); ordinal >= 0; ordinal = result.nextSetBit(ordinal + 1)) {
+            heap.add(ordinal);
+            if (heap.size() > keep) {
+                heap.poll();
+            }
+        }
+        int pageSize = (int) Math.max(0, heap.size() - offset);
+        String[] ids = new String[pageSize];
+        // The heap head is the last match in order, so the page fills from the back
+        for (int i = pageSize - 1; i >= 0; i--) {
+            ids[i] = productIds[heap.poll()];
+        }
+        return Arrays.asList(ids);
+    }
+
+    private Comparator<Integer> comparator(String sortBy) {
+        return switch (sortBy == null ? "id" : sortBy) {
+            case "price" -> Comparator.comparingDouble(o -> prices[o]);
+            case "name" -> Comparator.comparing(o -> names[o]);
+            case "createdAt" -> Comparator.comparingLong(o -> createdAt[o]);
+            default -> Comparator.comparing(o -> productIds[o]);
+        };
+    }
+
+    private static String normalizeColor(String color) {
+        return color == null || color.isBlank() ? null : color.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> normalizeColors(Set<String> colors) {
+        return colors.isEmpty() ? colors : colors.stream()
+                .map(ProductFacetIndex::normalizeColor)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    private int allocate(String productId) {
+        Integer free = freeOrdinals.poll();
+        int ordinal = free != null ? free : nextOrdinal++;
+        if (ordinal >= productIds.length) {
+            int capacity = productIds.length * 2;
+            productIds = Arrays.copyOf(productIds, capacity);
+            names = Arrays.copyOf(names, capacity);
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+            colors = Arrays.copyOf(colors, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            createdAt = Arrays.copyOf(createdAt, capacity);
+        }
+        productIds[ordinal] = productId;
+        ordinals.put(productId, ordinal);
+        return ordinal;
+    }
+
+    private void removeInternal(String productId) {
+        Integer ordinal = ordinals.remove(productId);
+        if (ordinal == null) {
+            return;
+        }
+        live.clear(ordinal);
+        inStock.clear(ordinal);
+        byPriceBucket[priceBucket(prices[ordinal])].clear(ordinal);
+        clearValue(byCategory, categoryIds[ordinal], ordinal);
+        clearValue(byColor, colors[ordinal], ordinal);
+        clearValue(bySize, sizes[ordinal], ordinal);
+        productIds[ordinal] = null;
+        names[ordinal] = null;
+        categoryIds[ordinal] = null;
+        colors[ordinal] = null;
+        sizes[ordinal] = null;
+        freeOrdinals.push(ordinal);
+    }
+
+    private static <K> void clearValue(Map<K, Bitmap> facet, K value, int ordinal) {
+        if (value == null) {
+            return;
+        }
+        Bitmap bitmap = facet.get(value);
+        if (bitmap != null) {
+            bitmap.clear(ordinal);
+            if (bitmap.isEmpty()) {
+                facet.remove(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.ecommerce.project.search;
+
+import com.ecommerce.project.entity.Product;
+
+import java.util.Set;
+
+/**
+ * Attribute filter for the product listing. Values of one attribute are OR-ed,
+ * attributes are AND-ed; an empty set or null bound leaves the attribute open.
+ */
+public record ProductFilter(
+        Set<String> categories,
+        Double minPrice,
+        Double maxPrice,
+        Set<Product.Size> sizes,
+        Set<String> colors,
+        Boolean inStock
+) {
+    public ProductFilter {
+        categories = categories == null ? Set.of() : Set.copyOf(categories);
+        sizes = sizes == null ? Set.of() : Set.copyOf(sizes);
+        colors = colors == null ? Set.of() : Set.copyOf(colors);
+    }
+}
@@ -0,0 +1,251 @@
+package com.ecommerce.project.search;
+
+import com.ecommerce.project.cache.CacheInvalidationBus;
+import com.ecommerce.project.cache.CatalogChangeEvent;
+import com.ecommerce.project.cache.ProductCatalogCache;
+import com.ecommerce.project.entity.Category;
+import com.ecommerce.project.entity.Order;
+import com.ecommerce.project.entity.Product;
+import com.ecommerce.project.repository.CategoryRepository;
+import com.ecommerce.project.repository.ProductRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the {@link ProductSearchIndex}, the {@link ProductSuggester} and the
+ * {@link ProductFacetIndex} in sync with the products collection.
+ *
+ * All three are built from a cursor over all products once the application is
+ * ready; until then {@link #isReady()} is false and callers fall back to the
+ * Mongo regex query. Afterwards they are maintained incrementally: directly by
+ * ProductServiceImpl on this node and through the catalog invalidation bus for
+ * writes made on other nodes. Suggestion weights start from the units sold in
+ * past orders and grow with every order placed on this node.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchEngine implements MeterBinder {
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final MongoTemplate mongoTemplate;
+    private final CacheInvalidationBus invalidationBus;
+    private final ProductCatalogCache catalogCache;
+
+    @Value("${catalog.search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${catalog.search.max-results:100}")
+    private int maxResults;
+
+    @Value("${catalog.suggest.max-limit:20}")
+    private int maxSuggestions;
+
+    @Value("${catalog.facets.price-buckets:25,50,100,200,500}")
+    private double[] priceBuckets;
+
+    private final ProductSearchIndex index = new ProductSearchIndex();
+    private final ProductSuggester suggester = new ProductSuggester();
+    private ProductFacetIndex facets;
+    private final Map<String, String> categoryNames = new ConcurrentHashMap<>();
+
+    // Products written while the initial build is running; the build must not overwrite them with older copies
+    private final Set<String> writtenDuringBuild = ConcurrentHashMap.newKeySet();
+    private final Object writeMonitor = new Object();
+    private volatile boolean building;
+    private volatile boolean ready;
+
+    @PostConstruct
+    void init() {
+        facets = new ProductFacetIndex(priceBuckets);
+        invalidationBus.subscribe(this::onRemoteChange);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!enabled) {
+            log.info("Product search index disabled, searches use the Mongo regex query");
+            return;
+        }
+        Thread builder = new Thread(this::rebuild, "ProductSearchIndexBuilder");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Ranked product ids for the keyword, best match first.
+     */
+    public List<String> search(String keyword) {
+        return index.search(keyword, maxResults);
+    }
+
+    /**
+     * Top completions for a partially typed query, most popular first.
+     */
+    public List<ProductSuggester.Suggestion> suggest(String prefix, int limit) {
+        return suggester.suggest(prefix, Math.min(limit, maxSuggestions));
+    }
+
+    /**
+     * One page of products matching the filter, plus the facet counts.
+     */
+    public ProductFacetIndex.FacetResult filter(ProductFilter filter, long offset, int limit,
+                                                String sortBy, boolean descending) {
+        return facets.filter(filter, offset, limit, sortBy, descending);
+    }
+
+    public void recordSales(Order order) {
+        if (order.getItems() == null) {
+            return;
+        }
+        for (Order.OrderItem item : order.getItems()) {
+            suggester.recordSale(item.getProductId(), item.getQuantity());
+        }
+    }
+
+    /**
+     * Indexes a created or updated product.
+     * @return the terms the product can now be found by
+     */
+    public Set<String> index(Product product) {
+        String categoryName = categoryName(product.getCategoryId());
+        synchronized (writeMonitor) {
+            if (building) {
+                writtenDuringBuild.add(product.getId());
+            }
+            suggester.upsertProduct(product, categoryName);
+            facets.upsert(product);
+            return index.index(product, categoryName);
+        }
+    }
+
+    public void remove(String productId) {
+        synchronized (writeMonitor) {
+            if (building) {
+                writtenDuringBuild.add(productId);
+            }
+            suggester.removeProduct(productId);
+            facets.remove(productId);
+            index.remove(productId);
+        }
+    }
+
+    /**
+     * Category names are indexed with every product, so a rename re-indexes the category's products.
+     */
+    public void onCategoryRenamed(Category category) {
+        categoryNames.put(category.getId(), category.getName());
+        suggester.renameCategory(category.getId(), category.getName());
+        List<String> ids = index.productIdsInCategory(category.getId());
+        for (Product product : productRepository.findAllById(ids)) {
+            index(product);
+        }
+        log.info("Re-indexed {} products after category {} was renamed", ids.size(), category.getId());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("catalog.search.documents", index, ProductSearchIndex::documentCount).register(registry);
+        Gauge.builder("catalog.search.terms", index, ProductSearchIndex::termCount).register(registry);
+        Gauge.builder("catalog.suggest.keys", suggester, ProductSuggester::keyCount).register(registry);
+        Gauge.builder("catalog.suggest.memory", suggester, ProductSuggester::estimatedBytes)
+                .baseUnit("bytes").register(registry);
+        Gauge.builder("catalog.facets.memory", this, e -> e.facets.bitmapBytes())
+                .baseUnit("bytes").register(registry);
+    }
+
+    void rebuild() {
+        long start = System.currentTimeMillis();
+        building = true;
+        try {
+            categoryRepository.findAll().forEach(c -> categoryNames.put(c.getId(), c.getName()));
+            loadUnitsSold();
+            try (Stream<Product> products = mongoTemplate.stream(new Query(), Product.class)) {
+                products.forEach(product -> {
+                    String categoryName = categoryName(product.getCategoryId());
+                    synchronized (writeMonitor) {
+                        if (!writtenDuringBuild.contains(product.getId())) {
+                            suggester.upsertProduct(product, categoryName);
+                            facets.upsert(product);
+                            index.index(product, categoryName);
+                        }
+                    }
+                });
+            }
+            ready = true;
+            log.info("Product search index built: {} products, {} terms, {} suggestion keys (~{} KB) in {} ms",
+                    index.documentCount(), index.termCount(), suggester.keyCount(),
+                    suggester.estimatedBytes() / 1024, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Failed to build product search index, searches keep using the Mongo regex query: {}",
+                    e.getMessage(), e);
+        } finally {
+            synchronized (writeMonitor) {
+                building = false;
+                writtenDuringBuild.clear();
+            }
+        }
+    }
+
+    private void loadUnitsSold() {
+        Aggregation unitsByProduct = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("status").ne(Order.Status.cancelled.name())),
+                Aggregation.unwind("items"),
+                Aggregation.group("items.productId").sum("items.quantity").as("units"));
+        for (Document row : mongoTemplate.aggregate(unitsByProduct, Order.class, Document.class)) {
+            Object productId = row.get("_id");
+            if (productId != null) {
+                suggester.recordSale(productId.toString(), ((Number) row.get("units")).longValue());
+            }
+        }
+    }
+
+    private void onRemoteChange(CatalogChangeEvent event) {
+        if (!enabled || catalogCache.getNodeId().equals(event.originNodeId())) {
+            return;
+        }
+        switch (event.type()) {
+            case CREATED, UPDATED -> productRepository.findById(event.productId()).ifPresent(this::index);
+            case DELETED -> remove(event.productId());
+            case CATEGORY_RENAMED -> categoryRepository.findById(event.categoryId()).ifPresent(this::onCategoryRenamed);
+        }
+    }
+
+    private String categoryName(String categoryId) {
+        if (categoryId == null) {
+            return null;
+        }
+        String name = categoryNames.get(categoryId);
+        if (name == null) {
+            name = categoryRepository.findById(categoryId).map(Category::getName).orElse(null);
+            if (name != null) {
+                categoryNames.put(categoryId, name);
+            }
+        }
+        return name;
+    }
+}
@@ -0,0 +1,340 @@
+package com.ecommerce.project.search;
+
+import com.ecommerce.project.entity.Product;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the searchable product fields.
+ *
+ * Every product gets an int ordinal; each term maps to a posting list of
+ * (ordinal, weighted term frequency). Terms live in a sorted map so the last
+ * query term can be expanded as a prefix. Ranking is BM25 over the field
+ * weighted term frequencies (name counts more than description).
+ *
+ * Reads share a read lock; index/remove take the write lock and only touch the
+ * postings of the terms of that one product. Scores are kept in per-thread
+ * arrays indexed by ordinal, reused across queries: a query only writes the
+ * slots of its candidates and clears them when done, so its cost follows the
+ * postings it reads rather than the size of the catalog.
+ */
+public class ProductSearchIndex {
+
+    static final float NAME_WEIGHT = 3.0f;
+    static final float CATEGORY_WEIGHT = 2.0f;
+    static final float COLOR_WEIGHT = 2.0f;
+    static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    // Match state per document is tracked in a byte, so longer queries keep their last terms
+    private static final int MAX_QUERY_TERMS = 16;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+
+    // Indexed by ordinal
+    private String[] productIds = new String[1024];
+    private String[] categoryIds = new String[1024];
+    private String[][] documentTerms = new String[1024][];
+    private float[] lengths = new float[1024];
+    private int nextOrdinal;
+
+    private long documentCount;
+    private double totalLength;
+
+    private static final class Scratch {
+        float[] scores = new float[0];
+        byte[] matched = new byte[0];
+    }
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Adds or replaces a product.
+     * @return the distinct terms the product was indexed under
+     */
+    public Set<String> index(Product product, String categoryName) {
+        Map<String, Float> frequencies = new LinkedHashMap<>();
+        float length = addField(frequencies, product.getName(), NAME_WEIGHT)
+                + addField(frequencies, categoryName, CATEGORY_WEIGHT)
+                + addField(frequencies, product.getColor(), COLOR_WEIGHT)
+                + addField(frequencies, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(product.getId());
+
+            int ordinal = allocate(product.getId());
+            categoryIds[ordinal] = product.getCategoryId();
+            lengths[ordinal] = length;
+            documentTerms[ordinal] = frequencies.keySet().toArray(String[]::new);
+            for (Map.Entry<String, Float> e : frequencies.entrySet()) {
+                terms.computeIfAbsent(e.getKey(), t -> new Postings()).add(ordinal, e.getValue());
+            }
+            documentCount++;
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return frequencies.keySet();
+    }
+
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the products of a category, used to re-index them after a rename.
+     */
+    public List<String> productIdsInCategory(String categoryId) {
+        lock.readLock().lock();
+        try {
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < nextOrdinal; i++) {
+                if (productIds[i] != null && categoryId.equals(categoryIds[i])) {
+                    ids.add(productIds[i]);
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the best matching products, best first. Every query term
+     * must match; the last one also matches as a prefix (search-as-you-type).
+     */
+    public List<String> search(String query, int limit) {
+        List<String> tokens = SearchTokenizer.tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        if (tokens.size() > MAX_QUERY_TERMS) {
+            tokens = tokens.subList(tokens.size() - MAX_QUERY_TERMS, tokens.size());
+        }
+
+        lock.readLock().lock();
+        try {
+            if (documentCount == 0) {
+                return List.of();
+            }
+            List<List<Postings>> clauses = new ArrayList<>(tokens.size());
+            int last = tokens.size() - 1;
+            for (int i = 0; i < tokens.size(); i++) {
+                List<Postings> matching = i == last ? prefixMatches(tokens.get(i)) : exactMatch(tokens.get(i));
+                if (matching.isEmpty()) {
+                    return List.of();
+                }
+                clauses.add(matching);
+            }
+            // Most selective clause first keeps the candidate set small
+            clauses.sort(Comparator.comparingInt(ProductSearchIndex::totalSize));
+            return rank(clauses, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long documentCount() {
+        lock.readLock().lock();
+        try {
+            return documentCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<String> rank(List<List<Postings>> clauses, int limit) {
+        float averageLength = (float) (totalLength / documentCount);
+        Scratch reused = scratch.get();
+        if (reused.scores.length < nextOrdinal) {
+            reused.scores = new float[productIds.length];
+            reused.matched = new byte[productIds.length];
+        }
+        float[] scores = reused.scores;
+        byte[] matched = reused.matched;
+        // a document missing from the first clause is never touched
+        int[] candidates = new int[totalSize(clauses.get(0))];
+        int candidateCount = 0;
+
+        try {
+            for (int clause = 0; clause < clauses.size(); clause++) {
+                for (Postings postings : clauses.get(clause)) {
+                    float idf = idf(postings.size);
+                    for (int i = 0; i < postings.size; i++) {
+                        int ordinal = postings.ordinals[i];
+                        int state = matched[ordinal];
+                        if (state != clause && state != clause + 1) {
+                            continue;
+                        }
+                        if (state == clause) {
+                            matched[ordinal] = (byte) (clause + 1);
+                            if (clause == 0) {
+                                candidates[candidateCount++] = ordinal;
+                            }
+                        }
+                        scores[ordinal] += bm25(idf, postings.frequencies[i], lengths[ordinal], averageLength);
+                    }
+                }
+            }
+
+            PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1,
+                    Comparator.<Integer>comparingDouble(o -> scores[o]).thenComparing(o -> productIds[o], Comparator.reverseOrder()));
+            for (int i = 0; i < candidateCount; i++) {
+                int ordinal = candidates[i];
+                if (matched[ordinal] != clauses.size()) {
+                    continue;
+                }
+                if (top.size() < limit || scores[ordinal] >= scores[top.peek()]) {
+                    top.add(ordinal);
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+            String[] ranked = new String[top.size()];
+            for (int i = ranked.length - 1; i >= 0; i--) {
+                ranked[i] = productIds[top.poll()];
+            }
+            return Arrays.asList(ranked);
+        } finally {
+            for (int i = 0; i < candidateCount; i++) {
+                scores[candidates[i]] = 0;
+                matched[candidates[i]] = 0;
+            }
+        }
+    }
+
+    private List<Postings> exactMatch(String term) {
+        Postings postings = terms.get(term);
+        return postings == null ? List.of() : List.of(postings);
+    }
+
+    private List<Postings> prefixMatches(String prefix) {
+        return new ArrayList<>(terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values());
+    }
+
+    private float idf(int documentFrequency) {
+        return (float) Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private static float bm25(float idf, float frequency, float length, float averageLength) {
+        return idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+    }
+
+    private static int totalSize(List<Postings> postings) {
+        int size = 0;
+        for (Postings p : postings) {
+            size += p.size;
+        }
+        return size;
+    }
+
+    private static float addField(Map<String, Float> frequencies, String text, float weight) {
+        List<String> tokens = SearchTokenizer.tokenize(text);
+        for (String token : tokens) {
+            frequencies.merge(token, weight, Float::sum);
+        }
+        return tokens.size() * weight;
+    }
+
+    private int allocate(String productId) {
+        Integer free = freeOrdinals.poll();
+        int ordinal = free != null ? free : nextOrdinal++;
+        if (ordinal >= productIds.length) {
+            int capacity = productIds.length * 2;
+            productIds = Arrays.copyOf(productIds, capacity);
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+            documentTerms = Arrays.copyOf(documentTerms, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        productIds[ordinal] = productId;
+        ordinals.put(productId, ordinal);
+        return ordinal;
+    }
+
+    private void removeInternal(String productId) {
+        Integer ordinal = ordinals.remove(productId);
+        if (ordinal == null) {
+            return;
+        }
+        for (String term : documentTerms[ordinal]) {
+            Postings postings = terms.get(term);
+            if (postings != null && postings.remove(ordinal) && postings.size == 0) {
+                terms.remove(term);
+            }
+        }
+        documentCount--;
+        totalLength -= lengths[ordinal];
+        productIds[ordinal] = null;
+        categoryIds[ordinal] = null;
+        documentTerms[ordinal] = null;
+        lengths[ordinal] = 0;
+        freeOrdinals.push(ordinal);
+    }
+
+    /**
+     * Unordered posting list backed by parallel primitive arrays.
+     */
+    private static final class Postings {
+        int[] ordinals = new int[4];
+        float[] frequencies = new float[4];
+        int size;
+
+        void add(int ordinal, float frequency) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            ordinals[size] = ordinal;
+            frequencies[size] = frequency;
+            size++;
+        }
+
+        boolean remove(int ordinal) {
+            for (int i = 0; i < size; i++) {
+                if (ordinals[i] == ordinal) {
+                    size--;
+                    ordinals[i] = ordinals[size];
+                    frequencies[i] = frequencies[size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.ecommerce.project.search;
+
+import com.ecommerce.project.entity.Product;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Type-ahead suggestions for product names and category names.
+ *
+ * A name is reachable from the start of each of its words ("denim jacket" is
+ * suggested for "jac" too). Products sharing a name collapse into one
+ * suggestion. Weights are popularity: a product weighs 1 plus the units sold,
+ * a name the sum of its products and a category the sum of the products in it.
+ */
+public class ProductSuggester {
+
+    public static final String PRODUCT = "product";
+    public static final String CATEGORY = "category";
+
+    // Bounds the number of keys (one per word start) a single long name adds
+    private static final int MAX_WORD_STARTS = 8;
+
+    // Separates the searchable part of a trie key from the phrase id that keeps keys unique;
+    // the tokenizer never produces it, so it cannot appear in a query
+    private static final char ID_SEPARATOR = '\u0001';
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SuggestionTrie trie = new SuggestionTrie();
+
+    private final Map<String, IndexedProduct> products = new HashMap<>();
+    private final Map<String, Phrase> names = new HashMap<>();
+    private final Map<String, Phrase> categories = new HashMap<>();
+    private final Map<String, Long> unitsSold = new HashMap<>();
+    private long nextPhraseId;
+
+    public record Suggestion(String text, String type, long weight) {}
+
+    private record IndexedProduct(String nameKey, String categoryId, long weight) {}
+
+    private static final class Phrase {
+        final String id;
+        final String key;
+        final SuggestionTrie.Suggestion suggestion;
+        int products;
+
+        Phrase(String id, String key, SuggestionTrie.Suggestion suggestion) {
+            this.id = id;
+            this.key = key;
+            this.suggestion = suggestion;
+        }
+    }
+
+    public void upsertProduct(Product product, String categoryName) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(product.getId());
+            String nameKey = normalize(product.getName());
+            if (nameKey.isEmpty()) {
+                return;
+            }
+            long weight = 1 + unitsSold.getOrDefault(product.getId(), 0L);
+            products.put(product.getId(), new IndexedProduct(nameKey, product.getCategoryId(), weight));
+
+            Phrase name = names.computeIfAbsent(nameKey, k -> new Phrase(Long.toString(nextPhraseId++, 36), k,
+                    new SuggestionTrie.Suggestion(product.getName().trim(), PRODUCT, 0)));
+            addToPhrase(name, weight);
+
+            if (product.getCategoryId() != null) {
+                Phrase category = categories.get(product.getCategoryId());
+                if (category == null && categoryName != null && !normalize(categoryName).isEmpty()) {
+                    category = new Phrase(Long.toString(nextPhraseId++, 36), normalize(categoryName),
+                            new SuggestionTrie.Suggestion(categoryName.trim(), CATEGORY, 0));
+                    categories.put(product.getCategoryId(), category);
+                }
+                if (category != null) {
+                    addToPhrase(category, weight);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeProduct(String productId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void renameCategory(String categoryId, String newName) {
+        lock.writeLock().lock();
+        try {
+            Phrase old = categories.remove(categoryId);
+            if (old == null) {
+                return;
+            }
+            removeKeys(old);
+            if (normalize(newName).isEmpty()) {
+                return;
+            }
+            Phrase renamed = new Phrase(old.id, normalize(newName),
+                    new SuggestionTrie.Suggestion(newName.trim(), CATEGORY, old.suggestion.weight));
+            renamed.products = old.products;
+            categories.put(categoryId, renamed);
+            putKeys(renamed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds sold units to a product's popularity (and to its name and category).
+     */
+    public void recordSale(String productId, long units) {
+        if (units <= 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            unitsSold.merge(productId, units, Long::sum);
+            IndexedProduct product = products.get(productId);
+            if (product == null) {
+                return;
+            }
+            products.put(productId, new IndexedProduct(product.nameKey(), product.categoryId(), product.weight() + units));
+            reweigh(names.get(product.nameKey()), units);
+            if (product.categoryId() != null) {
+                reweigh(categories.get(product.categoryId()), units);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            List<SuggestionTrie.Suggestion> top = trie.topK(key, limit);
+            List<Suggestion> result = new ArrayList<>(top.size());
+            for (SuggestionTrie.Suggestion s : top) {
+                result.add(new Suggestion(s.text, s.type, s.weight));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int keyCount() {
+        lock.readLock().lock();
+        try {
+            return trie.keyCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Estimated heap used by the trie plus the suggestion and bookkeeping entries.
+     */
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long phraseBytes = 0;
+            for (Map<String, Phrase> phrases : List.of(names, categories)) {
+                for (Phrase p : phrases.values()) {
+                    // Phrase + suggestion objects, key and display strings, short id, map entry
+                    phraseBytes += 24 + 32 + 2 * (40 + 2L * p.key.length()) + 48 + 32;
+                }
+            }
+            // Product entry: record + id string + map entry
+            long productBytes = products.size() * (32L + 60 + 32);
+            return trie.estimatedBytes() + phraseBytes + productBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String normalize(String text) {
+        return String.join(" ", SearchTokenizer.tokenize(text));
+    }
+
+    private void removeInternal(String productId) {
+        IndexedProduct product = products.remove(productId);
+        if (product == null) {
+            return;
+        }
+        Phrase name = names.get(product.nameKey());
+        if (name != null && removeFromPhrase(name, product.weight())) {
+            names.remove(product.nameKey());
+        }
+        if (product.categoryId() != null) {
+            Phrase category = categories.get(product.categoryId());
+            if (category != null && removeFromPhrase(category, product.weight())) {
+                categories.remove(product.categoryId());
+            }
+        }
+    }
+
+    private void addToPhrase(Phrase phrase, long weight) {
+        phrase.products++;
+        phrase.suggestion.weight += weight;
+        if (phrase.products == 1) {
+            putKeys(phrase);
+        } else {
+            reweighKeys(phrase);
+        }
+    }
+
+    // Returns true when the phrase no longer has products and was removed from the trie
+    private boolean removeFromPhrase(Phrase phrase, long weight) {
+        phrase.products--;
+        phrase.suggestion.weight -= weight;
+        if (phrase.products == 0) {
+            removeKeys(phrase);
+            return true;
+        }
+        reweighKeys(phrase);
+        return false;
+    }
+
+    private void reweigh(Phrase phrase, long delta) {
+        if (phrase != null) {
+            phrase.suggestion.weight += delta;
+            reweighKeys(phrase);
+        }
+    }
+
+    private void putKeys(Phrase phrase) {
+        for (String key : trieKeys(phrase)) {
+            trie.put(key, phrase.suggestion);
+        }
+    }
+
+    private void removeKeys(Phrase phrase) {
+        for (String key : trieKeys(phrase)) {
+            trie.remove(key);
+        }
+    }
+
+    private void reweighKeys(Phrase phrase) {
+        for (String key : trieKeys(phrase)) {
+            trie.reweigh(key);
+        }
+    }
+
+    // One key per word start, each suffixed with the phrase id so equal texts stay separate entries
+    private static List<String> trieKeys(Phrase phrase) {
+        String suffix = ID_SEPARATOR + phrase.id;
+        List<String> keys = new ArrayList<>();
+        keys.add(phrase.key + suffix);
+        int from = 0;
+        while (keys.size() < MAX_WORD_STARTS) {
+            int space = phrase.key.indexOf(' ', from);
+            if (space < 0) {
+                break;
+            }
+            keys.add(phrase.key.substring(space + 1) + suffix);
+            from = space + 1;
+        }
+        return keys;
+    }
+}
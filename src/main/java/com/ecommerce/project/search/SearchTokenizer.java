@@ -0,0 +1,58 @@
+package com.ecommerce.project.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Splits text into lower-case, accent-free terms. Used for both indexing and
+ * queries so that both sides always agree on what a term is.
+ */
+public final class SearchTokenizer {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private SearchTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFKD)).replaceAll("");
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(folded.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Query semantics shared by the index and the catalog cache: every query term
+     * must be present, the last one may be an unfinished prefix.
+     */
+    public static boolean matches(List<String> queryTokens, Set<String> documentTerms) {
+        if (queryTokens.isEmpty()) {
+            return false;
+        }
+        int last = queryTokens.size() - 1;
+        for (int i = 0; i < last; i++) {
+            if (!documentTerms.contains(queryTokens.get(i))) {
+                return false;
+            }
+        }
+        String prefix = queryTokens.get(last);
+        for (String term : documentTerms) {
+            if (term.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
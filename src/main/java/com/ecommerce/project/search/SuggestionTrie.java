@@ -0,0 +1,323 @@
+package com.ecommerce.project.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Compressed (radix) trie from normalized keys to weighted suggestions.
+ *
+ * Single-child chains are collapsed into one edge label, and every node keeps
+ * the highest weight found below it, with its children ordered by that maximum.
+ * A top-k lookup walks to the prefix node and then expands best-first, only
+ * ever queueing the next sibling and the first child of a node, so it does
+ * O(k * depth) work no matter how many keys share the prefix.
+ *
+ * Not thread safe; {@link ProductSuggester} guards it with a lock.
+ */
+class SuggestionTrie {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final Node root = new Node(new char[0]);
+    private int nodeCount = 1;
+    private long labelChars;
+    private int keyCount;
+
+    /**
+     * Mutable so that weight changes do not require re-inserting every key that
+     * points at the suggestion; call {@link #reweigh(String)} for each of its keys instead.
+     */
+    static final class Suggestion {
+        final String text;
+        final String type;
+        long weight;
+
+        Suggestion(String text, String type, long weight) {
+            this.text = text;
+            this.type = type;
+            this.weight = weight;
+        }
+    }
+
+    private static final class Node {
+        char[] label;
+        Node[] children = NO_CHILDREN;
+        Suggestion value;
+        long maxWeight;
+
+        Node(char[] label) {
+            this.label = label;
+        }
+    }
+
+    void put(String key, Suggestion suggestion) {
+        put(root, key.toCharArray(), 0, suggestion);
+    }
+
+    void remove(String key) {
+        remove(root, key.toCharArray(), 0);
+    }
+
+    /**
+     * Recomputes the subtree maxima along the path of a key after its suggestion weight changed.
+     */
+    void reweigh(String key) {
+        reweigh(root, key.toCharArray(), 0);
+    }
+
+    /**
+     * Up to k distinct suggestions whose key starts with the prefix, heaviest first.
+     */
+    List<Suggestion> topK(String prefix, int k) {
+        Node start = find(prefix.toCharArray());
+        if (start == null || k <= 0) {
+            return List.of();
+        }
+        List<Suggestion> result = new ArrayList<>(k);
+        Set<Suggestion> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        PriorityQueue<Object> queue = new PriorityQueue<>((a, b) -> Long.compare(weightOf(b), weightOf(a)));
+        if (start.value != null) {
+            queue.add(start.value);
+        }
+        if (start.children.length > 0) {
+            queue.add(new Cursor(start, 0));
+        }
+        while (!queue.isEmpty() && result.size() < k) {
+            Object next = queue.poll();
+            if (next instanceof Suggestion s) {
+                if (seen.add(s)) {
+                    result.add(s);
+                }
+                continue;
+            }
+            Cursor cursor = (Cursor) next;
+            Node node = cursor.node();
+            if (cursor.index() + 1 < cursor.parent().children.length) {
+                queue.add(new Cursor(cursor.parent(), cursor.index() + 1));
+            }
+            if (node.value != null) {
+                queue.add(node.value);
+            }
+            if (node.children.length > 0) {
+                queue.add(new Cursor(node, 0));
+            }
+        }
+        return result;
+    }
+
+    // Points at parent.children[index]; siblings after it are never heavier
+    private record Cursor(Node parent, int index) {
+        Node node() {
+            return parent.children[index];
+        }
+    }
+
+    int nodeCount() {
+        return nodeCount;
+    }
+
+    int keyCount() {
+        return keyCount;
+    }
+
+    /**
+     * Rough retained size of the trie structure (headers, references, labels),
+     * excluding the suggestion objects, which are shared with the caller.
+     */
+    long estimatedBytes() {
+        // Node: 12 header + 3 refs + long ~ 40; label array: 16 header + 2/char; children array: 16 header + 4/ref
+        return nodeCount * (40L + 16 + 16) + labelChars * 2 + (nodeCount - 1) * 4L;
+    }
+
+    private static long weightOf(Object o) {
+        return o instanceof Suggestion s ? s.weight : ((Cursor) o).node().maxWeight;
+    }
+
+    private Node find(char[] key) {
+        Node node = root;
+        int offset = 0;
+        while (offset < key.length) {
+            Node child = child(node, key[offset]);
+            if (child == null) {
+                return null;
+            }
+            int common = commonPrefix(child.label, key, offset);
+            if (offset + common == key.length) {
+                return child;
+            }
+            if (common < child.label.length) {
+                return null;
+            }
+            offset += common;
+            node = child;
+        }
+        return node;
+    }
+
+    private void put(Node node, char[] key, int offset, Suggestion suggestion) {
+        if (offset == key.length) {
+            if (node.value == null) {
+                keyCount++;
+            }
+            node.value = suggestion;
+            updateMax(node);
+            return;
+        }
+        Node child = child(node, key[offset]);
+        if (child == null) {
+            Node leaf = new Node(Arrays.copyOfRange(key, offset, key.length));
+            leaf.value = suggestion;
+            leaf.maxWeight = suggestion.weight;
+            addChild(node, leaf);
+            nodeCount++;
+            labelChars += leaf.label.length;
+            keyCount++;
+        } else {
+            int common = commonPrefix(child.label, key, offset);
+            if (common < child.label.length) {
+                child = split(node, child, common);
+            }
+            put(child, key, offset + common, suggestion);
+        }
+        updateMax(node);
+    }
+
+    private boolean remove(Node node, char[] key, int offset) {
+        if (offset == key.length) {
+            if (node.value == null) {
+                return false;
+            }
+            node.value = null;
+            keyCount--;
+            updateMax(node);
+            return true;
+        }
+        Node child = child(node, key[offset]);
+        if (child == null) {
+            return false;
+        }
+        int common = commonPrefix(child.label, key, offset);
+        if (common < child.label.length || !remove(child, key, offset + common)) {
+            return false;
+        }
+        if (child.value == null && child.children.length == 0) {
+            removeChild(node, child);
+            nodeCount--;
+            labelChars -= child.label.length;
+        } else if (child.value == null && child.children.length == 1) {
+            mergeWithOnlyChild(child);
+        }
+        updateMax(node);
+        return true;
+    }
+
+    private void reweigh(Node node, char[] key, int offset) {
+        if (offset < key.length) {
+            Node child = child(node, key[offset]);
+            if (child == null) {
+                return;
+            }
+            int common = commonPrefix(child.label, key, offset);
+            if (common < child.label.length) {
+                return;
+            }
+            reweigh(child, key, offset + common);
+        }
+        updateMax(node);
+    }
+
+    // Splits child's edge after `at` chars, inserting an intermediate node that is returned
+    private Node split(Node parent, Node child, int at) {
+        Node middle = new Node(Arrays.copyOfRange(child.label, 0, at));
+        child.label = Arrays.copyOfRange(child.label, at, child.label.length);
+        middle.children = new Node[] {child};
+        middle.maxWeight = child.maxWeight;
+        replaceChild(parent, child, middle);
+        nodeCount++;
+        return middle;
+    }
+
+    private void mergeWithOnlyChild(Node node) {
+        Node only = node.children[0];
+        char[] merged = new char[node.label.length + only.label.length];
+        System.arraycopy(node.label, 0, merged, 0, node.label.length);
+        System.arraycopy(only.label, 0, merged, node.label.length, only.label.length);
+        node.label = merged;
+        node.value = only.value;
+        node.children = only.children;
+        node.maxWeight = only.maxWeight;
+        nodeCount--;
+    }
+
+    // Recomputes the subtree maximum and restores the heaviest-first order of the children.
+    // Only one child changes per update, so the insertion sort is close to linear.
+    private static void updateMax(Node node) {
+        Node[] children = node.children;
+        for (int i = 1; i < children.length; i++) {
+            Node c = children[i];
+            int j = i - 1;
+            while (j >= 0 && children[j].maxWeight < c.maxWeight) {
+                children[j + 1] = children[j];
+                j--;
+            }
+            children[j + 1] = c;
+        }
+        long max = node.value != null ? node.value.weight : Long.MIN_VALUE;
+        if (children.length > 0) {
+            max = Math.max(max, children[0].maxWeight);
+        }
+        node.maxWeight = max;
+    }
+
+    // Children are ordered by weight, so lookups by first char scan; fan-out is at most the alphabet
+    private static Node child(Node node, char c) {
+        for (Node child : node.children) {
+            if (child.label[0] == c) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    private static void addChild(Node node, Node child) {
+        Node[] grown = Arrays.copyOf(node.children, node.children.length + 1);
+        grown[node.children.length] = child;
+        node.children = grown;
+    }
+
+    private static void removeChild(Node node, Node child) {
+        Node[] children = node.children;
+        Node[] shrunk = new Node[children.length - 1];
+        int j = 0;
+        for (Node c : children) {
+            if (c != child) {
+                shrunk[j++] = c;
+            }
+        }
+        node.children = shrunk.length == 0 ? NO_CHILDREN : shrunk;
+    }
+
+    private static void replaceChild(Node node, Node oldChild, Node newChild) {
+        Node[] children = node.children;
+        for (int i = 0; i < children.length; i++) {
+            if (children[i] == oldChild) {
+                children[i] = newChild;
+                return;
+            }
+        }
+    }
+
+    private static int commonPrefix(char[] label, char[] key, int offset) {
+        int max = Math.min(label.length, key.length - offset);
+        int i = 0;
+        while (i < max && label[i] == key[offset + i]) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -1,5 +1,6 @@
 package com.ecommerce.project.security;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.*;
@@ -26,8 +27,12 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.disable())
             .exceptionHandling(eh -> eh.authenticationEntryPoint(authenticationEntryPoint))
             .authorizeHttpRequests(auth -> auth
+                // Completion dispatch of streamed responses; the original request was already authorized
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/api/auth/**", "/v3/api-docs/**", "/swagger-ui/**").permitAll()
                 .requestMatchers("/api/health").permitAll()
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
                 .requestMatchers("/api/categories/**").permitAll()
                 .requestMatchers("/api/products/**").permitAll()
                 .requestMatchers("/api/reviews/product/**").permitAll() // Allow viewing product reviews without auth
@@ -0,0 +1,41 @@
+package com.ecommerce.project.sequence;
+
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps one counter document per sequence in the sequences collection, holding
+ * the last number handed out. A block is reserved with a single $inc, so
+ * concurrent reservations never overlap.
+ */
+@Component
+@RequiredArgsConstructor
+public class MongoSequenceStore implements SequenceStore {
+
+    static final String COLLECTION = "sequences";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public long reserve(String sequence, int count) {
+        while (true) {
+            try {
+                Document counter = mongoTemplate.findAndModify(
+                        Query.query(Criteria.where("_id").is(sequence)),
+                        new Update().inc("value", count),
+                        FindAndModifyOptions.options().upsert(true).returnNew(true),
+                        Document.class, COLLECTION);
+                return counter.get("value", Number.class).longValue() - count + 1;
+            } catch (DuplicateKeyException e) {
+                // two nodes created the counter at once; it exists now
+            }
+        }
+    }
+}
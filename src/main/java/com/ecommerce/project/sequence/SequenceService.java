@@ -0,0 +1,77 @@
+package com.ecommerce.project.sequence;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out unique numbers for business identifiers such as invoice and order
+ * numbers.
+ *
+ * Numbers are reserved from the {@link SequenceStore} a block (block-size) at
+ * a time and then handed out from memory with one atomic increment, so the
+ * store is visited once per block rather than once per number. Blocks of one
+ * node only grow, so a node's numbers increase in the order they are handed
+ * out; across nodes they are unique but interleave. Numbers left in a block
+ * when the node stops are never used, so sequences have gaps.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SequenceService implements MeterBinder {
+
+    private final SequenceStore store;
+
+    @Value("${sequence.block-size:100}")
+    private int blockSize;
+
+    private final Map<String, AtomicReference<Block>> blocks = new ConcurrentHashMap<>();
+    private final LongAdder reservations = new LongAdder();
+
+    // Numbers [next, end); next runs past end once the block is used up
+    private record Block(AtomicLong next, long end) {
+
+        static final Block EMPTY = new Block(new AtomicLong(), 0);
+    }
+
+    public long next(String sequence) {
+        AtomicReference<Block> current = blocks.computeIfAbsent(sequence, s -> new AtomicReference<>(Block.EMPTY));
+        while (true) {
+            Block block = current.get();
+            long number = block.next().getAndIncrement();
+            if (number < block.end()) {
+                return number;
+            }
+            refill(sequence, current, block);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("sequence.blocks.reserved", reservations, LongAdder::sum)
+                .register(registry);
+    }
+
+    private void refill(String sequence, AtomicReference<Block> current, Block used) {
+        synchronized (current) {
+            if (current.get() != used) {
+                // another thread got here first
+                return;
+            }
+            long first = store.reserve(sequence, blockSize);
+            current.set(new Block(new AtomicLong(first), first + blockSize));
+            reservations.increment();
+            log.debug("Reserved {} numbers of sequence {} from {}", blockSize, sequence, first);
+        }
+    }
+}
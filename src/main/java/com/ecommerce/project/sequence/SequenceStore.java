@@ -0,0 +1,14 @@
+package com.ecommerce.project.sequence;
+
+/**
+ * Shared counters from which nodes reserve blocks of numbers. Each call must
+ * return a block no other call, on any node, has returned or will return.
+ */
+public interface SequenceStore {
+
+    /**
+     * Reserves count consecutive numbers of a sequence, starting it at 1 if it does not exist.
+     * @return the first number of the block; the block is [first, first + count)
+     */
+    long reserve(String sequence, int count);
+}
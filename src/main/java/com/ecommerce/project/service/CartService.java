@@ -1,5 +1,6 @@
 package com.ecommerce.project.service;
 
+import com.ecommerce.project.dto.CartViewDTO;
 import com.ecommerce.project.entity.CartItem;
 import java.util.List;
 
@@ -15,5 +16,10 @@ public interface CartService {
 
     List<CartItem> getUserCart(String userId);
 
+    /**
+     * The cart with its products, line totals, tax and stock warnings, loading the products in one batch.
+     */
+    CartViewDTO getCartView(String userId);
+
     void clearCart(String userId);
 }
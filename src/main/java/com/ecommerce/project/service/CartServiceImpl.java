@@ -1,89 +1,127 @@
 package com.ecommerce.project.service;
 
+import com.ecommerce.project.cart.CartStore;
+import com.ecommerce.project.dto.CartViewDTO;
+import com.ecommerce.project.dto.ProductResponseDTO;
 import com.ecommerce.project.entity.CartItem;
 import com.ecommerce.project.exception.BadRequestException;
 import com.ecommerce.project.exception.ResourceNotFoundException;
-import com.ecommerce.project.repository.CartRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 public class CartServiceImpl implements CartService {
 
-    private final CartRepository cartRepository;
+    private final CartStore cartStore;
     private final ReminderSchedulerService reminderSchedulerService;
+    private final ProductService productService;
 
     @Value("${reminder.cart.delay-minutes:30}")
     private int cartReminderDelayMinutes;
 
+    @Value("${invoice.tax.rate:0.18}")
+    private double taxRate;
+
     @Override
     public CartItem addToCart(String userId, String productId, int quantity) {
 
-        // Check if item already exists in cart
-        CartItem existingItem = cartRepository.findByUserIdAndProductId(userId, productId)
-                .orElse(null);
+        CartStore.Added added = cartStore.add(userId, productId, quantity);
 
-        if (existingItem != null) {
-            existingItem.setQuantity(existingItem.getQuantity() + quantity);
-            return cartRepository.save(existingItem);
+        // Schedule reminder email for products new to the cart
+        if (added.created()) {
+            reminderSchedulerService.scheduleCartReminder(userId, productId, cartReminderDelayMinutes);
         }
 
-        CartItem cartItem = new CartItem();
-        cartItem.setUserId(userId);
-        cartItem.setProductId(productId);
-        cartItem.setQuantity(quantity);
-
-        CartItem savedItem = cartRepository.save(cartItem);
-
-        // Schedule reminder email
-        reminderSchedulerService.scheduleCartReminder(userId, productId, cartReminderDelayMinutes);
-
-        return savedItem;
+        return added.item();
     }
 
     @Override
     public CartItem updateCartQuantity(String cartItemId, int quantity) {
 
-        CartItem cartItem = cartRepository.findById(cartItemId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart item", "id", cartItemId));
-
         if (quantity <= 0) {
             throw new BadRequestException("Quantity must be greater than 0");
         }
 
-        cartItem.setQuantity(quantity);
-        return cartRepository.save(cartItem);
+        CartItem cartItem = cartStore.setQuantity(cartItemId, quantity);
+        if (cartItem == null) {
+            throw new ResourceNotFoundException("Cart item", "id", cartItemId);
+        }
+        return cartItem;
     }
 
     @Override
     public CartItem updateQuantity(String userId, String productId, int quantity) {
-        CartItem item = cartRepository.findByUserIdAndProductId(userId, productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart item not found for user: " + userId + " and product: " + productId));
 
         if (quantity <= 0) {
             throw new BadRequestException("Quantity must be greater than 0");
         }
 
-        item.setQuantity(quantity);
-
-        return cartRepository.save(item);
+        CartItem item = cartStore.setQuantity(userId, productId, quantity);
+        if (item == null) {
+            throw new ResourceNotFoundException("Cart item not found for user: " + userId + " and product: " + productId);
+        }
+        return item;
     }
 
     @Override
     public void removeFromCart(String cartItemId) {
-        cartRepository.deleteById(cartItemId);
+        cartStore.remove(cartItemId);
     }
 
     @Override
     public List<CartItem> getUserCart(String userId) {
-        return cartRepository.findByUserId(userId);
+        return cartStore.items(userId);
+    }
+
+    @Override
+    public CartViewDTO getCartView(String userId) {
+        List<CartItem> items = cartStore.items(userId);
+        Map<String, ProductResponseDTO> products = productService.getProductSnapshots(
+                items.stream().map(CartItem::getProductId).toList());
+
+        List<CartViewDTO.Line> lines = new ArrayList<>(items.size());
+        List<String> warnings = new ArrayList<>();
+        int itemCount = 0;
+        double totalAmount = 0;
+        for (CartItem item : items) {
+            ProductResponseDTO product = products.get(item.getProductId());
+            if (product == null) {
+                lines.add(new CartViewDTO.Line(item.getId(), item.getProductId(), null, item.getQuantity(), 0, 0,
+                        CartViewDTO.StockStatus.UNAVAILABLE));
+                warnings.add("A product in your cart is no longer available");
+                continue;
+            }
+
+            CartViewDTO.StockStatus stockStatus;
+            if (product.stockQuantity() <= 0) {
+                stockStatus = CartViewDTO.StockStatus.OUT_OF_STOCK;
+                warnings.add(product.name() + " is out of stock");
+            } else if (product.stockQuantity() < item.getQuantity()) {
+                stockStatus = CartViewDTO.StockStatus.INSUFFICIENT_STOCK;
+                warnings.add("Only " + product.stockQuantity() + " of " + product.name() + " left in stock");
+            } else {
+                stockStatus = CartViewDTO.StockStatus.IN_STOCK;
+            }
+
+            double lineTotal = product.price() * item.getQuantity();
+            lines.add(new CartViewDTO.Line(item.getId(), item.getProductId(), product, item.getQuantity(),
+                    product.price(), lineTotal, stockStatus));
+            itemCount += item.getQuantity();
+            totalAmount += lineTotal;
+        }
+
+        // Prices include tax, split the same way as on invoices
+        double subtotal = totalAmount / (1 + taxRate);
+        return new CartViewDTO(userId, lines, itemCount, subtotal, totalAmount - subtotal, totalAmount, warnings);
     }
 
     @Override
     public void clearCart(String userId) {
-        cartRepository.deleteByUserId(userId);
+        cartStore.clear(userId);
     }
 }
@@ -1,7 +1,9 @@
 package com.ecommerce.project.service;
 
+import com.ecommerce.project.cache.ProductCatalogCache;
 import com.ecommerce.project.entity.Category;
 import com.ecommerce.project.repository.CategoryRepository;
+import com.ecommerce.project.search.ProductSearchEngine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -16,6 +18,8 @@ import java.util.List;
 public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final ProductSearchEngine searchEngine;
+    private final ProductCatalogCache catalogCache;
 
     @Override
     public Category createCategory(String name) {
@@ -55,6 +59,8 @@ public class CategoryServiceImpl implements CategoryService {
         category.setName(name);
 
         Category updated = categoryRepository.save(category);
+        searchEngine.onCategoryRenamed(updated);
+        catalogCache.onCategoryRenamed(categoryId);
         log.info("Updated category {}", categoryId);
         
         return updated;
@@ -5,16 +5,34 @@ import com.ecommerce.project.entity.Order;
 import com.ecommerce.project.entity.Product;
 import com.ecommerce.project.entity.User;
 
+import java.util.List;
+
 public interface EmailService {
-    
+
+    /**
+     * Queues at most one email per order while it is waiting to be sent, so an
+     * outbox message relayed twice sends it once; as does the admin's copy.
+     */
     void sendOrderConfirmationToCustomer(Order order, User user);
     
     void sendOrderNotificationToAdmin(Order order, User user);
 
-    void sendCartReminderEmail(User user, Product product);
+    /**
+     * @param reminderId queues at most one email per reminder while it is waiting to be sent
+     */
+    void sendCartReminderEmail(User user, Product product, String reminderId);
 
-    void sendWishlistReminderEmail(User user, Product product);
-    
+    void sendWishlistReminderEmail(User user, Product product, String reminderId);
+
+    /**
+     * One email for several reminders of the same user.
+     * @param digestId queues at most one email per digest while it is waiting to be sent
+     */
+    void sendReminderDigestEmail(User user, List<Product> cartProducts, List<Product> wishlistProducts, String digestId);
+
+    /**
+     * Queues at most one email per stored invoice while it is waiting to be sent; as does the admin's copy.
+     */
     void sendInvoiceToCustomer(Invoice invoice, User user, byte[] pdfData);
     
     void sendInvoiceToAdmin(Invoice invoice, User user, byte[] pdfData);
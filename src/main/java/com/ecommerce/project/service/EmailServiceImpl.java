@@ -3,26 +3,39 @@ package com.ecommerce.project.service;
 import com.ecommerce.project.entity.Invoice;
 import com.ecommerce.project.entity.Order;
 import com.ecommerce.project.entity.Product;
+import com.ecommerce.project.entity.QueuedEmail;
 import com.ecommerce.project.entity.User;
-import jakarta.mail.internet.MimeMessage;
+import com.ecommerce.project.cache.LocalCache;
+import com.ecommerce.project.mail.EmailQueue;
+import com.ecommerce.project.mail.template.EmailTemplates;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import java.time.format.DateTimeFormatter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Renders the shop's emails from the {@link EmailTemplates} and puts them on
+ * the {@link EmailQueue}; the EmailDispatcher sends them.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class EmailServiceImpl implements EmailService {
 
-    private final JavaMailSender mailSender;
+    private final EmailQueue emailQueue;
+    private final EmailTemplates emailTemplates;
+
+    private final LocalCache<String, OrderSections> orderSectionsCache =
+            new LocalCache<>("email-order-sections", 256, Duration.ofMinutes(10));
+
+    // The parts of an order's emails that the customer and admin versions share
+    private record OrderSections(EmailTemplates.Rendered summary, EmailTemplates.Rendered lines) {}
 
     @Value("${email.from}")
     private String fromEmail;
@@ -31,343 +44,224 @@ public class EmailServiceImpl implements EmailService {
     private String adminEmail;
 
     @Override
-    @Async
     public void sendOrderConfirmationToCustomer(Order order, User user) {
         log.info("Starting to send order confirmation email to customer: {} for order: {}", 
                 user.getEmail(), order.getId());
         try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(user.getEmail());
-            message.setSubject("Order Confirmation - Order #" + order.getId());
-            message.setText(buildCustomerEmailContent(order, user));
-
-            log.debug("Sending email from: {} to: {}", fromEmail, user.getEmail());
-            mailSender.send(message);
-            log.info("Order confirmation email sent successfully to customer: {} for order: {}", 
+            QueuedEmail email = email(fromEmail, user.getEmail(),
+                    "Order Confirmation - Order #" + order.getId(),
+                    emailTemplates.render("order-confirmation", orderEmailModel(order, user)));
+            email.setId("order-confirmation-" + order.getId());
+            emailQueue.add(email);
+            log.info("Order confirmation email queued for customer: {} for order: {}", 
                     user.getEmail(), order.getId());
         } catch (Exception e) {
-            log.error("Failed to send order confirmation email to customer: {} for order: {}. Error: {}", 
+            log.error("Failed to queue order confirmation email to customer: {} for order: {}. Error: {}", 
                     user.getEmail(), order.getId(), e.getMessage(), e);
-            throw new RuntimeException("Failed to send order confirmation email", e);
+            throw new RuntimeException("Failed to queue order confirmation email", e);
         }
     }
 
     @Override
-    @Async
     public void sendOrderNotificationToAdmin(Order order, User user) {
         log.info("Starting to send order notification email to admin: {} for order: {}", 
                 adminEmail, order.getId());
         try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(adminEmail);
-            message.setSubject("New Order Received - Order #" + order.getId());
-            message.setText(buildAdminEmailContent(order, user));
-
-            log.debug("Sending admin notification email from: {} to: {}", fromEmail, adminEmail);
-            mailSender.send(message);
-            log.info("Order notification email sent successfully to admin: {} for order: {}", 
+            QueuedEmail email = email(fromEmail, adminEmail,
+                    "New Order Received - Order #" + order.getId(),
+                    emailTemplates.render("order-notification", orderEmailModel(order, user)));
+            email.setId("order-notification-" + order.getId());
+            emailQueue.add(email);
+            log.info("Order notification email queued for admin: {} for order: {}", 
                     adminEmail, order.getId());
         } catch (Exception e) {
-            log.error("Failed to send order notification email to admin: {} for order: {}. Error: {}", 
+            log.error("Failed to queue order notification email to admin: {} for order: {}. Error: {}", 
                     adminEmail, order.getId(), e.getMessage(), e);
-            throw new RuntimeException("Failed to send order notification email to admin", e);
+            throw new RuntimeException("Failed to queue order notification email to admin", e);
         }
     }
 
     @Override
-    @Async
-    public void sendCartReminderEmail(User user, Product product) {
+    public void sendCartReminderEmail(User user, Product product, String reminderId) {
         try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(user.getEmail());
-            message.setSubject("Don't Forget Your Cart! Complete Your Purchase");
-            message.setText(buildCartReminderContent(user, product));
-
-            mailSender.send(message);
-            log.info("Cart reminder email sent to: {}", user.getEmail());
+            QueuedEmail email = email(fromEmail, user.getEmail(),
+                    "Don't Forget Your Cart! Complete Your Purchase",
+                    emailTemplates.render("cart-reminder", reminderModel(user, product)));
+            email.setId("reminder-" + reminderId);
+            emailQueue.add(email);
+            log.info("Cart reminder email queued for: {}", user.getEmail());
         } catch (Exception e) {
-            log.error("Failed to send cart reminder email to: {}", user.getEmail(), e);
+            log.error("Failed to queue cart reminder email to: {}", user.getEmail(), e);
+            throw new RuntimeException("Failed to queue cart reminder email", e);
         }
     }
 
     @Override
-    @Async
-    public void sendWishlistReminderEmail(User user, Product product) {
+    public void sendWishlistReminderEmail(User user, Product product, String reminderId) {
         try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(user.getEmail());
-            message.setSubject("Your Wishlist Item is Waiting! Buy Now");
-            message.setText(buildWishlistReminderContent(user, product));
-
-            mailSender.send(message);
-            log.info("Wishlist reminder email sent to: {}", user.getEmail());
+            QueuedEmail email = email(fromEmail, user.getEmail(),
+                    "Your Wishlist Item is Waiting! Buy Now",
+                    emailTemplates.render("wishlist-reminder", reminderModel(user, product)));
+            email.setId("reminder-" + reminderId);
+            emailQueue.add(email);
+            log.info("Wishlist reminder email queued for: {}", user.getEmail());
         } catch (Exception e) {
-            log.error("Failed to send wishlist reminder email to: {}", user.getEmail(), e);
+            log.error("Failed to queue wishlist reminder email to: {}", user.getEmail(), e);
+            throw new RuntimeException("Failed to queue wishlist reminder email", e);
         }
     }
 
-    private String buildCustomerEmailContent(Order order, User user) {
-        StringBuilder content = new StringBuilder();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
-
-        content.append("Dear ").append(user.getFullName()).append(",\n\n");
-        content.append("Thank you for your order! We have received your order and it is being processed.\n\n");
-        content.append("Order Details:\n");
-        content.append("=====================================\n");
-        content.append("Order ID: ").append(order.getId()).append("\n");
-        content.append("Order Date: ").append(order.getOrderDate().format(formatter)).append("\n");
-        content.append("Order Status: ").append(order.getStatus()).append("\n");
-        content.append("Total Amount: ₹").append(String.format("%.2f", order.getTotalAmount())).append("\n\n");
-
-        content.append("Items Ordered:\n");
-        content.append("-------------------------------------\n");
-        for (int i = 0; i < order.getItems().size(); i++) {
-            Order.OrderItem item = order.getItems().get(i);
-            content.append((i + 1)).append(". Product ID: ").append(item.getProductId()).append("\n");
-            content.append("   Quantity: ").append(item.getQuantity()).append("\n");
-            content.append("   Price: ₹").append(String.format("%.2f", item.getPrice())).append("\n\n");
+    @Override
+    public void sendReminderDigestEmail(User user, List<Product> cartProducts, List<Product> wishlistProducts,
+                                        String digestId) {
+        try {
+            Map<String, Object> model = reminderModel(user, null);
+            model.put("cartItems", cartProducts.stream().map(EmailServiceImpl::productModel).toList());
+            model.put("wishlistItems", wishlistProducts.stream().map(EmailServiceImpl::productModel).toList());
+            model.put("hasCartItems", !cartProducts.isEmpty());
+            model.put("hasWishlistItems", !wishlistProducts.isEmpty());
+            QueuedEmail email = email(fromEmail, user.getEmail(),
+                    "Items You Left Behind Are Still Waiting",
+                    emailTemplates.render("reminder-digest", model));
+            email.setId("reminder-digest-" + digestId);
+            emailQueue.add(email);
+            log.info("Reminder digest email with {} items queued for: {}",
+                    cartProducts.size() + wishlistProducts.size(), user.getEmail());
+        } catch (Exception e) {
+            log.error("Failed to queue reminder digest email to: {}", user.getEmail(), e);
+            throw new RuntimeException("Failed to queue reminder digest email", e);
         }
-
-        content.append("Shipping Address:\n");
-        content.append("-------------------------------------\n");
-        Order.Address address = order.getAddress();
-        content.append(address.getAddressLine()).append("\n");
-        content.append(address.getCity()).append(", ").append(address.getState()).append("\n");
-        content.append(address.getPostalCode()).append(", ").append(address.getCountry()).append("\n\n");
-
-        content.append("We will notify you once your order is shipped.\n\n");
-        content.append("Thank you for shopping with us!\n\n");
-        content.append("Best Regards,\n");
-        content.append("Adita Enterprise India");
-
-        return content.toString();
     }
 
-    private String buildAdminEmailContent(Order order, User user) {
-        StringBuilder content = new StringBuilder();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
-
-        content.append("New Order Received!\n\n");
-        content.append("Order Details:\n");
-        content.append("=====================================\n");
-        content.append("Order ID: ").append(order.getId()).append("\n");
-        content.append("Order Date: ").append(order.getOrderDate().format(formatter)).append("\n");
-        content.append("Order Status: ").append(order.getStatus()).append("\n");
-        content.append("Total Amount: ₹").append(String.format("%.2f", order.getTotalAmount())).append("\n\n");
+    // Both emails of a new order are usually sent one right after the other
+    private OrderSections orderSections(Order order) {
+        return orderSectionsCache.get(order.getId() + ":" + order.getStatus(), () -> {
+            Map<String, Object> model = orderModel(order);
+            return new OrderSections(emailTemplates.render("order-summary", model),
+                    emailTemplates.render("order-lines", model));
+        }, sections -> List.of());
+    }
 
-        content.append("Customer Details:\n");
-        content.append("-------------------------------------\n");
-        content.append("Name: ").append(user.getFullName()).append("\n");
-        content.append("Email: ").append(user.getEmail()).append("\n");
-        content.append("Phone: ").append(user.getPhone() != null ? user.getPhone() : "N/A").append("\n");
-        content.append("User ID: ").append(user.getId()).append("\n\n");
+    private Map<String, Object> orderEmailModel(Order order, User user) {
+        OrderSections sections = orderSections(order);
+        Map<String, Object> model = userModel(user);
+        model.put("orderSummary", sections.summary().text());
+        model.put("orderSummaryHtml", sections.summary().html());
+        model.put("orderLines", sections.lines().text());
+        model.put("orderLinesHtml", sections.lines().html());
+        return model;
+    }
 
-        content.append("Items Ordered:\n");
-        content.append("-------------------------------------\n");
-        for (int i = 0; i < order.getItems().size(); i++) {
-            Order.OrderItem item = order.getItems().get(i);
-            content.append((i + 1)).append(". Product ID: ").append(item.getProductId()).append("\n");
-            content.append("   Quantity: ").append(item.getQuantity()).append("\n");
-            content.append("   Price: ₹").append(String.format("%.2f", item.getPrice())).append("\n\n");
+    private static Map<String, Object> orderModel(Order order) {
+        Map<String, Object> model = new HashMap<>();
+        model.put("orderId", order.getId());
+        model.put("orderDate", order.getOrderDate());
+        model.put("status", order.getStatus());
+        model.put("totalAmount", order.getTotalAmount());
+        List<Map<String, Object>> items = new ArrayList<>(order.getItems().size());
+        for (Order.OrderItem item : order.getItems()) {
+            items.add(Map.of("productId", item.getProductId(), "quantity", item.getQuantity(), "price", item.getPrice()));
         }
-
-        content.append("Shipping Address:\n");
-        content.append("-------------------------------------\n");
+        model.put("items", items);
         Order.Address address = order.getAddress();
-        content.append(address.getAddressLine()).append("\n");
-        content.append(address.getCity()).append(", ").append(address.getState()).append("\n");
-        content.append(address.getPostalCode()).append(", ").append(address.getCountry()).append("\n\n");
-
-        content.append("Please process this order promptly.\n\n");
-        content.append("---\n");
-        content.append("Automated notification from Ecommerce System");
-
-        return content.toString();
+        Map<String, Object> addressModel = new HashMap<>();
+        addressModel.put("addressLine", address.getAddressLine());
+        addressModel.put("city", address.getCity());
+        addressModel.put("state", address.getState());
+        addressModel.put("postalCode", address.getPostalCode());
+        addressModel.put("country", address.getCountry());
+        model.put("address", addressModel);
+        return model;
     }
 
-    private String buildCartReminderContent(User user, Product product) {
-        StringBuilder content = new StringBuilder();
-
-        content.append("Dear ").append(user.getFullName()).append(",\n\n");
-        content.append("We noticed you left something in your cart!\n\n");
-        content.append("Don't miss out on this amazing product:\n\n");
-        content.append("=====================================\n");
-        content.append("Product: ").append(product.getName()).append("\n");
-        content.append("Price: ₹").append(String.format("%.2f", product.getPrice())).append("\n");
-        
-        if (product.getStockQuantity() > 0 && product.getStockQuantity() <= 5) {
-            content.append("⚠️ Only ").append(product.getStockQuantity()).append(" left in stock!\n");
-        }
-        
-        content.append("=====================================\n\n");
-        
-        // Add user's delivery address if available
-        if (user.getAddresses() != null && !user.getAddresses().isEmpty()) {
-            User.Address deliveryAddress = user.getAddresses().stream()
-                    .filter(User.Address::isDefault)
-                    .findFirst()
-                    .orElse(user.getAddresses().get(0));
-            
-            content.append("Delivery Address:\n");
-            content.append("-------------------------------------\n");
-            content.append(deliveryAddress.getAddressLine()).append("\n");
-            content.append(deliveryAddress.getCity()).append(", ").append(deliveryAddress.getState()).append("\n");
-            content.append(deliveryAddress.getPostalCode()).append(", ").append(deliveryAddress.getCountry()).append("\n\n");
-        }
-        
-        content.append("Complete your purchase now before it's gone!\n\n");
-        content.append("Your cart is waiting for you. Click below to checkout:\n");
-        content.append("👉 Visit our store and complete your order today!\n\n");
-        content.append("If you have any questions, feel free to reach out to us.\n\n");
-        content.append("Happy Shopping!\n\n");
-        content.append("Best Regards,\n");
-        content.append("Adita Enterprise India\n\n");
-        content.append("---\n");
-        content.append("P.S. This is a friendly reminder. If you've already completed your purchase, please ignore this email.");
-
-        return content.toString();
+    private static Map<String, Object> userModel(User user) {
+        Map<String, Object> model = new HashMap<>();
+        model.put("customerName", user.getFullName());
+        model.put("customerEmail", user.getEmail());
+        model.put("customerPhone", user.getPhone() != null ? user.getPhone() : "N/A");
+        model.put("userId", user.getId());
+        return model;
     }
 
-    private String buildWishlistReminderContent(User user, Product product) {
-        StringBuilder content = new StringBuilder();
-
-        content.append("Dear ").append(user.getFullName()).append(",\n\n");
-        content.append("Your wishlist item is calling you! 💝\n\n");
-        content.append("Remember this product you loved?\n\n");
-        content.append("=====================================\n");
-        content.append("Product: ").append(product.getName()).append("\n");
-        content.append("Price: ₹").append(String.format("%.2f", product.getPrice())).append("\n");
-        
-        if (product.getStockQuantity() > 0 && product.getStockQuantity() <= 5) {
-            content.append("⚠️ Hurry! Only ").append(product.getStockQuantity()).append(" left in stock!\n");
-        } else if (product.getStockQuantity() > 0) {
-            content.append("✅ In Stock - Available Now!\n");
-        } else {
-            content.append("❌ Currently Out of Stock\n");
+    private static Map<String, Object> reminderModel(User user, Product product) {
+        Map<String, Object> model = userModel(user);
+        if (product != null) {
+            model.putAll(productModel(product));
         }
-        
-        content.append("=====================================\n\n");
-        
+
         // Add user's delivery address if available
         if (user.getAddresses() != null && !user.getAddresses().isEmpty()) {
             User.Address deliveryAddress = user.getAddresses().stream()
                     .filter(User.Address::isDefault)
                     .findFirst()
                     .orElse(user.getAddresses().get(0));
-            
-            content.append("Delivery Address:\n");
-            content.append("-------------------------------------\n");
-            content.append(deliveryAddress.getAddressLine()).append("\n");
-            content.append(deliveryAddress.getCity()).append(", ").append(deliveryAddress.getState()).append("\n");
-            content.append(deliveryAddress.getPostalCode()).append(", ").append(deliveryAddress.getCountry()).append("\n\n");
-        }
-        
-        if (product.getStockQuantity() > 0) {
-            content.append("Why wait? Turn your wish into reality today!\n\n");
-            content.append("Move it to your cart and checkout now:\n");
-            content.append("👉 Buy Now and make it yours!\n\n");
-        } else {
-            content.append("This item is currently out of stock, but we'll notify you when it's back!\n\n");
+            Map<String, Object> address = new HashMap<>();
+            address.put("addressLine", deliveryAddress.getAddressLine());
+            address.put("city", deliveryAddress.getCity());
+            address.put("state", deliveryAddress.getState());
+            address.put("postalCode", deliveryAddress.getPostalCode());
+            address.put("country", deliveryAddress.getCountry());
+            model.put("deliveryAddress", address);
         }
-        
-        content.append("Don't let this opportunity slip away.\n\n");
-        content.append("Happy Shopping!\n\n");
-        content.append("Best Regards,\n");
-        content.append("Adita Enterprise India\n\n");
-        content.append("---\n");
-        content.append("P.S. You can manage your wishlist anytime by visiting our store.");
+        return model;
+    }
 
-        return content.toString();
+    private static Map<String, Object> productModel(Product product) {
+        Map<String, Object> model = new HashMap<>();
+        int stock = product.getStockQuantity();
+        model.put("productName", product.getName());
+        model.put("price", product.getPrice());
+        model.put("stock", stock);
+        model.put("inStock", stock > 0);
+        model.put("lowStock", stock > 0 && stock <= 5);
+        model.put("plentyInStock", stock > 5);
+        return model;
     }
 
     @Override
-    @Async
     public void sendInvoiceToCustomer(Invoice invoice, User user, byte[] pdfData) {
         try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true);
-
-            helper.setFrom(fromEmail);
-            helper.setTo(user.getEmail());
-            helper.setSubject("Invoice for Order #" + invoice.getOrderId());
-            helper.setText(buildInvoiceEmailContent(invoice, user));
-
-            // Attach PDF
-            helper.addAttachment(invoice.getInvoiceNumber() + ".pdf", new ByteArrayResource(pdfData));
-
-            mailSender.send(message);
-            log.info("Invoice email sent to customer: {}", user.getEmail());
+            QueuedEmail email = email(fromEmail, user.getEmail(),
+                    "Invoice for Order #" + invoice.getOrderId(),
+                    emailTemplates.render("invoice-customer", invoiceModel(invoice, user)))
+                    .attach(invoice.getInvoiceNumber() + ".pdf", "application/pdf", pdfData);
+            email.setId("invoice-customer-" + invoice.getId());
+            emailQueue.add(email);
+            log.info("Invoice email queued for customer: {}", user.getEmail());
         } catch (Exception e) {
-            log.error("Failed to send invoice email to customer: {}", user.getEmail(), e);
+            log.error("Failed to queue invoice email to customer: {}", user.getEmail(), e);
+            throw new RuntimeException("Failed to queue invoice email to customer", e);
         }
     }
 
     @Override
-    @Async
     public void sendInvoiceToAdmin(Invoice invoice, User user, byte[] pdfData) {
         try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true);
-
-            helper.setFrom(fromEmail);
-            helper.setTo(adminEmail);
-            helper.setSubject("Invoice Generated - Order #" + invoice.getOrderId());
-            helper.setText(buildAdminInvoiceEmailContent(invoice, user));
-
-            // Attach PDF
-            helper.addAttachment(invoice.getInvoiceNumber() + ".pdf", new ByteArrayResource(pdfData));
-
-            mailSender.send(message);
-            log.info("Invoice email sent to admin: {}", adminEmail);
+            QueuedEmail email = email(fromEmail, adminEmail,
+                    "Invoice Generated - Order #" + invoice.getOrderId(),
+                    emailTemplates.render("invoice-admin", invoiceModel(invoice, user)))
+                    .attach(invoice.getInvoiceNumber() + ".pdf", "application/pdf", pdfData);
+            email.setId("invoice-admin-" + invoice.getId());
+            emailQueue.add(email);
+            log.info("Invoice email queued for admin: {}", adminEmail);
         } catch (Exception e) {
-            log.error("Failed to send invoice email to admin", e);
+            log.error("Failed to queue invoice email to admin", e);
+            throw new RuntimeException("Failed to queue invoice email to admin", e);
         }
     }
 
-    private String buildInvoiceEmailContent(Invoice invoice, User user) {
-        StringBuilder content = new StringBuilder();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
-
-        content.append("Dear ").append(user.getFullName()).append(",\n\n");
-        content.append("Thank you for your order! Please find your invoice attached.\n\n");
-        content.append("Invoice Details:\n");
-        content.append("=====================================\n");
-        content.append("Invoice Number: ").append(invoice.getInvoiceNumber()).append("\n");
-        content.append("Invoice Date: ").append(invoice.getInvoiceDate().format(formatter)).append("\n");
-        content.append("Order ID: ").append(invoice.getOrderId()).append("\n");
-        content.append("Total Amount: ₹").append(String.format("%.2f", invoice.getTotalAmount())).append("\n\n");
-        content.append("The invoice PDF is attached to this email.\n\n");
-        content.append("If you have any questions, please don't hesitate to contact us.\n\n");
-        content.append("Best Regards,\n");
-        content.append("Adita Enterprise India");
-
-        return content.toString();
+    private static Map<String, Object> invoiceModel(Invoice invoice, User user) {
+        Map<String, Object> model = userModel(user);
+        model.put("invoiceNumber", invoice.getInvoiceNumber());
+        model.put("invoiceDate", invoice.getInvoiceDate());
+        model.put("orderId", invoice.getOrderId());
+        model.put("totalAmount", invoice.getTotalAmount());
+        return model;
     }
 
-    private String buildAdminInvoiceEmailContent(Invoice invoice, User user) {
-        StringBuilder content = new StringBuilder();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
-
-        content.append("Invoice Generated\n\n");
-        content.append("Invoice Details:\n");
-        content.append("=====================================\n");
-        content.append("Invoice Number: ").append(invoice.getInvoiceNumber()).append("\n");
-        content.append("Invoice Date: ").append(invoice.getInvoiceDate().format(formatter)).append("\n");
-        content.append("Order ID: ").append(invoice.getOrderId()).append("\n");
-        content.append("Total Amount: ₹").append(String.format("%.2f", invoice.getTotalAmount())).append("\n\n");
-        content.append("Customer Details:\n");
-        content.append("-------------------------------------\n");
-        content.append("Name: ").append(user.getFullName()).append("\n");
-        content.append("Email: ").append(user.getEmail()).append("\n");
-        content.append("User ID: ").append(user.getId()).append("\n\n");
-        content.append("The invoice PDF is attached to this email.\n\n");
-        content.append("---\n");
-        content.append("Automated notification from Ecommerce System");
-
-        return content.toString();
+    private static QueuedEmail email(String from, String to, String subject, EmailTemplates.Rendered body) {
+        QueuedEmail email = new QueuedEmail(from, to, subject, body.text());
+        email.setHtml(body.html());
+        return email;
     }
 }
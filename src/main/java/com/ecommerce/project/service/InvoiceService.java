@@ -6,10 +6,29 @@ import com.ecommerce.project.entity.User;
 
 import java.io.ByteArrayOutputStream;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface InvoiceService {
     
     Invoice generateInvoice(Order order, User user);
+
+    /**
+     * Builds (numbers and prices) the invoice of an order without rendering or saving it.
+     */
+    Invoice newInvoice(Order order, User user);
+
+    byte[] renderInvoicePdf(Order order, User user, Invoice invoice);
+
+    /**
+     * Uploads the rendered PDF and points the (unsaved) invoice at it.
+     */
+    void uploadInvoicePdf(Invoice invoice, byte[] pdfData);
+
+    /**
+     * Uploads the rendered PDF and saves the invoice pointing at it.
+     * @return the saved invoice, or the order's invoice another caller stored first
+     */
+    Invoice storeInvoice(Invoice invoice, byte[] pdfData);
     
     ByteArrayOutputStream generateInvoicePdf(String invoiceId);
     
@@ -18,8 +37,11 @@ public interface InvoiceService {
     Invoice getInvoiceById(String invoiceId);
     
     List<Invoice> getAllInvoices();
+
+    /**
+     * Lazily reads every invoice, newest first, from a Mongo cursor; the caller must close the stream.
+     */
+    Stream<Invoice> streamAllInvoices();
     
     byte[] downloadInvoicePdf(String invoiceId);
-    
-    ByteArrayOutputStream downloadAllInvoicesZip();
 }
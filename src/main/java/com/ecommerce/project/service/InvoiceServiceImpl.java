@@ -4,29 +4,60 @@ import com.ecommerce.project.entity.Invoice;
 import com.ecommerce.project.entity.Order;
 import com.ecommerce.project.entity.User;
 import com.ecommerce.project.exception.ResourceNotFoundException;
+import com.ecommerce.project.invoice.InvoicePdfCache;
 import com.ecommerce.project.repository.InvoiceRepository;
+import com.ecommerce.project.sequence.SequenceService;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.sf.jasperreports.engine.*;
 import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class InvoiceServiceImpl implements InvoiceService {
 
+    static final String INVOICE_NUMBER_SEQUENCE = "invoiceNumber";
+
     private final InvoiceRepository invoiceRepository;
     private final StorageService storageService;
+    private final InvoicePdfCache pdfCache;
+    private final SequenceService sequenceService;
+
+    @Value("${invoice.tax.rate:0.18}")
+    private double taxRate;
+
+    // Compiling the template costs far more than filling it, and a compiled
+    // report can be filled by several threads at once
+    private JasperReport invoiceTemplate;
+    private byte[] logo;
+
+    @PostConstruct
+    void loadTemplate() throws IOException, JRException {
+        try (InputStream templateStream = new ClassPathResource("invoice_template.jrxml").getInputStream()) {
+            invoiceTemplate = JasperCompileManager.compileReport(templateStream);
+        }
+        try (InputStream logoStream = new ClassPathResource("images/logo.png").getInputStream()) {
+            logo = logoStream.readAllBytes();
+        }
+        log.info("Invoice template compiled");
+    }
 
     @Override
     public Invoice generateInvoice(Order order, User user) {
@@ -38,40 +69,8 @@ public class InvoiceServiceImpl implements InvoiceService {
                 return existingInvoice.get();
             }
 
-            // Generate invoice number
-            String invoiceNumber = generateInvoiceNumber();
-
-            // Calculate amounts (assuming 18% GST)
-            double totalAmount = order.getTotalAmount();
-            double subtotal = totalAmount / 1.18;
-            double taxAmount = totalAmount - subtotal;
-
-            // Create invoice entity
-            Invoice invoice = new Invoice();
-            invoice.setInvoiceNumber(invoiceNumber);
-            invoice.setOrderId(order.getId());
-            invoice.setUserId(order.getUserId());
-            invoice.setCustomerName(user.getFullName());
-            invoice.setCustomerEmail(user.getEmail());
-            invoice.setTotalAmount(totalAmount);
-            invoice.setSubtotal(subtotal);
-            invoice.setTaxAmount(taxAmount);
-            invoice.setInvoiceDate(order.getOrderDate());
-            invoice.setGeneratedAt(LocalDateTime.now());
-
-            // Generate PDF
-            ByteArrayOutputStream pdfStream = generateInvoicePdfInternal(order, user, invoice);
-            
-            // Upload to R2/S3
-            String fileName = "invoices/" + invoiceNumber + ".pdf";
-            String pdfUrl = storageService.uploadFile(pdfStream.toByteArray(), fileName, "application/pdf");
-            invoice.setPdfPath(pdfUrl);
-
-            // Save invoice
-            Invoice savedInvoice = invoiceRepository.save(invoice);
-            log.info("Invoice generated successfully: {}", invoiceNumber);
-
-            return savedInvoice;
+            Invoice invoice = newInvoice(order, user);
+            return storeInvoice(invoice, renderInvoicePdf(order, user, invoice));
 
         } catch (Exception e) {
             log.error("Failed to generate invoice for order: {}", order.getId(), e);
@@ -79,6 +78,69 @@ public class InvoiceServiceImpl implements InvoiceService {
         }
     }
 
+    @Override
+    public Invoice newInvoice(Order order, User user) {
+        // Generate invoice number
+        String invoiceNumber = generateInvoiceNumber();
+
+        // Order totals include tax at the configured rate
+        double totalAmount = order.getTotalAmount();
+        double subtotal = totalAmount / (1 + taxRate);
+        double taxAmount = totalAmount - subtotal;
+
+        // Create invoice entity
+        Invoice invoice = new Invoice();
+        invoice.setInvoiceNumber(invoiceNumber);
+        invoice.setOrderId(order.getId());
+        invoice.setUserId(order.getUserId());
+        invoice.setCustomerName(user.getFullName());
+        invoice.setCustomerEmail(user.getEmail());
+        invoice.setTotalAmount(totalAmount);
+        invoice.setSubtotal(subtotal);
+        invoice.setTaxAmount(taxAmount);
+        invoice.setInvoiceDate(order.getOrderDate());
+        invoice.setGeneratedAt(LocalDateTime.now());
+        return invoice;
+    }
+
+    @Override
+    public byte[] renderInvoicePdf(Order order, User user, Invoice invoice) {
+        try {
+            return generateInvoicePdfInternal(order, user, invoice).toByteArray();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to render invoice " + invoice.getInvoiceNumber() + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void uploadInvoicePdf(Invoice invoice, byte[] pdfData) {
+        // Upload to R2/S3
+        String fileName = "invoices/" + invoice.getInvoiceNumber() + ".pdf";
+        String pdfUrl = storageService.uploadFile(pdfData, fileName, "application/pdf");
+        invoice.setPdfPath(pdfUrl);
+        // Downloads and re-sent emails of a new invoice are then served from disk
+        invoice.setPdfSha256(pdfCache.put(pdfData));
+    }
+
+    @Override
+    public Invoice storeInvoice(Invoice invoice, byte[] pdfData) {
+        uploadInvoicePdf(invoice, pdfData);
+
+        // Save invoice
+        Invoice savedInvoice;
+        try {
+            savedInvoice = invoiceRepository.save(invoice);
+        } catch (DuplicateKeyException e) {
+            // the unique orderId index: another node generated the order's invoice meanwhile
+            Invoice existing = invoiceRepository.findByOrderId(invoice.getOrderId()).orElseThrow(() -> e);
+            log.info("Invoice {} of order {} was already stored, dropping {}", existing.getInvoiceNumber(),
+                    invoice.getOrderId(), invoice.getInvoiceNumber());
+            return existing;
+        }
+        log.info("Invoice generated successfully: {}", invoice.getInvoiceNumber());
+        return savedInvoice;
+    }
+
     @Override
     public ByteArrayOutputStream generateInvoicePdf(String invoiceId) {
         Invoice invoice = invoiceRepository.findById(invoiceId)
@@ -106,11 +168,25 @@ public class InvoiceServiceImpl implements InvoiceService {
         return invoiceRepository.findAllByOrderByInvoiceDateDesc();
     }
 
+    @Override
+    public Stream<Invoice> streamAllInvoices() {
+        return invoiceRepository.streamAllByOrderByInvoiceDateDesc();
+    }
+
     @Override
     public byte[] downloadInvoicePdf(String invoiceId) {
         Invoice invoice = getInvoiceById(invoiceId);
         
         try {
+            Path cached = pdfCache.resolve(invoice);
+            if (cached != null) {
+                try {
+                    return Files.readAllBytes(cached);
+                } catch (NoSuchFileException e) {
+                    // evicted since it was resolved
+                    log.debug("Cached PDF of invoice {} was evicted, downloading it", invoiceId);
+                }
+            }
             // Download from R2/S3
             return storageService.downloadFile(invoice.getPdfPath());
         } catch (Exception e) {
@@ -119,42 +195,7 @@ public class InvoiceServiceImpl implements InvoiceService {
         }
     }
 
-    @Override
-    public ByteArrayOutputStream downloadAllInvoicesZip() {
-        try {
-            List<Invoice> invoices = getAllInvoices();
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ZipOutputStream zos = new ZipOutputStream(baos);
-
-            for (Invoice invoice : invoices) {
-                try {
-                    byte[] pdfData = downloadInvoicePdf(invoice.getId());
-                    ZipEntry entry = new ZipEntry(invoice.getInvoiceNumber() + ".pdf");
-                    zos.putNextEntry(entry);
-                    zos.write(pdfData);
-                    zos.closeEntry();
-                } catch (Exception e) {
-                    log.error("Failed to add invoice to zip: {}", invoice.getInvoiceNumber(), e);
-                }
-            }
-
-            zos.close();
-            return baos;
-
-        } catch (Exception e) {
-            log.error("Failed to create invoices zip", e);
-            throw new RuntimeException("Failed to create invoices zip: " + e.getMessage(), e);
-        }
-    }
-
     private ByteArrayOutputStream generateInvoicePdfInternal(Order order, User user, Invoice invoice) throws Exception {
-        // Load JRXML template
-        InputStream templateStream = new ClassPathResource("invoice_template.jrxml").getInputStream();
-        JasperReport jasperReport = JasperCompileManager.compileReport(templateStream);
-
-        // Load logo image
-        InputStream logoStream = new ClassPathResource("images/logo.png").getInputStream();
-
         // Prepare parameters
         Map<String, Object> parameters = new HashMap<>();
         parameters.put("invoiceNumber", invoice.getInvoiceNumber());
@@ -166,7 +207,7 @@ public class InvoiceServiceImpl implements InvoiceService {
         parameters.put("subtotal", invoice.getSubtotal());
         parameters.put("taxAmount", invoice.getTaxAmount());
         parameters.put("totalAmount", invoice.getTotalAmount());
-        parameters.put("logoPath", logoStream);
+        parameters.put("logoPath", logo);
 
         // Prepare data source
         List<InvoiceItem> items = new ArrayList<>();
@@ -182,7 +223,7 @@ public class InvoiceServiceImpl implements InvoiceService {
         JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(items);
 
         // Fill report
-        JasperPrint jasperPrint = JasperFillManager.fillReport(jasperReport, parameters, dataSource);
+        JasperPrint jasperPrint = JasperFillManager.fillReport(invoiceTemplate, parameters, dataSource);
 
         // Export to PDF
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
@@ -192,10 +233,9 @@ public class InvoiceServiceImpl implements InvoiceService {
     }
 
     private String generateInvoiceNumber() {
-        String prefix = "INV";
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String random = String.format("%04d", new Random().nextInt(10000));
-        return prefix + "-" + timestamp + "-" + random;
+        // The date is for people reading the number; uniqueness comes from the sequence
+        String date = LocalDateTime.now().format(DateTimeFormatter.BASIC_ISO_DATE);
+        return String.format("INV-%s-%06d", date, sequenceService.next(INVOICE_NUMBER_SEQUENCE));
     }
 
     private String formatAddress(Order.Address address) {
@@ -1,11 +1,14 @@
 package com.ecommerce.project.service;
 
+import com.ecommerce.project.dto.CursorPageDTO;
 import com.ecommerce.project.dto.OrderRequestDTO;
 import com.ecommerce.project.dto.OrderResponseDTO;
+import com.ecommerce.project.pagination.CursorRequest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface OrderService {
 
@@ -17,13 +20,22 @@ public interface OrderService {
 
     Page<OrderResponseDTO> getUserOrders(String userId, Pageable pageable);
 
+    CursorPageDTO<OrderResponseDTO> getUserOrders(String userId, CursorRequest request);
+
     OrderResponseDTO updateOrderStatus(String orderId, String status);
 
     void cancelOrder(String orderId, String userId);
 
     List<OrderResponseDTO> getAllOrders();
 
+    /**
+     * Lazily reads every order from a Mongo cursor; the caller must close the stream.
+     */
+    Stream<OrderResponseDTO> streamAllOrders();
+
     Page<OrderResponseDTO> getAllOrders(Pageable pageable);
 
+    CursorPageDTO<OrderResponseDTO> getAllOrders(CursorRequest request);
+
     List<String> getReviewableProductsForUser(String userId);
 }
@@ -1,23 +1,30 @@
 package com.ecommerce.project.service;
 
+import com.ecommerce.project.dto.CursorPageDTO;
 import com.ecommerce.project.dto.OrderRequestDTO;
 import com.ecommerce.project.dto.OrderResponseDTO;
 import com.ecommerce.project.entity.Order;
-import com.ecommerce.project.entity.User;
+import com.ecommerce.project.entity.OutboxMessage;
 import com.ecommerce.project.exception.BadRequestException;
 import com.ecommerce.project.exception.ResourceNotFoundException;
 import com.ecommerce.project.exception.UnauthorizedException;
+import com.ecommerce.project.inventory.StockReservationService;
+import com.ecommerce.project.outbox.Outbox;
+import com.ecommerce.project.pagination.CursorRequest;
+import com.ecommerce.project.pagination.KeysetPaginator;
 import com.ecommerce.project.repository.OrderRepository;
 import com.ecommerce.project.repository.ReviewRepository;
-import com.ecommerce.project.repository.UserRepository;
+import com.ecommerce.project.search.ProductSearchEngine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -25,47 +32,38 @@ import java.util.List;
 public class OrderServiceImpl implements OrderService {
 
     private final OrderRepository orderRepository;
-    private final UserRepository userRepository;
-    private final EmailService emailService;
-    private final InvoiceService invoiceService;
     private final ReviewRepository reviewRepository;
+    private final ProductSearchEngine searchEngine;
+    private final KeysetPaginator keysetPaginator;
+    private final StockReservationService stockReservationService;
+    private final Outbox outbox;
 
     @Override
     public OrderResponseDTO createOrder(OrderRequestDTO dto) {
         log.info("Creating order for user: {}", dto.userId());
 
         Order order = new Order();
+        // The id is assigned up front so the stock reservation can reference the order
+        order.setId(new ObjectId().toHexString());
         order.setUserId(dto.userId());
         order.setAddress(dto.address());
         order.setTotalAmount(dto.totalAmount());
         order.setItems(dto.items());
         order.setStatus(Order.Status.pending);
 
-        Order saved = orderRepository.save(order);
-        log.info("Order saved with ID: {}", saved.getId());
-
-        // Send emails asynchronously
+        stockReservationService.reserve(order.getId(), order.getUserId(), order.getItems());
+        List<OutboxMessage> sideEffects = outbox.add(order.getId(),
+                OutboxMessage.Type.ORDER_CONFIRMATION, OutboxMessage.Type.ORDER_NOTIFICATION);
+        Order saved;
         try {
-            log.info("Looking up user for email sending, userId: {}", dto.userId());
-            User user = userRepository.findById(dto.userId())
-                    .orElseThrow(() -> new ResourceNotFoundException("User", "id", dto.userId()));
-            log.info("User found for email: {} ({})", user.getFullName(), user.getEmail());
-            
-            // Send confirmation email to customer
-            log.info("Triggering customer confirmation email for order: {} to: {}", saved.getId(), user.getEmail());
-            emailService.sendOrderConfirmationToCustomer(saved, user);
-            log.info("Customer confirmation email method called for order: {}", saved.getId());
-            
-            // Send notification email to admin
-            log.info("Triggering admin notification email for order: {}", saved.getId());
-            emailService.sendOrderNotificationToAdmin(saved, user);
-            log.info("Admin notification email method called for order: {}", saved.getId());
-            
-            log.info("All order email methods triggered successfully for order: {}", saved.getId());
-        } catch (Exception e) {
-            log.error("Failed to trigger order emails for order: {}. Error: {}", saved.getId(), e.getMessage(), e);
-            // Don't fail the order creation if email fails
+            saved = orderRepository.save(order);
+        } catch (RuntimeException e) {
+            outbox.discard(sideEffects);
+            stockReservationService.release(order.getId());
+            throw e;
         }
+        log.info("Order saved with ID: {}", saved.getId());
+        searchEngine.recordSales(saved);
 
         return toDTO(saved);
     }
@@ -90,6 +88,12 @@ public class OrderServiceImpl implements OrderService {
                 .map(this::toDTO);
     }
 
+    @Override
+    public CursorPageDTO<OrderResponseDTO> getUserOrders(String userId, CursorRequest request) {
+        return keysetPaginator.page(Order.class, Criteria.where("userId").is(userId), request)
+                .map(this::toDTO);
+    }
+
     @Override
     public OrderResponseDTO updateOrderStatus(String orderId, String status) {
 
@@ -100,46 +104,25 @@ public class OrderServiceImpl implements OrderService {
         Order.Status oldStatus = order.getStatus();
         order.setStatus(newStatus);
 
-        Order savedOrder = orderRepository.save(order);
-
-        // Generate and send invoice when order is delivered
-        if (newStatus == Order.Status.delivered && oldStatus != Order.Status.delivered) {
-            try {
-                User user = userRepository.findById(order.getUserId())
-                        .orElseThrow(() -> new ResourceNotFoundException("User", "id", order.getUserId()));
-                
-                // Generate invoice (this will be done asynchronously in a separate thread)
-                generateAndSendInvoice(savedOrder, user);
-                
-                log.info("Invoice generation triggered for delivered order: {}", orderId);
-            } catch (Exception e) {
-                log.error("Failed to trigger invoice generation for order: {}", orderId, e);
-                // Don't fail the status update if invoice generation fails
-            }
+        // Generate and send the invoice once the order is delivered
+        List<OutboxMessage> sideEffects = newStatus == Order.Status.delivered && oldStatus != Order.Status.delivered
+                ? outbox.add(orderId, OutboxMessage.Type.INVOICE)
+                : List.of();
+        Order savedOrder;
+        try {
+            savedOrder = orderRepository.save(order);
+        } catch (RuntimeException e) {
+            outbox.discard(sideEffects);
+            throw e;
         }
 
-        return toDTO(savedOrder);
-    }
-
-    @Async
-    private void generateAndSendInvoice(Order order, User user) {
-        try {
-            log.info("Async invoice generation started for order: {}", order.getId());
-            
-            // Generate invoice
-            com.ecommerce.project.entity.Invoice invoice = invoiceService.generateInvoice(order, user);
-            
-            // Download PDF data
-            byte[] pdfData = invoiceService.downloadInvoicePdf(invoice.getId());
-            
-            // Send emails with invoice attachment
-            emailService.sendInvoiceToCustomer(invoice, user, pdfData);
-            emailService.sendInvoiceToAdmin(invoice, user, pdfData);
-            
-            log.info("Invoice generated and emailed successfully for order: {}", order.getId());
-        } catch (Exception e) {
-            log.error("Failed to generate and send invoice for order: {}", order.getId(), e);
+        if (newStatus == Order.Status.cancelled) {
+            stockReservationService.release(orderId);
+        } else if (newStatus != Order.Status.pending) {
+            stockReservationService.commit(orderId);
         }
+
+        return toDTO(savedOrder);
     }
 
     @Override
@@ -158,6 +141,7 @@ public class OrderServiceImpl implements OrderService {
 
         order.setStatus(Order.Status.cancelled);
         orderRepository.save(order);
+        stockReservationService.release(orderId);
     }
 
     @Override
@@ -166,12 +150,23 @@ public class OrderServiceImpl implements OrderService {
                 .stream().map(this::toDTO).toList();
     }
 
+    @Override
+    public Stream<OrderResponseDTO> streamAllOrders() {
+        return orderRepository.streamAllBy().map(this::toDTO);
+    }
+
     @Override
     public Page<OrderResponseDTO> getAllOrders(Pageable pageable) {
         return orderRepository.findAll(pageable)
                 .map(this::toDTO);
     }
 
+    @Override
+    public CursorPageDTO<OrderResponseDTO> getAllOrders(CursorRequest request) {
+        return keysetPaginator.page(Order.class, null, request)
+                .map(this::toDTO);
+    }
+
     private OrderResponseDTO toDTO(Order o) {
         return new OrderResponseDTO(
                 o.getId(),
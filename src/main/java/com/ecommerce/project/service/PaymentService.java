@@ -6,6 +6,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface PaymentService {
 
@@ -19,5 +20,10 @@ public interface PaymentService {
 
     List<Payment> getAllPayments();
 
+    /**
+     * Lazily reads every payment from a Mongo cursor; the caller must close the stream.
+     */
+    Stream<Payment> streamAllPayments();
+
     Page<Payment> getAllPayments(Pageable pageable);
 }
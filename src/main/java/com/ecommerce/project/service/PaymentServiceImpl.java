@@ -9,6 +9,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -61,6 +62,11 @@ public class PaymentServiceImpl implements PaymentService {
         return paymentRepository.findAll();
     }
 
+    @Override
+    public Stream<Payment> streamAllPayments() {
+        return paymentRepository.streamAllBy();
+    }
+
     @Override
     public Page<Payment> getAllPayments(Pageable pageable) {
         return paymentRepository.findAll(pageable);
@@ -1,12 +1,20 @@
 package com.ecommerce.project.service;
 
+import com.ecommerce.project.dto.CursorPageDTO;
+import com.ecommerce.project.dto.ProductFilterResponseDTO;
 import com.ecommerce.project.dto.ProductRequestDTO;
 import com.ecommerce.project.dto.ProductResponseDTO;
+import com.ecommerce.project.dto.ProductSuggestionDTO;
+import com.ecommerce.project.pagination.CursorRequest;
+import com.ecommerce.project.search.ProductFilter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public interface ProductService {
 
@@ -24,9 +32,26 @@ public interface ProductService {
 
     List<ProductResponseDTO> searchProducts(String keyword);
 
+    List<ProductSuggestionDTO> suggestProducts(String prefix, int limit);
+
+    ProductFilterResponseDTO filterProducts(ProductFilter filter, Pageable pageable);
+
     ProductResponseDTO getProduct(String id);
 
+    /**
+     * Products with prices and stock at most a few seconds old, for the cart.
+     * @return the products found, by id; unknown ids are left out
+     */
+    Map<String, ProductResponseDTO> getProductSnapshots(Collection<String> ids);
+
     List<ProductResponseDTO> getAllProducts();
 
+    /**
+     * Lazily reads every product from a Mongo cursor; the caller must close the stream.
+     */
+    Stream<ProductResponseDTO> streamAllProducts();
+
     Page<ProductResponseDTO> getAllProducts(Pageable pageable);
+
+    CursorPageDTO<ProductResponseDTO> getAllProducts(CursorRequest request);
 }
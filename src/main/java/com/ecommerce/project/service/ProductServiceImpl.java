@@ -1,24 +1,46 @@
 package com.ecommerce.project.service;
 
+import com.ecommerce.project.cache.ProductCatalogCache;
+import com.ecommerce.project.dto.CursorPageDTO;
+import com.ecommerce.project.dto.ProductFilterResponseDTO;
 import com.ecommerce.project.dto.ProductRequestDTO;
 import com.ecommerce.project.dto.ProductResponseDTO;
+import com.ecommerce.project.dto.ProductSuggestionDTO;
 import com.ecommerce.project.entity.Product;
+import com.ecommerce.project.exception.BadRequestException;
 import com.ecommerce.project.exception.ResourceNotFoundException;
+import com.ecommerce.project.inventory.InventoryStore;
+import com.ecommerce.project.pagination.CursorRequest;
+import com.ecommerce.project.pagination.KeysetPaginator;
 import com.ecommerce.project.repository.ProductRepository;
+import com.ecommerce.project.search.ProductFacetIndex;
+import com.ecommerce.project.search.ProductFilter;
+import com.ecommerce.project.search.ProductSearchEngine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-// Redis caching disabled - imports commented out
-// import org.springframework.cache.annotation.CacheEvict;
-// import org.springframework.cache.annotation.Cacheable;
-// import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -27,18 +49,18 @@ public class ProductServiceImpl implements ProductService {
 
     private final ProductRepository productRepository;
     private final ImageStorageService imageStorageService;
+    private final ProductCatalogCache catalogCache;
+    private final ProductSearchEngine searchEngine;
+    private final MongoTemplate mongoTemplate;
+    private final KeysetPaginator keysetPaginator;
+    private final InventoryStore inventoryStore;
+
+    private static final Set<String> FILTER_SORT_FIELDS = Set.of("id", "name", "price", "createdAt");
 
     /**
-     * Create product (Redis caching disabled)
+     * Create product
      */
     @Override
-    // @Caching(evict = {
-    //         @CacheEvict(value = "productsAll", allEntries = true),
-    //         @CacheEvict(value = "productsPage", allEntries = true),
-    //         @CacheEvict(value = "productsByCategory", allEntries = true),
-    //         @CacheEvict(value = "productsBySearch", allEntries = true),
-    //         @CacheEvict(value = "product", allEntries = true)
-    // })
     public ProductResponseDTO createProduct(ProductRequestDTO dto) {
 
         Product product = new Product();
@@ -52,22 +74,16 @@ public class ProductServiceImpl implements ProductService {
         product.setColor(dto.color());
 
         Product saved = productRepository.save(product);
+        catalogCache.onProductCreated(saved, searchEngine.index(saved));
         log.info("Created product with ID: {}", saved.getId());
 
         return toDTO(saved);
     }
 
     /**
-     * Create product with images (Redis caching disabled)
+     * Create product with images
      */
     @Override
-    // @Caching(evict = {
-    //         @CacheEvict(value = "productsAll", allEntries = true),
-    //         @CacheEvict(value = "productsPage", allEntries = true),
-    //         @CacheEvict(value = "productsByCategory", allEntries = true),
-    //         @CacheEvict(value = "productsBySearch", allEntries = true),
-    //         @CacheEvict(value = "product", allEntries = true)
-    // })
     public ProductResponseDTO createProductWithImages(ProductRequestDTO dto, MultipartFile[] images) {
         List<String> imageUrls = new ArrayList<>();
         
@@ -95,56 +111,37 @@ public class ProductServiceImpl implements ProductService {
         product.setColor(dto.color());
 
         Product saved = productRepository.save(product);
+        catalogCache.onProductCreated(saved, searchEngine.index(saved));
         log.info("Created product with ID: {} and {} images", saved.getId(), imageUrls.size());
 
         return toDTO(saved);
     }
 
     /**
-     * Update product (Redis caching disabled)
+     * Update product
      */
     @Override
-    // @Caching(evict = {
-    //         @CacheEvict(value = "product", key = "#id"),
-    //         @CacheEvict(value = "productsAll", allEntries = true),
-    //         @CacheEvict(value = "productsPage", allEntries = true),
-    //         @CacheEvict(value = "productsByCategory", allEntries = true),
-    //         @CacheEvict(value = "productsBySearch", allEntries = true)
-    // })
     public ProductResponseDTO updateProduct(String id, ProductRequestDTO dto) {
 
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "id", id));
-        
-        product.setName(dto.name());
-        product.setDescription(dto.description());
-        product.setCategoryId(dto.categoryId());
-        product.setPrice(dto.price());
-        product.setStockQuantity(dto.stockQuantity());
-        product.setImageUrls(dto.imageUrls());
-        product.setSize(dto.size());
-        product.setColor(dto.color());
+        Product before = snapshot(product);
 
-        Product updated = productRepository.save(product);
+        Product updated = update(before, dto, dto.imageUrls());
+        catalogCache.onProductUpdated(before, updated, searchEngine.index(updated));
         log.info("Updated product {}", id);
 
         return toDTO(updated);
     }
 
     /**
-     * Update product with images (Redis caching disabled)
+     * Update product with images
      */
     @Override
-    // @Caching(evict = {
-    //         @CacheEvict(value = "product", key = "#id"),
-    //         @CacheEvict(value = "productsAll", allEntries = true),
-    //         @CacheEvict(value = "productsPage", allEntries = true),
-    //         @CacheEvict(value = "productsByCategory", allEntries = true),
-    //         @CacheEvict(value = "productsBySearch", allEntries = true)
-    // })
     public ProductResponseDTO updateProductWithImages(String id, ProductRequestDTO dto, MultipartFile[] images, boolean keepExistingImages) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "id", id));
+        Product before = snapshot(product);
 
         List<String> imageUrls = new ArrayList<>();
         
@@ -174,32 +171,51 @@ public class ProductServiceImpl implements ProductService {
             }
         }
 
-        product.setName(dto.name());
-        product.setDescription(dto.description());
-        product.setCategoryId(dto.categoryId());
-        product.setPrice(dto.price());
-        product.setStockQuantity(dto.stockQuantity());
-        product.setImageUrls(imageUrls);
-        product.setSize(dto.size());
-        product.setColor(dto.color());
-
-        Product updated = productRepository.save(product);
+        Product updated = update(before, dto, imageUrls);
+        catalogCache.onProductUpdated(before, updated, searchEngine.index(updated));
         log.info("Updated product {} with {} total images", id, imageUrls.size());
 
         return toDTO(updated);
     }
 
     /**
-     * Delete product (Redis caching disabled)
+     * Writes the edited fields. Orders take stock while the product is being
+     * edited, so the stock is never written back: the difference between the
+     * requested stock and the stock the edit started from is applied through
+     * the inventory store instead, first so that a decrease below what is
+     * left rejects the whole edit.
+     */
+    private Product update(Product before, ProductRequestDTO dto, List<String> imageUrls) {
+        String id = before.getId();
+        int delta = dto.stockQuantity() - before.getStockQuantity();
+        if (delta > 0 && inventoryStore.giveBack(id, delta) < 0) {
+            throw new ResourceNotFoundException("Product", "id", id);
+        }
+        if (delta < 0 && inventoryStore.take(id, -delta) < 0) {
+            throw new BadRequestException("Cannot lower the stock of product " + id + " by " + -delta
+                    + ": fewer units are left");
+        }
+
+        Update update = new Update()
+                .set("name", dto.name())
+                .set("description", dto.description())
+                .set("categoryId", dto.categoryId())
+                .set("price", dto.price())
+                .set("imageUrls", imageUrls)
+                .set("size", dto.size())
+                .set("color", dto.color());
+        Product updated = mongoTemplate.findAndModify(new Query(Criteria.where("_id").is(id)), update,
+                FindAndModifyOptions.options().returnNew(true), Product.class);
+        if (updated == null) {
+            throw new ResourceNotFoundException("Product", "id", id);
+        }
+        return updated;
+    }
+
+    /**
+     * Delete product
      */
     @Override
-    // @Caching(evict = {
-    //         @CacheEvict(value = "product", key = "#id"),
-    //         @CacheEvict(value = "productsAll", allEntries = true),
-    //         @CacheEvict(value = "productsPage", allEntries = true),
-    //         @CacheEvict(value = "productsByCategory", allEntries = true),
-    //         @CacheEvict(value = "productsBySearch", allEntries = true)
-    // })
     public void deleteProduct(String id) {
         // Get product to delete its images
         Product product = productRepository.findById(id)
@@ -216,48 +232,108 @@ public class ProductServiceImpl implements ProductService {
         }
         
         productRepository.deleteById(id);
+        searchEngine.remove(id);
+        catalogCache.onProductDeleted(product);
         log.info("Deleted product {}", id);
     }
 
     /**
-     * Get products by category (Redis caching disabled)
+     * Get products by category (served from the catalog cache)
      */
     @Override
-    // @Cacheable(cacheNames = "productsByCategory", key = "#categoryId")
     public List<ProductResponseDTO> getProductsByCategory(String categoryId) {
-        log.info("Fetching products for category: {}", categoryId);
-        return productRepository.findByCategoryId(categoryId)
-                .stream().map(this::toDTO).toList();
+        return catalogCache.getProductsByCategory(categoryId, () -> {
+            log.info("Fetching products for category: {}", categoryId);
+            return productRepository.findByCategoryId(categoryId)
+                    .stream().map(this::toDTO).toList();
+        });
     }
 
     /**
-     * Search products by keyword (Redis caching disabled)
+     * Search products by keyword, ranked by the in-memory search index (served from the catalog cache).
+     * Falls back to the name regex query while the index is still being built.
      */
     @Override
-    // @Cacheable(cacheNames = "productsBySearch", key = "#keyword")
     public List<ProductResponseDTO> searchProducts(String keyword) {
-        log.info("Searching products with keyword: {}", keyword);
-        return productRepository.findByNameContainingIgnoreCase(keyword)
-                .stream().map(this::toDTO).toList();
+        return catalogCache.searchProducts(keyword, () -> {
+            if (!searchEngine.isReady()) {
+                log.info("Search index not ready, searching products by name with keyword: {}", keyword);
+                return productRepository.findByNameContainingIgnoreCase(keyword)
+                        .stream().map(this::toDTO).toList();
+            }
+            List<String> ids = searchEngine.search(keyword);
+            log.info("Search for keyword '{}' matched {} products", keyword, ids.size());
+            return findAllInOrder(ids);
+        });
     }
 
     /**
-     * Get single product by id (Redis caching disabled)
+     * Filter products by category, price range, size, color and stock, with facet counts
+     * computed from the in-memory bitmap index. While the index is still being built the
+     * page comes from Mongo and no facets are returned.
+     */
+    @Override
+    public ProductFilterResponseDTO filterProducts(ProductFilter filter, Pageable pageable) {
+        Sort.Order order = pageable.getSort().stream().findFirst().orElse(Sort.Order.asc("id"));
+        if (!FILTER_SORT_FIELDS.contains(order.getProperty())) {
+            throw new BadRequestException("Cannot sort filtered products by " + order.getProperty());
+        }
+        if (!searchEngine.isReady()) {
+            log.info("Search index not ready, filtering products in Mongo");
+            Query query = filterQuery(filter);
+            long total = mongoTemplate.count(query, Product.class);
+            List<ProductResponseDTO> content = mongoTemplate.find(query.with(pageable), Product.class)
+                    .stream().map(this::toDTO).toList();
+            return new ProductFilterResponseDTO(new PageImpl<>(content, pageable, total), Map.of());
+        }
+
+        ProductFacetIndex.FacetResult result = searchEngine.filter(filter, pageable.getOffset(),
+                pageable.getPageSize(), order.getProperty(), order.isDescending());
+        log.info("Product filter matched {} products", result.totalElements());
+        return new ProductFilterResponseDTO(
+                new PageImpl<>(findAllInOrder(result.productIds()), pageable, result.totalElements()),
+                result.facets());
+    }
+
+    /**
+     * Type-ahead completions for product and category names, most popular first
+     */
+    @Override
+    public List<ProductSuggestionDTO> suggestProducts(String prefix, int limit) {
+        return searchEngine.suggest(prefix, limit).stream()
+                .map(s -> new ProductSuggestionDTO(s.text(), s.type(), s.weight()))
+                .toList();
+    }
+
+    /**
+     * Get single product by id (served from the catalog cache)
      */
     @Override
-    // @Cacheable(cacheNames = "product", key = "#id")
     public ProductResponseDTO getProduct(String id) {
-        log.info("Fetching product with ID: {}", id);
-        return productRepository.findById(id)
-                .map(this::toDTO)
-                .orElseThrow(() -> new ResourceNotFoundException("Product", "id", id));
+        return catalogCache.getProduct(id, () -> {
+            log.info("Fetching product with ID: {}", id);
+            return productRepository.findById(id)
+                    .map(this::toDTO)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product", "id", id));
+        });
+    }
+
+    /**
+     * Products with current prices and stock, loading the uncached ones in one query
+     */
+    @Override
+    public Map<String, ProductResponseDTO> getProductSnapshots(Collection<String> ids) {
+        return catalogCache.getProductSnapshots(ids, missing -> {
+            List<ProductResponseDTO> found = new ArrayList<>();
+            productRepository.findAllById(missing).forEach(p -> found.add(toDTO(p)));
+            return found;
+        });
     }
 
     /**
-     * Get all products (Redis caching disabled)
+     * Get all products
      */
     @Override
-    // @Cacheable(cacheNames = "productsAll")
     public List<ProductResponseDTO> getAllProducts() {
         log.info("Fetching all products");
         return productRepository.findAll()
@@ -266,15 +342,81 @@ public class ProductServiceImpl implements ProductService {
                 .toList();
     }
 
+    @Override
+    public Stream<ProductResponseDTO> streamAllProducts() {
+        log.info("Streaming all products");
+        return productRepository.streamAllBy().map(this::toDTO);
+    }
+
     /**
-     * Get all products with pagination (Redis caching disabled)
+     * Get all products with pagination (served from the catalog cache)
      */
     @Override
-    // @Cacheable(cacheNames = "productsPage", key = "#pageable.pageNumber + '-' + #pageable.pageSize + '-' + (#pageable.sort != null ? #pageable.sort.toString() : '')")
     public Page<ProductResponseDTO> getAllProducts(Pageable pageable) {
-        log.info("Fetching products with pagination - page: {}, size: {}", pageable.getPageNumber(), pageable.getPageSize());
-        Page<Product> productPage = productRepository.findAll(pageable);
-        return productPage.map(this::toDTO);
+        return catalogCache.getProductsPage(pageable, () -> {
+            log.info("Fetching products with pagination - page: {}, size: {}", pageable.getPageNumber(), pageable.getPageSize());
+            Page<Product> productPage = productRepository.findAll(pageable);
+            return productPage.map(this::toDTO);
+        });
+    }
+
+    @Override
+    public CursorPageDTO<ProductResponseDTO> getAllProducts(CursorRequest request) {
+        log.info("Fetching products by cursor - sortBy: {}, size: {}", request.sortBy(), request.size());
+        return keysetPaginator.page(Product.class, null, request).map(this::toDTO);
+    }
+
+    // Loads products by id keeping the given order; ids deleted since they were indexed are skipped
+    private List<ProductResponseDTO> findAllInOrder(List<String> ids) {
+        Map<String, Product> byId = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).map(this::toDTO).toList();
+    }
+
+    private static Query filterQuery(ProductFilter filter) {
+        Query query = new Query();
+        if (!filter.categories().isEmpty()) {
+            query.addCriteria(Criteria.where("categoryId").in(filter.categories()));
+        }
+        if (filter.minPrice() != null || filter.maxPrice() != null) {
+            Criteria price = Criteria.where("price");
+            if (filter.minPrice() != null) {
+                price.gte(filter.minPrice());
+            }
+            if (filter.maxPrice() != null) {
+                price.lte(filter.maxPrice());
+            }
+            query.addCriteria(price);
+        }
+        if (!filter.sizes().isEmpty()) {
+            query.addCriteria(Criteria.where("size").in(filter.sizes()));
+        }
+        if (!filter.colors().isEmpty()) {
+            query.addCriteria(Criteria.where("color").in(filter.colors().stream()
+                    .map(c -> Pattern.compile("^" + Pattern.quote(c.trim()) + "$", Pattern.CASE_INSENSITIVE))
+                    .toList()));
+        }
+        if (filter.inStock() != null) {
+            query.addCriteria(filter.inStock()
+                    ? Criteria.where("stockQuantity").gt(0)
+                    : Criteria.where("stockQuantity").lte(0));
+        }
+        return query;
+    }
+
+    private static Product snapshot(Product p) {
+        return new Product(
+                p.getId(),
+                p.getName(),
+                p.getDescription(),
+                p.getCategoryId(),
+                p.getPrice(),
+                p.getStockQuantity(),
+                p.getImageUrls(),
+                p.getSize(),
+                p.getColor(),
+                p.getCreatedAt()
+        );
     }
 
     private ProductResponseDTO toDTO(Product p) {
@@ -4,6 +4,7 @@ import com.ecommerce.project.dto.RazorpayOrderRequestDTO;
 import com.ecommerce.project.dto.RazorpayOrderResponseDTO;
 import com.ecommerce.project.dto.RazorpayPaymentVerificationDTO;
 import com.ecommerce.project.entity.Payment;
+import com.ecommerce.project.inventory.StockReservationService;
 import com.ecommerce.project.repository.PaymentRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
@@ -24,6 +25,7 @@ public class RazorpayServiceImpl implements RazorpayService {
 
     private final RestClient razorpayRestClient;
     private final PaymentRepository paymentRepository;
+    private final StockReservationService stockReservationService;
 
     @Value("${razorpay.key.id}")
     private String keyId;
@@ -102,7 +104,10 @@ public class RazorpayServiceImpl implements RazorpayService {
             payment.setTransactionId(dto.razorpayPaymentId());
             payment.setPaymentDate(LocalDateTime.now());
 
-            return paymentRepository.save(payment);
+            Payment saved = paymentRepository.save(payment);
+            // Paid orders keep their stock past the reservation expiry
+            stockReservationService.commit(saved.getOrderId());
+            return saved;
 
         } catch (Exception e) {
             throw new RuntimeException("Payment verification failed: " + e.getMessage(), e);
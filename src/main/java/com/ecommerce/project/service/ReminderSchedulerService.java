@@ -9,6 +9,4 @@ public interface ReminderSchedulerService {
     void scheduleWishlistReminder(String userId, String productId, int delayMinutes);
 
     void cancelReminder(String userId, String productId, ReminderSchedule.ReminderType type);
-
-    void processPendingReminders();
 }
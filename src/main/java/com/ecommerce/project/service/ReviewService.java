@@ -1,8 +1,10 @@
 package com.ecommerce.project.service;
 
+import com.ecommerce.project.dto.CursorPageDTO;
 import com.ecommerce.project.dto.ReviewRequestDTO;
 import com.ecommerce.project.dto.ReviewResponseDTO;
 import com.ecommerce.project.entity.Review;
+import com.ecommerce.project.pagination.CursorRequest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -18,6 +20,8 @@ public interface ReviewService {
 
     Page<ReviewResponseDTO> getProductReviews(String productId, Pageable pageable);
 
+    CursorPageDTO<ReviewResponseDTO> getProductReviews(String productId, CursorRequest request);
+
     List<Review> getUserReviews(String userId);
 
     Review updateReview(String reviewId, int rating, String comment);
@@ -1,10 +1,13 @@
 package com.ecommerce.project.service;
 
+import com.ecommerce.project.dto.CursorPageDTO;
 import com.ecommerce.project.dto.ReviewRequestDTO;
 import com.ecommerce.project.dto.ReviewResponseDTO;
 import com.ecommerce.project.entity.Order;
 import com.ecommerce.project.entity.Review;
 import com.ecommerce.project.entity.User;
+import com.ecommerce.project.pagination.CursorRequest;
+import com.ecommerce.project.pagination.KeysetPaginator;
 import com.ecommerce.project.repository.OrderRepository;
 import com.ecommerce.project.repository.ReviewRepository;
 import com.ecommerce.project.repository.UserRepository;
@@ -13,6 +16,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -27,6 +31,7 @@ public class ReviewServiceImpl implements ReviewService {
     private final ReviewRepository reviewRepository;
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
+    private final KeysetPaginator keysetPaginator;
 
     @Override
     public Review addReview(ReviewRequestDTO dto) {
@@ -69,6 +74,14 @@ public class ReviewServiceImpl implements ReviewService {
         return new PageImpl<>(responseDTOs, pageable, reviewPage.getTotalElements());
     }
 
+    @Override
+    public CursorPageDTO<ReviewResponseDTO> getProductReviews(String productId, CursorRequest request) {
+        log.info("Fetching reviews for product: {} by cursor", productId);
+        CursorPageDTO<Review> reviewPage = keysetPaginator.page(Review.class, Criteria.where("productId").is(productId), request);
+        List<ReviewResponseDTO> responseDTOs = convertToResponseDTOs(reviewPage.content());
+        return new CursorPageDTO<>(responseDTOs, reviewPage.size(), reviewPage.hasNext(), reviewPage.nextCursor());
+    }
+
     private List<ReviewResponseDTO> convertToResponseDTOs(List<Review> reviews) {
         if (reviews.isEmpty()) {
             return List.of();
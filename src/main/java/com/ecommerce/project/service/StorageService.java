@@ -1,5 +1,7 @@
 package com.ecommerce.project.service;
 
+import java.io.InputStream;
+
 public interface StorageService {
     
     /**
@@ -17,6 +19,13 @@ public interface StorageService {
      * @return File data as byte array
      */
     byte[] downloadFile(String fileUrl);
+
+    /**
+     * Open a file in R2 storage for reading without loading it into memory
+     * @param fileUrl The public URL or file path
+     * @return Stream of the file data; the caller must close it
+     */
+    InputStream openStream(String fileUrl);
     
     /**
      * Delete a file from R2 storage
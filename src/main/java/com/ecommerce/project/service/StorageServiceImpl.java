@@ -4,13 +4,12 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
 @Service
 @RequiredArgsConstructor
@@ -50,25 +49,10 @@ public class StorageServiceImpl implements StorageService {
 
     @Override
     public byte[] downloadFile(String fileUrl) {
-        try {
-            String fileName = extractFileNameFromUrl(fileUrl);
-            
-            GetObjectRequest getObjectRequest = GetObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(fileName)
-                    .build();
-
-            ResponseInputStream<GetObjectResponse> response = r2Client.getObject(getObjectRequest);
-            
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            byte[] buffer = new byte[4096];
-            int bytesRead;
-            while ((bytesRead = response.read(buffer)) != -1) {
-                baos.write(buffer, 0, bytesRead);
-            }
-            
+        try (InputStream response = openStream(fileUrl)) {
+            byte[] data = response.readAllBytes();
             log.info("File downloaded successfully: {}", fileUrl);
-            return baos.toByteArray();
+            return data;
             
         } catch (IOException e) {
             log.error("Failed to download file {}: {}", fileUrl, e.getMessage());
@@ -76,6 +60,18 @@ public class StorageServiceImpl implements StorageService {
         }
     }
 
+    @Override
+    public InputStream openStream(String fileUrl) {
+        String fileName = extractFileNameFromUrl(fileUrl);
+
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(fileName)
+                .build();
+
+        return r2Client.getObject(getObjectRequest);
+    }
+
     @Override
     public boolean deleteFile(String fileUrl) {
         try {
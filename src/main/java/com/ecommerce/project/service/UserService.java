@@ -1,13 +1,16 @@
 package com.ecommerce.project.service;
 
+import com.ecommerce.project.dto.CursorPageDTO;
 import com.ecommerce.project.dto.UserRegisterDTO;
 import com.ecommerce.project.dto.UserLoginDTO;
 import com.ecommerce.project.dto.UserUpdateDTO;
 import com.ecommerce.project.entity.User;
+import com.ecommerce.project.pagination.CursorRequest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface UserService {
 
@@ -19,8 +22,15 @@ public interface UserService {
 
     List<User> getAllUsers();
 
+    /**
+     * Lazily reads every user from a Mongo cursor; the caller must close the stream.
+     */
+    Stream<User> streamAllUsers();
+
     Page<User> getAllUsers(Pageable pageable);
 
+    CursorPageDTO<User> getAllUsers(CursorRequest request);
+
     User getUserWithAddresses(String userId);
 
     User addAddress(String userId, User.Address address);
@@ -1,5 +1,6 @@
 package com.ecommerce.project.service;
 
+import com.ecommerce.project.dto.CursorPageDTO;
 import com.ecommerce.project.dto.UserRegisterDTO;
 import com.ecommerce.project.dto.UserLoginDTO;
 import com.ecommerce.project.dto.UserUpdateDTO;
@@ -7,6 +8,8 @@ import com.ecommerce.project.entity.User;
 import com.ecommerce.project.exception.DuplicateResourceException;
 import com.ecommerce.project.exception.ResourceNotFoundException;
 import com.ecommerce.project.exception.UnauthorizedException;
+import com.ecommerce.project.pagination.CursorRequest;
+import com.ecommerce.project.pagination.KeysetPaginator;
 import com.ecommerce.project.repository.UserRepository;
 import com.ecommerce.project.util.PasswordValidator;
 import lombok.RequiredArgsConstructor;
@@ -16,6 +19,8 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.stream.Stream;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -23,6 +28,7 @@ public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final KeysetPaginator keysetPaginator;
 
     @Override
     public User register(UserRegisterDTO dto) {
@@ -80,12 +86,24 @@ public class UserServiceImpl implements UserService {
         return userRepository.findAll();
     }
 
+    @Override
+    public Stream<User> streamAllUsers() {
+        log.info("Streaming all users");
+        return userRepository.streamAllBy();
+    }
+
     @Override
     public Page<User> getAllUsers(Pageable pageable) {
         log.info("Fetching all users with pagination");
         return userRepository.findAll(pageable);
     }
 
+    @Override
+    public CursorPageDTO<User> getAllUsers(CursorRequest request) {
+        log.info("Fetching all users by cursor");
+        return keysetPaginator.page(User.class, null, request);
+    }
+
     @Override
     public User getUserWithAddresses(String userId) {
         log.info("Fetching user with addresses for ID: {}", userId);
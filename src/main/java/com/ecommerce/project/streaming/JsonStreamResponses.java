@@ -0,0 +1,81 @@
+package com.ecommerce.project.streaming;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes unbounded listings straight from a Mongo cursor to the response.
+ *
+ * Each element is serialized and handed to the servlet output as soon as the
+ * cursor yields it, so heap use depends on the cursor batch size rather than on
+ * the collection size. The body is a plain JSON array by default (the same
+ * payload the list endpoints always returned) or newline-delimited JSON when
+ * the client accepts application/x-ndjson.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class JsonStreamResponses {
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    public static final MediaType NDJSON = MediaType.parseMediaType(NDJSON_VALUE);
+
+    // Push bytes to the client regularly even when documents are small
+    static final int FLUSH_EVERY = 256;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param source opens the cursor; called on the streaming thread and closed once written
+     * @param accept the request's Accept header, may be null
+     */
+    public <T> ResponseEntity<StreamingResponseBody> stream(Supplier<Stream<T>> source, String accept) {
+        boolean ndjson = accept != null && accept.contains(NDJSON_VALUE);
+        StreamingResponseBody body = out -> {
+            try (Stream<T> items = source.get()) {
+                write(objectMapper, items.iterator(), out, ndjson);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * Serializes the items one at a time; returns how many were written.
+     */
+    static long write(ObjectMapper objectMapper, Iterator<?> items, OutputStream out, boolean ndjson) throws IOException {
+        ObjectWriter writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        long count = 0;
+        try (SequenceWriter sequence = ndjson
+                ? writer.withRootValueSeparator("\n").writeValues(out)
+                : writer.writeValuesAsArray(out)) {
+            while (items.hasNext()) {
+                sequence.write(items.next());
+                if (++count % FLUSH_EVERY == 0) {
+                    sequence.flush();
+                }
+            }
+        }
+        if (ndjson && count > 0) {
+            out.write('\n');
+        }
+        out.flush();
+        log.debug("Streamed {} documents", count);
+        return count;
+    }
+}
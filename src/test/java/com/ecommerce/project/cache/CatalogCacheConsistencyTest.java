@@ -0,0 +1,93 @@
+package com.ecommerce.project.cache;
+
+import com.ecommerce.project.dto.ProductResponseDTO;
+import com.ecommerce.project.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Three cache nodes sharing one L2 tier and one invalidation bus, standing in
+ * for three instances behind the load balancer with a shared Redis.
+ */
+class CatalogCacheConsistencyTest {
+
+    private final AtomicReference<Product> database = new AtomicReference<>();
+    private final AtomicInteger databaseReads = new AtomicInteger();
+
+    private InMemorySharedCacheTier sharedTier;
+    private ProductCatalogCache nodeA;
+    private ProductCatalogCache nodeB;
+    private ProductCatalogCache nodeC;
+
+    @BeforeEach
+    void setUp() {
+        LocalInvalidationBus bus = new LocalInvalidationBus();
+        sharedTier = new InMemorySharedCacheTier();
+        nodeA = ProductCatalogCacheTest.newCache(bus, sharedTier, "node-a");
+        nodeB = ProductCatalogCacheTest.newCache(bus, sharedTier, "node-b");
+        nodeC = ProductCatalogCacheTest.newCache(bus, sharedTier, "node-c");
+        database.set(product("Blue Shirt", 10.0));
+    }
+
+    @Test
+    void secondNodeIsServedFromSharedTier() {
+        nodeA.getProduct("p1", this::loadFromDatabase);
+        ProductResponseDTO fromB = nodeB.getProduct("p1", this::loadFromDatabase);
+
+        assertEquals("Blue Shirt", fromB.name());
+        assertEquals(1, databaseReads.get());
+    }
+
+    @Test
+    void updateOnOneNodeIsVisibleOnAllNodes() {
+        for (ProductCatalogCache node : List.of(nodeA, nodeB, nodeC)) {
+            node.getProduct("p1", this::loadFromDatabase);
+            node.getProductsByCategory("c1", () -> List.of(loadFromDatabase()));
+        }
+
+        Product before = database.get();
+        Product after = product("Blue Shirt", 12.5);
+        database.set(after);
+        nodeA.onProductUpdated(before, after, ProductCatalogCacheTest.searchTerms(after));
+
+        for (ProductCatalogCache node : List.of(nodeA, nodeB, nodeC)) {
+            assertEquals(12.5, node.getProduct("p1", this::loadFromDatabase).price());
+            assertEquals(12.5, node.getProductsByCategory("c1", () -> List.of(loadFromDatabase())).get(0).price());
+        }
+    }
+
+    @Test
+    void deleteOnOneNodeEvictsEverywhere() {
+        nodeB.getProduct("p1", this::loadFromDatabase);
+        nodeC.getProduct("p1", this::loadFromDatabase);
+
+        Product deleted = database.getAndSet(null);
+        nodeA.onProductDeleted(deleted);
+
+        assertNull(nodeB.getProduct("p1", this::loadFromDatabase));
+        assertNull(nodeC.getProduct("p1", this::loadFromDatabase));
+        assertEquals(0, sharedTier.size());
+    }
+
+    private ProductResponseDTO loadFromDatabase() {
+        databaseReads.incrementAndGet();
+        Product p = database.get();
+        if (p == null) {
+            return null;
+        }
+        return new ProductResponseDTO(p.getId(), p.getName(), p.getDescription(), p.getPrice(),
+                p.getStockQuantity(), p.getCategoryId(), p.getColor(), p.getSize(), p.getImageUrls());
+    }
+
+    private static Product product(String name, double price) {
+        return new Product("p1", name, "description", "c1", price, 5, List.of(),
+                Product.Size.M, "blue", LocalDateTime.now());
+    }
+}
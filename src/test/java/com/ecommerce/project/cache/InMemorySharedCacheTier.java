@@ -0,0 +1,53 @@
+package com.ecommerce.project.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stand-in for the Redis L2 tier shared by several cache nodes in one JVM.
+ * TTLs are ignored.
+ */
+class InMemorySharedCacheTier implements SharedCacheTier {
+
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> tags = new ConcurrentHashMap<>();
+
+    @Override
+    public String get(String region, String key) {
+        return values.get(region + ":" + key);
+    }
+
+    @Override
+    public void put(String region, String key, String value, Collection<String> entryTags, Duration ttl) {
+        String fullKey = region + ":" + key;
+        values.put(fullKey, value);
+        for (String tag : entryTags) {
+            tags.computeIfAbsent(region + ":" + tag, t -> ConcurrentHashMap.newKeySet()).add(fullKey);
+        }
+    }
+
+    @Override
+    public void evict(String region, String key) {
+        values.remove(region + ":" + key);
+    }
+
+    @Override
+    public void evictTag(String region, String tag) {
+        Set<String> keys = tags.remove(region + ":" + tag);
+        if (keys != null) {
+            keys.forEach(values::remove);
+        }
+    }
+
+    @Override
+    public void clear(String region) {
+        values.keySet().removeIf(k -> k.startsWith(region + ":"));
+    }
+
+    int size() {
+        return values.size();
+    }
+}
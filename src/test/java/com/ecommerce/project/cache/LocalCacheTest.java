@@ -0,0 +1,104 @@
+package com.ecommerce.project.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private LocalCache<String, String> cache(int maxSize) {
+        return new LocalCache<>("test", maxSize, Duration.ofSeconds(10), now::get);
+    }
+
+    @Test
+    void loadsOnceAndCountsHitsAndMisses() {
+        LocalCache<String, String> cache = cache(10);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("a", () -> "A" + loads.incrementAndGet(), v -> List.of());
+        String second = cache.get("a", () -> "A" + loads.incrementAndGet(), v -> List.of());
+
+        assertEquals("A1", second);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    void expiresEntriesAfterTtl() {
+        LocalCache<String, String> cache = cache(10);
+        cache.put("a", "A", List.of());
+
+        now.addAndGet(Duration.ofSeconds(11).toNanos());
+
+        assertNull(cache.getIfPresent("a"));
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWhenFull() {
+        LocalCache<String, String> cache = cache(2);
+        cache.put("a", "A", List.of());
+        cache.put("b", "B", List.of());
+        cache.getIfPresent("a");
+        cache.put("c", "C", List.of());
+
+        assertNotNull(cache.getIfPresent("a"));
+        assertNull(cache.getIfPresent("b"));
+        assertNotNull(cache.getIfPresent("c"));
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    void invalidatesOnlyTaggedEntries() {
+        LocalCache<String, String> cache = cache(10);
+        cache.put("list-1", "x", List.of("product:1", "product:2"));
+        cache.put("list-2", "y", List.of("product:3"));
+
+        assertEquals(1, cache.invalidateTag("product:2"));
+
+        assertNull(cache.getIfPresent("list-1"));
+        assertNotNull(cache.getIfPresent("list-2"));
+    }
+
+    @Test
+    void discardsLoadThatRacedWithInvalidation() {
+        LocalCache<String, String> cache = cache(10);
+
+        String value = cache.get("a", () -> {
+            cache.invalidateTag("product:1");
+            return "stale";
+        }, v -> List.of("product:1"));
+
+        assertEquals("stale", value);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void loadsAllMissingKeysInOneCall() {
+        LocalCache<String, String> cache = cache(10);
+        cache.put("a", "A", List.of());
+        List<Set<String>> loads = new ArrayList<>();
+
+        Map<String, String> values = cache.getAll(List.of("a", "b", "c", "b"), missing -> {
+            loads.add(Set.copyOf(missing));
+            return Map.of("b", "B");
+        }, v -> List.of());
+
+        assertEquals(Map.of("a", "A", "b", "B"), values);
+        assertEquals(List.of(Set.of("b", "c")), loads);
+        assertEquals("B", cache.getIfPresent("b"));
+        // unknown keys are not cached
+        assertNull(cache.getIfPresent("c"));
+    }
+}
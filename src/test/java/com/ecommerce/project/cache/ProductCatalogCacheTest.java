@@ -0,0 +1,147 @@
+package com.ecommerce.project.cache;
+
+import com.ecommerce.project.dto.ProductResponseDTO;
+import com.ecommerce.project.entity.Product;
+import com.ecommerce.project.search.ProductSearchIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCatalogCacheTest {
+
+    private ProductCatalogCache cache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        cache = newCache(new LocalInvalidationBus(), null, "node-1");
+    }
+
+    static ProductCatalogCache newCache(CacheInvalidationBus bus, SharedCacheTier sharedTier, String nodeId) {
+        ProductCatalogCache cache = new ProductCatalogCache(bus, sharedTier, new ObjectMapper());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "nodeId", nodeId);
+        ReflectionTestUtils.setField(cache, "l2TtlMinutes", 10L);
+        ReflectionTestUtils.setField(cache, "doubleDeleteDelayMs", 50L);
+        ReflectionTestUtils.setField(cache, "snapshotMaxSize", 100);
+        ReflectionTestUtils.setField(cache, "snapshotTtlSeconds", 30L);
+        for (String region : List.of("product", "category", "search", "page")) {
+            ReflectionTestUtils.setField(cache, region + "MaxSize", 100);
+            ReflectionTestUtils.setField(cache, region + "TtlMinutes", 10L);
+        }
+        cache.init();
+        return cache;
+    }
+
+    @Test
+    void updateEvictsOnlyEntriesContainingTheProduct() {
+        Product shirt = product("p1", "Blue Shirt", "c1", 10.0);
+        Product jeans = product("p2", "Jeans", "c2", 20.0);
+
+        cache.getProduct("p1", () -> load(shirt));
+        cache.getProduct("p2", () -> load(jeans));
+        cache.getProductsByCategory("c1", () -> List.of(load(shirt)));
+        cache.getProductsByCategory("c2", () -> List.of(load(jeans)));
+        loads.set(0);
+
+        Product renamed = product("p1", "Blue Shirt v2", "c1", 10.0);
+        cache.onProductUpdated(shirt, renamed, searchTerms(renamed));
+
+        cache.getProduct("p1", () -> load(renamed));
+        cache.getProduct("p2", () -> load(jeans));
+        cache.getProductsByCategory("c1", () -> List.of(load(renamed)));
+        cache.getProductsByCategory("c2", () -> List.of(load(jeans)));
+
+        assertEquals(2, loads.get(), "only product p1 and category c1 should be reloaded");
+    }
+
+    @Test
+    void updateEvictsSearchesTheProductNowMatches() {
+        Product shirt = product("p1", "Blue Shirt", "c1", 10.0);
+        cache.searchProducts("red", List::of);
+        cache.searchProducts("jeans", List::of);
+
+        Product red = product("p1", "Red Shirt", "c1", 10.0);
+        cache.onProductUpdated(shirt, red, searchTerms(red));
+
+        loads.set(0);
+        cache.searchProducts("RED", () -> { loads.incrementAndGet(); return List.of(); });
+        cache.searchProducts("jeans", () -> { loads.incrementAndGet(); return List.of(); });
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void pagesSortedByChangedFieldAreEvicted() {
+        Product shirt = product("p1", "Shirt", "c1", 10.0);
+        Product jeans = product("p2", "Jeans", "c1", 20.0);
+        Pageable byPrice = PageRequest.of(3, 10, Sort.by("price"));
+        Pageable byId = PageRequest.of(3, 10, Sort.by("id"));
+
+        cache.getProductsPage(byPrice, () -> new PageImpl<>(List.of(load(jeans)), byPrice, 40));
+        cache.getProductsPage(byId, () -> new PageImpl<>(List.of(load(jeans)), byId, 40));
+        loads.set(0);
+
+        Product repriced = product("p1", "Shirt", "c1", 99.0);
+        cache.onProductUpdated(shirt, repriced, searchTerms(repriced));
+
+        cache.getProductsPage(byPrice, () -> new PageImpl<>(List.of(load(jeans)), byPrice, 40));
+        var page = cache.getProductsPage(byId, () -> new PageImpl<>(List.of(load(jeans)), byId, 40));
+        assertEquals(1, loads.get(), "only the price-sorted page should be reloaded");
+        assertEquals(40, page.getTotalElements());
+    }
+
+    @Test
+    void snapshotsAreLoadedTogetherAndEvictedWhenStockChanges() {
+        Product shirt = product("p1", "Shirt", "c1", 10.0);
+        Product jeans = product("p2", "Jeans", "c1", 20.0);
+        Map<String, Product> stored = new HashMap<>(Map.of("p1", shirt, "p2", jeans));
+        AtomicInteger queries = new AtomicInteger();
+        Function<Set<String>, List<ProductResponseDTO>> loader = ids -> {
+            queries.incrementAndGet();
+            return ids.stream().filter(stored::containsKey).map(id -> load(stored.get(id))).toList();
+        };
+
+        assertEquals(Set.of("p1", "p2"), cache.getProductSnapshots(List.of("p1", "p2", "gone"), loader).keySet());
+        cache.getProductSnapshots(List.of("p1", "p2"), loader);
+        assertEquals(1, queries.get());
+
+        Product soldOut = product("p1", "Shirt", "c1", 10.0);
+        soldOut.setStockQuantity(0);
+        stored.put("p1", soldOut);
+        cache.onStockChanged(soldOut, searchTerms(soldOut));
+
+        loads.set(0);
+        assertEquals(0, cache.getProductSnapshots(List.of("p1", "p2"), loader).get("p1").stockQuantity());
+        assertEquals(1, loads.get(), "only p1 should be reloaded");
+    }
+
+    static Set<String> searchTerms(Product p) {
+        return new ProductSearchIndex().index(p, null);
+    }
+
+    private ProductResponseDTO load(Product p) {
+        loads.incrementAndGet();
+        return new ProductResponseDTO(p.getId(), p.getName(), p.getDescription(), p.getPrice(),
+                p.getStockQuantity(), p.getCategoryId(), p.getColor(), p.getSize(), p.getImageUrls());
+    }
+
+    private static Product product(String id, String name, String categoryId, double price) {
+        return new Product(id, name, "description", categoryId, price, 5, List.of(),
+                Product.Size.M, "blue", LocalDateTime.now());
+    }
+}
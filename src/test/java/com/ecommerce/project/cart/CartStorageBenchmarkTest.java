@@ -0,0 +1,135 @@
+package com.ecommerce.project.cart;
+
+import com.ecommerce.project.entity.CartItem;
+import com.ecommerce.project.repository.CartRepository;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cart operations per second with one document per item and with one document
+ * per user, for 2k shoppers on 16 threads who each add products, add some of
+ * them again, change a quantity, remove an item and read their cart. The
+ * per-item carts are then migrated and must come out the same.
+ *
+ * Run with: mvn test -Dtest=CartStorageBenchmarkTest -Dbenchmark=true -Dbenchmark.mongo.uri=mongodb://localhost:27017
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@EnabledIfSystemProperty(named = "benchmark.mongo.uri", matches = ".+")
+class CartStorageBenchmarkTest {
+
+    private static final int USERS = 2_000;
+    private static final int PRODUCTS = 8;
+    private static final int THREADS = 16;
+    // adds, adds again, quantity change, removal and three reads
+    private static final int OPS_PER_USER = PRODUCTS + PRODUCTS / 2 + 1 + 1 + 3;
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+    private static CartRepository cartRepository;
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(System.getProperty("benchmark.mongo.uri"));
+        mongoTemplate = new MongoTemplate(client, "cart_benchmark_" + System.currentTimeMillis());
+        cartRepository = new MongoRepositoryFactory(mongoTemplate).getRepository(CartRepository.class);
+        // both layouts get the indexes they need, so only the round trips differ
+        mongoTemplate.indexOps(CartItem.class).createIndex(new Index()
+                .on("userId", Sort.Direction.ASC).on("productId", Sort.Direction.ASC));
+        mongoTemplate.indexOps(DocumentCartStore.COLLECTION).createIndex(new Index()
+                .on("items.id", Sort.Direction.ASC).named("items_id"));
+    }
+
+    @AfterAll
+    static void drop() {
+        mongoTemplate.getDb().drop();
+        client.close();
+    }
+
+    @Test
+    void itemsAgainstOneDocumentPerUser() throws Exception {
+        ItemCartStore items = new ItemCartStore(cartRepository);
+        DocumentCartStore documents = new DocumentCartStore(mongoTemplate, 500);
+        documents.ready();
+
+        double itemsPerSecond = run(items, "items-user");
+        double documentsPerSecond = run(documents, "document-user");
+
+        List<List<CartItem>> before = new ArrayList<>();
+        for (int u = 0; u < USERS; u++) {
+            before.add(sorted(items.items("items-user" + u)));
+        }
+        assertEquals(USERS * (PRODUCTS - 1), documents.migrate());
+        assertEquals(0, mongoTemplate.count(new Query(), CartItem.class));
+        for (int u = 0; u < USERS; u++) {
+            List<CartItem> after = sorted(documents.items("items-user" + u));
+            assertEquals(before.get(u).size(), after.size());
+            for (int i = 0; i < after.size(); i++) {
+                assertEquals(before.get(u).get(i).getId(), after.get(i).getId());
+                assertEquals(before.get(u).get(i).getQuantity(), after.get(i).getQuantity());
+            }
+        }
+        // a second run finds nothing left to move
+        assertEquals(0, documents.migrate());
+
+        System.out.printf("Cart operations: one document per item %.0f/s, one document per user %.0f/s%n",
+                itemsPerSecond, documentsPerSecond);
+        assertTrue(documentsPerSecond > itemsPerSecond);
+    }
+
+    private double run(CartStore store, String userPrefix) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        List<Future<?>> running = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            running.add(pool.submit(() -> {
+                for (int u = thread; u < USERS; u += THREADS) {
+                    shop(store, userPrefix + u);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : running) {
+            future.get();
+        }
+        pool.shutdown();
+        return USERS * OPS_PER_USER / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private void shop(CartStore store, String userId) {
+        for (int p = 0; p < PRODUCTS; p++) {
+            assertTrue(store.add(userId, "product" + p, 1).created());
+        }
+        for (int p = 0; p < PRODUCTS / 2; p++) {
+            assertEquals(2, store.add(userId, "product" + p, 1).item().getQuantity());
+        }
+        List<CartItem> cart = store.items(userId);
+        assertEquals(PRODUCTS, cart.size());
+        store.setQuantity(userId, "product" + (PRODUCTS - 1), 5);
+        store.remove(cart.get(0).getId());
+        assertEquals(PRODUCTS - 1, store.items(userId).size());
+        store.items(userId);
+    }
+
+    private static List<CartItem> sorted(List<CartItem> items) {
+        return items.stream().sorted(Comparator.comparing(CartItem::getId)).toList();
+    }
+}
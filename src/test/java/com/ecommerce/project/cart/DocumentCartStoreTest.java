@@ -0,0 +1,113 @@
+package com.ecommerce.project.cart;
+
+import com.ecommerce.project.entity.CartItem;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The cart updates run as pipelines on the server, so these need a database.
+ *
+ * Run with: mvn test -Dtest=DocumentCartStoreTest -Dmongo.uri=mongodb://localhost:27017
+ */
+@EnabledIfSystemProperty(named = "mongo.uri", matches = ".+")
+class DocumentCartStoreTest {
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+
+    private final DocumentCartStore store = new DocumentCartStore(mongoTemplate, 2);
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(System.getProperty("mongo.uri"));
+        mongoTemplate = new MongoTemplate(client, "document_cart_store_" + System.currentTimeMillis());
+        mongoTemplate.indexOps(DocumentCartStore.COLLECTION).createIndex(new Index()
+                .on("items.id", Sort.Direction.ASC).named("items_id"));
+    }
+
+    @AfterAll
+    static void drop() {
+        mongoTemplate.getDb().drop();
+        client.close();
+    }
+
+    @BeforeEach
+    void empty() {
+        mongoTemplate.remove(new Query(), DocumentCartStore.COLLECTION);
+        mongoTemplate.remove(new Query(), CartItem.class);
+    }
+
+    @Test
+    void addingAProductTwiceRaisesTheQuantityOfItsItem() {
+        CartStore.Added first = store.add("u1", "shirt", 2);
+        CartStore.Added second = store.add("u1", "shirt", 3);
+        store.add("u1", "socks", 1);
+
+        assertTrue(first.created());
+        assertFalse(second.created());
+        assertEquals(first.item().getId(), second.item().getId());
+        assertEquals(5, second.item().getQuantity());
+        List<CartItem> items = store.items("u1");
+        assertEquals(List.of("shirt", "socks"), items.stream().map(CartItem::getProductId).toList());
+        assertEquals(5, items.get(0).getQuantity());
+    }
+
+    @Test
+    void rerunningAMigrationCutShortCountsNoItemTwice() {
+        legacy("i1", "u1", "shirt", 2);
+        legacy("i2", "u1", "socks", 1);
+        legacy("i3", "u2", "shirt", 4);
+        assertEquals(3, store.migrate());
+
+        // the first run wrote the carts but stopped before deleting i1 and i2
+        legacy("i1", "u1", "shirt", 2);
+        legacy("i2", "u1", "socks", 1);
+        legacy("i4", "u1", "hat", 1);
+        assertEquals(3, store.migrate());
+
+        assertEquals(0, mongoTemplate.count(new Query(), CartItem.class));
+        List<CartItem> items = sorted(store.items("u1"));
+        assertEquals(List.of("i1", "i2", "i4"), items.stream().map(CartItem::getId).toList());
+        assertEquals(List.of(2, 1, 1), items.stream().map(CartItem::getQuantity).toList());
+        assertEquals(4, store.items("u2").get(0).getQuantity());
+    }
+
+    @Test
+    void removeTakesOutOnlyThatItem() {
+        CartItem shirt = store.add("u1", "shirt", 2).item();
+        CartItem socks = store.add("u1", "socks", 1).item();
+        CartItem other = store.add("u2", "shirt", 1).item();
+
+        store.remove(shirt.getId());
+
+        assertEquals(List.of(socks.getId()), store.items("u1").stream().map(CartItem::getId).toList());
+        assertEquals(List.of(other.getId()), store.items("u2").stream().map(CartItem::getId).toList());
+        // removing it again, or an id no cart holds, changes nothing
+        store.remove(shirt.getId());
+        store.remove("missing");
+        assertEquals(1, store.items("u1").size());
+    }
+
+    private static void legacy(String id, String userId, String productId, int quantity) {
+        mongoTemplate.insert(new CartItem(id, userId, productId, quantity, LocalDateTime.now()));
+    }
+
+    private static List<CartItem> sorted(List<CartItem> items) {
+        return items.stream().sorted(Comparator.comparing(CartItem::getId)).toList();
+    }
+}
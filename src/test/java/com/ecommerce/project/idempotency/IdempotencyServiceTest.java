@@ -0,0 +1,149 @@
+package com.ecommerce.project.idempotency;
+
+import com.ecommerce.project.exception.BadRequestException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyServiceTest {
+
+    record Receipt(String orderId, double amount) {}
+
+    private static IdempotencyService service(IdempotencyStore store) {
+        IdempotencyService service = new IdempotencyService(store, new ObjectMapper());
+        ReflectionTestUtils.setField(service, "ttlHours", 1L);
+        ReflectionTestUtils.setField(service, "lockTimeoutSeconds", 60L);
+        ReflectionTestUtils.setField(service, "waitTimeoutMs", 5_000L);
+        ReflectionTestUtils.setField(service, "localCacheMaxSize", 100);
+        service.init();
+        return service;
+    }
+
+    @Test
+    void concurrentDuplicatesRunOnce() throws Exception {
+        IdempotencyService service = service(new InMemoryIdempotencyStore());
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int clients = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<ResponseEntity<Receipt>>> responses = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                responses.add(pool.submit(() -> service.execute("orders", "u1", "key-1", Map.of("amount", 10),
+                        Receipt.class, () -> {
+                            int n = executions.incrementAndGet();
+                            await(release);
+                            return ResponseEntity.status(201).body(new Receipt("order-" + n, 10));
+                        })));
+            }
+            Thread.sleep(200);
+            release.countDown();
+
+            int replays = 0;
+            for (Future<ResponseEntity<Receipt>> response : responses) {
+                ResponseEntity<Receipt> entity = response.get(10, TimeUnit.SECONDS);
+                assertEquals(201, entity.getStatusCode().value());
+                assertEquals(new Receipt("order-1", 10), entity.getBody());
+                if (entity.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)) {
+                    replays++;
+                }
+            }
+            assertEquals(1, executions.get());
+            assertEquals(clients - 1, replays);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void replaysFromStoreAndRejectsOtherRequests() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore();
+        AtomicInteger executions = new AtomicInteger();
+        service(store).execute("orders", "u1", "key-1", Map.of("amount", 10), Receipt.class,
+                () -> ResponseEntity.status(201).body(new Receipt("order-" + executions.incrementAndGet(), 10)));
+
+        // another node: nothing cached locally, the stored response is returned
+        IdempotencyService otherNode = service(store);
+        ResponseEntity<Receipt> replay = otherNode.execute("orders", "u1", "key-1", Map.of("amount", 10),
+                Receipt.class, () -> ResponseEntity.status(201).body(new Receipt("order-" + executions.incrementAndGet(), 10)));
+        assertEquals(new Receipt("order-1", 10), replay.getBody());
+        assertEquals(1, executions.get());
+
+        assertThrows(BadRequestException.class, () -> otherNode.execute("orders", "u1", "key-1",
+                Map.of("amount", 99), Receipt.class, () -> ResponseEntity.ok(new Receipt("other", 99))));
+
+        // keys are per caller
+        ResponseEntity<Receipt> otherCaller = otherNode.execute("orders", "u2", "key-1", Map.of("amount", 10),
+                Receipt.class, () -> ResponseEntity.status(201).body(new Receipt("order-" + executions.incrementAndGet(), 10)));
+        assertEquals(new Receipt("order-2", 10), otherCaller.getBody());
+    }
+
+    @Test
+    void failedExecutionCanBeRetried() {
+        IdempotencyService service = service(new InMemoryIdempotencyStore());
+        assertThrows(IllegalStateException.class, () -> service.execute("orders", "u1", "key-1", "body",
+                Receipt.class, () -> {
+                    throw new IllegalStateException("payment gateway down");
+                }));
+
+        ResponseEntity<Receipt> retry = service.execute("orders", "u1", "key-1", "body", Receipt.class,
+                () -> ResponseEntity.ok(new Receipt("order-1", 5)));
+        assertEquals(new Receipt("order-1", 5), retry.getBody());
+        assertFalse(retry.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    void slowRequestKeepsItsKeyPastTheLockTimeout() throws Exception {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore();
+        IdempotencyService node = service(store);
+        IdempotencyService otherNode = service(store);
+        ReflectionTestUtils.setField(node, "lockTimeoutSeconds", 1L);
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<ResponseEntity<Receipt>> original = pool.submit(() -> node.execute("orders", "u1", "key-1",
+                    Map.of("amount", 10), Receipt.class, () -> {
+                        executions.incrementAndGet();
+                        await(release);
+                        return ResponseEntity.status(201).body(new Receipt("order-1", 10));
+                    }));
+            // well past the lock timeout of the original
+            Thread.sleep(2_000);
+            Future<ResponseEntity<Receipt>> retry = pool.submit(() -> otherNode.execute("orders", "u1", "key-1",
+                    Map.of("amount", 10), Receipt.class, () -> {
+                        executions.incrementAndGet();
+                        return ResponseEntity.status(201).body(new Receipt("order-2", 10));
+                    }));
+            Thread.sleep(300);
+            release.countDown();
+
+            assertEquals(new Receipt("order-1", 10), original.get(10, TimeUnit.SECONDS).getBody());
+            assertEquals(new Receipt("order-1", 10), retry.get(10, TimeUnit.SECONDS).getBody());
+            assertEquals(1, executions.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.ecommerce.project.idempotency;
+
+import com.ecommerce.project.entity.IdempotencyRecord;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stands in for the idempotency_keys collection, with the same claim rules.
+ */
+class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final Map<String, IdempotencyRecord> records = new HashMap<>();
+
+    @Override
+    public synchronized IdempotencyRecord claim(String id, String requestHash, String owner,
+                                                Instant lockedUntil, Instant expiresAt) {
+        IdempotencyRecord current = records.get(id);
+        if (current == null) {
+            current = new IdempotencyRecord();
+            current.setId(id);
+            current.setRequestHash(requestHash);
+            current.setOwner(owner);
+            current.setLockedUntil(lockedUntil);
+            current.setExpiresAt(expiresAt);
+            records.put(id, current);
+            return null;
+        }
+        if (current.getStatus() == IdempotencyRecord.Status.IN_PROGRESS
+                && current.getRequestHash().equals(requestHash)
+                && current.getLockedUntil().isBefore(Instant.now())) {
+            current.setOwner(owner);
+            current.setLockedUntil(lockedUntil);
+            return null;
+        }
+        return copy(current);
+    }
+
+    @Override
+    public synchronized boolean renew(String id, String owner, Instant lockedUntil) {
+        IdempotencyRecord current = records.get(id);
+        if (current == null || !current.getOwner().equals(owner)
+                || current.getStatus() != IdempotencyRecord.Status.IN_PROGRESS) {
+            return false;
+        }
+        current.setLockedUntil(lockedUntil);
+        return true;
+    }
+
+    @Override
+    public synchronized void complete(String id, String owner, int statusCode, String responseBody) {
+        IdempotencyRecord current = records.get(id);
+        if (current != null && current.getOwner().equals(owner)) {
+            current.setStatus(IdempotencyRecord.Status.COMPLETED);
+            current.setStatusCode(statusCode);
+            current.setResponseBody(responseBody);
+            current.setLockedUntil(null);
+        }
+    }
+
+    @Override
+    public synchronized void abandon(String id, String owner) {
+        IdempotencyRecord current = records.get(id);
+        if (current != null && current.getOwner().equals(owner)
+                && current.getStatus() == IdempotencyRecord.Status.IN_PROGRESS) {
+            records.remove(id);
+        }
+    }
+
+    private static IdempotencyRecord copy(IdempotencyRecord record) {
+        return new IdempotencyRecord(record.getId(), record.getRequestHash(), record.getStatus(), record.getOwner(),
+                record.getLockedUntil(), record.getStatusCode(), record.getResponseBody(),
+                record.getCreatedAt(), record.getExpiresAt());
+    }
+}
@@ -0,0 +1,103 @@
+package com.ecommerce.project.inventory;
+
+import com.ecommerce.project.entity.InventoryEscrow;
+import com.ecommerce.project.entity.Product;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Orders per second against one product with the hot SKU mode off (one
+ * findAndModify per order) and on (in-memory counters plus group-committed journal).
+ *
+ * Run with: mvn test -Dtest=HotSkuInventoryBenchmarkTest -Dbenchmark=true -Dbenchmark.mongo.uri=mongodb://localhost:27017
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@EnabledIfSystemProperty(named = "benchmark.mongo.uri", matches = ".+")
+class HotSkuInventoryBenchmarkTest {
+
+    private static final String SKU = "launch-sku";
+    private static final int STOCK = 1_000_000;
+    private static final int BUYERS = 200;
+    private static final long SECONDS = 10;
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(System.getProperty("benchmark.mongo.uri"));
+        mongoTemplate = new MongoTemplate(client, "hot_sku_benchmark_" + System.currentTimeMillis());
+        // the journal relies on it to refuse writes to a closed account
+        mongoTemplate.indexOps(InventoryEscrow.class).createIndex(new Index()
+                .on("runId", Sort.Direction.ASC).on("productId", Sort.Direction.ASC).named("runId_productId").unique());
+    }
+
+    @AfterAll
+    static void drop() {
+        mongoTemplate.getDb().drop();
+        client.close();
+    }
+
+    @Test
+    void ordersPerSecondOnOneSku() throws Exception {
+        double off = run(new MongoInventoryStore(mongoTemplate), "off");
+
+        HotSkuInventoryStore hot = HotSkuInventoryStore.create(new MongoInventoryStore(mongoTemplate), mongoTemplate,
+                Set.of(SKU), 200, 16, 2, Duration.ofMinutes(5));
+        double on;
+        try {
+            on = run(hot, "on");
+        } finally {
+            hot.returnEscrow();
+        }
+        System.out.printf("Hot SKU mode: %.0f orders/s on vs %.0f orders/s off (%.1fx)%n", on, off, on / off);
+    }
+
+    private double run(InventoryStore store, String mode) throws Exception {
+        Product product = new Product();
+        product.setId(SKU);
+        product.setName("Launch product");
+        product.setStockQuantity(STOCK);
+        mongoTemplate.save(product);
+
+        AtomicInteger sold = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SECONDS);
+        for (int b = 0; b < BUYERS; b++) {
+            pool.submit(() -> {
+                start.await();
+                while (System.nanoTime() < deadline) {
+                    if (store.take(SKU, 1) >= 0) {
+                        sold.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(SECONDS + 60, TimeUnit.SECONDS));
+
+        double perSecond = sold.get() / (double) SECONDS;
+        System.out.printf("mode %s: %d orders in %d s (%.0f/s)%n", mode, sold.get(), SECONDS, perSecond);
+        return perSecond;
+    }
+}
@@ -0,0 +1,45 @@
+package com.ecommerce.project.inventory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Same contract as the Mongo store: a compare-and-set stands in for the
+ * conditional findAndModify.
+ */
+class InMemoryInventoryStore implements InventoryStore {
+
+    private final Map<String, AtomicInteger> stock = new ConcurrentHashMap<>();
+
+    void put(String productId, int quantity) {
+        stock.put(productId, new AtomicInteger(quantity));
+    }
+
+    int stock(String productId) {
+        return stock.get(productId).get();
+    }
+
+    @Override
+    public int take(String productId, int quantity) {
+        AtomicInteger counter = stock.get(productId);
+        if (counter == null) {
+            return -1;
+        }
+        while (true) {
+            int current = counter.get();
+            if (current < quantity) {
+                return -1;
+            }
+            if (counter.compareAndSet(current, current - quantity)) {
+                return current - quantity;
+            }
+        }
+    }
+
+    @Override
+    public int giveBack(String productId, int quantity) {
+        AtomicInteger counter = stock.get(productId);
+        return counter == null ? -1 : counter.addAndGet(quantity);
+    }
+}
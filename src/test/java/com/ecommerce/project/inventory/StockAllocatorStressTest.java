@@ -0,0 +1,136 @@
+package com.ecommerce.project.inventory;
+
+import com.ecommerce.project.entity.Product;
+import com.ecommerce.project.entity.StockReservation;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hundreds of buyers racing for one hot product, most orders also taking a
+ * scarcer second product so that some fail halfway and must roll back, and a
+ * share of successful orders being cancelled again.
+ */
+class StockAllocatorStressTest {
+
+    private static final String HOT = "hot";
+    private static final String SCARCE = "scarce";
+    private static final int HOT_STOCK = 2_000;
+    private static final int SCARCE_STOCK = 300;
+    private static final int BUYERS = 400;
+    private static final int ORDERS_PER_BUYER = 20;
+
+    @Test
+    void hotProductInMemory() throws Exception {
+        InMemoryInventoryStore store = new InMemoryInventoryStore();
+        store.put(HOT, HOT_STOCK);
+        store.put(SCARCE, SCARCE_STOCK);
+        run(store, () -> store.stock(HOT), () -> store.stock(SCARCE));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @EnabledIfSystemProperty(named = "benchmark.mongo.uri", matches = ".+")
+    void hotProductOnMongo() throws Exception {
+        try (MongoClient client = MongoClients.create(System.getProperty("benchmark.mongo.uri"))) {
+            MongoTemplate mongoTemplate = new MongoTemplate(client, "stock_stress_" + System.currentTimeMillis());
+            try {
+                mongoTemplate.insertAll(List.of(product(HOT, HOT_STOCK), product(SCARCE, SCARCE_STOCK)));
+                run(new MongoInventoryStore(mongoTemplate),
+                        () -> mongoTemplate.findById(HOT, Product.class).getStockQuantity(),
+                        () -> mongoTemplate.findById(SCARCE, Product.class).getStockQuantity());
+            } finally {
+                mongoTemplate.getDb().drop();
+            }
+        }
+    }
+
+    private void run(InventoryStore store, IntSupplier hotStock, IntSupplier scarceStock) throws Exception {
+        Map<String, AtomicInteger> soldOut = new ConcurrentHashMap<>();
+        StockAllocator allocator = new StockAllocator(store,
+                id -> soldOut.computeIfAbsent(id, k -> new AtomicInteger()).incrementAndGet());
+        AtomicInteger hotHeld = new AtomicInteger();
+        AtomicInteger scarceHeld = new AtomicInteger();
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Throwable> errors = new ArrayList<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        long began = System.nanoTime();
+        for (int b = 0; b < BUYERS; b++) {
+            pool.submit(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < ORDERS_PER_BUYER; i++) {
+                        int hotQty = 1 + random.nextInt(3);
+                        int scarceQty = random.nextInt(3);
+                        List<StockReservation.Line> lines = new ArrayList<>();
+                        lines.add(new StockReservation.Line(HOT, hotQty));
+                        if (scarceQty > 0) {
+                            lines.add(new StockReservation.Line(SCARCE, scarceQty));
+                        }
+                        if (allocator.takeAll(lines) != null) {
+                            rejected.incrementAndGet();
+                            continue;
+                        }
+                        accepted.incrementAndGet();
+                        if (random.nextInt(4) == 0) {
+                            allocator.giveBackAll(lines);
+                        } else {
+                            hotHeld.addAndGet(hotQty);
+                            scarceHeld.addAndGet(scarceQty);
+                        }
+                    }
+                } catch (Throwable t) {
+                    synchronized (errors) {
+                        errors.add(t);
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(2, TimeUnit.MINUTES));
+        long elapsedMs = (System.nanoTime() - began) / 1_000_000;
+
+        assertEquals(List.of(), errors);
+        int hotLeft = hotStock.getAsInt();
+        int scarceLeft = scarceStock.getAsInt();
+        // Nothing oversold and nothing lost: what is left plus what was kept is what we started with
+        assertTrue(hotLeft >= 0 && scarceLeft >= 0);
+        assertEquals(HOT_STOCK, hotLeft + hotHeld.get());
+        assertEquals(SCARCE_STOCK, scarceLeft + scarceHeld.get());
+        assertTrue(rejected.get() > 0, "the run should exhaust stock");
+        assertTrue(soldOut.containsKey(HOT) || soldOut.containsKey(SCARCE));
+        System.out.printf("%d orders in %d ms: %d accepted, %d rejected, hot left %d, scarce left %d%n",
+                BUYERS * ORDERS_PER_BUYER, elapsedMs, accepted.get(), rejected.get(), hotLeft, scarceLeft);
+    }
+
+    private static Product product(String id, int stock) {
+        Product p = new Product();
+        p.setId(id);
+        p.setName("Stress product");
+        p.setPrice(10);
+        p.setStockQuantity(stock);
+        return p;
+    }
+}
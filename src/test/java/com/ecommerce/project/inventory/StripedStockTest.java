@@ -0,0 +1,56 @@
+package com.ecommerce.project.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedStockTest {
+
+    @Test
+    void neverHandsOutMoreThanItHolds() throws Exception {
+        StripedStock stock = new StripedStock(8);
+        stock.spread(10_000);
+        AtomicInteger taken = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(64);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < 64; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 1_000; i++) {
+                    if (stock.tryTake(1)) {
+                        taken.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(10_000, taken.get() + stock.sum());
+        assertTrue(stock.sum() >= 0);
+    }
+
+    @Test
+    void fragmentedUnitsCanBeConsolidated() {
+        StripedStock stock = new StripedStock(4);
+        stock.spread(8);
+
+        // Two units per stripe: no single stripe can serve three
+        assertFalse(stock.tryTake(3));
+        assertEquals(8, stock.drain());
+        assertEquals(0, stock.sum());
+
+        stock.add(8);
+        assertTrue(stock.tryTake(3));
+        assertEquals(5, stock.sum());
+    }
+}
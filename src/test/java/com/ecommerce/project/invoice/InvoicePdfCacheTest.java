@@ -0,0 +1,121 @@
+package com.ecommerce.project.invoice;
+
+import com.ecommerce.project.entity.Invoice;
+import com.ecommerce.project.service.StorageService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvoicePdfCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private final Map<String, byte[]> r2 = new HashMap<>();
+    private final AtomicInteger r2Reads = new AtomicInteger();
+
+    @Test
+    void servesPutAndFetchedPdfsFromDisk() throws Exception {
+        InvoicePdfCache cache = cache(1);
+        byte[] pdf = pdf(1, 1000);
+        String hash = cache.put(pdf);
+        assertEquals(64, hash.length());
+
+        Invoice invoice = invoice("INV-1", hash);
+        r2.put("INV-1", pdf);
+        assertArrayEquals(pdf, Files.readAllBytes(cache.resolve(invoice)));
+        assertEquals(0, r2Reads.get());
+
+        // lost from disk, e.g. another node generated it: fetched from R2 once
+        Files.delete(cache.resolve(invoice));
+        Path fetched = cache.resolve(invoice);
+        assertArrayEquals(pdf, Files.readAllBytes(fetched));
+        assertEquals(fetched, cache.resolve(invoice));
+        assertEquals(1, r2Reads.get());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() throws Exception {
+        InvoicePdfCache cache = cache(1);
+        String first = cache.put(pdf(1, 400 * 1024));
+        String second = cache.put(pdf(2, 400 * 1024));
+        r2.put("first", pdf(1, 400 * 1024));
+        cache.resolve(invoice("first", first));
+        cache.put(pdf(3, 400 * 1024));
+
+        assertTrue(Files.exists(file(first)));
+        assertFalse(Files.exists(file(second)));
+
+        // the index is rebuilt from the files on startup
+        InvoicePdfCache restarted = cache(1);
+        restarted.resolve(invoice("first", first));
+        assertEquals(0, r2Reads.get());
+    }
+
+    @Test
+    void disabledWithZeroSize() throws Exception {
+        InvoicePdfCache cache = cache(0);
+        assertNull(cache.put(pdf(1, 10)));
+        assertNull(cache.resolve(invoice("INV-1", null)));
+    }
+
+    private InvoicePdfCache cache(long maxSizeMb) throws Exception {
+        StorageService storage = new StorageService() {
+            @Override
+            public String uploadFile(byte[] data, String fileName, String contentType) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public byte[] downloadFile(String fileUrl) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public InputStream openStream(String fileUrl) {
+                r2Reads.incrementAndGet();
+                return new ByteArrayInputStream(r2.get(fileUrl));
+            }
+
+            @Override
+            public boolean deleteFile(String fileUrl) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        InvoicePdfCache cache = new InvoicePdfCache(storage, null);
+        ReflectionTestUtils.setField(cache, "dir", dir);
+        ReflectionTestUtils.setField(cache, "maxSizeMb", maxSizeMb);
+        cache.init();
+        return cache;
+    }
+
+    private Path file(String hash) {
+        return dir.resolve(hash.substring(0, 2)).resolve(hash + ".pdf");
+    }
+
+    private static Invoice invoice(String number, String hash) {
+        Invoice invoice = new Invoice();
+        invoice.setId(number);
+        invoice.setInvoiceNumber(number);
+        invoice.setPdfPath(number);
+        invoice.setPdfSha256(hash);
+        return invoice;
+    }
+
+    private static byte[] pdf(int seed, int size) {
+        byte[] pdf = new byte[size];
+        Arrays.fill(pdf, (byte) seed);
+        return pdf;
+    }
+}
@@ -0,0 +1,81 @@
+package com.ecommerce.project.invoice;
+
+import com.ecommerce.project.entity.Invoice;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvoiceZipExportTest {
+
+    @Test
+    void writesEntriesInOrderWithBoundedPrefetch() throws Exception {
+        List<Invoice> invoices = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            invoices.add(invoice("id-" + i, "INV-" + (i == 42 ? 41 : i)));
+        }
+        AtomicInteger open = new AtomicInteger();
+        AtomicInteger maxOpen = new AtomicInteger();
+        ExecutorService opener = Executors.newCachedThreadPool();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            int written = InvoiceZipExport.write(invoices.iterator(), invoice -> {
+                if (invoice.getId().equals("id-7")) {
+                    throw new UncheckedIOException(new IOException("not found"));
+                }
+                maxOpen.accumulateAndGet(open.incrementAndGet(), Math::max);
+                return new ByteArrayInputStream(("pdf of " + invoice.getId()).getBytes(StandardCharsets.UTF_8)) {
+                    @Override
+                    public void close() {
+                        open.decrementAndGet();
+                    }
+                };
+            }, out, 4, opener);
+            assertEquals(99, written);
+        } finally {
+            opener.shutdownNow();
+        }
+
+        Map<String, String> entries = read(out.toByteArray());
+        assertEquals(99, entries.size());
+        assertEquals("pdf of id-0", entries.get("INV-0.pdf"));
+        assertFalse(entries.containsKey("INV-7.pdf"));
+        assertEquals("pdf of id-42", entries.get("INV-41-id-42.pdf"));
+        assertEquals("INV-99.pdf", new ArrayList<>(entries.keySet()).get(98));
+        assertEquals(0, open.get());
+        assertTrue(maxOpen.get() <= 4, "at most 4 PDFs open at once, was " + maxOpen.get());
+    }
+
+    private static Invoice invoice(String id, String number) {
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setInvoiceNumber(number);
+        return invoice;
+    }
+
+    private static Map<String, String> read(byte[] zip) throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+}
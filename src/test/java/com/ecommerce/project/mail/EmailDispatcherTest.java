@@ -0,0 +1,120 @@
+package com.ecommerce.project.mail;
+
+import com.ecommerce.project.entity.QueuedEmail;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailDispatcherTest {
+
+    private FakeSmtpServer smtp;
+    private EmailDispatcher dispatcher;
+
+    @AfterEach
+    void stop() throws Exception {
+        if (dispatcher != null) {
+            ReflectionTestUtils.invokeMethod(dispatcher, "stop");
+        }
+        if (smtp != null) {
+            smtp.close();
+        }
+    }
+
+    @Test
+    void sendsOverReusedConnectionsAndDeadLettersRejections() throws Exception {
+        smtp = new FakeSmtpServer(Set.of("nobody@example.org"));
+        InMemoryEmailQueue queue = new InMemoryEmailQueue();
+        for (int i = 0; i < 60; i++) {
+            queue.add(new QueuedEmail("shop@example.com", "customer" + i + (i % 2 == 0 ? "@example.org" : "@example.net"),
+                    "Order " + i, "Thanks for order " + i));
+        }
+        queue.add(new QueuedEmail("shop@example.com", "nobody@example.org", "Order x", "Lost")
+                .attach("INV-1.pdf", "application/pdf", "%PDF-1.4".getBytes(StandardCharsets.US_ASCII)));
+        dispatcher = start(queue, 1000);
+
+        await(() -> queue.countPending() == 0);
+        assertEquals(60, smtp.received.size());
+        assertEquals(1, queue.deadLetters.size());
+        assertEquals(1, queue.deadLetters.get(0).getAttempts());
+        // two workers, one connection each
+        assertTrue(smtp.connectionCount.get() <= 2, "connections: " + smtp.connectionCount.get());
+    }
+
+    @Test
+    void limitsTheRatePerDomain() throws Exception {
+        smtp = new FakeSmtpServer(Set.of());
+        InMemoryEmailQueue queue = new InMemoryEmailQueue();
+        for (int i = 0; i < 20; i++) {
+            queue.add(new QueuedEmail("shop@example.com", "customer" + i + "@slow.example", "Hi", "Hello"));
+            queue.add(new QueuedEmail("shop@example.com", "customer" + i + "@fast.example", "Hi", "Hello"));
+        }
+        // 5 right away, then 10 per second
+        long start = System.nanoTime();
+        dispatcher = start(queue, 10);
+
+        await(() -> queue.countPending() == 0);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        assertEquals(40, smtp.received.size());
+        assertTrue(seconds >= 1.4, "took " + seconds + "s");
+    }
+
+    @Test
+    void putsBackEmailsOnceTheLeaseIsNearlyOver() throws Exception {
+        smtp = new FakeSmtpServer(Set.of());
+        InMemoryEmailQueue queue = new InMemoryEmailQueue();
+        for (int i = 0; i < 5; i++) {
+            queue.add(new QueuedEmail("shop@example.com", "customer" + i + "@example.org", "Hi", "Hello"));
+        }
+        // the whole lease is margin, so no batch has time left to send anything
+        dispatcher = start(queue, 1000, 60);
+
+        Thread.sleep(200);
+        ReflectionTestUtils.invokeMethod(dispatcher, "stop");
+        assertEquals(0, smtp.received.size());
+        // released as due, without an attempt counted against them
+        List<QueuedEmail> released = queue.claim(10, Instant.now(), "check");
+        assertEquals(5, released.size());
+        assertTrue(released.stream().allMatch(email -> email.getAttempts() == 0));
+    }
+
+    private EmailDispatcher start(EmailQueue queue, double ratePerSecond) {
+        return start(queue, ratePerSecond, 10);
+    }
+
+    private EmailDispatcher start(EmailQueue queue, double ratePerSecond, long leaseMarginSeconds) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("localhost");
+        sender.setPort(smtp.port());
+        EmailDispatcher dispatcher = new EmailDispatcher(queue, sender);
+        ReflectionTestUtils.setField(dispatcher, "workers", 2);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 10);
+        ReflectionTestUtils.setField(dispatcher, "pollIntervalMs", 20L);
+        ReflectionTestUtils.setField(dispatcher, "leaseSeconds", 60L);
+        ReflectionTestUtils.setField(dispatcher, "leaseMarginSeconds", leaseMarginSeconds);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "retryDelaySeconds", 1L);
+        ReflectionTestUtils.setField(dispatcher, "idleCloseSeconds", 30L);
+        ReflectionTestUtils.setField(dispatcher, "domainRatePerSecond", ratePerSecond);
+        ReflectionTestUtils.setField(dispatcher, "domainBurst", 5);
+        dispatcher.init();
+        dispatcher.start();
+        return dispatcher;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(20);
+        }
+    }
+}
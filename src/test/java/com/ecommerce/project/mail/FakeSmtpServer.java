@@ -0,0 +1,114 @@
+package com.ecommerce.project.mail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Enough of an SMTP server on a local port to receive mail from Jakarta Mail:
+ * no TLS, no authentication. Recipients listed as rejected get a 550.
+ */
+class FakeSmtpServer implements AutoCloseable {
+
+    record Received(String from, List<String> to, String data) {}
+
+    private final ServerSocket socket;
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+    private final Set<String> rejected;
+    final List<Received> received = new CopyOnWriteArrayList<>();
+    final AtomicInteger connectionCount = new AtomicInteger();
+
+    FakeSmtpServer(Set<String> rejected) throws IOException {
+        this.rejected = rejected;
+        socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        connections.execute(this::accept);
+    }
+
+    int port() {
+        return socket.getLocalPort();
+    }
+
+    private void accept() {
+        while (!socket.isClosed()) {
+            try {
+                Socket client = socket.accept();
+                connectionCount.incrementAndGet();
+                connections.execute(() -> serve(client));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        try (client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+             PrintWriter out = new PrintWriter(client.getOutputStream(), true, StandardCharsets.US_ASCII)) {
+            reply(out, "220 localhost fake SMTP");
+            String from = null;
+            List<String> to = new CopyOnWriteArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.toUpperCase();
+                if (command.startsWith("EHLO") || command.startsWith("HELO")) {
+                    reply(out, "250 localhost");
+                } else if (command.startsWith("MAIL FROM:")) {
+                    from = address(line);
+                    to = new CopyOnWriteArrayList<>();
+                    reply(out, "250 OK");
+                } else if (command.startsWith("RCPT TO:")) {
+                    String recipient = address(line);
+                    if (rejected.contains(recipient)) {
+                        reply(out, "550 5.1.1 No such user");
+                    } else {
+                        to.add(recipient);
+                        reply(out, "250 OK");
+                    }
+                } else if (command.equals("DATA")) {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    StringBuilder data = new StringBuilder();
+                    while (!(line = in.readLine()).equals(".")) {
+                        data.append(line).append('\n');
+                    }
+                    received.add(new Received(from, List.copyOf(to), data.toString()));
+                    reply(out, "250 OK queued");
+                } else if (command.equals("RSET") || command.equals("NOOP")) {
+                    reply(out, "250 OK");
+                } else if (command.equals("QUIT")) {
+                    reply(out, "221 Bye");
+                    return;
+                } else {
+                    reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException | NullPointerException e) {
+            // client went away
+        }
+    }
+
+    private static String address(String line) {
+        return line.substring(line.indexOf('<') + 1, line.indexOf('>'));
+    }
+
+    private static void reply(PrintWriter out, String line) {
+        out.print(line + "\r\n");
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+        connections.shutdownNow();
+    }
+}
@@ -0,0 +1,67 @@
+package com.ecommerce.project.mail;
+
+import com.ecommerce.project.entity.QueuedEmail;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Same contract as the Mongo queue, with a lock standing in for the
+ * conditional claim update.
+ */
+class InMemoryEmailQueue implements EmailQueue {
+
+    private final Map<String, QueuedEmail> pending = new LinkedHashMap<>();
+    final List<QueuedEmail> deadLetters = new ArrayList<>();
+
+    @Override
+    public synchronized void add(QueuedEmail email) {
+        if (email.getId() == null) {
+            email.setId(UUID.randomUUID().toString());
+        }
+        pending.putIfAbsent(email.getId(), email);
+    }
+
+    @Override
+    public synchronized List<QueuedEmail> claim(int limit, Instant leaseUntil, String claim) {
+        Instant now = Instant.now();
+        List<QueuedEmail> claimed = pending.values().stream()
+                .filter(email -> !email.getNextAttemptAt().isAfter(now))
+                .sorted(Comparator.comparing(QueuedEmail::getNextAttemptAt))
+                .limit(limit)
+                .toList();
+        for (QueuedEmail email : claimed) {
+            email.setClaimedBy(claim);
+            email.setNextAttemptAt(leaseUntil);
+        }
+        return claimed;
+    }
+
+    @Override
+    public synchronized void remove(List<String> ids) {
+        ids.forEach(pending::remove);
+    }
+
+    @Override
+    public synchronized void reschedule(QueuedEmail email, Instant nextAttemptAt) {
+        email.setClaimedBy(null);
+        email.setNextAttemptAt(nextAttemptAt);
+    }
+
+    @Override
+    public synchronized void deadLetter(QueuedEmail email) {
+        pending.remove(email.getId());
+        email.setDeadAt(Instant.now());
+        deadLetters.add(email);
+    }
+
+    @Override
+    public synchronized long countPending() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,149 @@
+package com.ecommerce.project.mail.template;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Order emails (customer and admin) rendered per second, built with a
+ * StringBuilder, String.format and a new DateTimeFormatter each time (as
+ * before) versus rendered from the compiled templates with the shared
+ * sections rendered once per order.
+ *
+ * Run with: mvn test -Dtest=EmailTemplateBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class EmailTemplateBenchmarkTest {
+
+    private static final int WARMUP = 50_000;
+    private static final int ORDERS = 200_000;
+
+    private static final Map<String, Object> ORDER = order();
+
+    @Test
+    void orderEmailsPerSecond() throws Exception {
+        EmailTemplates templates = new EmailTemplates();
+        templates.load();
+
+        for (int i = 0; i < WARMUP; i++) {
+            assertTrue(stringBuilder().length() > 0);
+            assertTrue(templated(templates) > 0);
+        }
+        double before = perSecond(() -> stringBuilder().length());
+        double after = perSecond(() -> templated(templates));
+
+        System.out.printf("Order emails/s: StringBuilder %.0f, templates %.0f%n", before, after);
+        assertTrue(after > before);
+    }
+
+    private static double perSecond(IntSupplier render) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ORDERS; i++) {
+            sink += render.getAsInt();
+        }
+        assertTrue(sink > 0);
+        return ORDERS / ((System.nanoTime() - start) / 1e9);
+    }
+
+    // Text parts of both emails; the shared sections are rendered once for the pair
+    private static int templated(EmailTemplates templates) {
+        EmailTemplates.Rendered summary = templates.render("order-summary", ORDER);
+        EmailTemplates.Rendered lines = templates.render("order-lines", ORDER);
+        Map<String, Object> model = new HashMap<>();
+        model.put("customerName", "Asha Verma");
+        model.put("customerEmail", "asha@example.com");
+        model.put("customerPhone", "N/A");
+        model.put("userId", "user-1");
+        model.put("orderSummary", summary.text());
+        model.put("orderLines", lines.text());
+        return templates.render("order-confirmation", model).text().length()
+                + templates.render("order-notification", model).text().length();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String stringBuilder() {
+        List<Map<String, Object>> items = (List<Map<String, Object>>) ORDER.get("items");
+        Map<String, Object> address = (Map<String, Object>) ORDER.get("address");
+        String customer;
+        {
+            StringBuilder content = new StringBuilder();
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+            content.append("Dear ").append("Asha Verma").append(",\n\n");
+            content.append("Thank you for your order! We have received your order and it is being processed.\n\n");
+            content.append("Order Details:\n");
+            content.append("=====================================\n");
+            content.append("Order ID: ").append(ORDER.get("orderId")).append("\n");
+            content.append("Order Date: ").append(((LocalDateTime) ORDER.get("orderDate")).format(formatter)).append("\n");
+            content.append("Order Status: ").append(ORDER.get("status")).append("\n");
+            content.append("Total Amount: ₹").append(String.format("%.2f", ORDER.get("totalAmount"))).append("\n\n");
+            appendLines(content, items, address);
+            content.append("We will notify you once your order is shipped.\n\n");
+            content.append("Thank you for shopping with us!\n\n");
+            content.append("Best Regards,\n");
+            content.append("Adita Enterprise India");
+            customer = content.toString();
+        }
+        StringBuilder content = new StringBuilder();
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+        content.append("New Order Received!\n\n");
+        content.append("Order Details:\n");
+        content.append("=====================================\n");
+        content.append("Order ID: ").append(ORDER.get("orderId")).append("\n");
+        content.append("Order Date: ").append(((LocalDateTime) ORDER.get("orderDate")).format(formatter)).append("\n");
+        content.append("Order Status: ").append(ORDER.get("status")).append("\n");
+        content.append("Total Amount: ₹").append(String.format("%.2f", ORDER.get("totalAmount"))).append("\n\n");
+        content.append("Customer Details:\n");
+        content.append("-------------------------------------\n");
+        content.append("Name: ").append("Asha Verma").append("\n");
+        content.append("Email: ").append("asha@example.com").append("\n");
+        content.append("Phone: ").append("N/A").append("\n");
+        content.append("User ID: ").append("user-1").append("\n\n");
+        appendLines(content, items, address);
+        content.append("Please process this order promptly.\n\n");
+        content.append("---\n");
+        content.append("Automated notification from Ecommerce System");
+        return customer + content;
+    }
+
+    private static void appendLines(StringBuilder content, List<Map<String, Object>> items, Map<String, Object> address) {
+        content.append("Items Ordered:\n");
+        content.append("-------------------------------------\n");
+        for (int i = 0; i < items.size(); i++) {
+            Map<String, Object> item = items.get(i);
+            content.append((i + 1)).append(". Product ID: ").append(item.get("productId")).append("\n");
+            content.append("   Quantity: ").append(item.get("quantity")).append("\n");
+            content.append("   Price: ₹").append(String.format("%.2f", item.get("price"))).append("\n\n");
+        }
+        content.append("Shipping Address:\n");
+        content.append("-------------------------------------\n");
+        content.append(address.get("addressLine")).append("\n");
+        content.append(address.get("city")).append(", ").append(address.get("state")).append("\n");
+        content.append(address.get("postalCode")).append(", ").append(address.get("country")).append("\n\n");
+    }
+
+    private static Map<String, Object> order() {
+        Map<String, Object> order = new HashMap<>();
+        order.put("orderId", "order-1");
+        order.put("orderDate", LocalDateTime.of(2026, 3, 4, 5, 6, 7));
+        order.put("status", "pending");
+        order.put("totalAmount", 2360.0);
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            items.add(Map.of("productId", "product-" + i, "quantity", i + 1, "price", 100.0 + i));
+        }
+        order.put("items", items);
+        order.put("address", Map.of("addressLine", "12 MG Road", "city", "Pune", "state", "MH",
+                "postalCode", "411001", "country", "India"));
+        return order;
+    }
+}
@@ -0,0 +1,97 @@
+package com.ecommerce.project.mail.template;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailTemplatesTest {
+
+    @Test
+    void rendersOrderEmailsFromSharedSections() throws Exception {
+        EmailTemplates templates = new EmailTemplates();
+        templates.load();
+
+        Map<String, Object> order = new HashMap<>();
+        order.put("orderId", "order-1");
+        order.put("orderDate", LocalDateTime.of(2026, 3, 4, 5, 6, 7));
+        order.put("status", "pending");
+        order.put("totalAmount", 1234.5);
+        List<Map<String, Object>> items = new ArrayList<>();
+        items.add(Map.of("productId", "p-1", "quantity", 2, "price", 99.999));
+        items.add(Map.of("productId", "p-2", "quantity", 1, "price", 1035.0));
+        order.put("items", items);
+        order.put("address", Map.of("addressLine", "12 MG Road", "city", "Pune", "state", "MH",
+                "postalCode", "411001", "country", "India"));
+        EmailTemplates.Rendered summary = templates.render("order-summary", order);
+        EmailTemplates.Rendered lines = templates.render("order-lines", order);
+
+        Map<String, Object> model = new HashMap<>();
+        model.put("customerName", "Asha <Verma>");
+        model.put("orderSummary", summary.text());
+        model.put("orderSummaryHtml", summary.html());
+        model.put("orderLines", lines.text());
+        model.put("orderLinesHtml", lines.html());
+        EmailTemplates.Rendered email = templates.render("order-confirmation", model);
+
+        assertEquals("""
+                Dear Asha <Verma>,
+
+                Thank you for your order! We have received your order and it is being processed.
+
+                Order Details:
+                =====================================
+                Order ID: order-1
+                Order Date: 04-03-2026 05:06:07
+                Order Status: pending
+                Total Amount: ₹1234.50
+
+                Items Ordered:
+                -------------------------------------
+                1. Product ID: p-1
+                   Quantity: 2
+                   Price: ₹100.00
+
+                2. Product ID: p-2
+                   Quantity: 1
+                   Price: ₹1035.00
+
+                Shipping Address:
+                -------------------------------------
+                12 MG Road
+                Pune, MH
+                411001, India
+
+                We will notify you once your order is shipped.
+
+                Thank you for shopping with us!
+
+                Best Regards,
+                Adita Enterprise India""", email.text());
+        assertTrue(email.html().contains("Dear Asha &lt;Verma&gt;,"));
+        assertTrue(email.html().contains("<td>2</td><td>p-2</td><td>1</td><td>&#8377;1035.00</td>"));
+    }
+
+    @Test
+    void sectionsAndInvertedSections() {
+        Template template = Template.compile("t", """
+                {{#inStock}}
+                In stock
+                {{/inStock}}
+                {{^inStock}}
+                Sold out
+                {{/inStock}}
+                {{#address}}{{city}}{{/address}} {{missing}}{{total|money}}""", false);
+
+        assertEquals("In stock\nPune -0.50", template.render(Map.of("inStock", true, "address", Map.of("city", "Pune"),
+                "total", -0.499)));
+        assertEquals("Sold out\n 0.00", template.render(Map.of("inStock", false, "total", 0)));
+        assertThrows(IllegalArgumentException.class, () -> Template.compile("bad", "{{#a}}x{{/b}}", false));
+        assertThrows(IllegalArgumentException.class, () -> Template.compile("bad", "{{a|upper}}", false));
+    }
+}
@@ -0,0 +1,82 @@
+package com.ecommerce.project.outbox;
+
+import com.ecommerce.project.entity.OutboxMessage;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Same contract as the Mongo store, with a lock standing in for the
+ * conditional updates. Claimed messages are handed out as copies, as they
+ * would be read back from the database.
+ */
+class InMemoryOutboxStore implements OutboxStore {
+
+    final Map<String, OutboxMessage> messages = new LinkedHashMap<>();
+
+    synchronized void add(OutboxMessage message) {
+        messages.put(message.getId(), message);
+    }
+
+    @Override
+    public synchronized List<OutboxMessage> claim(int limit, Instant leaseUntil, String claim) {
+        Instant now = Instant.now();
+        List<OutboxMessage> claimed = new ArrayList<>();
+        messages.values().stream()
+                .filter(m -> m.getStatus() == OutboxMessage.Status.PENDING && !m.getNextAttemptAt().isAfter(now))
+                .sorted(Comparator.comparing(OutboxMessage::getNextAttemptAt))
+                .limit(limit)
+                .forEach(m -> {
+                    m.setClaimedBy(claim);
+                    m.setNextAttemptAt(leaseUntil);
+                    claimed.add(copy(m));
+                });
+        return claimed;
+    }
+
+    @Override
+    public synchronized void remove(List<String> ids) {
+        ids.forEach(messages::remove);
+    }
+
+    @Override
+    public synchronized void reschedule(OutboxMessage message, Instant nextAttemptAt) {
+        OutboxMessage stored = claimed(message);
+        if (stored != null) {
+            stored.setNextAttemptAt(nextAttemptAt);
+            stored.setAttempts(message.getAttempts());
+            stored.setLastError(message.getLastError());
+            stored.setClaimedBy(null);
+        }
+    }
+
+    @Override
+    public synchronized void markDead(OutboxMessage message) {
+        OutboxMessage stored = claimed(message);
+        if (stored != null) {
+            stored.setStatus(OutboxMessage.Status.DEAD);
+            stored.setAttempts(message.getAttempts());
+            stored.setLastError(message.getLastError());
+            stored.setClaimedBy(null);
+        }
+    }
+
+    @Override
+    public int migrateLegacyInvoiceMessages() {
+        return 0;
+    }
+
+    private OutboxMessage claimed(OutboxMessage message) {
+        OutboxMessage stored = messages.get(message.getId());
+        return stored != null && message.getClaimedBy().equals(stored.getClaimedBy()) ? stored : null;
+    }
+
+    private static OutboxMessage copy(OutboxMessage m) {
+        return new OutboxMessage(m.getId(), m.getType(), m.getOrderId(), m.getStatus(), m.getAttempts(),
+                m.getNextAttemptAt(), m.getClaimedBy(), m.getLastError(), m.getCreatedAt());
+    }
+}
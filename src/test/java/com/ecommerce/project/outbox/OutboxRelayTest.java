@@ -0,0 +1,181 @@
+package com.ecommerce.project.outbox;
+
+import com.ecommerce.project.entity.Order;
+import com.ecommerce.project.entity.OutboxMessage;
+import com.ecommerce.project.entity.User;
+import com.ecommerce.project.repository.OrderRepository;
+import com.ecommerce.project.repository.UserRepository;
+import com.ecommerce.project.service.EmailService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboxRelayTest {
+
+    private final InMemoryOutboxStore store = new InMemoryOutboxStore();
+    private final Map<String, Order> orders = new HashMap<>();
+    // "<email method> <order id>", in the order sent
+    private final List<String> sent = new ArrayList<>();
+    private final AtomicBoolean smtpDown = new AtomicBoolean();
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        EmailService email = (EmailService) Proxy.newProxyInstance(EmailService.class.getClassLoader(),
+                new Class<?>[] {EmailService.class}, (proxy, method, args) -> {
+                    if (smtpDown.get()) {
+                        throw new IllegalStateException("SMTP server unavailable");
+                    }
+                    sent.add(method.getName() + " " + ((Order) args[0]).getId());
+                    return null;
+                });
+        UserRepository users = repository(UserRepository.class, id -> {
+            User user = new User();
+            user.setId(id);
+            return user;
+        });
+        // the pipeline is only reached by invoices of delivered orders, which these tests do not relay
+        relay = new OutboxRelay(store, repository(OrderRepository.class, orders::get), users, email, null);
+        ReflectionTestUtils.setField(relay, "batchSize", 100);
+        ReflectionTestUtils.setField(relay, "leaseSeconds", 120L);
+        ReflectionTestUtils.setField(relay, "maxAttempts", 3);
+        ReflectionTestUtils.setField(relay, "retryDelaySeconds", 0L);
+        ReflectionTestUtils.setField(relay, "orphanAfterSeconds", 300L);
+        ReflectionTestUtils.setField(relay, "leaseMarginSeconds", 15L);
+    }
+
+    @Test
+    void relaysDueMessagesAndDeletesThem() {
+        order("o1", Order.Status.pending);
+        message("m1", OutboxMessage.Type.ORDER_CONFIRMATION, "o1");
+        message("m2", OutboxMessage.Type.ORDER_NOTIFICATION, "o1");
+
+        relay.relay();
+
+        assertEquals(List.of("sendOrderConfirmationToCustomer o1", "sendOrderNotificationToAdmin o1"), sent);
+        assertTrue(store.messages.isEmpty());
+    }
+
+    @Test
+    void dropsOldMessagesWhoseOrderChangeNeverHappened() {
+        order("o2", Order.Status.shipped);
+        message("missing", OutboxMessage.Type.ORDER_CONFIRMATION, "o1").setCreatedAt(Instant.now().minusSeconds(600));
+        // an invoice is only relayed once its order is delivered
+        message("undelivered", OutboxMessage.Type.INVOICE, "o2").setCreatedAt(Instant.now().minusSeconds(600));
+
+        relay.relay();
+
+        assertTrue(sent.isEmpty());
+        assertTrue(store.messages.isEmpty());
+    }
+
+    @Test
+    void postponesMessagesWhoseOrderIsNotVisibleYet() {
+        OutboxMessage message = message("m1", OutboxMessage.Type.ORDER_CONFIRMATION, "o1");
+
+        relay.relay();
+
+        assertTrue(sent.isEmpty());
+        assertEquals(OutboxMessage.Status.PENDING, message.getStatus());
+        assertNull(message.getClaimedBy());
+        assertEquals(0, message.getAttempts());
+        assertTrue(message.getNextAttemptAt().isBefore(Instant.now().plusSeconds(60)), "back before the lease");
+
+        order("o1", Order.Status.pending);
+        relay.relay();
+
+        assertEquals(List.of("sendOrderConfirmationToCustomer o1"), sent);
+        assertTrue(store.messages.isEmpty());
+    }
+
+    @Test
+    void leavesMessagesClaimedElsewhereUntilTheirLeaseRunsOut() {
+        order("o1", Order.Status.pending);
+        OutboxMessage message = message("m1", OutboxMessage.Type.ORDER_CONFIRMATION, "o1");
+        message.setClaimedBy("other-node");
+        message.setNextAttemptAt(Instant.now().plusSeconds(60));
+
+        relay.relay();
+
+        assertTrue(sent.isEmpty());
+        assertEquals("other-node", message.getClaimedBy());
+
+        // the other node stopped and its lease ran out
+        message.setNextAttemptAt(Instant.now().minusSeconds(1));
+        relay.relay();
+
+        assertEquals(List.of("sendOrderConfirmationToCustomer o1"), sent);
+        assertTrue(store.messages.isEmpty());
+    }
+
+    @Test
+    void retriesAFailingMessageAndLeavesItDeadAfterMaxAttempts() {
+        order("o1", Order.Status.pending);
+        OutboxMessage message = message("m1", OutboxMessage.Type.ORDER_CONFIRMATION, "o1");
+        smtpDown.set(true);
+
+        relay.relay();
+        relay.relay();
+
+        assertEquals(OutboxMessage.Status.PENDING, message.getStatus());
+        assertEquals(2, message.getAttempts());
+        assertNull(message.getClaimedBy());
+
+        relay.relay();
+
+        assertEquals(OutboxMessage.Status.DEAD, message.getStatus());
+        assertEquals(3, message.getAttempts());
+        assertEquals("SMTP server unavailable", message.getLastError());
+
+        // dead messages stay for inspection and are not relayed again
+        smtpDown.set(false);
+        relay.relay();
+        assertTrue(sent.isEmpty());
+        assertEquals(OutboxMessage.Status.DEAD, message.getStatus());
+    }
+
+    private void order(String id, Order.Status status) {
+        Order order = new Order();
+        order.setId(id);
+        order.setUserId("user-" + id);
+        order.setStatus(status);
+        orders.put(id, order);
+    }
+
+    private OutboxMessage message(String id, OutboxMessage.Type type, String orderId) {
+        OutboxMessage message = new OutboxMessage(type, orderId);
+        message.setId(id);
+        message.setNextAttemptAt(Instant.now().minusSeconds(1));
+        store.add(message);
+        return message;
+    }
+
+    // A repository whose findAllById returns what the lookup finds for each id
+    @SuppressWarnings("unchecked")
+    private static <R> R repository(Class<R> type, Function<String, ?> lookup) {
+        return (R) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            if (!method.getName().equals("findAllById")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            List<Object> found = new ArrayList<>();
+            ((Iterable<String>) args[0]).forEach(id -> {
+                Object entity = lookup.apply(id);
+                if (entity != null) {
+                    found.add(entity);
+                }
+            });
+            return found;
+        });
+    }
+}
@@ -0,0 +1,120 @@
+package com.ecommerce.project.pagination;
+
+import com.ecommerce.project.dto.CursorPageDTO;
+import com.ecommerce.project.entity.Product;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Page-1000 latency of offset pagination (skip + count, what findAll(Pageable)
+ * does) against a single keyset fetch, on a scratch database that is dropped
+ * afterwards.
+ *
+ * Run with: mvn test -Dtest=KeysetPaginationBenchmarkTest -Dbenchmark=true -Dbenchmark.mongo.uri=mongodb://localhost:27017
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@EnabledIfSystemProperty(named = "benchmark.mongo.uri", matches = ".+")
+class KeysetPaginationBenchmarkTest {
+
+    private static final int PRODUCTS = 200_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int PAGE = 1000;
+    private static final int ROUNDS = 50;
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+
+    @BeforeAll
+    static void seed() {
+        client = MongoClients.create(System.getProperty("benchmark.mongo.uri"));
+        mongoTemplate = new MongoTemplate(client, "keyset_benchmark_" + System.currentTimeMillis());
+        mongoTemplate.indexOps(Product.class).createIndex(new Index().on("price", Sort.Direction.ASC).on("_id", Sort.Direction.ASC));
+
+        Random random = new Random(42);
+        List<Product> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product p = new Product();
+            p.setName("Product " + i);
+            p.setCategoryId("category-" + random.nextInt(20));
+            p.setPrice(Math.round(random.nextDouble() * 50_000) / 100.0);
+            p.setStockQuantity(random.nextInt(100));
+            p.setCreatedAt(LocalDateTime.now());
+            batch.add(p);
+            if (batch.size() == 10_000) {
+                mongoTemplate.insertAll(batch);
+                batch.clear();
+            }
+        }
+        mongoTemplate.insertAll(batch);
+    }
+
+    @AfterAll
+    static void drop() {
+        mongoTemplate.getDb().drop();
+        client.close();
+    }
+
+    @Test
+    void page1000() {
+        KeysetPaginator paginator = new KeysetPaginator(mongoTemplate);
+        Sort sort = Sort.by(Sort.Direction.ASC, "price").and(Sort.by(Sort.Direction.ASC, "id"));
+
+        // Walk to page 1000 once to get its cursor, as a client scrolling there would
+        String cursor = "";
+        String pageCursor = null;
+        for (int page = 0; page < PAGE; page++) {
+            if (page == PAGE - 1) {
+                pageCursor = cursor;
+            }
+            cursor = paginator.page(Product.class, null, new CursorRequest("price", Sort.Direction.ASC, PAGE_SIZE, cursor)).nextCursor();
+        }
+        CursorRequest keysetRequest = new CursorRequest("price", Sort.Direction.ASC, PAGE_SIZE, pageCursor);
+        PageRequest offsetRequest = PageRequest.of(PAGE - 1, PAGE_SIZE, sort);
+
+        // Both modes must return the same rows
+        List<String> offsetIds = offset(offsetRequest).stream().map(Product::getId).toList();
+        CursorPageDTO<Product> keysetPage = paginator.page(Product.class, null, keysetRequest);
+        assertEquals(offsetIds, keysetPage.content().stream().map(Product::getId).toList());
+
+        for (int i = 0; i < 5; i++) {
+            offset(offsetRequest);
+            paginator.page(Product.class, null, keysetRequest);
+        }
+        long offsetNanos = 0;
+        long keysetNanos = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            offset(offsetRequest);
+            offsetNanos += System.nanoTime() - start;
+            start = System.nanoTime();
+            paginator.page(Product.class, null, keysetRequest);
+            keysetNanos += System.nanoTime() - start;
+        }
+        System.out.printf("%,d products, page %d (size %d): offset+count %.2f ms, keyset %.2f ms%n",
+                PRODUCTS, PAGE, PAGE_SIZE, offsetNanos / 1e6 / ROUNDS, keysetNanos / 1e6 / ROUNDS);
+    }
+
+    private List<Product> offset(PageRequest pageable) {
+        Query query = new Query().with(pageable);
+        List<Product> content = mongoTemplate.find(query, Product.class);
+        long total = mongoTemplate.count(Query.of(query).limit(-1).skip(-1), Product.class);
+        assertTrue(total >= content.size());
+        return content;
+    }
+}
@@ -0,0 +1,74 @@
+package com.ecommerce.project.pagination;
+
+import com.ecommerce.project.entity.Product;
+import com.ecommerce.project.exception.BadRequestException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetPaginatorTest {
+
+    // Never connected: the tests below fail before any query is sent
+    private final MongoClient client = MongoClients.create("mongodb://localhost:1");
+    private final KeysetPaginator paginator = new KeysetPaginator(new MongoTemplate(client, "test"));
+
+    @AfterEach
+    void close() {
+        client.close();
+    }
+
+    @Test
+    void cursorRoundTripKeepsBsonTypes() {
+        ObjectId id = new ObjectId();
+        Date createdAt = new Date(1_700_000_000_000L);
+
+        String cursor = KeysetPaginator.encodeCursor("createdAt", Sort.Direction.DESC, createdAt, id);
+        Document position = KeysetPaginator.decode(cursor);
+
+        assertFalse(cursor.contains("="));
+        assertEquals(createdAt, position.get("v"));
+        assertEquals(id, position.get("i"));
+        assertTrue(KeysetPaginator.sameSort(position, "createdAt", Sort.Direction.DESC));
+        assertFalse(KeysetPaginator.sameSort(position, "createdAt", Sort.Direction.ASC));
+    }
+
+    @Test
+    void seekStartsStrictlyAfterLastRow() {
+        ObjectId id = new ObjectId();
+
+        Document asc = KeysetPaginator.seek("price", Sort.Direction.ASC, 10.0, id).getCriteriaObject();
+        assertEquals(List.of(
+                new Document("price", new Document("$gt", 10.0)),
+                new Document("price", 10.0).append("_id", new Document("$gt", id))), asc.get("$or"));
+
+        // Nulls sort first, so they come after every value when descending
+        Document desc = KeysetPaginator.seek("price", Sort.Direction.DESC, 10.0, id).getCriteriaObject();
+        assertEquals(3, desc.getList("$or", Document.class).size());
+
+        Document byId = KeysetPaginator.seek("_id", Sort.Direction.DESC, null, id).getCriteriaObject();
+        assertEquals(new Document("_id", new Document("$lt", id)), byId);
+    }
+
+    @Test
+    void rejectsBadRequests() {
+        assertThrows(BadRequestException.class, () -> KeysetPaginator.decode("not a cursor"));
+        assertThrows(BadRequestException.class,
+                () -> paginator.page(Product.class, null, CursorRequest.of("nope", "ASC", 20, "")));
+        assertThrows(BadRequestException.class,
+                () -> paginator.page(Product.class, null, CursorRequest.of("price", "ASC", 0, "")));
+
+        String priceCursor = KeysetPaginator.encodeCursor("price", Sort.Direction.ASC, 1.0, new ObjectId());
+        assertThrows(BadRequestException.class,
+                () -> paginator.page(Product.class, null, CursorRequest.of("name", "ASC", 20, priceCursor)));
+    }
+}
@@ -0,0 +1,178 @@
+package com.ecommerce.project.reminder;
+
+import com.ecommerce.project.entity.ReminderSchedule;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Same contract as the Mongo store, with a lock standing in for the
+ * conditional updates.
+ */
+class InMemoryReminderStore implements ReminderStore {
+
+    private record Lease(String owner, Instant until) {}
+
+    final Map<String, ReminderSchedule> reminders = new LinkedHashMap<>();
+    private final Map<Integer, Lease> leases = new HashMap<>();
+    private final Map<String, Instant> nodes = new HashMap<>();
+
+    synchronized void add(ReminderSchedule reminder) {
+        reminders.put(reminder.getId(), reminder);
+    }
+
+    synchronized long count(ReminderSchedule.ReminderStatus status) {
+        return reminders.values().stream().filter(r -> r.getStatus() == status).count();
+    }
+
+    @Override
+    public synchronized ReminderSchedule schedule(String userId, String productId, ReminderSchedule.ReminderType type,
+                                                  int shard, Instant scheduledAt, Instant coalesceSince) {
+        ReminderSchedule reminder = pending(userId, type);
+        if (reminder == null) {
+            reminder = new ReminderSchedule();
+            reminder.setId(UUID.randomUUID().toString());
+            reminder.setUserId(userId);
+            reminder.setType(type);
+            reminder.setShard(shard);
+            reminder.setScheduledAt(scheduledAt);
+            reminders.put(reminder.getId(), reminder);
+        } else if (!reminder.getCreatedAt().isBefore(coalesceSince) && reminder.getScheduledAt().isBefore(scheduledAt)) {
+            reminder.setScheduledAt(scheduledAt);
+        }
+        if (!reminder.getProductIds().contains(productId)) {
+            reminder.getProductIds().add(productId);
+        }
+        return reminder;
+    }
+
+    @Override
+    public synchronized void unschedule(String userId, String productId, ReminderSchedule.ReminderType type) {
+        ReminderSchedule reminder = pending(userId, type);
+        if (reminder != null) {
+            reminder.getProductIds().remove(productId);
+            if (productId.equals(reminder.getProductId())) {
+                reminder.setProductId(null);
+            }
+            if (reminder.getProductIds().isEmpty() && reminder.getProductId() == null) {
+                reminders.remove(reminder.getId());
+            }
+        }
+    }
+
+    private ReminderSchedule pending(String userId, ReminderSchedule.ReminderType type) {
+        return reminders.values().stream()
+                .filter(r -> r.getUserId().equals(userId) && r.getType() == type
+                        && r.getStatus() == ReminderSchedule.ReminderStatus.PENDING)
+                .findFirst().orElse(null);
+    }
+
+    @Override
+    public synchronized List<ReminderSchedule> findDue(Set<Integer> shards, Instant dueBy, Instant now) {
+        return reminders.values().stream()
+                .filter(r -> shards.contains(r.getShard() == null ? 0 : r.getShard()))
+                .filter(r -> (r.getStatus() == ReminderSchedule.ReminderStatus.PENDING && !r.getScheduledAt().isAfter(dueBy))
+                        || (r.getStatus() == ReminderSchedule.ReminderStatus.SENDING && r.getClaimedUntil().isBefore(now)))
+                .map(r -> {
+                    ReminderSchedule due = new ReminderSchedule();
+                    due.setId(r.getId());
+                    due.setUserId(r.getUserId());
+                    due.setScheduledAt(r.getScheduledAt());
+                    return due;
+                })
+                .toList();
+    }
+
+    @Override
+    public synchronized List<ReminderSchedule> claim(Collection<String> ids, String claim, Instant now, Instant leaseUntil) {
+        return ids.stream().map(reminders::get)
+                .filter(r -> r != null && ((r.getStatus() == ReminderSchedule.ReminderStatus.PENDING
+                        && !r.getScheduledAt().isAfter(now))
+                        || (r.getStatus() == ReminderSchedule.ReminderStatus.SENDING && r.getClaimedUntil().isBefore(now))))
+                .peek(r -> {
+                    r.setStatus(ReminderSchedule.ReminderStatus.SENDING);
+                    r.setClaimedBy(claim);
+                    r.setClaimedUntil(leaseUntil);
+                })
+                .toList();
+    }
+
+    @Override
+    public synchronized void complete(String claim, Map<String, ReminderSchedule.ReminderStatus> statuses, Instant sentAt) {
+        statuses.forEach((id, status) -> {
+            ReminderSchedule reminder = reminders.get(id);
+            if (reminder != null && claim.equals(reminder.getClaimedBy())) {
+                reminder.setStatus(status);
+                reminder.setClaimedBy(null);
+                reminder.setClaimedUntil(null);
+                if (status == ReminderSchedule.ReminderStatus.SENT) {
+                    reminder.setSentAt(sentAt);
+                }
+            }
+        });
+    }
+
+    @Override
+    public synchronized void reschedule(String claim, List<ReminderSchedule> failed) {
+        for (ReminderSchedule reminder : failed) {
+            ReminderSchedule stored = reminders.get(reminder.getId());
+            if (stored == null || !claim.equals(stored.getClaimedBy())) {
+                continue;
+            }
+            ReminderSchedule pending = pending(stored.getUserId(), stored.getType());
+            if (pending != null) {
+                stored.getProductIds().stream().filter(id -> !pending.getProductIds().contains(id))
+                        .forEach(pending.getProductIds()::add);
+                stored.setStatus(ReminderSchedule.ReminderStatus.CANCELLED);
+            } else {
+                stored.setStatus(ReminderSchedule.ReminderStatus.PENDING);
+                stored.setScheduledAt(reminder.getScheduledAt());
+                stored.setAttempts(reminder.getAttempts());
+            }
+            stored.setClaimedBy(null);
+            stored.setClaimedUntil(null);
+        }
+    }
+
+    @Override
+    public synchronized Set<String> heartbeat(String node, Instant now, Instant aliveUntil) {
+        nodes.put(node, aliveUntil);
+        nodes.values().removeIf(until -> !until.isAfter(now));
+        return Set.copyOf(nodes.keySet());
+    }
+
+    @Override
+    public synchronized Map<Integer, String> shardOwners(Instant now) {
+        Map<Integer, String> owners = new HashMap<>();
+        leases.forEach((shard, lease) -> {
+            if (lease.until().isAfter(now)) {
+                owners.put(shard, lease.owner());
+            }
+        });
+        return owners;
+    }
+
+    @Override
+    public synchronized boolean leaseShard(int shard, String node, Instant now, Instant leaseUntil) {
+        Lease lease = leases.get(shard);
+        if (lease != null && !lease.owner().equals(node) && lease.until().isAfter(now)) {
+            return false;
+        }
+        leases.put(shard, new Lease(node, leaseUntil));
+        return true;
+    }
+
+    @Override
+    public synchronized void releaseShard(int shard, String node) {
+        Lease lease = leases.get(shard);
+        if (lease != null && lease.owner().equals(node)) {
+            leases.remove(shard);
+        }
+    }
+}
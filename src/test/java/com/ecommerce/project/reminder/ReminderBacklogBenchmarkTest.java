@@ -0,0 +1,201 @@
+package com.ecommerce.project.reminder;
+
+import com.ecommerce.project.entity.Invoice;
+import com.ecommerce.project.entity.Order;
+import com.ecommerce.project.entity.Product;
+import com.ecommerce.project.entity.ReminderSchedule;
+import com.ecommerce.project.entity.User;
+import com.ecommerce.project.repository.ProductRepository;
+import com.ecommerce.project.repository.UserRepository;
+import com.ecommerce.project.service.EmailService;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Time to work off a backlog of 50k due reminders (5k users, 10 each) on one
+ * node: one reminder at a time with a findById per user and product and a save
+ * per reminder, as the scheduler used to, and in batches with bulk loads,
+ * per-user digests and one bulk status write per batch.
+ *
+ * Run with: mvn test -Dtest=ReminderBacklogBenchmarkTest -Dbenchmark=true -Dbenchmark.mongo.uri=mongodb://localhost:27017
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@EnabledIfSystemProperty(named = "benchmark.mongo.uri", matches = ".+")
+class ReminderBacklogBenchmarkTest {
+
+    private static final int USERS = 5_000;
+    private static final int PER_USER = 10;
+    private static final int PRODUCTS = 1_000;
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+    private static UserRepository userRepository;
+    private static ProductRepository productRepository;
+
+    private final AtomicInteger reminders = new AtomicInteger();
+    private final AtomicInteger emails = new AtomicInteger();
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(System.getProperty("benchmark.mongo.uri"));
+        mongoTemplate = new MongoTemplate(client, "reminder_benchmark_" + System.currentTimeMillis());
+        MongoRepositoryFactory factory = new MongoRepositoryFactory(mongoTemplate);
+        userRepository = factory.getRepository(UserRepository.class);
+        productRepository = factory.getRepository(ProductRepository.class);
+
+        List<User> users = new ArrayList<>(USERS);
+        for (int u = 0; u < USERS; u++) {
+            User user = new User();
+            user.setId("user" + u);
+            user.setEmail("user" + u + "@example.com");
+            users.add(user);
+        }
+        mongoTemplate.insertAll(users);
+        List<Product> products = new ArrayList<>(PRODUCTS);
+        for (int p = 0; p < PRODUCTS; p++) {
+            Product product = new Product();
+            product.setId("product" + p);
+            product.setName("Product " + p);
+            product.setPrice(100 + p);
+            product.setStockQuantity(p % 10);
+            products.add(product);
+        }
+        mongoTemplate.insertAll(products);
+    }
+
+    @AfterAll
+    static void drop() {
+        mongoTemplate.getDb().drop();
+        client.close();
+    }
+
+    @Test
+    void backlogOf50kReminders() {
+        schedule();
+        long start = System.nanoTime();
+        oneAtATime();
+        double oneAtATime = (System.nanoTime() - start) / 1e9;
+        assertEquals(USERS * PER_USER, reminders.getAndSet(0));
+        int singleEmails = emails.getAndSet(0);
+
+        schedule();
+        ReminderWheel wheel = wheel();
+        start = System.nanoTime();
+        wheel.refill();
+        while (reminders.get() < USERS * PER_USER) {
+            wheel.tick();
+        }
+        double batched = (System.nanoTime() - start) / 1e9;
+        assertEquals(0, mongoTemplate.count(Query.query(Criteria.where("status")
+                .ne(ReminderSchedule.ReminderStatus.SENT)), ReminderSchedule.class));
+
+        System.out.printf("50k reminders: one at a time %.1f s (%d emails), batched %.1f s (%d emails)%n",
+                oneAtATime, singleEmails, batched, emails.get());
+        assertTrue(batched < oneAtATime);
+    }
+
+    // What the scheduler did before batching
+    private void oneAtATime() {
+        EmailService email = emailService();
+        for (ReminderSchedule reminder : mongoTemplate.find(Query.query(Criteria.where("status")
+                .is(ReminderSchedule.ReminderStatus.PENDING)), ReminderSchedule.class)) {
+            User user = userRepository.findById(reminder.getUserId()).orElseThrow();
+            Product product = productRepository.findById(reminder.getProductIds().get(0)).orElseThrow();
+            email.sendCartReminderEmail(user, product, reminder.getId());
+            reminder.setStatus(ReminderSchedule.ReminderStatus.SENT);
+            reminder.setSentAt(Instant.now());
+            mongoTemplate.save(reminder);
+        }
+    }
+
+    private void schedule() {
+        mongoTemplate.dropCollection(ReminderSchedule.class);
+        Instant due = Instant.now().minusSeconds(60);
+        List<ReminderSchedule> backlog = new ArrayList<>(USERS * PER_USER);
+        for (int u = 0; u < USERS; u++) {
+            for (int r = 0; r < PER_USER; r++) {
+                ReminderSchedule reminder = new ReminderSchedule();
+                reminder.setUserId("user" + u);
+                reminder.setProductIds(new ArrayList<>(List.of("product" + ((u * PER_USER + r) % PRODUCTS))));
+                reminder.setType(r % 2 == 0 ? ReminderSchedule.ReminderType.CART : ReminderSchedule.ReminderType.WISHLIST);
+                reminder.setShard(0);
+                reminder.setScheduledAt(due);
+                backlog.add(reminder);
+            }
+        }
+        mongoTemplate.insertAll(backlog);
+    }
+
+    private ReminderWheel wheel() {
+        ReminderWheel wheel = new ReminderWheel(new MongoReminderStore(mongoTemplate), userRepository,
+                productRepository, emailService());
+        ReflectionTestUtils.setField(wheel, "tickMs", 1L);
+        ReflectionTestUtils.setField(wheel, "slots", 64);
+        ReflectionTestUtils.setField(wheel, "levels", 2);
+        ReflectionTestUtils.setField(wheel, "leaseSeconds", 120L);
+        ReflectionTestUtils.setField(wheel, "batchSize", 500);
+        ReflectionTestUtils.setField(wheel, "shards", 1);
+        ReflectionTestUtils.setField(wheel, "shardLeaseSeconds", 180L);
+        wheel.init();
+        return wheel;
+    }
+
+    // Counts the reminders and emails; rendering and queueing are the same either way
+    private EmailService emailService() {
+        return new EmailService() {
+            @Override
+            public void sendCartReminderEmail(User user, Product product, String reminderId) {
+                reminders.incrementAndGet();
+                emails.incrementAndGet();
+            }
+
+            @Override
+            public void sendWishlistReminderEmail(User user, Product product, String reminderId) {
+                sendCartReminderEmail(user, product, reminderId);
+            }
+
+            @Override
+            public void sendReminderDigestEmail(User user, List<Product> cartProducts, List<Product> wishlistProducts,
+                                                String digestId) {
+                reminders.addAndGet(cartProducts.size() + wishlistProducts.size());
+                emails.incrementAndGet();
+            }
+
+            @Override
+            public void sendOrderConfirmationToCustomer(Order order, User user) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void sendOrderNotificationToAdmin(Order order, User user) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void sendInvoiceToCustomer(Invoice invoice, User user, byte[] pdfData) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void sendInvoiceToAdmin(Invoice invoice, User user, byte[] pdfData) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,271 @@
+package com.ecommerce.project.reminder;
+
+import com.ecommerce.project.entity.Invoice;
+import com.ecommerce.project.entity.Order;
+import com.ecommerce.project.entity.Product;
+import com.ecommerce.project.entity.ReminderSchedule;
+import com.ecommerce.project.entity.User;
+import com.ecommerce.project.repository.ProductRepository;
+import com.ecommerce.project.repository.UserRepository;
+import com.ecommerce.project.service.EmailService;
+import com.ecommerce.project.service.ReminderSchedulerServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReminderWheelTest {
+
+    private static final int SHARDS = 16;
+
+    private final InMemoryReminderStore store = new InMemoryReminderStore();
+    // reminder id -> times sent, across all nodes
+    private final Map<String, AtomicInteger> sends = new ConcurrentHashMap<>();
+    private final AtomicInteger emails = new AtomicInteger();
+    // reminder id -> sends left to fail
+    private final Map<String, AtomicInteger> failing = new ConcurrentHashMap<>();
+
+    @Test
+    void nodesSplitTheShardsAndSendEachReminderOnce() throws Exception {
+        List<Node> nodes = List.of(new Node(), new Node(), new Node());
+        // a few rounds for the shards to spread over the nodes
+        for (int round = 0; round < 3; round++) {
+            nodes.forEach(node -> node.wheel.refill());
+        }
+        assertEquals(SHARDS, store.shardOwners(Instant.now()).size());
+        for (Node node : nodes) {
+            int owned = ((Set<?>) ReflectionTestUtils.getField(node.wheel, "ownedShards")).size();
+            // shares are rounded up, so the last node to join takes what is left
+            assertTrue(owned >= 4 && owned <= 6, "owned " + owned);
+        }
+
+        Instant due = Instant.now().minusSeconds(1);
+        for (int i = 0; i < 900; i++) {
+            store.add(reminder("r" + i, "user" + (i % 300), due));
+        }
+        // one left SENDING by a node that stopped
+        ReminderSchedule stale = reminder("stale", "user0", due);
+        stale.setStatus(ReminderSchedule.ReminderStatus.SENDING);
+        stale.setClaimedBy("gone");
+        stale.setClaimedUntil(Instant.now().minusSeconds(1));
+        store.add(stale);
+
+        runUntilSent(nodes, 901);
+
+        assertEquals(901, sends.size());
+        sends.forEach((id, count) -> assertEquals(1, count.get(), id));
+        assertEquals(0, store.count(ReminderSchedule.ReminderStatus.PENDING));
+        assertEquals(0, store.count(ReminderSchedule.ReminderStatus.SENDING));
+        for (Node node : nodes) {
+            assertTrue(node.sent.get() > 100, "node sent " + node.sent.get());
+        }
+        // three reminders per user, mostly due in the same batch
+        assertTrue(emails.get() < 600, "emails " + emails.get());
+    }
+
+    @Test
+    void remainingNodesTakeOverTheShardsOfAStoppedNode() throws Exception {
+        List<Node> nodes = List.of(new Node(), new Node(), new Node());
+        for (int round = 0; round < 3; round++) {
+            nodes.forEach(node -> node.wheel.refill());
+        }
+        // the third node stops without releasing its shards; its leases run out
+        Thread.sleep(1100);
+
+        Instant due = Instant.now().minusSeconds(1);
+        for (int i = 0; i < 300; i++) {
+            store.add(reminder("r" + i, "user" + i, due));
+        }
+        runUntilSent(nodes.subList(0, 2), 300);
+
+        assertEquals(300, sends.size());
+        sends.forEach((id, count) -> assertEquals(1, count.get(), id));
+        assertEquals(0, nodes.get(2).sent.get());
+        assertEquals(SHARDS, store.shardOwners(Instant.now()).size());
+    }
+
+    @Test
+    void coalescesAShoppersAddsIntoOneReminderAndOneEmail() throws Exception {
+        Node node = new Node();
+        node.wheel.refill();
+        ReminderSchedulerServiceImpl scheduler = new ReminderSchedulerServiceImpl(store, node.wheel);
+        ReflectionTestUtils.setField(scheduler, "coalesceWindowMinutes", 30);
+        for (int i = 0; i < 20; i++) {
+            scheduler.scheduleCartReminder("shopper", "p" + i, 0);
+        }
+        scheduler.scheduleCartReminder("shopper", "p3", 0);
+
+        assertEquals(1, store.reminders.size());
+        runUntilSent(List.of(node), 20);
+
+        // products are named after their reminder, so each product counts as one here
+        assertEquals(20, sends.size());
+        assertEquals(1, emails.get());
+        assertEquals(1, store.count(ReminderSchedule.ReminderStatus.SENT));
+    }
+
+    @Test
+    void retriesAFailedReminderAndGivesUpAfterMaxAttempts() throws Exception {
+        Node node = new Node();
+        node.wheel.refill();
+        Instant due = Instant.now().minusSeconds(1);
+        store.add(reminder("flaky", "user1", due));
+        store.add(reminder("down", "user2", due));
+        failing.put("flaky", new AtomicInteger(1));
+        failing.put("down", new AtomicInteger(Integer.MAX_VALUE));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ((store.count(ReminderSchedule.ReminderStatus.SENT) < 1 || store.count(ReminderSchedule.ReminderStatus.FAILED) < 1)
+                && System.nanoTime() < deadline) {
+            node.wheel.refill();
+            node.wheel.tick();
+            Thread.sleep(5);
+        }
+
+        assertEquals(ReminderSchedule.ReminderStatus.SENT, store.reminders.get("flaky").getStatus());
+        assertEquals(1, store.reminders.get("flaky").getAttempts());
+        assertEquals(ReminderSchedule.ReminderStatus.FAILED, store.reminders.get("down").getStatus());
+        assertEquals(Set.of("flaky"), sends.keySet());
+    }
+
+    // Runs the nodes side by side, each refilling and ticking in a loop
+    private void runUntilSent(List<Node> nodes, int expected) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(nodes.size());
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        List<Future<?>> running = new ArrayList<>();
+        for (Node node : nodes) {
+            running.add(pool.submit(() -> {
+                start.await();
+                while (sends.size() < expected && System.nanoTime() < deadline) {
+                    node.wheel.refill();
+                    node.wheel.tick();
+                    Thread.sleep(5);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : running) {
+            future.get();
+        }
+        pool.shutdown();
+    }
+
+    private final class Node {
+
+        final AtomicInteger sent = new AtomicInteger();
+        final ReminderWheel wheel;
+
+        Node() {
+            EmailService email = new EmailService() {
+                @Override
+                public void sendCartReminderEmail(User user, Product product, String reminderId) {
+                    AtomicInteger failures = failing.get(reminderId);
+                    if (failures != null && failures.getAndDecrement() > 0) {
+                        throw new IllegalStateException("SMTP server unavailable");
+                    }
+                    sent(reminderId);
+                    emails.incrementAndGet();
+                }
+
+                @Override
+                public void sendWishlistReminderEmail(User user, Product product, String reminderId) {
+                    sendCartReminderEmail(user, product, reminderId);
+                }
+
+                @Override
+                public void sendReminderDigestEmail(User user, List<Product> cartProducts,
+                                                    List<Product> wishlistProducts, String digestId) {
+                    // products are named after their reminder: "p" + reminder id
+                    cartProducts.forEach(product -> sent(product.getId().substring(1)));
+                    wishlistProducts.forEach(product -> sent(product.getId().substring(1)));
+                    emails.incrementAndGet();
+                }
+
+                @Override
+                public void sendOrderConfirmationToCustomer(Order order, User user) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void sendOrderNotificationToAdmin(Order order, User user) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void sendInvoiceToCustomer(Invoice invoice, User user, byte[] pdfData) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void sendInvoiceToAdmin(Invoice invoice, User user, byte[] pdfData) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+            wheel = new ReminderWheel(store, repository(UserRepository.class, id -> {
+                User user = new User();
+                user.setId(id);
+                return user;
+            }), repository(ProductRepository.class, id -> {
+                Product product = new Product();
+                product.setId(id);
+                return product;
+            }), email);
+            ReflectionTestUtils.setField(wheel, "tickMs", 10L);
+            ReflectionTestUtils.setField(wheel, "slots", 64);
+            ReflectionTestUtils.setField(wheel, "levels", 2);
+            ReflectionTestUtils.setField(wheel, "leaseSeconds", 60L);
+            ReflectionTestUtils.setField(wheel, "maxAttempts", 3);
+            ReflectionTestUtils.setField(wheel, "retryDelaySeconds", 0L);
+            ReflectionTestUtils.setField(wheel, "batchSize", 100);
+            ReflectionTestUtils.setField(wheel, "shards", SHARDS);
+            ReflectionTestUtils.setField(wheel, "shardLeaseSeconds", 1L);
+            wheel.init();
+        }
+
+        void sent(String reminderId) {
+            sends.computeIfAbsent(reminderId, id -> new AtomicInteger()).incrementAndGet();
+            sent.incrementAndGet();
+        }
+    }
+
+    // A repository whose findAllById makes up an entity for every id
+    @SuppressWarnings("unchecked")
+    private static <R> R repository(Class<R> type, Function<String, ?> entity) {
+        return (R) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            if (!method.getName().equals("findAllById")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            List<Object> found = new ArrayList<>();
+            ((Iterable<String>) args[0]).forEach(id -> found.add(entity.apply(id)));
+            return found;
+        });
+    }
+
+    private ReminderSchedule reminder(String id, String userId, Instant scheduledAt) {
+        ReminderSchedule reminder = new ReminderSchedule();
+        reminder.setId(id);
+        reminder.setUserId(userId);
+        reminder.setProductIds(new ArrayList<>(List.of("p" + id)));
+        reminder.setType(ReminderSchedule.ReminderType.CART);
+        reminder.setShard(Math.floorMod(userId.hashCode(), SHARDS));
+        reminder.setScheduledAt(scheduledAt);
+        return reminder;
+    }
+}
@@ -0,0 +1,57 @@
+package com.ecommerce.project.reminder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    void expiresEveryEntryWithinOneTickOfItsDeadline() {
+        long start = 1_700_000_000_500L;
+        // 1 s ticks, 60 slots, 3 levels: 60 s, 1 h and 60 h
+        TimingWheel<Long> wheel = new TimingWheel<>(1000, 60, 3, start);
+        Random random = new Random(42);
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            long deadline = start + (long) (random.nextDouble() * 5 * 3600_000);
+            deadlines.add(deadline);
+            assertTrue(wheel.add(deadline, deadline));
+        }
+        // overdue: expires on the first tick
+        assertTrue(wheel.add(start - 5000, start - 5000));
+        assertFalse(wheel.add(start + 61 * 3600_000L, start + 61 * 3600_000L));
+        assertEquals(5001, wheel.size());
+
+        int expired = 0;
+        for (long now = start; now <= start + 5 * 3600_000 + 2000; now += 700) {
+            for (long deadline : wheel.advance(now)) {
+                assertTrue(deadline <= now, "early: " + deadline + " at " + now);
+                assertTrue(now - Math.max(deadline, start) < 1000 + 700, "late: " + (now - deadline) + " ms");
+                expired++;
+            }
+        }
+        assertEquals(5001, expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void acceptsEntriesWhileAdvancing() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 10, 2, 0);
+        assertEquals(99_999, wheel.horizon());
+        wheel.advance(55_000);
+        assertTrue(wheel.add("a", 56_500));
+        assertTrue(wheel.add("b", 120_000));
+        assertTrue(wheel.add("c", 149_999));
+        assertFalse(wheel.add("d", 150_000));
+
+        assertEquals(List.of(), wheel.advance(56_999));
+        assertEquals(List.of("a"), wheel.advance(57_000));
+        assertEquals(List.of("b"), wheel.advance(121_000));
+        assertEquals(List.of("c"), wheel.advance(200_000));
+    }
+}
@@ -0,0 +1,93 @@
+package com.ecommerce.project.search;
+
+import com.ecommerce.project.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductFacetIndexTest {
+
+    private final ProductFacetIndex index = new ProductFacetIndex(new double[] {50, 100});
+
+    @BeforeEach
+    void setUp() {
+        index.upsert(product("p1", "shirts", 20, Product.Size.M, "Blue", 5));
+        index.upsert(product("p2", "shirts", 60, Product.Size.L, "red", 0));
+        index.upsert(product("p3", "jeans", 80, Product.Size.M, "blue", 3));
+        index.upsert(product("p4", "jeans", 150, Product.Size.XL, "black", 1));
+    }
+
+    @Test
+    void countsEachAttributeWithTheOtherFiltersApplied() {
+        ProductFilter filter = new ProductFilter(Set.of("jeans"), null, null, Set.of(), Set.of("BLUE"), null);
+
+        ProductFacetIndex.FacetResult result = index.filter(filter, 0, 10, "id", false);
+
+        assertEquals(List.of("p3"), result.productIds());
+        assertEquals(1, result.totalElements());
+        // Category counts ignore the category filter but respect the color filter
+        assertEquals(Map.of("shirts", 1L, "jeans", 1L), result.facets().get(ProductFacetIndex.CATEGORY));
+        // Color counts ignore the color filter but respect the category filter
+        assertEquals(Map.of("blue", 1L, "black", 1L), result.facets().get(ProductFacetIndex.COLOR));
+        assertEquals(Map.of("0-50", 0L, "50-100", 1L, "100+", 0L), result.facets().get(ProductFacetIndex.PRICE));
+    }
+
+    @Test
+    void filtersByPriceRangeAndStockAndSortsThePage() {
+        ProductFilter filter = new ProductFilter(Set.of(), 10.0, 100.0, Set.of(), Set.of(), true);
+
+        ProductFacetIndex.FacetResult result = index.filter(filter, 0, 10, "price", true);
+
+        assertEquals(List.of("p3", "p1"), result.productIds());
+        assertEquals(Map.of("true", 2L, "false", 1L), result.facets().get(ProductFacetIndex.IN_STOCK));
+    }
+
+    @Test
+    void priceRangesOnAndBetweenBucketBounds() {
+        index.upsert(product("p5", "jeans", 100, Product.Size.M, "blue", 1));
+
+        assertEquals(List.of("p2", "p3"), priceRange(50.0, 99.99));
+        assertEquals(List.of("p2", "p3", "p5"), priceRange(50.0, 100.0));
+        assertEquals(List.of("p1", "p2", "p3"), priceRange(null, 80.0));
+        assertEquals(List.of("p3", "p4", "p5"), priceRange(70.0, null));
+        assertEquals(List.of(), priceRange(90.0, 60.0));
+    }
+
+    @Test
+    void pagesThroughAllMatches() {
+        ProductFilter all = new ProductFilter(Set.of(), null, null, Set.of(), Set.of(), null);
+
+        assertEquals(List.of("p1", "p2"), index.filter(all, 0, 2, "price", false).productIds());
+        assertEquals(List.of("p3", "p4"), index.filter(all, 2, 2, "price", false).productIds());
+        assertEquals(List.of(), index.filter(all, 4, 2, "price", false).productIds());
+    }
+
+    @Test
+    void updatesMoveProductsBetweenFacetValues() {
+        index.upsert(product("p2", "jeans", 60, Product.Size.L, "red", 4));
+        index.remove("p4");
+
+        ProductFilter all = new ProductFilter(Set.of(), null, null, Set.of(), Set.of(), null);
+        ProductFacetIndex.FacetResult result = index.filter(all, 0, 10, "id", false);
+
+        assertEquals(3, result.totalElements());
+        assertEquals(Map.of("jeans", 2L, "shirts", 1L), result.facets().get(ProductFacetIndex.CATEGORY));
+        assertFalse(result.facets().get(ProductFacetIndex.COLOR).containsKey("black"));
+        assertEquals(Map.of("true", 3L, "false", 0L), result.facets().get(ProductFacetIndex.IN_STOCK));
+    }
+
+    private List<String> priceRange(Double min, Double max) {
+        ProductFilter filter = new ProductFilter(Set.of(), min, max, Set.of(), Set.of(), null);
+        return index.filter(filter, 0, 10, "id", false).productIds();
+    }
+
+    private static Product product(String id, String categoryId, double price, Product.Size size, String color, int stock) {
+        return new Product(id, "Product " + id, "", categoryId, price, stock, List.of(), size, color, LocalDateTime.now());
+    }
+}
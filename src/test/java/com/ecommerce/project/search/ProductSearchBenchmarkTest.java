@@ -0,0 +1,131 @@
+package com.ecommerce.project.search;
+
+import com.ecommerce.project.entity.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the inverted index against the unanchored case-insensitive regex that
+ * findByNameContainingIgnoreCase sends to Mongo. The regex side is evaluated in
+ * memory, which is a lower bound for the collection scan Mongo has to do.
+ * Also reports suggestion latency and the estimated size of the suggestion trie.
+ *
+ * Run with: mvn test -Dtest=ProductSearchBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProductSearchBenchmarkTest {
+
+    private static final String[] ADJECTIVES = {"classic", "slim", "relaxed", "vintage", "organic", "premium",
+            "casual", "formal", "summer", "winter", "striped", "printed", "waterproof", "lightweight", "cropped"};
+    private static final String[] NOUNS = {"shirt", "jeans", "jacket", "dress", "sneakers", "hoodie", "scarf",
+            "blazer", "shorts", "skirt", "sweater", "boots", "cardigan", "trousers", "polo"};
+    private static final String[] COLORS = {"red", "blue", "black", "white", "green", "grey", "navy", "beige"};
+    private static final String[] CATEGORIES = {"Men", "Women", "Kids", "Footwear", "Accessories", "Sportswear"};
+    private static final String[] PREFIXES = {"j", "sl", "vint", "water", "polo", "sw", "org", "bl"};
+    private static final String[] QUERIES = {"jacket", "slim jea", "vintage denim", "waterproof boots", "polo 42",
+            "sw", "organic cotton hoodie", "blazer"};
+
+    @Test
+    void compareAt100k() {
+        run(100_000);
+    }
+
+    @Test
+    void compareAt1M() {
+        run(1_000_000);
+    }
+
+    private void run(int size) {
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            products.add(randomProduct(random, i));
+        }
+
+        ProductSearchIndex index = new ProductSearchIndex();
+        ProductSuggester suggester = new ProductSuggester();
+        long buildStart = System.nanoTime();
+        for (Product p : products) {
+            String category = CATEGORIES[Math.floorMod(p.getCategoryId().hashCode(), CATEGORIES.length)];
+            index.index(p, category);
+            suggester.upsertProduct(p, category);
+            suggester.recordSale(p.getId(), random.nextInt(20));
+        }
+        long buildMs = (System.nanoTime() - buildStart) / 1_000_000;
+
+        int rounds = 20;
+        // Warm-up
+        for (String q : QUERIES) {
+            index.search(q, 100);
+            regexScan(products, q);
+        }
+
+        long indexNanos = 0;
+        long regexNanos = 0;
+        for (int r = 0; r < rounds; r++) {
+            for (String q : QUERIES) {
+                long t0 = System.nanoTime();
+                List<String> hits = index.search(q, 100);
+                long t1 = System.nanoTime();
+                int scanned = regexScan(products, q);
+                long t2 = System.nanoTime();
+                indexNanos += t1 - t0;
+                regexNanos += t2 - t1;
+                assertTrue(hits.size() <= 100);
+                assertTrue(scanned >= 0);
+            }
+        }
+        int queries = rounds * QUERIES.length;
+        double indexMicros = indexNanos / 1_000.0 / queries;
+        double regexMicros = regexNanos / 1_000.0 / queries;
+        System.out.printf("%,d products: index build %d ms, %,d terms | index %.1f us/query | regex %.1f us/query | %.0fx%n",
+                size, buildMs, index.termCount(), indexMicros, regexMicros, regexMicros / indexMicros);
+        assertTrue(indexMicros < regexMicros);
+
+        for (int r = 0; r < 1_000; r++) {
+            suggester.suggest(PREFIXES[r % PREFIXES.length], 10);
+        }
+        long suggestNanos = 0;
+        for (int r = 0; r < rounds * 10; r++) {
+            for (String prefix : PREFIXES) {
+                long t0 = System.nanoTime();
+                List<ProductSuggester.Suggestion> suggestions = suggester.suggest(prefix, 10);
+                suggestNanos += System.nanoTime() - t0;
+                assertFalse(suggestions.isEmpty());
+            }
+        }
+        System.out.printf("%,d products: suggest %.1f us/query, %,d keys, ~%,d KB%n", size,
+                suggestNanos / 1_000.0 / (rounds * 10 * PREFIXES.length), suggester.keyCount(),
+                suggester.estimatedBytes() / 1024);
+    }
+
+    private static int regexScan(List<Product> products, String keyword) {
+        Pattern pattern = Pattern.compile(Pattern.quote(keyword), Pattern.CASE_INSENSITIVE);
+        int matches = 0;
+        for (Product p : products) {
+            if (pattern.matcher(p.getName()).find()) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static Product randomProduct(Random random, int i) {
+        String adjective = ADJECTIVES[random.nextInt(ADJECTIVES.length)];
+        String noun = NOUNS[random.nextInt(NOUNS.length)];
+        String color = COLORS[random.nextInt(COLORS.length)];
+        String name = adjective + " " + color + " " + noun + " " + (i % 100);
+        String description = "A " + ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + noun
+                + " made from " + (random.nextBoolean() ? "organic cotton" : "recycled denim") + ", style " + i;
+        return new Product("p" + i, name, description, "c" + random.nextInt(CATEGORIES.length), 10 + random.nextInt(200),
+                random.nextInt(50), List.of(), Product.Size.M, color, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,91 @@
+package com.ecommerce.project.search;
+
+import com.ecommerce.project.entity.Product;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+
+    private final ProductSearchIndex index = new ProductSearchIndex();
+
+    @Test
+    void ranksNameMatchesAboveDescriptionMatches() {
+        index.index(product("p1", "Cotton Tee", "Goes well with a denim jacket", "white"), "Tops");
+        index.index(product("p2", "Denim Jacket", "Classic fit", "blue"), "Outerwear");
+        index.index(product("p3", "Wool Scarf", "Warm", "grey"), "Accessories");
+
+        assertEquals(List.of("p2", "p1"), index.search("denim", 10));
+    }
+
+    @Test
+    void requiresAllTermsAndExpandsTheLastOneAsPrefix() {
+        index.index(product("p1", "Red Running Shoes", "", "red"), "Footwear");
+        index.index(product("p2", "Red Dress", "", "red"), "Dresses");
+        index.index(product("p3", "Running Shorts", "", "black"), "Sportswear");
+
+        assertEquals(List.of("p1"), index.search("red runn", 10));
+        assertEquals(Set.of("p1", "p3"), Set.copyOf(index.search("RUNNING", 10)));
+        assertEquals(List.of("p2"), index.search("dress", 10));
+    }
+
+    @Test
+    void matchesCategoryNameAndFoldsAccents() {
+        index.index(product("p1", "Café Mug", "", "white"), "Kitchen");
+
+        assertEquals(List.of("p1"), index.search("cafe", 10));
+        assertEquals(List.of("p1"), index.search("kitch", 10));
+    }
+
+    @Test
+    void updatesAndDeletesAreReflectedImmediately() {
+        index.index(product("p1", "Blue Shirt", "", "blue"), "Tops");
+        index.index(product("p1", "Green Shirt", "", "green"), "Tops");
+
+        assertTrue(index.search("blue", 10).isEmpty());
+        assertEquals(List.of("p1"), index.search("green", 10));
+
+        index.remove("p1");
+        assertTrue(index.search("shirt", 10).isEmpty());
+        assertEquals(0, index.documentCount());
+        assertEquals(0, index.termCount());
+    }
+
+    @Test
+    void limitsResultsToTheBestMatches() {
+        for (int i = 0; i < 50; i++) {
+            index.index(product("p" + i, "Shirt " + i, "", "blue"), "Tops");
+        }
+        index.index(product("best", "Shirt Shirt", "shirt", "blue"), "Tops");
+
+        List<String> results = index.search("shirt", 5);
+        assertEquals(5, results.size());
+        assertEquals("best", results.get(0));
+    }
+
+    @Test
+    void queriesOnOneThreadDoNotCarryScoresOver() {
+        index.index(product("p1", "Red Running Shoes", "", "red"), "Footwear");
+        index.index(product("p2", "Red Dress", "", "red"), "Dresses");
+
+        assertEquals(Set.of("p1", "p2"), Set.copyOf(index.search("red", 10)));
+        assertEquals(List.of("p1"), index.search("red runn", 10));
+        assertEquals(List.of("p2"), index.search("dress red", 10));
+
+        // the scores outgrow the arrays of the earlier queries
+        for (int i = 0; i < 2000; i++) {
+            index.index(product("x" + i, "Running Shorts " + i, "", "black"), "Sportswear");
+        }
+        assertEquals(List.of("p1"), index.search("red runn", 10));
+        assertEquals(2001, index.search("running", 5000).size());
+    }
+
+    static Product product(String id, String name, String description, String color) {
+        return new Product(id, name, description, "c-" + id, 10.0, 5, List.of(),
+                Product.Size.M, color, LocalDateTime.now());
+    }
+}
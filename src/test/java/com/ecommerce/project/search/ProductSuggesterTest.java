@@ -0,0 +1,77 @@
+package com.ecommerce.project.search;
+
+import com.ecommerce.project.entity.Product;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSuggesterTest {
+
+    private final ProductSuggester suggester = new ProductSuggester();
+
+    @Test
+    void ordersCompletionsByPopularity() {
+        suggester.upsertProduct(product("p1", "Denim Jacket", "c1"), "Outerwear");
+        suggester.upsertProduct(product("p2", "Denim Jeans", "c2"), "Bottoms");
+        suggester.recordSale("p2", 5);
+
+        assertEquals(List.of("Denim Jeans", "Denim Jacket"), texts(suggester.suggest("den", 10)));
+
+        suggester.recordSale("p1", 10);
+        assertEquals(List.of("Denim Jacket", "Denim Jeans"), texts(suggester.suggest("den", 10)));
+        assertEquals(List.of("Denim Jacket"), texts(suggester.suggest("denim", 1)));
+    }
+
+    @Test
+    void completesFromAnyWordAndIncludesCategories() {
+        suggester.upsertProduct(product("p1", "Blue Denim Jacket", "c1"), "Jackets & Coats");
+
+        List<ProductSuggester.Suggestion> suggestions = suggester.suggest("jack", 10);
+
+        assertEquals(2, suggestions.size());
+        assertTrue(suggestions.stream().anyMatch(s -> s.type().equals(ProductSuggester.PRODUCT)
+                && s.text().equals("Blue Denim Jacket")));
+        assertTrue(suggestions.stream().anyMatch(s -> s.type().equals(ProductSuggester.CATEGORY)
+                && s.text().equals("Jackets & Coats")));
+    }
+
+    @Test
+    void productsWithTheSameNameShareOneSuggestion() {
+        suggester.upsertProduct(product("p1", "Jacket", "c1"), "Outerwear");
+        suggester.upsertProduct(product("p2", "jacket", "c1"), "Outerwear");
+        suggester.upsertProduct(product("p3", "Denim Jacket", "c1"), "Outerwear");
+
+        List<ProductSuggester.Suggestion> suggestions = suggester.suggest("jacket", 10);
+
+        assertEquals(2, suggestions.size());
+        assertEquals(2, suggestions.get(0).weight());
+    }
+
+    @Test
+    void updatesAndDeletesRemoveStaleKeys() {
+        suggester.upsertProduct(product("p1", "Wool Scarf", "c1"), "Accessories");
+        suggester.upsertProduct(product("p1", "Silk Scarf", "c1"), "Accessories");
+
+        assertTrue(suggester.suggest("wool", 10).isEmpty());
+        assertEquals(List.of("Silk Scarf"), texts(suggester.suggest("sil", 10)));
+
+        suggester.renameCategory("c1", "Scarves");
+        assertTrue(suggester.suggest("acc", 10).isEmpty());
+        assertEquals(List.of("Scarves"), texts(suggester.suggest("scarv", 10)));
+
+        suggester.removeProduct("p1");
+        assertTrue(suggester.suggest("s", 10).isEmpty());
+        assertEquals(0, suggester.keyCount());
+    }
+
+    private static List<String> texts(List<ProductSuggester.Suggestion> suggestions) {
+        return suggestions.stream().map(ProductSuggester.Suggestion::text).toList();
+    }
+
+    private static Product product(String id, String name, String categoryId) {
+        return new Product(id, name, "", categoryId, 10.0, 5, List.of(), Product.Size.M, "blue", LocalDateTime.now());
+    }
+}
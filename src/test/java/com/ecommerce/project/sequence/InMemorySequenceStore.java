@@ -0,0 +1,21 @@
+package com.ecommerce.project.sequence;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Same contract as the Mongo store: an atomic add stands in for the $inc.
+ */
+class InMemorySequenceStore implements SequenceStore {
+
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    final AtomicInteger reservations = new AtomicInteger();
+
+    @Override
+    public long reserve(String sequence, int count) {
+        reservations.incrementAndGet();
+        return counters.computeIfAbsent(sequence, s -> new AtomicLong()).addAndGet(count) - count + 1;
+    }
+}
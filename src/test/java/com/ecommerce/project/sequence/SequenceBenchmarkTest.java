@@ -0,0 +1,93 @@
+package com.ecommerce.project.sequence;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Numbers per second handed out by two nodes of 16 threads each, with one
+ * counter update per number (block size 1) and with blocks of 100 and 1000.
+ *
+ * Run with: mvn test -Dtest=SequenceBenchmarkTest -Dbenchmark=true -Dbenchmark.mongo.uri=mongodb://localhost:27017
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@EnabledIfSystemProperty(named = "benchmark.mongo.uri", matches = ".+")
+class SequenceBenchmarkTest {
+
+    private static final int THREADS_PER_NODE = 16;
+    private static final long SECONDS = 5;
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(System.getProperty("benchmark.mongo.uri"));
+        mongoTemplate = new MongoTemplate(client, "sequence_benchmark_" + System.currentTimeMillis());
+    }
+
+    @AfterAll
+    static void drop() {
+        mongoTemplate.getDb().drop();
+        client.close();
+    }
+
+    @Test
+    void numbersPerSecond() throws Exception {
+        double one = run(1);
+        double hundred = run(100);
+        double thousand = run(1000);
+        System.out.printf("Numbers/s: block size 1 %.0f, 100 %.0f, 1000 %.0f%n", one, hundred, thousand);
+        assertTrue(hundred > one);
+    }
+
+    private static double run(int blockSize) throws Exception {
+        String sequence = "benchmark-" + blockSize;
+        SequenceService[] nodes = {node(blockSize), node(blockSize)};
+        ConcurrentHashMap<Long, Boolean> seen = new ConcurrentHashMap<>();
+        AtomicLong handedOut = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SECONDS);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS_PER_NODE * nodes.length);
+        CountDownLatch done = new CountDownLatch(THREADS_PER_NODE * nodes.length);
+        long start = System.nanoTime();
+        for (SequenceService node : nodes) {
+            for (int t = 0; t < THREADS_PER_NODE; t++) {
+                pool.execute(() -> {
+                    try {
+                        while (System.nanoTime() < deadline) {
+                            assertNull(seen.put(node.next(sequence), true));
+                            handedOut.incrementAndGet();
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdownNow();
+        assertEquals(handedOut.get(), seen.size());
+        return handedOut.get() / seconds;
+    }
+
+    private static SequenceService node(int blockSize) {
+        SequenceService service = new SequenceService(new MongoSequenceStore(mongoTemplate));
+        ReflectionTestUtils.setField(service, "blockSize", blockSize);
+        return service;
+    }
+}
@@ -0,0 +1,69 @@
+package com.ecommerce.project.sequence;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SequenceServiceTest {
+
+    @Test
+    void numbersAreUniqueAcrossNodesAndIncreasingPerNode() throws Exception {
+        InMemorySequenceStore store = new InMemorySequenceStore();
+        SequenceService[] nodes = {node(store, 50), node(store, 50)};
+        int threads = 8;
+        int perThread = 5000;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<long[]>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                SequenceService node = nodes[t % nodes.length];
+                results.add(pool.submit(() -> {
+                    long[] numbers = new long[perThread];
+                    for (int i = 0; i < perThread; i++) {
+                        numbers[i] = node.next("invoiceNumber");
+                    }
+                    return numbers;
+                }));
+            }
+            Set<Long> all = new HashSet<>();
+            for (Future<long[]> result : results) {
+                long[] numbers = result.get();
+                for (int i = 0; i < numbers.length; i++) {
+                    assertTrue(all.add(numbers[i]), "duplicate " + numbers[i]);
+                    if (i > 0) {
+                        assertTrue(numbers[i] > numbers[i - 1]);
+                    }
+                }
+            }
+            assertEquals(threads * perThread, all.size());
+        } finally {
+            pool.shutdownNow();
+        }
+        // one store round trip per block, plus at most one partly used block per node
+        assertTrue(store.reservations.get() <= threads * perThread / 50 + nodes.length);
+    }
+
+    @Test
+    void sequencesAreIndependent() {
+        SequenceService node = node(new InMemorySequenceStore(), 10);
+        assertEquals(1, node.next("invoiceNumber"));
+        assertEquals(1, node.next("orderNumber"));
+        assertEquals(2, node.next("invoiceNumber"));
+    }
+
+    private static SequenceService node(SequenceStore store, int blockSize) {
+        SequenceService service = new SequenceService(store);
+        ReflectionTestUtils.setField(service, "blockSize", blockSize);
+        return service;
+    }
+}
@@ -0,0 +1,140 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.cart.CartStore;
+import com.ecommerce.project.dto.CartViewDTO;
+import com.ecommerce.project.dto.ProductResponseDTO;
+import com.ecommerce.project.entity.CartItem;
+import com.ecommerce.project.entity.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartServiceImplTest {
+
+    private final List<CartItem> cart = new ArrayList<>();
+    private final Map<String, ProductResponseDTO> products = new HashMap<>();
+
+    @Test
+    void pricesTheCartAndSplitsOutTheTax() {
+        product("shirt", 590.0, 10);
+        product("socks", 118.0, 3);
+        item("i1", "shirt", 2);
+        item("i2", "socks", 1);
+
+        CartViewDTO view = service().getCartView("u1");
+
+        assertEquals(List.of(CartViewDTO.StockStatus.IN_STOCK, CartViewDTO.StockStatus.IN_STOCK),
+                view.items().stream().map(CartViewDTO.Line::stockStatus).toList());
+        assertEquals(1180.0, view.items().get(0).lineTotal(), 1e-9);
+        assertEquals(118.0, view.items().get(1).unitPrice(), 1e-9);
+        assertEquals(3, view.itemCount());
+        assertEquals(1298.0, view.totalAmount(), 1e-9);
+        assertEquals(1100.0, view.subtotal(), 1e-9);
+        assertEquals(198.0, view.taxAmount(), 1e-9);
+        assertTrue(view.warnings().isEmpty());
+    }
+
+    @Test
+    void flagsShortStock() {
+        product("shirt", 100.0, 0);
+        product("socks", 10.0, 2);
+        item("i1", "shirt", 1);
+        item("i2", "socks", 5);
+
+        CartViewDTO view = service().getCartView("u1");
+
+        assertEquals(CartViewDTO.StockStatus.OUT_OF_STOCK, view.items().get(0).stockStatus());
+        assertEquals(CartViewDTO.StockStatus.INSUFFICIENT_STOCK, view.items().get(1).stockStatus());
+        assertEquals(List.of("shirt is out of stock", "Only 2 of socks left in stock"), view.warnings());
+        // still priced, so the user sees what the cart would cost
+        assertEquals(150.0, view.totalAmount(), 1e-9);
+        assertEquals(6, view.itemCount());
+    }
+
+    @Test
+    void listsProductsThatNoLongerExistOutsideTheTotals() {
+        product("shirt", 118.0, 5);
+        item("i1", "shirt", 1);
+        item("i2", "deleted", 4);
+
+        CartViewDTO view = service().getCartView("u1");
+
+        CartViewDTO.Line gone = view.items().get(1);
+        assertEquals(CartViewDTO.StockStatus.UNAVAILABLE, gone.stockStatus());
+        assertNull(gone.product());
+        assertEquals("deleted", gone.productId());
+        assertEquals(4, gone.quantity());
+        assertEquals(0.0, gone.lineTotal());
+        assertEquals(1, view.itemCount());
+        assertEquals(118.0, view.totalAmount(), 1e-9);
+        assertEquals(100.0, view.subtotal(), 1e-9);
+        assertEquals(List.of("A product in your cart is no longer available"), view.warnings());
+    }
+
+    private CartServiceImpl service() {
+        CartStore store = new CartStore() {
+            @Override
+            public Added add(String userId, String productId, int quantity) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CartItem setQuantity(String cartItemId, int quantity) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CartItem setQuantity(String userId, String productId, int quantity) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void remove(String cartItemId) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<CartItem> items(String userId) {
+                return cart;
+            }
+
+            @Override
+            public void clear(String userId) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        ProductService productService = (ProductService) Proxy.newProxyInstance(ProductService.class.getClassLoader(),
+                new Class<?>[] {ProductService.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("getProductSnapshots")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    Map<String, ProductResponseDTO> found = new HashMap<>();
+                    for (Object id : (Collection<?>) args[0]) {
+                        if (products.containsKey(id)) {
+                            found.put((String) id, products.get(id));
+                        }
+                    }
+                    return found;
+                });
+        CartServiceImpl service = new CartServiceImpl(store, null, productService);
+        ReflectionTestUtils.setField(service, "taxRate", 0.18);
+        return service;
+    }
+
+    private void product(String id, double price, int stock) {
+        products.put(id, new ProductResponseDTO(id, id, "", price, stock, "c1", "blue", Product.Size.M, List.of()));
+    }
+
+    private void item(String id, String productId, int quantity) {
+        cart.add(new CartItem(id, "u1", productId, quantity, LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,124 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.entity.Invoice;
+import com.ecommerce.project.entity.Order;
+import com.ecommerce.project.entity.User;
+import com.ecommerce.project.sequence.SequenceService;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Invoices rendered per second, compiling the template for every invoice (as
+ * before) versus once, single threaded and on a pool.
+ *
+ * Run with: mvn test -Dtest=InvoiceRenderBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class InvoiceRenderBenchmarkTest {
+
+    private static final int WARMUP = 20;
+    private static final int INVOICES = 200;
+
+    @Test
+    void invoicesPerSecond() throws Exception {
+        SequenceService sequences = new SequenceService((sequence, count) -> 1);
+        ReflectionTestUtils.setField(sequences, "blockSize", Integer.MAX_VALUE);
+        InvoiceServiceImpl service = new InvoiceServiceImpl(null, null, null, sequences);
+        service.loadTemplate();
+        Order order = order();
+        User user = user();
+        Invoice invoice = service.newInvoice(order, user);
+
+        for (int i = 0; i < WARMUP; i++) {
+            compileEveryTime(service, order, user, invoice);
+            service.renderInvoicePdf(order, user, invoice);
+        }
+
+        double before = perSecond(INVOICES / 4, () -> compileEveryTime(service, order, user, invoice));
+        double after = perSecond(INVOICES, () -> assertTrue(service.renderInvoicePdf(order, user, invoice).length > 0));
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        double pooled;
+        try {
+            long start = System.nanoTime();
+            List<Future<byte[]>> pdfs = new ArrayList<>();
+            for (int i = 0; i < INVOICES * 2; i++) {
+                pdfs.add(pool.submit(() -> service.renderInvoicePdf(order, user, invoice)));
+            }
+            for (Future<byte[]> pdf : pdfs) {
+                assertTrue(pdf.get().length > 0);
+            }
+            pooled = INVOICES * 2 / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        System.out.printf("Invoices/s: compiled per invoice %.1f, compiled once %.1f, compiled once on %d threads %.1f%n",
+                before, after, threads, pooled);
+        assertTrue(after > before);
+    }
+
+    private static void compileEveryTime(InvoiceServiceImpl service, Order order, User user, Invoice invoice) {
+        try (InputStream template = new ClassPathResource("invoice_template.jrxml").getInputStream()) {
+            JasperCompileManager.compileReport(template);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        service.renderInvoicePdf(order, user, invoice);
+    }
+
+    private static double perSecond(int n, Runnable render) {
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            render.run();
+        }
+        return n / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static Order order() {
+        Order order = new Order();
+        order.setId("order-1");
+        order.setUserId("user-1");
+        order.setTotalAmount(2360);
+        order.setOrderDate(LocalDateTime.now());
+        Order.Address address = new Order.Address();
+        address.setAddressLine("12 MG Road");
+        address.setCity("Pune");
+        address.setState("MH");
+        address.setPostalCode("411001");
+        address.setCountry("India");
+        order.setAddress(address);
+        List<Order.OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Order.OrderItem item = new Order.OrderItem();
+            item.setProductId("product-" + i);
+            item.setQuantity(i + 1);
+            item.setPrice(100.0 + i);
+            items.add(item);
+        }
+        order.setItems(items);
+        return order;
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId("user-1");
+        user.setFullName("Asha Verma");
+        user.setEmail("asha@example.com");
+        return user;
+    }
+}
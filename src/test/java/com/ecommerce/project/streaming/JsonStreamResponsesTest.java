@@ -0,0 +1,116 @@
+package com.ecommerce.project.streaming;
+
+import com.ecommerce.project.entity.Product;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonStreamResponsesTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    void writesJsonArrayAndNdjson() throws Exception {
+        List<Product> products = List.of(product(1), product(2), product(3));
+
+        ByteArrayOutputStream array = new ByteArrayOutputStream();
+        JsonStreamResponses.write(objectMapper, products.iterator(), array, false);
+        JsonNode parsed = objectMapper.readTree(array.toByteArray());
+        assertTrue(parsed.isArray());
+        assertEquals(3, parsed.size());
+        assertEquals("p-2", parsed.get(1).get("id").asText());
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        JsonStreamResponses.write(objectMapper, products.iterator(), ndjson, true);
+        String[] lines = ndjson.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("p-3", objectMapper.readTree(lines[2]).get("id").asText());
+
+        ByteArrayOutputStream empty = new ByteArrayOutputStream();
+        JsonStreamResponses.write(objectMapper, List.of().iterator(), empty, false);
+        assertEquals("[]", empty.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 500k documents produced lazily, as a Mongo cursor does. Retained heap is
+     * sampled after a GC every 50k documents and must stay flat; holding the
+     * documents in a list first would retain several hundred MB.
+     */
+    @Test
+    void heapStaysFlatFor500kDocuments() throws Exception {
+        int total = 500_000;
+        Runtime runtime = Runtime.getRuntime();
+        long baseline = usedAfterGc(runtime);
+        long[] peak = {0};
+
+        Iterator<Product> cursor = new Iterator<>() {
+            int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < total;
+            }
+
+            @Override
+            public Product next() {
+                if (next % 50_000 == 0) {
+                    peak[0] = Math.max(peak[0], usedAfterGc(runtime) - baseline);
+                }
+                return product(next++);
+            }
+        };
+        CountingOutputStream out = new CountingOutputStream();
+
+        long written = JsonStreamResponses.write(objectMapper, cursor, out, true);
+
+        assertEquals(total, written);
+        assertTrue(out.bytes > 100L * 1024 * 1024, "expected >100 MB of output, got " + out.bytes);
+        assertTrue(peak[0] < 32L * 1024 * 1024, "retained heap grew by " + peak[0] / 1024 + " KB");
+    }
+
+    private static long usedAfterGc(Runtime runtime) {
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static Product product(int i) {
+        Product p = new Product();
+        p.setId("p-" + i);
+        p.setName("Product " + i);
+        p.setDescription("A fairly ordinary description of product number " + i + " used to pad the document.");
+        p.setCategoryId("category-" + (i % 20));
+        p.setPrice(i % 1000 + 0.99);
+        p.setStockQuantity(i % 50);
+        p.setImageUrls(List.of("https://cdn.example.com/products/" + i + "/1.jpg", "https://cdn.example.com/products/" + i + "/2.jpg"));
+        p.setColor("blue");
+        p.setCreatedAt(LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(i));
+        return p;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}